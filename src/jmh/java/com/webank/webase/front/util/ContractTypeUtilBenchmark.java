@@ -0,0 +1,108 @@
+/**
+ * Copyright 2014-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webank.webase.front.util;
+
+import com.webank.webase.front.util.ContractTypeUtil.TypeCodec;
+import java.util.concurrent.TimeUnit;
+import org.fisco.bcos.web3j.abi.datatypes.Type;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * encode and decode of function params: reflective LegacyContractTypeUtil against
+ * type codec table of ContractTypeUtil, one op is one param of each sample type
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ContractTypeUtilBenchmark {
+
+    private static final String[][] SAMPLES = {
+        {"address", "0x0000000000000000000000000000000000000001"},
+        {"bool", "true"},
+        {"string", "hello"},
+        {"bytes", "0x0102ff"},
+        {"uint8", "127"},
+        {"int64", "-128"},
+        {"uint256", "1234567890123456789"},
+        {"bytes4", "0x01020304"},
+        {"bytes32", "0x0102030405060708091011121314151617181920212223242526272829303132"}
+    };
+
+    private Class<? extends Type>[] typeClasses;
+    private Type[] encoded;
+    private TypeCodec[] codecs;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        typeClasses = new Class[SAMPLES.length];
+        encoded = new Type[SAMPLES.length];
+        codecs = new TypeCodec[SAMPLES.length];
+        for (int i = 0; i < SAMPLES.length; i++) {
+            typeClasses[i] = AbiTypes.getType(SAMPLES[i][0]);
+            codecs[i] = ContractTypeUtil.getCodec(SAMPLES[i][0]);
+            encoded[i] = codecs[i].encode(SAMPLES[i][1]);
+        }
+    }
+
+    @Benchmark
+    public void legacyEncode(Blackhole blackhole) {
+        for (int i = 0; i < SAMPLES.length; i++) {
+            Object value = LegacyContractTypeUtil.parseByType(SAMPLES[i][0], SAMPLES[i][1]);
+            blackhole.consume(LegacyContractTypeUtil.generateClassFromInput(value.toString(),
+                AbiTypes.getType(SAMPLES[i][0])));
+        }
+    }
+
+    @Benchmark
+    public void codecEncode(Blackhole blackhole) {
+        for (String[] sample : SAMPLES) {
+            blackhole.consume(ContractTypeUtil.getCodec(sample[0]).encode(sample[1]));
+        }
+    }
+
+    /**
+     * codec resolved in advance, as AbiFunctionCache does for compiled functions
+     */
+    @Benchmark
+    public void codecEncodeResolved(Blackhole blackhole) {
+        for (int i = 0; i < SAMPLES.length; i++) {
+            blackhole.consume(codecs[i].encode(SAMPLES[i][1]));
+        }
+    }
+
+    @Benchmark
+    public void legacyDecode(Blackhole blackhole) {
+        for (int i = 0; i < SAMPLES.length; i++) {
+            blackhole.consume(LegacyContractTypeUtil.decodeResult(encoded[i], typeClasses[i]));
+        }
+    }
+
+    @Benchmark
+    public void codecDecode(Blackhole blackhole) {
+        for (int i = 0; i < SAMPLES.length; i++) {
+            blackhole.consume(codecs[i].decode(encoded[i]));
+        }
+    }
+}
@@ -86,6 +86,9 @@ public class ConstantCode {
     // tx channel
     public static final RetCode ENCODE_STR_CANNOT_BE_NULL = RetCode.mark(201045, "encode string can not be empty!");
     public static final RetCode TRANSACTION_FAILED = RetCode.mark(201046, "transaction failed!");
+    public static final RetCode TRANS_BATCH_SIZE_INVALID = RetCode.mark(201047, "transaction batch is empty or exceeds max batch size");
+    public static final RetCode TRANS_OVERLOAD = RetCode.mark(201048, "too many transactions in flight of this group, please retry later");
+    public static final RetCode EVENT_STREAM_OVERLOAD = RetCode.mark(201049, "too many event stream clients, please retry later");
 
     public static final RetCode FAIL_PARSE_JSON = RetCode.mark(201050, "Fail to parse json");
     public static final RetCode GET_CONSENSUS_STATUS_FAIL = RetCode.mark(201051, "get consensus status fail");
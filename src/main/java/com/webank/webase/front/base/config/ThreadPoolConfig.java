@@ -0,0 +1,161 @@
+/*
+ * Copyright 2014-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.webank.webase.front.base.config;
+
+import com.webank.webase.front.base.properties.Constants;
+import java.util.concurrent.ThreadPoolExecutor.AbortPolicy;
+import java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * thread pools used by front itself, separated from sdkThreadPool of channel service
+ */
+@Slf4j
+@Configuration
+public class ThreadPoolConfig {
+
+    @Autowired
+    private Constants constants;
+
+    /**
+     * thread pool of transaction pipeline: sign and send in batch
+     * caller runs when queue is full, which slows down the request thread instead of failing
+     * @return
+     */
+    @Bean(name = "transThreadPool")
+    public ThreadPoolTaskExecutor transThreadPool() {
+        log.info("*****init transThreadPool core:{} max:{} queue:{}",
+            constants.getTransPoolCoreSize(), constants.getTransPoolMaxSize(),
+            constants.getTransPoolQueueCapacity());
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(constants.getTransPoolCoreSize());
+        executor.setMaxPoolSize(constants.getTransPoolMaxSize());
+        executor.setQueueCapacity(constants.getTransPoolQueueCapacity());
+        executor.setKeepAliveSeconds(60);
+        executor.setRejectedExecutionHandler(new CallerRunsPolicy());
+        executor.setThreadNamePrefix("transThreadPool-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * thread pool sending requests to webase-sign, size bounds in-flight sign requests
+     * @return
+     */
+    @Bean(name = "signThreadPool")
+    public ThreadPoolTaskExecutor signThreadPool() {
+        log.info("*****init signThreadPool size:{}", constants.getSignPoolSize());
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(constants.getSignPoolSize());
+        executor.setMaxPoolSize(constants.getSignPoolSize());
+        executor.setQueueCapacity(constants.getSignQueueCapacity());
+        executor.setRejectedExecutionHandler(new CallerRunsPolicy());
+        executor.setThreadNamePrefix("signThreadPool-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * thread publishing new block to mq subscriptions, BlockNotifyDispatcher keeps order of
+     * blocks in each group and drops block before queue is full, so that sdk callback thread
+     * never runs it or overtakes the queued blocks
+     * @return
+     */
+    @Bean(name = "blockNotifyThreadPool")
+    public ThreadPoolTaskExecutor blockNotifyThreadPool() {
+        log.info("*****init blockNotifyThreadPool queue:{}",
+            constants.getBlockNotifyQueueCapacity());
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(constants.getBlockNotifyQueueCapacity());
+        executor.setRejectedExecutionHandler(new AbortPolicy());
+        executor.setThreadNamePrefix("blockNotifyThreadPool-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * threads fetching block and receipts for enriched block notify,
+     * rejected if queue is full, then block number only is pushed
+     * @return
+     */
+    @Bean(name = "blockEnrichThreadPool")
+    public ThreadPoolTaskExecutor blockEnrichThreadPool() {
+        log.info("*****init blockEnrichThreadPool size:{}", constants.getBlockEnrichPoolSize());
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(constants.getBlockEnrichPoolSize());
+        executor.setMaxPoolSize(constants.getBlockEnrichPoolSize());
+        executor.setQueueCapacity(constants.getBlockEnrichPoolSize() * 100);
+        executor.setRejectedExecutionHandler(new AbortPolicy());
+        executor.setThreadNamePrefix("blockEnrichThreadPool-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * thread driving historical event backfill, one per task, rejected if all busy
+     * @return
+     */
+    @Bean(name = "eventBackfillThreadPool")
+    public ThreadPoolTaskExecutor eventBackfillThreadPool() {
+        log.info("*****init eventBackfillThreadPool max:{}", constants.getEventBackfillMaxTasks());
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(constants.getEventBackfillMaxTasks());
+        executor.setMaxPoolSize(constants.getEventBackfillMaxTasks());
+        executor.setQueueCapacity(0);
+        executor.setRejectedExecutionHandler(new AbortPolicy());
+        executor.setThreadNamePrefix("eventBackfillThreadPool-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * threads sending sse stream, each client has at most one task queued
+     * @return
+     */
+    @Bean(name = "eventStreamThreadPool")
+    public ThreadPoolTaskExecutor eventStreamThreadPool() {
+        log.info("*****init eventStreamThreadPool size:{}", constants.getEventStreamPoolSize());
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(constants.getEventStreamPoolSize());
+        executor.setMaxPoolSize(constants.getEventStreamPoolSize());
+        executor.setQueueCapacity(constants.getEventStreamMaxClients());
+        executor.setRejectedExecutionHandler(new AbortPolicy());
+        executor.setThreadNamePrefix("eventStreamThreadPool-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * threads requesting node status of groups in parallel
+     * @return
+     */
+    @Bean(name = "nodeStatusThreadPool")
+    public ThreadPoolTaskExecutor nodeStatusThreadPool() {
+        log.info("*****init nodeStatusThreadPool size:{}", constants.getNodeStatusPoolSize());
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(constants.getNodeStatusPoolSize());
+        executor.setMaxPoolSize(constants.getNodeStatusPoolSize());
+        executor.setQueueCapacity(constants.getNodeStatusPoolSize() * 100);
+        executor.setRejectedExecutionHandler(new CallerRunsPolicy());
+        executor.setThreadNamePrefix("nodeStatusThreadPool-");
+        executor.initialize();
+        return executor;
+    }
+}
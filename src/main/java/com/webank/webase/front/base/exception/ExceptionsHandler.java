@@ -67,6 +67,8 @@ import org.fisco.bcos.web3j.protocol.exceptions.TransactionException;
 import org.fisco.bcos.web3j.tx.exceptions.ContractCallException;
 import org.springframework.beans.TypeMismatchException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.ServletRequestBindingException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -103,6 +105,24 @@ public class ExceptionsHandler {
         return ResponseEntity.status(422).body(map);
     }
 
+    /**
+     * transaction rejected by in-flight limit
+     *
+     * @param overloadException e
+     */
+    @ResponseBody
+    @ExceptionHandler(value = TransOverloadException.class)
+    public ResponseEntity overloadExceptionHandler(TransOverloadException overloadException) {
+        log.warn("catch overloadException: {}", overloadException.getDetail());
+        Map<String, Object> map = new HashMap<>();
+        map.put("data", overloadException.getDetail());
+        map.put("errorMessage", overloadException.getMessage());
+        map.put("code", overloadException.getRetCode().getCode());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(overloadException.getRetryAfter()))
+            .body(map);
+    }
+
     /**
      * parameter exception:TypeMismatchException
      */
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2014-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webank.webase.front.base.exception;
+
+import com.webank.webase.front.base.code.ConstantCode;
+
+/**
+ * transaction rejected by in-flight limit of group, returned as http 429 with Retry-After.
+ */
+public class TransOverloadException extends FrontException {
+
+    private static final long serialVersionUID = 1L;
+    /**
+     * seconds to wait before retry
+     */
+    private final long retryAfter;
+
+    public TransOverloadException(int groupId, long retryAfter) {
+        super(ConstantCode.TRANS_OVERLOAD, "groupId:" + groupId);
+        this.retryAfter = retryAfter;
+    }
+
+    public long getRetryAfter() {
+        return retryAfter;
+    }
+}
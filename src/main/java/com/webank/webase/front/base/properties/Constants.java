@@ -14,6 +14,8 @@
 package com.webank.webase.front.base.properties;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
@@ -73,6 +75,18 @@ public class Constants {
     private String nodePath = "/fisco/nodes/127.0.0.1/node0";
     private Integer eventRegisterTaskFixedDelay;
     private Integer syncEventMapTaskFixedDelay;
+    private Integer eventCheckpointFlushFixedDelay = 5000;
+    // historical event backfill
+    private int eventBackfillMaxTasks = 2;
+    private int eventBackfillConcurrency = 4;
+    private long eventBackfillChunkSize = 5000;
+    private long eventBackfillChunkTimeout = 120000;
+    private int eventBackfillChunkRetry = 3;
+    // sse stream of block and contract event
+    private int eventStreamMaxClients = 100;
+    private int eventStreamClientBufferSize = 256;
+    private long eventStreamTimeout = 1800000;
+    private int eventStreamPoolSize = 4;
     private boolean statLogEnabled = true;
     private Integer syncStatLogTime = 5000;
     private long syncStatLogCountLimit = 10000;
@@ -84,4 +98,62 @@ public class Constants {
     private int keepAliveRequests = 100;
     private int KeepAliveTimeout = 10;
 
+    // transaction batch
+    private int transBatchMaxSize = 1000;
+    private int transPoolCoreSize = 50;
+    private int transPoolMaxSize = 200;
+    private int transPoolQueueCapacity = 10000;
+    // receipt registry of async transaction
+    private long receiptCacheMaxSize = 100000;
+    private long receiptCacheTtl = 600;
+    // compiled function of abi
+    private long abiCacheMaxSize = 1000;
+    // sign client of webase-sign
+    private int signQueueCapacity = 10000;
+    private int signPoolSize = 50;
+    // credential cache of local user, idle time (unit: s)
+    private long credentialCacheMaxSize = 10000;
+    private long credentialCacheIdleTime = 1800;
+    // random identities of eth_call, refresh time (unit: ms)
+    private int queryIdentitySize = 8;
+    private long queryIdentityRefreshTime = 3600000;
+    // eth_call output cache of opt-in contracts, weight in chars of calldata and output
+    private List<String> callCacheContractList = new ArrayList<>();
+    private long callCacheMaxWeight = 16777216;
+    // in-flight limit of transactions per group, 0 means unlimited, wait time (unit: ms)
+    private int transLimitPerGroup = 2000;
+    private long transLimitWaitTime = 0;
+    private long transLimitRetryAfter = 1;
+    // decoder of contract event shared by abi, decoded log kept for a short window (unit: ms)
+    private int eventDecoderCacheMaxSize = 1000;
+    private int eventLogCacheMaxSize = 10000;
+    private long eventLogCacheTime = 10000;
+    // async mq publisher: buffer, batch, confirm timeout (unit: ms)
+    // overflow policy of full buffer: block (wait mqOverflowWaitTime then drop), dropOldest, dropNewest
+    private int mqPublishQueueCapacity = 10000;
+    private int mqPublishBatchSize = 100;
+    private long mqPublishConfirmTimeout = 5000;
+    private String mqOverflowPolicy = "block";
+    private long mqOverflowWaitTime = 1000;
+    // nacked or unconfirmed message is published again at most mqPublishMaxRetry times,
+    // each after mqPublishRetryInterval (unit: ms)
+    private int mqPublishMaxRetry = 3;
+    private long mqPublishRetryInterval = 1000;
+    // new block waiting to be dispatched to subscriptions, dropped if full
+    private int blockNotifyQueueCapacity = 1000;
+    // recent blocks and receipt fetching threads of enriched block notify
+    private long blockEnrichCacheSize = 100;
+    private int blockEnrichPoolSize = 8;
+    // committed block, transaction and receipt (unit: byte of json)
+    private long chainDataCacheMaxBytes = 64 * 1024 * 1024;
+    // chain head snapshot of each group
+    private Integer chainHeadRefreshFixedDelay = 5000;
+    private long chainHeadMaxStaleTime = 10000;
+    private long chainHeadRefreshTimeout = 5000;
+    // node status snapshot of each group
+    private Integer nodeStatusRefreshFixedDelay = 5000;
+    private long nodeStatusMaxStaleTime = 15000;
+    private long nodeStatusRefreshTimeout = 10000;
+    private int nodeStatusPoolSize = 8;
+
 }
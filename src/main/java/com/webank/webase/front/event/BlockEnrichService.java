@@ -0,0 +1,262 @@
+/*
+ * Copyright 2014-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.webank.webase.front.event;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.webank.webase.front.base.code.ConstantCode;
+import com.webank.webase.front.base.enums.EventTypes;
+import com.webank.webase.front.base.exception.FrontException;
+import com.webank.webase.front.base.properties.Constants;
+import com.webank.webase.front.base.response.CacheStat;
+import com.webank.webase.front.event.entity.message.BlockDetailPushMessage;
+import com.webank.webase.front.web3api.Web3ApiService;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.fisco.bcos.web3j.protocol.core.methods.response.BcosBlock;
+import org.fisco.bcos.web3j.protocol.core.methods.response.BcosBlock.TransactionObject;
+import org.fisco.bcos.web3j.protocol.core.methods.response.BcosBlock.TransactionResult;
+import org.fisco.bcos.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+/**
+ * content of recent blocks for enriched block notify.
+ * block and receipts are fetched from node once per block no matter how many subscribers,
+ * receipts of one block are fetched in parallel slices, and kept for late readers
+ */
+@Slf4j
+@Service
+public class BlockEnrichService {
+
+    /**
+     * only block number pushed, same as before
+     */
+    public static final String ENRICH_NONE = "none";
+    /**
+     * block header and hash of transactions
+     */
+    public static final String ENRICH_COMPACT = "compact";
+    /**
+     * block with transactions and receipts
+     */
+    public static final String ENRICH_FULL = "full";
+
+    @Autowired
+    private Web3ApiService web3ApiService;
+    @Autowired
+    private Constants constants;
+    @Autowired
+    @Qualifier(value = "blockEnrichThreadPool")
+    private ThreadPoolTaskExecutor blockEnrichThreadPool;
+
+    private Cache<String, BlockContent> blockCache;
+
+    @PostConstruct
+    public void init() {
+        log.info("init BlockEnrichService cacheSize:{}", constants.getBlockEnrichCacheSize());
+        blockCache = CacheBuilder.newBuilder()
+            .maximumSize(constants.getBlockEnrichCacheSize())
+            .recordStats()
+            .build();
+    }
+
+    /**
+     * null or empty means none.
+     *
+     * @return null if mode is invalid
+     */
+    public static String normalizeMode(String enrichMode) {
+        if (StringUtils.isBlank(enrichMode)) {
+            return ENRICH_NONE;
+        }
+        String mode = enrichMode.trim().toLowerCase();
+        if (ENRICH_NONE.equals(mode) || ENRICH_COMPACT.equals(mode) || ENRICH_FULL.equals(mode)) {
+            return mode;
+        }
+        return null;
+    }
+
+    /**
+     * build block detail without app id, fetch from node if not cached.
+     *
+     * @param groupId group id
+     * @param blockNumber block height
+     * @param enrichMode compact or full
+     */
+    public BlockDetailPushMessage getBlockDetail(int groupId, BigInteger blockNumber,
+            String enrichMode) {
+        BlockContent content = getContent(groupId, blockNumber);
+        if (!ENRICH_FULL.equals(enrichMode)) {
+            return buildDetail(groupId, blockNumber, enrichMode, content, null);
+        }
+        try {
+            return buildDetail(groupId, blockNumber, enrichMode, content,
+                content.getReceipts(groupId).join());
+        } catch (CompletionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new FrontException(ConstantCode.NODE_REQUEST_FAILED);
+        }
+    }
+
+    /**
+     * fetch block detail on blockEnrichThreadPool, no thread of pool waits for another task
+     * of it, so block notify of groups is enriched in parallel.
+     *
+     * @param groupId group id
+     * @param blockNumber block height
+     * @param enrichMode compact or full
+     */
+    public CompletableFuture<BlockDetailPushMessage> getBlockDetailAsync(int groupId,
+            BigInteger blockNumber, String enrichMode) {
+        return CompletableFuture.supplyAsync(() -> getContent(groupId, blockNumber),
+            blockEnrichThreadPool).thenCompose(content -> {
+                if (!ENRICH_FULL.equals(enrichMode)) {
+                    return CompletableFuture.completedFuture(
+                        buildDetail(groupId, blockNumber, enrichMode, content, null));
+                }
+                return content.getReceipts(groupId).thenApply(receipts ->
+                    buildDetail(groupId, blockNumber, enrichMode, content, receipts));
+            });
+    }
+
+    private static BlockDetailPushMessage buildDetail(int groupId, BigInteger blockNumber,
+            String enrichMode, BlockContent content, List<TransactionReceipt> receipts) {
+        BlockDetailPushMessage message = new BlockDetailPushMessage();
+        message.setEventType(EventTypes.BLOCK_NOTIFY.getValue());
+        message.setGroupId(groupId);
+        message.setBlockNumber(blockNumber);
+        message.setEnrichMode(enrichMode);
+        if (ENRICH_FULL.equals(enrichMode)) {
+            message.setBlock(content.block);
+            message.setReceipts(receipts);
+        } else {
+            message.setBlockHash(content.block.getHash());
+            message.setTimestamp(content.block.getTimestamp());
+            message.setSealer(content.block.getSealer());
+            message.setTransCount(content.transHashList.size());
+            message.setTransHashList(content.transHashList);
+        }
+        return message;
+    }
+
+    public CacheStat getCacheStat() {
+        return new CacheStat(blockCache.size(), blockCache.stats());
+    }
+
+    private BlockContent getContent(int groupId, BigInteger blockNumber) {
+        try {
+            return blockCache.get(groupId + "_" + blockNumber,
+                () -> new BlockContent(web3ApiService.getBlockByNumber(groupId, blockNumber)));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            log.error("fetch block failed. groupId:{} blockNumber:{}", groupId, blockNumber,
+                e.getCause());
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new FrontException(ConstantCode.NODE_REQUEST_FAILED);
+        }
+    }
+
+    /**
+     * receipt of each transaction, fetched on blockEnrichThreadPool in parallel.
+     * hashes are split into at most blockEnrichPoolSize slices, one task each, so tasks
+     * queued by a block are bounded however many transactions it has
+     */
+    private CompletableFuture<List<TransactionReceipt>> fetchReceipts(int groupId,
+            List<String> transHashList) {
+        int sliceCount = Math.max(1, constants.getBlockEnrichPoolSize());
+        int sliceSize = Math.max(1, (transHashList.size() + sliceCount - 1) / sliceCount);
+        AtomicBoolean failed = new AtomicBoolean();
+        List<CompletableFuture<List<TransactionReceipt>>> futures = Lists
+            .partition(transHashList, sliceSize).stream()
+            .map(slice -> CompletableFuture.supplyAsync(
+                () -> fetchSlice(groupId, slice, failed), blockEnrichThreadPool))
+            .collect(Collectors.toList());
+        CompletableFuture<List<TransactionReceipt>> result = CompletableFuture
+            .allOf(futures.toArray(new CompletableFuture[0]))
+            .thenApply(v -> futures.stream().flatMap(future -> future.join().stream())
+                .collect(Collectors.toList()));
+        result.whenComplete((receipts, e) -> {
+            if (e != null) {
+                failed.set(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * receipts of slice in order, stop once another slice of the block failed
+     */
+    private List<TransactionReceipt> fetchSlice(int groupId, List<String> slice,
+            AtomicBoolean failed) {
+        List<TransactionReceipt> receipts = new ArrayList<>(slice.size());
+        for (String hash : slice) {
+            if (failed.get()) {
+                throw new CancellationException("receipts of block failed");
+            }
+            try {
+                receipts.add(web3ApiService.getTransactionReceipt(groupId, hash));
+            } catch (RuntimeException e) {
+                failed.set(true);
+                throw e;
+            }
+        }
+        return receipts;
+    }
+
+    /**
+     * block fetched, receipts fetched on first full request
+     */
+    private final class BlockContent {
+        private final BcosBlock.Block block;
+        private final List<String> transHashList;
+        private CompletableFuture<List<TransactionReceipt>> receipts;
+
+        BlockContent(BcosBlock.Block block) {
+            this.block = block;
+            List<String> hashList = new ArrayList<>();
+            if (block.getTransactions() != null) {
+                for (TransactionResult result : block.getTransactions()) {
+                    hashList.add(result instanceof TransactionObject
+                        ? ((TransactionObject) result).getHash() : (String) result.get());
+                }
+            }
+            this.transHashList = hashList;
+        }
+
+        /**
+         * shared by requests of the block, fetched again after failure
+         */
+        synchronized CompletableFuture<List<TransactionReceipt>> getReceipts(int groupId) {
+            if (receipts == null || receipts.isCompletedExceptionally()) {
+                receipts = fetchReceipts(groupId, transHashList);
+            }
+            return receipts;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2014-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.webank.webase.front.event;
+
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.webank.webase.front.base.enums.EventTypes;
+import com.webank.webase.front.base.properties.Constants;
+import com.webank.webase.front.event.entity.BlockNotifyStat;
+import com.webank.webase.front.event.entity.PublisherHelper;
+import com.webank.webase.front.event.entity.message.BlockPushMessage;
+import com.webank.webase.front.event.entity.message.SharedContentPushMessage;
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+/**
+ * new block notify subscriptions indexed by group id and app id, one app may subscribe
+ * many times (different exchange or queue).
+ * block is dispatched on blockNotifyThreadPool instead of sdk callback thread, in order of
+ * blocks within each group, and dropped with a warning if blockNotifyQueueCapacity blocks are
+ * waiting. message of one app is serialized once for all its subscriptions.
+ * enriched content of block is fetched only if some subscription asks for it, on
+ * blockEnrichThreadPool before the block is published, and shared by apps as raw json
+ */
+@Slf4j
+@Component
+public class BlockNotifyDispatcher {
+
+    @Autowired
+    private Constants constants;
+    @Autowired
+    private MQPublisher mqPublisher;
+    @Autowired
+    private BlockEnrichService blockEnrichService;
+    @Autowired
+    @Qualifier(value = "blockNotifyThreadPool")
+    private ThreadPoolTaskExecutor blockNotifyThreadPool;
+
+    /**
+     * groupId to appId to (info id of subscription, publisher)
+     */
+    private final Map<Integer, Map<String, Map<String, PublisherHelper>>> groupSubscriptions =
+            new ConcurrentHashMap<>();
+    /**
+     * info id to group id and app id of subscription, used in removing
+     */
+    private final Map<String, Subscription> subscriptionIndex = new ConcurrentHashMap<>();
+
+    /**
+     * group id to publishing of its last block, next block of group is published after it
+     */
+    private final Map<Integer, CompletableFuture<Void>> groupTails = new HashMap<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicLong dispatchedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    /**
+     * add subscription of new block, replace if info id existed.
+     *
+     * @param infoId id of NewBlockEventInfo
+     * @param appId app id
+     * @param publisher group id, exchange and routing key
+     */
+    public void addSubscription(String infoId, String appId, PublisherHelper publisher) {
+        removeSubscription(infoId);
+        groupSubscriptions.computeIfAbsent(publisher.getGroupId(), k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(appId, k -> new ConcurrentHashMap<>())
+                .put(infoId, publisher);
+        subscriptionIndex.put(infoId, new Subscription(publisher.getGroupId(), appId));
+    }
+
+    /**
+     * remove subscription, stop pushing message to it.
+     *
+     * @param infoId id of NewBlockEventInfo
+     */
+    public void removeSubscription(String infoId) {
+        Subscription subscription = subscriptionIndex.remove(infoId);
+        if (subscription == null) {
+            return;
+        }
+        Map<String, Map<String, PublisherHelper>> appMap =
+                groupSubscriptions.get(subscription.groupId);
+        if (appMap == null) {
+            return;
+        }
+        appMap.computeIfPresent(subscription.appId, (appId, infoMap) -> {
+            infoMap.remove(infoId);
+            return infoMap.isEmpty() ? null : infoMap;
+        });
+    }
+
+    public boolean containsSubscription(String infoId) {
+        return subscriptionIndex.containsKey(infoId);
+    }
+
+    public Set<String> getSubscriptionIds() {
+        return Collections.unmodifiableSet(subscriptionIndex.keySet());
+    }
+
+    /**
+     * dispatch new block to subscriptions of the group asynchronously.
+     *
+     * @param groupId group id
+     * @param blockNumber block height
+     */
+    public void dispatch(int groupId, BigInteger blockNumber) {
+        Map<String, Map<String, PublisherHelper>> appMap = groupSubscriptions.get(groupId);
+        if (appMap == null || appMap.isEmpty()) {
+            log.debug("block notify register list of group:{} is empty. ", groupId);
+            return;
+        }
+        // queued blocks are bounded, sdk callback thread never waits or publishes
+        if (pendingCount.incrementAndGet() > constants.getBlockNotifyQueueCapacity()) {
+            pendingCount.decrementAndGet();
+            droppedCount.incrementAndGet();
+            log.warn("block notify queue is full, drop groupId:{} blockNumber:{}", groupId,
+                    blockNumber);
+            return;
+        }
+        // enriched content is fetched ahead on blockEnrichThreadPool
+        Map<String, CompletableFuture<Map<String, RawValue>>> contentMap =
+                fetchContent(groupId, blockNumber, appMap);
+        CompletableFuture<?>[] contents = contentMap.values().toArray(new CompletableFuture[0]);
+        // blocks of a group are published in order, slow block does not delay other groups
+        synchronized (groupTails) {
+            CompletableFuture<Void> tail = groupTails.getOrDefault(groupId,
+                    CompletableFuture.completedFuture(null));
+            CompletableFuture<Void> next = CompletableFuture.allOf(tail,
+                    CompletableFuture.allOf(contents))
+                    .handle((v, e) -> null)
+                    .thenRunAsync(() -> publish(groupId, blockNumber, appMap, contentMap),
+                            blockNotifyThreadPool)
+                    .handle((v, e) -> {
+                        pendingCount.decrementAndGet();
+                        if (e != null) {
+                            log.error("block notify failed. groupId:{} blockNumber:{}", groupId,
+                                    blockNumber, e);
+                        }
+                        return null;
+                    });
+            groupTails.put(groupId, next);
+        }
+        dispatchedCount.incrementAndGet();
+    }
+
+    public BlockNotifyStat getStat() {
+        BlockNotifyStat stat = new BlockNotifyStat();
+        stat.setQueueDepth(pendingCount.get());
+        stat.setSubscriptionCount(subscriptionIndex.size());
+        stat.setDispatchedCount(dispatchedCount.get());
+        stat.setDroppedCount(droppedCount.get());
+        return stat;
+    }
+
+    /**
+     * content of each enrich mode asked by subscriptions of the group, fetched once for all
+     * apps. completed with null if failed, then plain block notify is pushed instead
+     */
+    private Map<String, CompletableFuture<Map<String, RawValue>>> fetchContent(int groupId,
+            BigInteger blockNumber, Map<String, Map<String, PublisherHelper>> appMap) {
+        Map<String, CompletableFuture<Map<String, RawValue>>> contentMap = new HashMap<>();
+        for (Map<String, PublisherHelper> infoMap : appMap.values()) {
+            for (PublisherHelper publisher : infoMap.values()) {
+                String enrichMode = BlockEnrichService.normalizeMode(publisher.getEnrichMode());
+                if (enrichMode == null || BlockEnrichService.ENRICH_NONE.equals(enrichMode)
+                        || contentMap.containsKey(enrichMode)) {
+                    continue;
+                }
+                CompletableFuture<Map<String, RawValue>> content;
+                try {
+                    content = blockEnrichService.getBlockDetailAsync(groupId, blockNumber,
+                            enrichMode).thenApply(SharedContentPushMessage::serializeContent);
+                } catch (TaskRejectedException e) {
+                    content = new CompletableFuture<>();
+                    content.completeExceptionally(e);
+                }
+                contentMap.put(enrichMode, content.exceptionally(e -> {
+                    log.error("fetch block detail failed, push block number only. groupId:{} "
+                            + "blockNumber:{}", groupId, blockNumber, e);
+                    return null;
+                }));
+            }
+        }
+        return contentMap;
+    }
+
+    private void publish(int groupId, BigInteger blockNumber,
+            Map<String, Map<String, PublisherHelper>> appMap,
+            Map<String, CompletableFuture<Map<String, RawValue>>> contentMap) {
+        for (Map.Entry<String, Map<String, PublisherHelper>> entry : appMap.entrySet()) {
+            // serialized once per enrich mode for all subscriptions of the app
+            Map<String, String> messageMap = new HashMap<>();
+            for (PublisherHelper publisher : entry.getValue().values()) {
+                String enrichMode = BlockEnrichService.normalizeMode(publisher.getEnrichMode());
+                String messageStr = messageMap.computeIfAbsent(String.valueOf(enrichMode),
+                    mode -> buildMessage(groupId, blockNumber, entry.getKey(),
+                        contentMap.get(mode)));
+                log.debug("BlockNotifyDispatcher push groupId:{} blockNumber:{} routingKey:{}",
+                        groupId, blockNumber, publisher.getRoutingKey());
+                mqPublisher.sendToTradeFinishedByString(publisher.getExchangeName(),
+                        publisher.getRoutingKey(), messageStr);
+            }
+        }
+    }
+
+    /**
+     * @param content completed future of shared content, null if not enriched
+     */
+    private String buildMessage(int groupId, BigInteger blockNumber, String appId,
+            CompletableFuture<Map<String, RawValue>> content) {
+        Map<String, RawValue> shared = content == null ? null : content.getNow(null);
+        if (shared != null) {
+            return new SharedContentPushMessage(appId, shared).toString();
+        }
+        BlockPushMessage blockPushMessage = new BlockPushMessage();
+        blockPushMessage.setBlockNumber(blockNumber);
+        blockPushMessage.setGroupId(groupId);
+        blockPushMessage.setEventType(EventTypes.BLOCK_NOTIFY.getValue());
+        blockPushMessage.setAppId(appId);
+        return blockPushMessage.toString();
+    }
+
+    private static final class Subscription {
+        private final int groupId;
+        private final String appId;
+
+        Subscription(int groupId, String appId) {
+            this.groupId = groupId;
+            this.appId = appId;
+        }
+    }
+}
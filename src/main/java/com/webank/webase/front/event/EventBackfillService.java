@@ -0,0 +1,412 @@
+/*
+ * Copyright 2014-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.webank.webase.front.event;
+
+import static com.webank.webase.front.util.RabbitMQUtils.CONTRACT_EVENT_CALLBACK_MAP;
+
+import com.webank.webase.front.base.enums.EventTypes;
+import com.webank.webase.front.base.properties.Constants;
+import com.webank.webase.front.event.callback.BackfillChunkCallback;
+import com.webank.webase.front.event.callback.ContractEventCallback;
+import com.webank.webase.front.event.entity.BackfillProgress;
+import com.webank.webase.front.event.entity.ContractEventInfo;
+import com.webank.webase.front.event.entity.message.EventLogPushMessage;
+import com.webank.webase.front.util.FrontUtils;
+import com.webank.webase.front.util.RabbitMQUtils;
+import com.webank.webase.front.web3api.Web3ApiService;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.fisco.bcos.channel.event.filter.EventLogFilterPushStatus;
+import org.fisco.bcos.channel.event.filter.EventLogUserParams;
+import org.fisco.bcos.web3j.tx.txdecode.LogResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+/**
+ * backfill historical contract event of a new register before handing off to live filter.
+ * the sdk has no getLogs, so history is split into chunks, each fetched by a filter of
+ * bounded block range. chunks are fetched in parallel (at most eventBackfillConcurrency
+ * in flight) and published to mq in order of block, then a live filter is registered
+ * from the block after chain head when backfill started
+ */
+@Slf4j
+@Service
+public class EventBackfillService {
+
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_FAILED = "FAILED";
+    public static final String STATUS_CANCELLED = "CANCELLED";
+
+    @Autowired
+    private Constants constants;
+    @Autowired
+    private Map<Integer, org.fisco.bcos.channel.client.Service> serviceMap;
+    @Autowired
+    private Web3ApiService web3ApiService;
+    @Autowired
+    private MQPublisher mqPublisher;
+    @Autowired
+    private EventDecoderCache eventDecoderCache;
+    @Autowired
+    private EventCheckpointService eventCheckpointService;
+    @Autowired
+    private EventFilterMultiplexer eventFilterMultiplexer;
+    @Autowired
+    @Qualifier(value = "eventBackfillThreadPool")
+    private ThreadPoolTaskExecutor eventBackfillThreadPool;
+
+    private final Map<String, BackfillTask> taskMap = new ConcurrentHashMap<>();
+
+    /**
+     * start backfill of register if fromBlock is behind chain head.
+     *
+     * @return false if no need to backfill or too many tasks, then register live filter directly
+     */
+    public boolean startBackfill(ContractEventInfo info) {
+        if (!StringUtils.isNumeric(info.getFromBlock())) {
+            return false;
+        }
+        long fromBlock = Long.parseLong(info.getFromBlock());
+        long endBlock = web3ApiService.getBlockNumber(info.getGroupId()).longValue();
+        if (StringUtils.isNumeric(info.getToBlock())) {
+            endBlock = Math.min(endBlock, Long.parseLong(info.getToBlock()));
+        }
+        if (endBlock < fromBlock) {
+            return false;
+        }
+        BackfillTask task = new BackfillTask(info, fromBlock, endBlock);
+        taskMap.put(info.getId(), task);
+        try {
+            eventBackfillThreadPool.execute(task);
+        } catch (TaskRejectedException e) {
+            log.warn("startBackfill rejected for too many tasks, infoId:{}", info.getId());
+            taskMap.remove(info.getId());
+            return false;
+        }
+        log.info("startBackfill infoId:{} from:{} end:{} chunks:{}", info.getId(), fromBlock,
+            endBlock, task.totalChunks);
+        return true;
+    }
+
+    /**
+     * register is delivered by backfill or its live filter, register task should skip it.
+     * failed backfill is taken over by register task from checkpoint
+     */
+    public boolean isHandledByBackfill(String infoId) {
+        BackfillTask task = taskMap.get(infoId);
+        return task != null && !STATUS_FAILED.equals(task.status);
+    }
+
+    /**
+     * stop backfill of register, called when unregister.
+     * chunks in flight are woken up, their filters are removed by backfill thread
+     */
+    public void cancelBackfill(String infoId) {
+        BackfillTask task = taskMap.remove(infoId);
+        if (task != null) {
+            // not cancelled halfway of hand off or chunk register
+            synchronized (task) {
+                task.cancelled = true;
+                task.window.stream().filter(chunk -> chunk.callback != null)
+                    .forEach(chunk -> chunk.callback.getFuture().cancel(false));
+            }
+        }
+    }
+
+    public BackfillProgress getProgress(String infoId) {
+        BackfillTask task = taskMap.get(infoId);
+        return task == null ? null : task.toProgress();
+    }
+
+    public List<BackfillProgress> getProgressList() {
+        return taskMap.values().stream().map(BackfillTask::toProgress)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * register filter of [fromBlock, toBlock] on node
+     */
+    BackfillChunkCallback registerChunk(ContractEventInfo info, long fromBlock, long toBlock) {
+        EventLogUserParams params = RabbitMQUtils.initSingleEventLogUserParams(
+            String.valueOf(fromBlock), String.valueOf(toBlock), info.getContractAddress(),
+            FrontUtils.string2ListStr(info.getTopicList()));
+        BackfillChunkCallback callback = new BackfillChunkCallback(eventDecoderCache,
+            info.getContractAbi(), info.getGroupId());
+        serviceMap.get(info.getGroupId()).registerEventLogFilter(params, callback);
+        return callback;
+    }
+
+    /**
+     * remove filter of chunk from node, late push of it is ignored
+     */
+    void removeChunk(int groupId, BackfillChunkCallback callback) {
+        callback.getFuture().cancel(false);
+        EventFilterMultiplexer.removeFilter(serviceMap.get(groupId), callback.getFilter());
+    }
+
+    /**
+     * live filter continues from the block after backfill
+     * @return false if task is cancelled before live filter subscribed
+     */
+    private boolean handOff(BackfillTask task) {
+        synchronized (task) {
+            if (task.cancelled) {
+                return false;
+            }
+            handOff(task.info, task.endBlock);
+            return true;
+        }
+    }
+
+    private void handOff(ContractEventInfo info, long endBlock) {
+        if (StringUtils.isNumeric(info.getToBlock())
+            && Long.parseLong(info.getToBlock()) <= endBlock) {
+            log.info("backfill covers whole range, no live filter. infoId:{}", info.getId());
+            return;
+        }
+        EventLogUserParams params = RabbitMQUtils.initSingleEventLogUserParams(
+            String.valueOf(endBlock + 1), info.getToBlock(), info.getContractAddress(),
+            FrontUtils.string2ListStr(info.getTopicList()));
+        ContractEventCallback callBack = new ContractEventCallback(mqPublisher,
+            info.getExchangeName(), info.getRoutingKey(), eventDecoderCache,
+            info.getContractAbi(), info.getGroupId(), info.getAppId(),
+            eventCheckpointService, info.getId());
+        eventFilterMultiplexer.subscribe(info.getId(), info.getGroupId(), params, callBack);
+        callBack.setRunning(true);
+        CONTRACT_EVENT_CALLBACK_MAP.put(info.getId(), callBack);
+        log.info("backfill hand off to live filter infoId:{} fromBlock:{}", info.getId(),
+            endBlock + 1);
+    }
+
+    /**
+     * publish logs of chunk in messages of one block each, checkpoint moves per block
+     * until task is cancelled
+     */
+    private long publishChunk(BackfillTask task, List<LogResult> logs) {
+        ContractEventInfo info = task.info;
+        TreeMap<Long, List<LogResult>> blockLogs = new TreeMap<>();
+        for (LogResult logResult : logs) {
+            if (logResult == null || logResult.getLog() == null
+                || logResult.getLog().getBlockNumberRaw() == null) {
+                continue;
+            }
+            blockLogs.computeIfAbsent(logResult.getLog().getBlockNumber().longValue(),
+                k -> new ArrayList<>()).add(logResult);
+        }
+        long count = 0;
+        for (Map.Entry<Long, List<LogResult>> entry : blockLogs.entrySet()) {
+            EventLogPushMessage message = new EventLogPushMessage();
+            message.setEventType(EventTypes.EVENT_LOG_PUSH.getValue());
+            message.setGroupId(info.getGroupId());
+            message.setStatus(EventLogFilterPushStatus.SUCCESS.getStatus());
+            message.setLogs(entry.getValue());
+            message.setAppId(info.getAppId());
+            long blockNumber = entry.getKey();
+            mqPublisher.sendToTradeFinishedByString(info.getExchangeName(), info.getRoutingKey(),
+                message.toString(), () -> {
+                    if (!task.cancelled) {
+                        eventCheckpointService.markDelivered(info.getId(), info.getGroupId(),
+                            info.getAppId(), blockNumber);
+                    }
+                }, () -> {
+                    if (!task.cancelled) {
+                        eventCheckpointService.markDropped(info.getId(), info.getGroupId(),
+                            info.getAppId(), blockNumber);
+                    }
+                });
+            count += entry.getValue().size();
+        }
+        return count;
+    }
+
+    /**
+     * chunk fetching in flight
+     */
+    private static final class Chunk {
+        private final long fromBlock;
+        private final long toBlock;
+        private volatile BackfillChunkCallback callback;
+
+        Chunk(long fromBlock, long toBlock) {
+            this.fromBlock = fromBlock;
+            this.toBlock = toBlock;
+        }
+    }
+
+    final class BackfillTask implements Runnable {
+        private final ContractEventInfo info;
+        private final long fromBlock;
+        private final long endBlock;
+        private final long chunkSize;
+        private final int totalChunks;
+        private final LocalDateTime startTime = LocalDateTime.now();
+        private final long startMillis = System.currentTimeMillis();
+        private volatile String status = STATUS_RUNNING;
+        private volatile boolean cancelled;
+        private volatile int finishedChunks;
+        private volatile long publishedBlock;
+        private volatile long logCount;
+        private volatile long finishTime;
+        private volatile String errorMessage;
+        /**
+         * chunks registered on node, head is the next to publish
+         */
+        private final Deque<Chunk> window = new ConcurrentLinkedDeque<>();
+
+        BackfillTask(ContractEventInfo info, long fromBlock, long endBlock) {
+            this.info = info;
+            this.fromBlock = fromBlock;
+            this.endBlock = endBlock;
+            this.chunkSize = Math.max(1, constants.getEventBackfillChunkSize());
+            this.totalChunks = (int) ((endBlock - fromBlock) / chunkSize + 1);
+            this.publishedBlock = fromBlock - 1;
+        }
+
+        @Override
+        public void run() {
+            try {
+                backfill();
+                if (!handOff(this)) {
+                    status = STATUS_CANCELLED;
+                    return;
+                }
+                status = STATUS_COMPLETED;
+            } catch (Exception e) {
+                log.error("backfill failed infoId:{} publishedBlock:{}", info.getId(),
+                    publishedBlock, e);
+                errorMessage = e.getMessage();
+                status = STATUS_FAILED;
+            } finally {
+                finishTime = System.currentTimeMillis();
+            }
+        }
+
+        private void backfill() throws Exception {
+            int concurrency = Math.max(1, constants.getEventBackfillConcurrency());
+            long next = fromBlock;
+            try {
+                while ((next <= endBlock || !window.isEmpty()) && !cancelled) {
+                    // keep chunks in flight, node serves filters concurrently
+                    while (window.size() < concurrency && next <= endBlock) {
+                        Chunk chunk = new Chunk(next, Math.min(next + chunkSize - 1, endBlock));
+                        window.add(chunk);
+                        if (!register(chunk)) {
+                            return;
+                        }
+                        next = chunk.toBlock + 1;
+                    }
+                    // publish in order of block
+                    Chunk head = window.peek();
+                    List<LogResult> logs = awaitChunk(head);
+                    window.poll();
+                    removeChunk(info.getGroupId(), head.callback);
+                    if (cancelled) {
+                        break;
+                    }
+                    logCount += publishChunk(this, logs);
+                    publishedBlock = head.toBlock;
+                    finishedChunks++;
+                }
+            } finally {
+                // filters of cancelled or failed backfill would scan node up to toBlock
+                Chunk chunk;
+                while ((chunk = window.poll()) != null) {
+                    if (chunk.callback != null) {
+                        removeChunk(info.getGroupId(), chunk.callback);
+                    }
+                }
+            }
+        }
+
+        /**
+         * register filter of chunk unless cancelled, cancel wakes up every registered chunk
+         */
+        private synchronized boolean register(Chunk chunk) {
+            if (cancelled) {
+                return false;
+            }
+            chunk.callback = registerChunk(info, chunk.fromBlock, chunk.toBlock);
+            return true;
+        }
+
+        /**
+         * @return empty if cancelled
+         */
+        private List<LogResult> awaitChunk(Chunk chunk) throws Exception {
+            int retry = 0;
+            while (true) {
+                try {
+                    return chunk.callback.getFuture()
+                        .get(constants.getEventBackfillChunkTimeout(), TimeUnit.MILLISECONDS);
+                } catch (Exception e) {
+                    if (cancelled) {
+                        return Collections.emptyList();
+                    }
+                    if (++retry > constants.getEventBackfillChunkRetry()) {
+                        throw e;
+                    }
+                    log.warn("backfill chunk [{}, {}] failed, retry:{}", chunk.fromBlock,
+                        chunk.toBlock, retry, e);
+                    // filter of failed attempt would keep scanning the range
+                    removeChunk(info.getGroupId(), chunk.callback);
+                    if (!register(chunk)) {
+                        return Collections.emptyList();
+                    }
+                }
+            }
+        }
+
+        BackfillProgress toProgress() {
+            BackfillProgress progress = new BackfillProgress();
+            progress.setInfoId(info.getId());
+            progress.setAppId(info.getAppId());
+            progress.setGroupId(info.getGroupId());
+            progress.setStatus(status);
+            progress.setFromBlock(fromBlock);
+            progress.setEndBlock(endBlock);
+            progress.setToBlock(info.getToBlock());
+            progress.setTotalChunks(totalChunks);
+            progress.setFinishedChunks(finishedChunks);
+            progress.setPublishedBlock(publishedBlock);
+            progress.setLogCount(logCount);
+            progress.setStartTime(startTime);
+            progress.setErrorMessage(errorMessage);
+            long end = finishTime > 0 ? finishTime : System.currentTimeMillis();
+            long elapsed = end - startMillis;
+            progress.setElapsedMillis(elapsed);
+            long done = publishedBlock - fromBlock + 1;
+            if (STATUS_RUNNING.equals(status) && done > 0) {
+                progress.setEtaMillis((endBlock - publishedBlock) * elapsed / done);
+            } else if (!STATUS_RUNNING.equals(status)) {
+                progress.setEtaMillis(0L);
+            }
+            return progress;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2014-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.webank.webase.front.event;
+
+import com.webank.webase.front.event.entity.ContractEventInfo;
+import com.webank.webase.front.event.entity.EventCheckpoint;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * checkpoint of contract event register: highest block whose logs are acked by mq.
+ * checkpoint is updated in memory on every ack and flushed to db in batch,
+ * re-register after restart resumes from it instead of original fromBlock.
+ * once a message of register is dropped, checkpoint is pinned before its block
+ * and stops moving until the register is re-registered
+ */
+@Slf4j
+@Service
+public class EventCheckpointService {
+
+    @Autowired
+    private EventCheckpointRepository eventCheckpointRepository;
+
+    /**
+     * checkpoints not flushed yet, keyed by info id
+     */
+    private final Map<String, EventCheckpoint> pendingMap = new ConcurrentHashMap<>();
+    /**
+     * info id of registers with dropped message, checkpoint of them does not move
+     */
+    private final Set<String> pinnedSet = ConcurrentHashMap.newKeySet();
+
+    /**
+     * record logs up to blockNumber are published, keep the highest one.
+     * ignored if register is pinned by a dropped message
+     */
+    public void markDelivered(String infoId, int groupId, String appId, long blockNumber) {
+        // not locked by flush, publisher thread does not wait for db
+        synchronized (pinnedSet) {
+            if (pinnedSet.contains(infoId)) {
+                return;
+            }
+            pendingMap.merge(infoId, newCheckpoint(infoId, groupId, appId, blockNumber),
+                (old, cur) -> old.getBlockNumber() >= cur.getBlockNumber() ? old : cur);
+        }
+    }
+
+    /**
+     * message of blockNumber is dropped, pin checkpoint before it so that its logs are
+     * replayed after re-register, and later acks do not move over it
+     */
+    public void markDropped(String infoId, int groupId, String appId, long blockNumber) {
+        log.warn("event message dropped, pin checkpoint infoId:{} blockNumber:{}", infoId,
+            blockNumber - 1);
+        synchronized (pinnedSet) {
+            pinnedSet.add(infoId);
+            Long current = getCheckpointBlock(infoId);
+            if (current != null && current < blockNumber) {
+                return;
+            }
+            pendingMap.put(infoId, newCheckpoint(infoId, groupId, appId, blockNumber - 1));
+        }
+    }
+
+    /**
+     * register is registered again from its checkpoint, let checkpoint move again
+     */
+    public void unpin(String infoId) {
+        pinnedSet.remove(infoId);
+    }
+
+    public boolean isPinned(String infoId) {
+        return pinnedSet.contains(infoId);
+    }
+
+    private static EventCheckpoint newCheckpoint(String infoId, Integer groupId, String appId,
+            long blockNumber) {
+        EventCheckpoint checkpoint = new EventCheckpoint();
+        checkpoint.setInfoId(infoId);
+        checkpoint.setGroupId(groupId);
+        checkpoint.setAppId(appId);
+        checkpoint.setBlockNumber(blockNumber);
+        checkpoint.setModifyTime(LocalDateTime.now());
+        return checkpoint;
+    }
+
+    /**
+     * flush pending checkpoints to db in one batch
+     */
+    @Scheduled(fixedDelayString = "${constant.eventCheckpointFlushFixedDelay}")
+    public synchronized void flush() {
+        if (pendingMap.isEmpty()) {
+            return;
+        }
+        List<EventCheckpoint> batch = new ArrayList<>(pendingMap.values());
+        try {
+            eventCheckpointRepository.save(batch);
+        } catch (Exception e) {
+            log.error("flush event checkpoint failed, size:{}", batch.size(), e);
+            return;
+        }
+        // checkpoint updated during saving stays pending
+        batch.forEach(checkpoint -> pendingMap.remove(checkpoint.getInfoId(), checkpoint));
+        log.debug("flush event checkpoint size:{}", batch.size());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flush();
+    }
+
+    /**
+     * @return null if no log published yet
+     */
+    public Long getCheckpointBlock(String infoId) {
+        EventCheckpoint pending = pendingMap.get(infoId);
+        if (pending != null) {
+            return pending.getBlockNumber();
+        }
+        EventCheckpoint saved = eventCheckpointRepository.findOne(infoId);
+        return saved == null ? null : saved.getBlockNumber();
+    }
+
+    /**
+     * checkpoints of group, including the ones not flushed
+     */
+    public List<EventCheckpoint> getCheckpointList(int groupId) {
+        Map<String, EventCheckpoint> resultMap = new LinkedHashMap<>();
+        eventCheckpointRepository.findByGroupId(groupId)
+            .forEach(checkpoint -> resultMap.put(checkpoint.getInfoId(), checkpoint));
+        pendingMap.values().stream()
+            .filter(checkpoint -> Objects.equals(checkpoint.getGroupId(), groupId))
+            .forEach(checkpoint -> resultMap.put(checkpoint.getInfoId(), checkpoint));
+        return new ArrayList<>(resultMap.values());
+    }
+
+    /**
+     * fromBlock to register with: the checkpoint block itself, as its logs may be partly
+     * published. original fromBlock is used if no checkpoint or it is ahead of checkpoint
+     */
+    public String getResumeFromBlock(ContractEventInfo info) {
+        Long checkpoint = getCheckpointBlock(info.getId());
+        String fromBlock = info.getFromBlock();
+        if (checkpoint == null) {
+            return fromBlock;
+        }
+        if (StringUtils.isNumeric(fromBlock) && Long.parseLong(fromBlock) > checkpoint) {
+            return fromBlock;
+        }
+        String toBlock = info.getToBlock();
+        if (StringUtils.isNumeric(toBlock) && Long.parseLong(toBlock) < checkpoint) {
+            return toBlock;
+        }
+        return String.valueOf(checkpoint);
+    }
+
+    /**
+     * reset checkpoint of register to blockNumber, or remove it if null
+     */
+    public synchronized void resetCheckpoint(ContractEventInfo info, Long blockNumber) {
+        pendingMap.remove(info.getId());
+        pinnedSet.remove(info.getId());
+        if (blockNumber == null) {
+            removeCheckpoint(info.getId());
+            return;
+        }
+        eventCheckpointRepository.save(newCheckpoint(info.getId(), info.getGroupId(),
+            info.getAppId(), blockNumber));
+    }
+
+    public synchronized void removeCheckpoint(String infoId) {
+        pendingMap.remove(infoId);
+        pinnedSet.remove(infoId);
+        if (eventCheckpointRepository.exists(infoId)) {
+            eventCheckpointRepository.delete(infoId);
+        }
+    }
+}
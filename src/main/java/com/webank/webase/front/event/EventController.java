@@ -29,14 +29,18 @@ import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiImplicitParam;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import javax.validation.Valid;
+import java.math.BigInteger;
 import java.util.List;
 
 
@@ -53,6 +57,22 @@ public class EventController extends BaseController {
 
     @Autowired
     private EventService eventService;
+    @Autowired
+    private EventDecoderCache eventDecoderCache;
+    @Autowired
+    private MQPublisher mqPublisher;
+    @Autowired
+    private EventCheckpointService eventCheckpointService;
+    @Autowired
+    private EventBackfillService eventBackfillService;
+    @Autowired
+    private EventFilterMultiplexer eventFilterMultiplexer;
+    @Autowired
+    private EventStreamService eventStreamService;
+    @Autowired
+    private BlockEnrichService blockEnrichService;
+    @Autowired
+    private BlockNotifyDispatcher blockNotifyDispatcher;
 
     @ApiOperation(value = "registerNewBlockEvent",
             notes = "register registerNewBlockEvent and push message to mq")
@@ -71,7 +91,12 @@ public class EventController extends BaseController {
         String exchangeName = reqNewBlockEventRegister.getExchangeName();
         // username as queue name
         String queueName = reqNewBlockEventRegister.getQueueName();
-        eventService.registerNewBlockEvent(appId, groupId, exchangeName, queueName);
+        String enrichMode = BlockEnrichService.normalizeMode(reqNewBlockEventRegister.getEnrichMode());
+        if (enrichMode == null) {
+            log.error("unknown enrichMode:{}", reqNewBlockEventRegister.getEnrichMode());
+            throw new FrontException(ConstantCode.PARAM_ERROR);
+        }
+        eventService.registerNewBlockEvent(appId, groupId, exchangeName, queueName, enrichMode);
         log.debug("end registerNewBlockEvent. ");
         return new BaseResponse(ConstantCode.RET_SUCCESS);
     }
@@ -115,7 +140,8 @@ public class EventController extends BaseController {
         // register contract event log push in service
         eventService.registerContractEvent(appId, groupId,
                 exchangeName, queueName, abiStr, fromBlock, toBlock,
-                contractAddress, topicList);
+                contractAddress, topicList,
+                Boolean.TRUE.equals(reqContractEventRegister.getBackfill()));
         log.debug("end registerContractEvent. ");
         return new BaseResponse(ConstantCode.RET_SUCCESS);
     }
@@ -177,6 +203,126 @@ public class EventController extends BaseController {
         return new BaseResponse(ConstantCode.RET_SUCCESS);
     }
 
+    @ApiOperation(value = "getMQPublishStat",
+            notes = "get queue depth, publish latency and nacks of async mq publisher")
+    @GetMapping("mqPublishStat")
+    public BaseResponse getMQPublishStat() {
+        return new BaseResponse(ConstantCode.RET_SUCCESS, mqPublisher.getStat());
+    }
+
+    @ApiOperation(value = "getBlockNotifyStat",
+            notes = "get queue depth and blocks dropped of block notify dispatcher")
+    @GetMapping("newBlockEvent/stat")
+    public BaseResponse getBlockNotifyStat() {
+        return new BaseResponse(ConstantCode.RET_SUCCESS, blockNotifyDispatcher.getStat());
+    }
+
+    @ApiOperation(value = "streamEvent",
+            notes = "sse stream of new block and contract event of group, filtered by contract "
+                    + "address and topics of event, type is block, event or both if empty")
+    @GetMapping(value = "stream/{groupId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEvent(@PathVariable("groupId") int groupId,
+            @RequestParam(value = "contractAddress", required = false) String contractAddress,
+            @RequestParam(value = "topics", required = false) List<String> topics,
+            @RequestParam(value = "type", required = false) String type) {
+        log.debug("start streamEvent groupId:{} contractAddress:{}", groupId, contractAddress);
+        if (StringUtils.isNotBlank(type) && !EventStreamService.TYPE_BLOCK.equalsIgnoreCase(type)
+                && !EventStreamService.TYPE_EVENT.equalsIgnoreCase(type)) {
+            throw new FrontException(ConstantCode.PARAM_ERROR);
+        }
+        return eventStreamService.subscribe(groupId, contractAddress, topics, type);
+    }
+
+    @ApiOperation(value = "getEventStreamStat",
+            notes = "get clients, messages sent and slow clients evicted of sse stream")
+    @GetMapping("stream/stat")
+    public BaseResponse getEventStreamStat() {
+        return new BaseResponse(ConstantCode.RET_SUCCESS, eventStreamService.getStat());
+    }
+
+    @ApiOperation(value = "getEventFilterStat",
+            notes = "get count of filters registered on node and subscriptions sharing them")
+    @GetMapping("contractEvent/filterStat")
+    public BaseResponse getEventFilterStat() {
+        return new BaseResponse(ConstantCode.RET_SUCCESS, eventFilterMultiplexer.getStat());
+    }
+
+    @ApiOperation(value = "getBlockDetail",
+            notes = "get content of block pushed by enriched block notify, cached for late readers")
+    @GetMapping("newBlockEvent/detail/{groupId}/{blockNumber}")
+    public BaseResponse getBlockDetail(@PathVariable("groupId") Integer groupId,
+            @PathVariable("blockNumber") BigInteger blockNumber,
+            @RequestParam(value = "enrichMode", defaultValue = BlockEnrichService.ENRICH_FULL)
+                    String enrichMode) {
+        String mode = BlockEnrichService.normalizeMode(enrichMode);
+        if (mode == null || BlockEnrichService.ENRICH_NONE.equals(mode)) {
+            log.error("unknown enrichMode:{}", enrichMode);
+            throw new FrontException(ConstantCode.PARAM_ERROR);
+        }
+        return new BaseResponse(ConstantCode.RET_SUCCESS,
+                blockEnrichService.getBlockDetail(groupId, blockNumber, mode));
+    }
+
+    @ApiOperation(value = "getBlockDetailCacheStat",
+            notes = "get hit and miss of block content shared by enriched block notify")
+    @GetMapping("newBlockEvent/detailCacheStat")
+    public BaseResponse getBlockDetailCacheStat() {
+        return new BaseResponse(ConstantCode.RET_SUCCESS, blockEnrichService.getCacheStat());
+    }
+
+    @ApiOperation(value = "getEventLogCacheStat",
+            notes = "get hit and miss of decoded contract event log shared by subscriptions")
+    @GetMapping("contractEvent/logCacheStat")
+    public BaseResponse getEventLogCacheStat() {
+        return new BaseResponse(ConstantCode.RET_SUCCESS, eventDecoderCache.getLogCacheStat());
+    }
+
+    @ApiOperation(value = "getEventDecoderCacheStat",
+            notes = "get hit and miss of event decoder shared by abi")
+    @GetMapping("contractEvent/decoderCacheStat")
+    public BaseResponse getEventDecoderCacheStat() {
+        return new BaseResponse(ConstantCode.RET_SUCCESS, eventDecoderCache.getDecoderCacheStat());
+    }
+
+    @ApiOperation(value = "getBackfillProgress",
+            notes = "get progress and eta of historical event backfill")
+    @GetMapping(value = {"contractEvent/backfill", "contractEvent/backfill/{infoId}"})
+    public BaseResponse getBackfillProgress(
+            @PathVariable(value = "infoId", required = false) String infoId) {
+        if (infoId == null) {
+            return new BaseResponse(ConstantCode.RET_SUCCESS,
+                    eventBackfillService.getProgressList());
+        }
+        BackfillProgress progress = eventBackfillService.getProgress(infoId);
+        if (progress == null) {
+            throw new FrontException(ConstantCode.DATA_NOT_EXIST_ERROR);
+        }
+        return new BaseResponse(ConstantCode.RET_SUCCESS, progress);
+    }
+
+    @ApiOperation(value = "getContractEventCheckpoint",
+            notes = "get last block published of contract event registers in group")
+    @GetMapping("contractEvent/checkpoint/{groupId}")
+    public BaseResponse getContractEventCheckpoint(@PathVariable("groupId") int groupId) {
+        return new BaseResponse(ConstantCode.RET_SUCCESS,
+                eventCheckpointService.getCheckpointList(groupId));
+    }
+
+    @ApiOperation(value = "resetContractEventCheckpoint",
+            notes = "reset checkpoint of contract event, re-register from it")
+    @ApiImplicitParam(name = "reqCheckpointReset", value = "数据表的id值与重置的块高",
+            required = true, dataType = "ReqCheckpointReset")
+    @PostMapping("contractEvent/checkpoint/reset")
+    public BaseResponse resetContractEventCheckpoint(
+            @Valid @RequestBody ReqCheckpointReset reqCheckpointReset, BindingResult result) {
+        log.debug("start resetContractEventCheckpoint. {}", reqCheckpointReset);
+        checkParamResult(result);
+        eventService.resetContractEventCheckpoint(reqCheckpointReset.getInfoId(),
+                reqCheckpointReset.getBlockNumber());
+        log.debug("end resetContractEventCheckpoint. ");
+        return new BaseResponse(ConstantCode.RET_SUCCESS);
+    }
+
     @ApiOperation(value = "getContractEventInfo",
             notes = "get registered contract event info by app id")
     @ApiImplicitParam(name = "appId", value = "应用编号",
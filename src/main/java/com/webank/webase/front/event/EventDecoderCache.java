@@ -0,0 +1,186 @@
+/*
+ * Copyright 2014-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.webank.webase.front.event;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.webank.webase.front.base.properties.Constants;
+import com.webank.webase.front.base.response.CacheStat;
+import com.webank.webase.front.util.AbiUtil;
+import com.webank.webase.front.util.EventLogDecoder;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.fisco.bcos.web3j.protocol.core.methods.response.Log;
+import org.fisco.bcos.web3j.tx.txdecode.LogResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * decoder of contract event shared by all subscriptions of the same abi,
+ * the only cache of EventLogDecoder, bounded by eventDecoderCacheMaxSize.
+ * decoded log is kept for a short window, so that a log pushed to many subscribers
+ * is decoded only once
+ */
+@Slf4j
+@Component
+public class EventDecoderCache {
+
+    @Autowired
+    private Constants constants;
+
+    /**
+     * decoder keyed by abi content
+     */
+    private Cache<String, EventLogDecoder> decoderCache;
+    /**
+     * decoded log, empty if failed to decode
+     */
+    private Cache<LogKey, Optional<LogResult>> logResultCache;
+
+    @PostConstruct
+    public void init() {
+        log.info("init EventDecoderCache decoderSize:{} logSize:{} logTime:{}",
+            constants.getEventDecoderCacheMaxSize(), constants.getEventLogCacheMaxSize(),
+            constants.getEventLogCacheTime());
+        decoderCache = CacheBuilder.newBuilder()
+            .maximumSize(constants.getEventDecoderCacheMaxSize())
+            .recordStats()
+            .build();
+        logResultCache = CacheBuilder.newBuilder()
+            .maximumSize(constants.getEventLogCacheMaxSize())
+            .expireAfterWrite(constants.getEventLogCacheTime(), TimeUnit.MILLISECONDS)
+            .recordStats()
+            .build();
+    }
+
+    /**
+     * get decoder of abi, build it if missed.
+     *
+     * @param abi abi json string
+     * @return
+     */
+    public EventLogDecoder getDecoder(String abi) {
+        try {
+            return decoderCache.get(abi, () -> new EventLogDecoder(AbiUtil.checkAbi(abi)));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            log.error("build EventLogDecoder failed.", e.getCause());
+            // same as built directly, let caller handle it
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * decode log by decoder of abi, reuse the result of same log decoded recently.
+     *
+     * @param groupId group id
+     * @param abi abi of decoder
+     * @param eventLog log pushed
+     * @return null if failed to decode
+     */
+    public LogResult decodeLog(int groupId, String abi, Log eventLog) {
+        LogKey key = LogKey.of(groupId, abi, eventLog);
+        if (key == null) {
+            return decode(getDecoder(abi), eventLog).orElse(null);
+        }
+        try {
+            return logResultCache.get(key, () -> decode(getDecoder(abi), eventLog))
+                .orElse(null);
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            log.warn("event log decode failed, log: {}", eventLog, e.getCause());
+            return null;
+        }
+    }
+
+    private static Optional<LogResult> decode(EventLogDecoder decoder, Log eventLog) {
+        try {
+            return Optional.ofNullable(decoder.decodeLogResult(eventLog));
+        } catch (RuntimeException e) {
+            log.warn(" event log decode failed, log: {}", eventLog, e);
+            return Optional.empty();
+        }
+    }
+
+    public long getDecoderCount() {
+        return decoderCache.size();
+    }
+
+    public CacheStat getDecoderCacheStat() {
+        return new CacheStat(decoderCache.size(), decoderCache.stats());
+    }
+
+    public CacheStat getLogCacheStat() {
+        return new CacheStat(logResultCache.size(), logResultCache.stats());
+    }
+
+    /**
+     * key of decoded log: group, abi, and position of log on chain
+     */
+    private static final class LogKey {
+        private final int groupId;
+        private final String abi;
+        private final String blockNumber;
+        private final String transactionIndex;
+        private final String logIndex;
+        private final int hash;
+
+        private LogKey(int groupId, String abi, String blockNumber, String transactionIndex,
+                String logIndex) {
+            this.groupId = groupId;
+            this.abi = abi;
+            this.blockNumber = blockNumber;
+            this.transactionIndex = transactionIndex;
+            this.logIndex = logIndex;
+            this.hash = Objects.hash(groupId, abi, blockNumber, transactionIndex, logIndex);
+        }
+
+        /**
+         * null if position of log is unknown, which is not memoized
+         */
+        static LogKey of(int groupId, String abi, Log eventLog) {
+            if (eventLog.getBlockNumberRaw() == null || eventLog.getTransactionIndexRaw() == null
+                    || eventLog.getLogIndexRaw() == null) {
+                return null;
+            }
+            return new LogKey(groupId, abi, eventLog.getBlockNumberRaw(),
+                eventLog.getTransactionIndexRaw(), eventLog.getLogIndexRaw());
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof LogKey)) {
+                return false;
+            }
+            LogKey other = (LogKey) obj;
+            return hash == other.hash && groupId == other.groupId
+                && blockNumber.equals(other.blockNumber)
+                && transactionIndex.equals(other.transactionIndex)
+                && logIndex.equals(other.logIndex) && abi.equals(other.abi);
+        }
+    }
+}
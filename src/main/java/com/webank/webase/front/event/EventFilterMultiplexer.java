@@ -0,0 +1,274 @@
+/*
+ * Copyright 2014-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.webank.webase.front.event;
+
+import com.webank.webase.front.base.code.ConstantCode;
+import com.webank.webase.front.base.exception.FrontException;
+import com.webank.webase.front.event.callback.ContractEventCallback;
+import com.webank.webase.front.event.entity.EventFilterStat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.fisco.bcos.channel.event.filter.EventLogFilter;
+import org.fisco.bcos.channel.event.filter.EventLogPushCallback;
+import org.fisco.bcos.channel.event.filter.EventLogUserParams;
+import org.fisco.bcos.web3j.protocol.core.methods.response.Log;
+import org.fisco.bcos.web3j.tx.txdecode.LogResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * register each distinct filter of (groupId, addresses, topics, range) on node only once,
+ * logs pushed are fanned out to all ContractEventCallback subscribing the same filter,
+ * and to sse clients if any stream client subscribes it (only "latest" filters of streams).
+ * node filter is removed when its last subscriber unsubscribes
+ */
+@Slf4j
+@Component
+public class EventFilterMultiplexer {
+
+    @Autowired
+    private Map<Integer, org.fisco.bcos.channel.client.Service> serviceMap;
+    @Autowired
+    private EventStreamService eventStreamService;
+
+    /**
+     * shared filter that new subscriber of the key can join
+     */
+    private final Map<FilterKey, SharedFilterCallback> filterMap = new HashMap<>();
+    /**
+     * info id of ContractEventInfo or stream client id to shared filter it joined
+     */
+    private final Map<String, SharedFilterCallback> subscriberMap = new ConcurrentHashMap<>();
+
+    /**
+     * subscribe logs of params, register filter on node if no same filter joinable.
+     *
+     * @param infoId id of ContractEventInfo
+     * @param groupId group id
+     * @param params filter
+     * @param callback subscriber
+     */
+    public synchronized void subscribe(String infoId, int groupId, EventLogUserParams params,
+            ContractEventCallback callback) {
+        unsubscribe(infoId);
+        SharedFilterCallback shared = join(groupId, params);
+        callback.setFilter(shared.getFilter());
+        shared.subscribers.put(infoId, callback);
+        subscriberMap.put(infoId, shared);
+        log.debug("subscribe infoId:{} subscribers of filter:{}", infoId,
+            shared.subscribers.size());
+    }
+
+    /**
+     * subscribe logs of params for sse clients, logs pushed are published to EventStreamService
+     *
+     * @param clientId id of stream client
+     * @param groupId group id
+     * @param params filter from "latest"
+     */
+    public synchronized void subscribeStream(String clientId, int groupId,
+            EventLogUserParams params) {
+        if (serviceMap.get(groupId) == null) {
+            throw new FrontException(ConstantCode.GROUPID_NOT_EXIST);
+        }
+        unsubscribe(clientId);
+        SharedFilterCallback shared = join(groupId, params);
+        shared.streamClients.add(clientId);
+        subscriberMap.put(clientId, shared);
+        log.debug("subscribe stream client:{} stream clients of filter:{}", clientId,
+            shared.streamClients.size());
+    }
+
+    /**
+     * shared filter of params, register filter on node if no same filter joinable
+     */
+    private SharedFilterCallback join(int groupId, EventLogUserParams params) {
+        FilterKey key = new FilterKey(groupId, params);
+        SharedFilterCallback shared = filterMap.get(key);
+        if (shared == null || !shared.isJoinable(params)) {
+            shared = new SharedFilterCallback(key, eventStreamService);
+            filterMap.put(key, shared);
+            serviceMap.get(groupId).registerEventLogFilter(params, shared);
+            log.info("register shared event filter {}", key);
+        }
+        return shared;
+    }
+
+    /**
+     * stop pushing to subscriber or stream client, remove node filter if no one left
+     */
+    public synchronized void unsubscribe(String infoId) {
+        SharedFilterCallback shared = subscriberMap.remove(infoId);
+        if (shared == null) {
+            return;
+        }
+        shared.subscribers.remove(infoId);
+        shared.streamClients.remove(infoId);
+        if (!shared.subscribers.isEmpty() || !shared.streamClients.isEmpty()) {
+            return;
+        }
+        filterMap.remove(shared.key, shared);
+        if (removeFilter(serviceMap.get(shared.key.groupId), shared.getFilter())) {
+            log.info("remove shared event filter {}", shared.key);
+        }
+    }
+
+    /**
+     * remove filter registered on node and its callback in sdk
+     * @return false if filter not registered yet
+     */
+    static boolean removeFilter(org.fisco.bcos.channel.client.Service service,
+            EventLogFilter filter) {
+        if (filter == null) {
+            return false;
+        }
+        if (filter.getFilterID() == null) {
+            service.getEventLogFilterManager().removeFilter(filter.getRegisterID());
+        } else {
+            service.getEventLogFilterManager()
+                .removeFilterAndCallback(filter.getRegisterID(), filter.getFilterID());
+        }
+        return true;
+    }
+
+    public synchronized EventFilterStat getStat() {
+        EventFilterStat stat = new EventFilterStat();
+        stat.setFilterCount(new HashSet<>(subscriberMap.values()).size());
+        stat.setSubscriberCount(subscriberMap.size());
+        return stat;
+    }
+
+    /**
+     * callback registered on node, logs are not decoded here as subscribers may differ in abi
+     */
+    static final class SharedFilterCallback extends EventLogPushCallback {
+        private final FilterKey key;
+        private final EventStreamService streamService;
+        private final Map<String, ContractEventCallback> subscribers = new ConcurrentHashMap<>();
+        private final Set<String> streamClients = ConcurrentHashMap.newKeySet();
+        private volatile boolean pushed;
+
+        SharedFilterCallback(FilterKey key, EventStreamService streamService) {
+            this.key = key;
+            this.streamService = streamService;
+        }
+
+        /**
+         * filter from "latest" can be joined any time, filter with history range only
+         * before it pushes, or the new subscriber misses logs pushed
+         */
+        boolean isJoinable(EventLogUserParams params) {
+            return !pushed || "latest".equalsIgnoreCase(params.getFromBlock());
+        }
+
+        @Override
+        public LogResult transferLogToLogResult(Log eventLog) {
+            LogResult logResult = new LogResult();
+            logResult.setLog(eventLog);
+            return logResult;
+        }
+
+        @Override
+        public void onPushEventLog(int status, List<LogResult> logs) {
+            pushed = true;
+            for (ContractEventCallback subscriber : subscribers.values()) {
+                try {
+                    subscriber.onSharedPushEventLog(status, logs);
+                } catch (Exception e) {
+                    log.error("push to subscriber of {} failed", key, e);
+                }
+            }
+            // history filters of registers are never streamed
+            if (streamService != null && !streamClients.isEmpty()) {
+                streamService.publishLogs(key.groupId, status, logs);
+            }
+        }
+    }
+
+    /**
+     * canonical filter: addresses and topics are lower case and sorted
+     */
+    static final class FilterKey {
+        private final int groupId;
+        private final List<String> addresses;
+        private final List<List<String>> topics;
+        private final String fromBlock;
+        private final String toBlock;
+
+        FilterKey(int groupId, EventLogUserParams params) {
+            this.groupId = groupId;
+            this.addresses = canonical(params.getAddresses());
+            List<List<String>> topicList = new ArrayList<>();
+            if (params.getTopics() != null) {
+                for (Object topic : params.getTopics()) {
+                    if (topic instanceof List) {
+                        topicList.add(canonical((List<?>) topic));
+                    } else {
+                        topicList.add(canonical(Collections.singletonList(topic)));
+                    }
+                }
+            }
+            this.topics = topicList;
+            this.fromBlock = StringUtils.lowerCase(StringUtils.trim(params.getFromBlock()));
+            this.toBlock = StringUtils.lowerCase(StringUtils.trim(params.getToBlock()));
+        }
+
+        private static List<String> canonical(List<?> values) {
+            List<String> result = new ArrayList<>();
+            if (values != null) {
+                for (Object value : values) {
+                    if (value != null) {
+                        result.add(value.toString().trim().toLowerCase());
+                    }
+                }
+            }
+            Collections.sort(result);
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof FilterKey)) {
+                return false;
+            }
+            FilterKey other = (FilterKey) obj;
+            return groupId == other.groupId && addresses.equals(other.addresses)
+                && topics.equals(other.topics) && Objects.equals(fromBlock, other.fromBlock)
+                && Objects.equals(toBlock, other.toBlock);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(groupId, addresses, topics, fromBlock, toBlock);
+        }
+
+        @Override
+        public String toString() {
+            return "FilterKey{groupId=" + groupId + ", addresses=" + addresses + ", topics="
+                + topics + ", fromBlock=" + fromBlock + ", toBlock=" + toBlock + "}";
+        }
+    }
+}
@@ -27,7 +27,6 @@ import com.webank.webase.front.util.FrontUtils;
 import com.webank.webase.front.util.RabbitMQUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.fisco.bcos.channel.event.filter.EventLogUserParams;
-import org.fisco.bcos.web3j.tx.txdecode.TransactionDecoder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -35,12 +34,10 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
 
 import static com.webank.webase.front.util.RabbitMQUtils.CONTRACT_EVENT_CALLBACK_MAP;
-import static com.webank.webase.front.util.RabbitMQUtils.BLOCK_ROUTING_KEY_MAP;
 import static com.webank.webase.front.util.RabbitMQUtils.ROUTING_KEY_BLOCK;
 import static com.webank.webase.front.util.RabbitMQUtils.ROUTING_KEY_EVENT;
 
@@ -53,8 +50,6 @@ import static com.webank.webase.front.util.RabbitMQUtils.ROUTING_KEY_EVENT;
 @Service
 public class EventService {
 
-    @Autowired
-    private Map<Integer, org.fisco.bcos.channel.client.Service> serviceMap;
     @Autowired
     private ContractEventInfoRepository contractEventInfoRepository;
     @Autowired
@@ -63,15 +58,26 @@ public class EventService {
     private MQService mqService;
     @Autowired
     private MQPublisher mqPublisher;
+    @Autowired
+    private EventDecoderCache eventDecoderCache;
+    @Autowired
+    private BlockNotifyDispatcher blockNotifyDispatcher;
+    @Autowired
+    private EventCheckpointService eventCheckpointService;
+    @Autowired
+    private EventBackfillService eventBackfillService;
+    @Autowired
+    private EventFilterMultiplexer eventFilterMultiplexer;
 
     /**
      * register NewBlockEventCallBack
      */
     @Transactional
     public List<NewBlockEventInfo> registerNewBlockEvent(String appId, int groupId,
-                                                         String exchangeName, String queueName) {
-        log.info("start registerNewBlockEvent appId:{},groupId:{},exchangeName:{},queueName:{}",
-                appId, groupId, exchangeName, queueName);
+                                                         String exchangeName, String queueName,
+                                                         String enrichMode) {
+        log.info("start registerNewBlockEvent appId:{},groupId:{},exchangeName:{},queueName:{},enrichMode:{}",
+                appId, groupId, exchangeName, queueName, enrichMode);
         // String blockRoutingKey = queueName + "_" + ROUTING_KEY_BLOCK + "_" + appId;
         String randomStr = UUID.randomUUID().toString().replaceAll("-", "").substring(0, 4);
         String routingKey = appId + "_" + ROUTING_KEY_BLOCK + "_" + randomStr;
@@ -79,10 +85,11 @@ public class EventService {
         try {
             // save to db 通过db来保证不重复注册
             String infoId = addNewBlockEventInfo(EventTypes.BLOCK_NOTIFY.getValue(),
-                    appId, groupId, exchangeName, queueName, routingKey);
+                    appId, groupId, exchangeName, queueName, routingKey, enrichMode);
             log.info("registerNewBlockEvent saved to db successfully");
             // record groupId, exchange, routingKey for all block notify
-            BLOCK_ROUTING_KEY_MAP.put(appId, new PublisherHelper(groupId, exchangeName, routingKey));
+            blockNotifyDispatcher.addSubscription(infoId, appId,
+                    new PublisherHelper(groupId, exchangeName, routingKey, enrichMode));
             log.info("end registerNewBlockEvent, infoId:{}", infoId);
         } catch (FrontException frontException) {
             log.error("register newBlockEvent error:[]", frontException);
@@ -103,11 +110,13 @@ public class EventService {
      * register ContractEventCallback
      * @param abi single one
      * @param contractAddress single one
+     * @param backfill fetch history before fromBlock behind chain head in parallel chunks
      */
     @Transactional
     public List<ContractEventInfo> registerContractEvent(String appId, int groupId, String exchangeName, String queueName,
                                                          String abi, String fromBlock, String toBlock,
-                                                         String contractAddress, List<String> topicList) {
+                                                         String contractAddress, List<String> topicList,
+                                                         boolean backfill) {
         log.info("start registerContractEvent appId:{},groupId:{},contractAddress:{},params:{},exchangeName:{},queueName:{}",
                 appId, groupId, abi, contractAddress , exchangeName, queueName);
         // String eventRoutingKey = queueName + "_" + ROUTING_KEY_EVENT + "_" + appId;
@@ -120,16 +129,21 @@ public class EventService {
                     exchangeName, queueName, routingKey,
                     abi, fromBlock, toBlock, contractAddress, topicList);
             log.info("registerContractEvent saved to db successfully");
-            // 传入abi作decoder
-            TransactionDecoder decoder = new TransactionDecoder(abi);
+            if (backfill && eventBackfillService.startBackfill(
+                    contractEventInfoRepository.findById(infoId))) {
+                // live filter is registered by backfill after history published
+                log.info("end registerContractEvent with backfill infoId:{}", infoId);
+                return contractEventInfoRepository.findByAppId(appId);
+            }
             // init EventLogUserParams for register
             EventLogUserParams params = RabbitMQUtils.initSingleEventLogUserParams(fromBlock,
                     toBlock, contractAddress, topicList);
             ContractEventCallback callBack =
                     new ContractEventCallback(mqPublisher,
-                            exchangeName, routingKey, decoder, groupId, appId);
-            org.fisco.bcos.channel.client.Service service = serviceMap.get(groupId);
-            service.registerEventLogFilter(params, callBack);
+                            exchangeName, routingKey, eventDecoderCache, abi, groupId, appId,
+                            eventCheckpointService, infoId);
+            // same filter of other register is shared
+            eventFilterMultiplexer.subscribe(infoId, groupId, params, callBack);
             // mark this callback is on(true)
             callBack.setRunning(true);
             CONTRACT_EVENT_CALLBACK_MAP.put(infoId, callBack);
@@ -149,7 +163,8 @@ public class EventService {
     }
 
     private String addNewBlockEventInfo(int eventType, String appId, int groupId,
-                                      String exchangeName, String queueName, String routingKey) {
+                                      String exchangeName, String queueName, String routingKey,
+                                      String enrichMode) {
         checkNewBlockEventExist(appId, exchangeName, queueName);
         NewBlockEventInfo registerInfo = new NewBlockEventInfo();
         registerInfo.setAppId(appId);
@@ -157,6 +172,7 @@ public class EventService {
         registerInfo.setQueueName(queueName);
         registerInfo.setGroupId(groupId);
         registerInfo.setRoutingKey(routingKey);
+        registerInfo.setEnrichMode(enrichMode);
         registerInfo.setEventType(eventType);
         registerInfo.setCreateTime(LocalDateTime.now());
         NewBlockEventInfo saved = newBlockEventInfoRepository.save(registerInfo);
@@ -236,7 +252,7 @@ public class EventService {
     }
 
     /**
-     * remove from BLOCK_ROUTING_KEY_MAP to stop pushing message
+     * remove from blockNotifyDispatcher to stop pushing message
      * @param infoId
      * @return left info
      */
@@ -250,7 +266,7 @@ public class EventService {
         }
         try {
             String routingKey = eventInfo.getRoutingKey();
-            BLOCK_ROUTING_KEY_MAP.remove(appId);
+            blockNotifyDispatcher.removeSubscription(infoId);
             mqService.unbindQueueFromExchange(exchangeName, queueName, routingKey);
         } catch (Exception e) {
             log.error("unregisterNewBlock error: ", e);
@@ -299,12 +315,19 @@ public class EventService {
             throw new FrontException(ConstantCode.DATA_NOT_EXIST_ERROR);
         }
         try {
+            // cancel backfill first, it no longer hands off to a live filter
+            eventBackfillService.cancelBackfill(infoId);
             // set callback's id empty to stop callback pushing message
             ContractEventCallback callback = CONTRACT_EVENT_CALLBACK_MAP.get(infoId);
             if (Objects.isNull(callback)) {
                 log.warn("unregister failed for it's unregistered in map");
+            } else {
+                // acks of messages still buffered no longer write checkpoint
+                callback.setRunning(false);
             }
             CONTRACT_EVENT_CALLBACK_MAP.remove(infoId);
+            eventFilterMultiplexer.unsubscribe(infoId);
+            eventCheckpointService.removeCheckpoint(infoId);
             String routingKey = eventInfo.getRoutingKey();
             mqService.unbindQueueFromExchange(exchangeName, queueName, routingKey);
         } catch (Exception e) {
@@ -315,4 +338,24 @@ public class EventService {
         contractEventInfoRepository.delete(infoId);
         return contractEventInfoRepository.findByAppId(appId);
     }
+
+    /**
+     * reset checkpoint of contract event and stop its backfill and callback,
+     * EventRegisterInitTask re-registers it from the new checkpoint
+     * @param blockNumber null to remove checkpoint and resume from original fromBlock
+     */
+    public void resetContractEventCheckpoint(String infoId, Long blockNumber) {
+        log.info("resetContractEventCheckpoint infoId:{},blockNumber:{}", infoId, blockNumber);
+        ContractEventInfo eventInfo = contractEventInfoRepository.findById(infoId);
+        if (Objects.isNull(eventInfo)) {
+            throw new FrontException(ConstantCode.DATA_NOT_EXIST_ERROR);
+        }
+        eventBackfillService.cancelBackfill(infoId);
+        ContractEventCallback callback = CONTRACT_EVENT_CALLBACK_MAP.remove(infoId);
+        if (Objects.nonNull(callback)) {
+            callback.setRunning(false);
+        }
+        eventFilterMultiplexer.unsubscribe(infoId);
+        eventCheckpointService.resetCheckpoint(eventInfo, blockNumber);
+    }
 }
@@ -0,0 +1,346 @@
+/*
+ * Copyright 2014-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.webank.webase.front.event;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.webank.webase.front.base.code.ConstantCode;
+import com.webank.webase.front.base.enums.EventTypes;
+import com.webank.webase.front.base.exception.FrontException;
+import com.webank.webase.front.base.properties.Constants;
+import com.webank.webase.front.event.entity.EventStreamStat;
+import com.webank.webase.front.event.entity.message.BlockPushMessage;
+import com.webank.webase.front.event.entity.message.EventLogPushMessage;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.fisco.bcos.channel.event.filter.EventLogFilterPushStatus;
+import org.fisco.bcos.channel.event.filter.EventLogUserParams;
+import org.fisco.bcos.channel.event.filter.TopicTools;
+import org.fisco.bcos.web3j.protocol.core.methods.response.Log;
+import org.fisco.bcos.web3j.tx.txdecode.LogResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * push new block and contract event logs to sse clients.
+ * one notification of node is serialized once and put in bounded buffer of every matching
+ * client, buffers are sent by eventStreamThreadPool, client whose buffer is full is evicted.
+ * contract event logs are pushed by "latest" filters of (group, contract, topics) that
+ * event clients subscribe through EventFilterMultiplexer, so history logs are never streamed
+ */
+@Slf4j
+@Service
+public class EventStreamService {
+
+    public static final String TYPE_BLOCK = "block";
+    public static final String TYPE_EVENT = "event";
+    private static final String STREAM_ID_PREFIX = "stream_";
+    private static final int STREAMED_LOG_CACHE_SIZE = 10000;
+    private static final long STREAMED_LOG_EXPIRE_MINUTES = 1;
+
+    @Autowired
+    private Constants constants;
+    @Autowired
+    @Qualifier(value = "eventStreamThreadPool")
+    private ThreadPoolTaskExecutor eventStreamThreadPool;
+    @Autowired
+    private EventFilterMultiplexer eventFilterMultiplexer;
+
+    private final Map<String, StreamClient> clientMap = new ConcurrentHashMap<>();
+    /**
+     * log pushed by overlapping filters is streamed once
+     */
+    private Cache<String, Boolean> streamedLogCache;
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        streamedLogCache = CacheBuilder.newBuilder()
+            .maximumSize(STREAMED_LOG_CACHE_SIZE)
+            .expireAfterWrite(STREAMED_LOG_EXPIRE_MINUTES, TimeUnit.MINUTES)
+            .build();
+    }
+
+    /**
+     * open sse stream of group.
+     *
+     * @param groupId group id
+     * @param contractAddress only logs of this contract if not empty
+     * @param topics event signature or topic0 hex, only logs matching any if not empty
+     * @param type "block", "event", or both if empty
+     */
+    public SseEmitter subscribe(int groupId, String contractAddress, List<String> topics,
+            String type) {
+        SseEmitter emitter = new SseEmitter(constants.getEventStreamTimeout());
+        register(emitter, groupId, contractAddress, topics, type);
+        return emitter;
+    }
+
+    StreamClient register(SseEmitter emitter, int groupId, String contractAddress,
+            List<String> topics, String type) {
+        if (clientMap.size() >= constants.getEventStreamMaxClients()) {
+            throw new FrontException(ConstantCode.EVENT_STREAM_OVERLOAD);
+        }
+        StreamClient client = new StreamClient(emitter, groupId, contractAddress, topics, type,
+            constants.getEventStreamClientBufferSize());
+        if (client.event) {
+            eventFilterMultiplexer.subscribeStream(STREAM_ID_PREFIX + client.id, groupId,
+                client.filterParams());
+        }
+        clientMap.put(client.id, client);
+        emitter.onCompletion(() -> remove(client));
+        emitter.onTimeout(() -> remove(client));
+        log.info("event stream client:{} subscribe groupId:{} contract:{} topics:{} type:{}",
+            client.id, groupId, contractAddress, topics, type);
+        return client;
+    }
+
+    public void publishBlock(int groupId, BigInteger blockNumber) {
+        if (clientMap.isEmpty()) {
+            return;
+        }
+        String data = null;
+        for (StreamClient client : clientMap.values()) {
+            if (!client.block || client.groupId != groupId) {
+                continue;
+            }
+            if (data == null) {
+                BlockPushMessage message = new BlockPushMessage();
+                message.setEventType(EventTypes.BLOCK_NOTIFY.getValue());
+                message.setGroupId(groupId);
+                message.setBlockNumber(blockNumber);
+                data = message.toString();
+            }
+            offer(client, new StreamMessage(TYPE_BLOCK, data));
+        }
+    }
+
+    /**
+     * logs pushed by node filter, not decoded
+     */
+    public void publishLogs(int groupId, int status, List<LogResult> logs) {
+        if (clientMap.isEmpty() || logs == null
+                || status != EventLogFilterPushStatus.SUCCESS.getStatus()) {
+            return;
+        }
+        for (LogResult logResult : logs) {
+            Log eventLog = logResult.getLog();
+            if (eventLog == null || !firstStreamed(groupId, eventLog)) {
+                continue;
+            }
+            String data = null;
+            for (StreamClient client : clientMap.values()) {
+                if (!client.matches(groupId, eventLog)) {
+                    continue;
+                }
+                if (data == null) {
+                    EventLogPushMessage message = new EventLogPushMessage();
+                    message.setEventType(EventTypes.EVENT_LOG_PUSH.getValue());
+                    message.setGroupId(groupId);
+                    message.setStatus(status);
+                    message.setLogs(Collections.singletonList(logResult));
+                    data = message.toString();
+                }
+                offer(client, new StreamMessage(TYPE_EVENT, data));
+            }
+        }
+    }
+
+    private boolean firstStreamed(int groupId, Log eventLog) {
+        if (eventLog.getBlockNumberRaw() == null || eventLog.getTransactionIndexRaw() == null
+                || eventLog.getLogIndexRaw() == null) {
+            return true;
+        }
+        String key = groupId + "_" + eventLog.getBlockNumberRaw() + "_"
+            + eventLog.getTransactionIndexRaw() + "_" + eventLog.getLogIndexRaw();
+        return streamedLogCache.asMap().putIfAbsent(key, Boolean.TRUE) == null;
+    }
+
+    public EventStreamStat getStat() {
+        EventStreamStat stat = new EventStreamStat();
+        stat.setClientCount(clientMap.size());
+        stat.setSentCount(sentCount.get());
+        stat.setEvictedCount(evictedCount.get());
+        return stat;
+    }
+
+    private void offer(StreamClient client, StreamMessage message) {
+        if (client.closed) {
+            return;
+        }
+        if (!client.buffer.offer(message)) {
+            log.warn("event stream client:{} is too slow, evict it", client.id);
+            evict(client);
+            return;
+        }
+        if (client.draining.compareAndSet(false, true)) {
+            try {
+                eventStreamThreadPool.execute(() -> drain(client));
+            } catch (TaskRejectedException e) {
+                log.warn("event stream client:{} rejected, evict it", client.id);
+                evict(client);
+            }
+        }
+    }
+
+    /**
+     * send buffered messages of client until buffer is empty
+     */
+    private void drain(StreamClient client) {
+        while (!client.closed) {
+            StreamMessage message = client.buffer.poll();
+            if (message == null) {
+                client.draining.set(false);
+                // message offered after poll and before reset
+                if (client.buffer.isEmpty() || !client.draining.compareAndSet(false, true)) {
+                    return;
+                }
+                continue;
+            }
+            try {
+                client.emitter.send(SseEmitter.event().name(message.name).data(message.data));
+                sentCount.incrementAndGet();
+            } catch (IOException | IllegalStateException e) {
+                log.warn("event stream client:{} send failed, evict it. {}", client.id,
+                    e.getMessage());
+                evict(client);
+            }
+        }
+    }
+
+    private void evict(StreamClient client) {
+        if (remove(client)) {
+            evictedCount.incrementAndGet();
+            try {
+                client.emitter.complete();
+            } catch (Exception e) {
+                log.debug("complete emitter of client:{} failed", client.id, e);
+            }
+        }
+    }
+
+    private boolean remove(StreamClient client) {
+        client.closed = true;
+        client.buffer.clear();
+        if (clientMap.remove(client.id) == null) {
+            return false;
+        }
+        if (client.event) {
+            eventFilterMultiplexer.unsubscribe(STREAM_ID_PREFIX + client.id);
+        }
+        return true;
+    }
+
+    private static final class StreamMessage {
+        private final String name;
+        private final String data;
+
+        StreamMessage(String name, String data) {
+            this.name = name;
+            this.data = data;
+        }
+    }
+
+    static final class StreamClient {
+        private final String id = UUID.randomUUID().toString();
+        private final SseEmitter emitter;
+        private final int groupId;
+        private final String contractAddress;
+        private final Set<String> topics = new HashSet<>();
+        private final boolean block;
+        private final boolean event;
+        private final BlockingQueue<StreamMessage> buffer;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+
+        StreamClient(SseEmitter emitter, int groupId, String contractAddress,
+                List<String> topics, String type, int bufferSize) {
+            this.emitter = emitter;
+            this.groupId = groupId;
+            this.contractAddress = StringUtils.isBlank(contractAddress) ? null
+                : contractAddress.trim().toLowerCase();
+            if (topics != null) {
+                for (String topic : topics) {
+                    this.topics.add((topic.startsWith("0x") ? topic
+                        : TopicTools.stringToTopic(topic)).toLowerCase());
+                }
+            }
+            this.block = StringUtils.isBlank(type) || TYPE_BLOCK.equalsIgnoreCase(type);
+            this.event = StringUtils.isBlank(type) || TYPE_EVENT.equalsIgnoreCase(type);
+            this.buffer = new ArrayBlockingQueue<>(Math.max(1, bufferSize));
+        }
+
+        boolean matches(int groupId, Log eventLog) {
+            if (!event || this.groupId != groupId) {
+                return false;
+            }
+            if (contractAddress != null
+                    && !contractAddress.equalsIgnoreCase(eventLog.getAddress())) {
+                return false;
+            }
+            if (topics.isEmpty()) {
+                return true;
+            }
+            List<String> logTopics = eventLog.getTopics();
+            return logTopics != null && !logTopics.isEmpty()
+                && topics.contains(logTopics.get(0).toLowerCase());
+        }
+
+        /**
+         * filter from "latest" of contract and topics, logs are matched again on push
+         * as filters of other clients may overlap
+         */
+        EventLogUserParams filterParams() {
+            EventLogUserParams params = new EventLogUserParams();
+            params.setFromBlock("latest");
+            params.setToBlock("latest");
+            List<String> addresses = new ArrayList<>();
+            if (contractAddress != null) {
+                addresses.add(contractAddress);
+            }
+            params.setAddresses(addresses);
+            List<Object> topicList = new ArrayList<>();
+            if (!topics.isEmpty()) {
+                topicList.add(new ArrayList<>(topics));
+            }
+            params.setTopics(topicList);
+            return params;
+        }
+
+        String getId() {
+            return id;
+        }
+    }
+}
@@ -1,32 +1,446 @@
 package com.webank.webase.front.event;
 
+import com.rabbitmq.client.AMQP.BasicProperties;
+import com.rabbitmq.client.ConfirmListener;
+import com.webank.webase.front.base.properties.Constants;
+import com.webank.webase.front.event.entity.MQPublishStat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.support.DefaultMessagePropertiesConverter;
+import org.springframework.amqp.rabbit.support.PublisherCallbackChannel;
+import org.springframework.amqp.rabbit.support.MessagePropertiesConverter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 /**
  * 将RabbitTemplate方法进行简单封装，将message发送到指定的exchange
  * MQ publisher to send message @param: MqObject
+ * messages are buffered and published in batch on one channel by a dedicated thread,
+ * so that slow broker does not stall callback threads of sdk
  * @author marsli
  */
 @Slf4j
 @Component
 public class MQPublisher {
 
+    private static final String ENCODING = "UTF-8";
+
     @Autowired
     private RabbitTemplate rabbitTemplate;
+    @Autowired
+    private Constants constants;
+
+    private final MessagePropertiesConverter propertiesConverter =
+            new DefaultMessagePropertiesConverter();
+    private BlockingQueue<PendingMessage> publishQueue;
+    private OverflowPolicy overflowPolicy;
+    private Thread publishThread;
+    /**
+     * messages to publish again in order of retryTime, owned by publish thread
+     */
+    private final Deque<PendingMessage> retryQueue = new ArrayDeque<>();
+    /**
+     * messages taken from buffer whose callbacks are not run yet, owned by publish thread
+     */
+    private final Deque<PendingMessage> unresolved = new ArrayDeque<>();
+    private volatile boolean running;
+
+    private final AtomicLong publishedCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong retryCount = new AtomicLong();
+    private final AtomicLong nackCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong totalPublishLatency = new AtomicLong();
+    private volatile long lastPublishLatency;
+    private volatile long maxPublishLatency;
+
+    enum PublishResult {
+        ACKED, NACKED, FAILED
+    }
+
+    /**
+     * policy when buffer is full
+     */
+    enum OverflowPolicy {
+        BLOCK, DROP_OLDEST, DROP_NEWEST;
+
+        static OverflowPolicy of(String policy) {
+            for (OverflowPolicy value : values()) {
+                if (value.name().replace("_", "").equalsIgnoreCase(policy)) {
+                    return value;
+                }
+            }
+            log.warn("unknown mqOverflowPolicy:{}, use block", policy);
+            return BLOCK;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        log.info("init MQPublisher queue:{} batch:{} overflow:{}",
+                constants.getMqPublishQueueCapacity(), constants.getMqPublishBatchSize(),
+                constants.getMqOverflowPolicy());
+        publishQueue = new ArrayBlockingQueue<>(constants.getMqPublishQueueCapacity());
+        overflowPolicy = OverflowPolicy.of(constants.getMqOverflowPolicy());
+        running = true;
+        publishThread = new Thread(this::publishLoop, "mqPublisher");
+        publishThread.setDaemon(true);
+        publishThread.start();
+    }
 
     /**
-     * use string to send message
+     * publish messages left in buffer before shutdown
+     */
+    @PreDestroy
+    public void destroy() throws InterruptedException {
+        running = false;
+        publishThread.interrupt();
+        publishThread.join(constants.getMqPublishConfirmTimeout());
+    }
+
+    /**
+     * use string to send message, buffered and published asynchronously
      * @param exchangeName
      * @param messageStr
      */
     public void sendToTradeFinishedByString(String exchangeName, String routingKey,
                                             String messageStr) {
+        sendToTradeFinishedByString(exchangeName, routingKey, messageStr, null);
+    }
+
+    /**
+     * send message and run onPublished on publisher thread after broker acked it,
+     * callbacks run in order of send though unconfirmed message is retried later
+     * @param onPublished nullable, not run if message is dropped, or nacked or failed after
+     *         retries
+     */
+    public void sendToTradeFinishedByString(String exchangeName, String routingKey,
+                                            String messageStr, Runnable onPublished) {
+        sendToTradeFinishedByString(exchangeName, routingKey, messageStr, onPublished, null);
+    }
+
+    /**
+     * send message, run onPublished after broker acked it, or onDropped if it is dropped
+     * on overflow, or nacked or failed after retries
+     * @param onDropped nullable, run on caller thread if dropped on overflow,
+     *         otherwise on publisher thread
+     */
+    public void sendToTradeFinishedByString(String exchangeName, String routingKey,
+                                            String messageStr, Runnable onPublished,
+                                            Runnable onDropped) {
         log.debug("sendToTradeFinishedByString exchangeName:{}, routingKey:{}, messageStr:{}",
                 exchangeName, routingKey, messageStr);
-        rabbitTemplate.convertAndSend(exchangeName, routingKey, messageStr);
+        PendingMessage message = new PendingMessage(exchangeName, routingKey, messageStr,
+                onPublished, onDropped);
+        if (publishQueue.offer(message)) {
+            return;
+        }
+        switch (overflowPolicy) {
+            case DROP_OLDEST:
+                // drop the head until new message is accepted
+                while (!publishQueue.offer(message)) {
+                    PendingMessage oldest = publishQueue.poll();
+                    if (oldest != null) {
+                        droppedCount.incrementAndGet();
+                        runCallback(oldest, oldest.onDropped);
+                    }
+                }
+                return;
+            case DROP_NEWEST:
+                break;
+            default:
+                try {
+                    if (publishQueue.offer(message, constants.getMqOverflowWaitTime(),
+                            TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                break;
+        }
+        droppedCount.incrementAndGet();
+        log.warn("mq publish buffer is full, drop message exchange:{} routingKey:{}",
+                exchangeName, routingKey);
+        runCallback(message, onDropped);
+    }
+
+    private void publishLoop() {
+        int batchSize = Math.max(1, constants.getMqPublishBatchSize());
+        List<PendingMessage> batch = new ArrayList<>(batchSize);
+        while (running || !publishQueue.isEmpty() || !retryQueue.isEmpty()) {
+            // due retries go first, retried at once on shutdown
+            long now = System.currentTimeMillis();
+            while (!retryQueue.isEmpty() && batch.size() < batchSize
+                    && (!running || retryQueue.peek().retryTime <= now)) {
+                batch.add(retryQueue.poll());
+            }
+            int retries = batch.size();
+            try {
+                if (batch.isEmpty()) {
+                    PendingMessage first = publishQueue.poll(pollTimeout(now),
+                            TimeUnit.MILLISECONDS);
+                    if (first != null) {
+                        batch.add(first);
+                    }
+                }
+                publishQueue.drainTo(batch, batchSize - batch.size());
+            } catch (InterruptedException e) {
+                if (!running) {
+                    publishQueue.drainTo(batch, batchSize - batch.size());
+                }
+            }
+            unresolved.addAll(batch.subList(retries, batch.size()));
+            if (!batch.isEmpty()) {
+                publishWithRetry(batch);
+                batch.clear();
+            }
+        }
+        log.info("MQPublisher stopped.");
+    }
+
+    /**
+     * wait for new message until next retry is due
+     */
+    private long pollTimeout(long now) {
+        PendingMessage retry = retryQueue.peek();
+        if (retry == null) {
+            return 1000;
+        }
+        return Math.max(1, Math.min(1000, retry.retryTime - now));
+    }
+
+    /**
+     * publish batch, only messages nacked or not confirmed are published again,
+     * at most mqPublishMaxRetry times after mqPublishRetryInterval, then dropped.
+     * publish thread does not wait for retry, callbacks still run in order of message
+     */
+    void publishWithRetry(List<PendingMessage> batch) {
+        long startTime = System.currentTimeMillis();
+        publishBatch(batch);
+        int retries = 0;
+        int drops = 0;
+        for (PendingMessage pending : batch) {
+            if (pending.result == PublishResult.ACKED) {
+                continue;
+            }
+            if (pending.retry < constants.getMqPublishMaxRetry()) {
+                pending.retry++;
+                pending.retryTime = startTime + constants.getMqPublishRetryInterval();
+                pending.result = null;
+                retryQueue.add(pending);
+                retries++;
+            } else {
+                drops++;
+            }
+        }
+        if (retries > 0) {
+            retryCount.addAndGet(retries);
+            log.warn("mq publish batch size:{} unconfirmed:{}, retry later", batch.size(),
+                    retries);
+        }
+        if (drops > 0) {
+            log.error("mq publish nacked, confirm timeout or failed after retries, drop size:{}",
+                    drops);
+        }
+        resolveInOrder();
+        long latency = System.currentTimeMillis() - startTime;
+        batchCount.incrementAndGet();
+        totalPublishLatency.addAndGet(latency);
+        lastPublishLatency = latency;
+        if (latency > maxPublishLatency) {
+            maxPublishLatency = latency;
+        }
+    }
+
+    /**
+     * run callbacks of messages resolved, not passing any message still to be retried
+     */
+    private void resolveInOrder() {
+        while (!unresolved.isEmpty() && unresolved.peek().result != null) {
+            PendingMessage pending = unresolved.poll();
+            switch (pending.result) {
+                case ACKED:
+                    publishedCount.incrementAndGet();
+                    runCallback(pending, pending.onPublished);
+                    break;
+                case NACKED:
+                    nackCount.incrementAndGet();
+                    runCallback(pending, pending.onDropped);
+                    break;
+                default:
+                    failedCount.incrementAndGet();
+                    runCallback(pending, pending.onDropped);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * publish batch on one channel, and wait confirms of the whole batch at most
+     * mqPublishConfirmTimeout. result of each message is set by its delivery tag: ACKED,
+     * NACKED if nacked or not confirmed in time, FAILED if channel failed before confirm.
+     * channel of factory without publisher confirms is put in confirm mode first
+     */
+    void publishBatch(List<PendingMessage> batch) {
+        ConfirmTracker tracker = new ConfirmTracker();
+        try {
+            rabbitTemplate.execute(channel -> {
+                if (!(channel instanceof PublisherCallbackChannel)) {
+                    channel.confirmSelect();
+                }
+                channel.addConfirmListener(tracker);
+                try {
+                    for (PendingMessage pending : batch) {
+                        Message message = rabbitTemplate.getMessageConverter()
+                                .toMessage(pending.messageStr, new MessageProperties());
+                        BasicProperties properties = propertiesConverter
+                                .fromMessageProperties(message.getMessageProperties(), ENCODING);
+                        tracker.add(channel.getNextPublishSeqNo(), pending);
+                        channel.basicPublish(pending.exchangeName, pending.routingKey, false,
+                                properties, message.getBody());
+                    }
+                    tracker.await(constants.getMqPublishConfirmTimeout());
+                } finally {
+                    channel.removeConfirmListener(tracker);
+                }
+                return null;
+            });
+            tracker.close(batch, PublishResult.NACKED);
+        } catch (Exception e) {
+            log.error("mq publish batch failed, size:{}", batch.size(), e);
+            tracker.close(batch, PublishResult.FAILED);
+        }
+    }
+
+    private void runCallback(PendingMessage pending, Runnable callback) {
+        if (callback == null) {
+            return;
+        }
+        try {
+            callback.run();
+        } catch (Exception e) {
+            log.error("mq publish callback failed, routingKey:{}", pending.routingKey, e);
+        }
+    }
+
+    public MQPublishStat getStat() {
+        MQPublishStat stat = new MQPublishStat();
+        stat.setQueueDepth(publishQueue.size());
+        stat.setQueueCapacity(constants.getMqPublishQueueCapacity());
+        stat.setOverflowPolicy(overflowPolicy.name());
+        stat.setPublishedCount(publishedCount.get());
+        stat.setBatchCount(batchCount.get());
+        stat.setRetryCount(retryCount.get());
+        stat.setNackCount(nackCount.get());
+        stat.setFailedCount(failedCount.get());
+        stat.setDroppedCount(droppedCount.get());
+        stat.setLastPublishLatency(lastPublishLatency);
+        stat.setMaxPublishLatency(maxPublishLatency);
+        long batches = batchCount.get();
+        stat.setAvgPublishLatency(batches == 0 ? 0 : totalPublishLatency.get() / batches);
+        return stat;
+    }
+
+    /**
+     * message waiting in buffer
+     */
+    static final class PendingMessage {
+        private final String exchangeName;
+        private final String routingKey;
+        private final String messageStr;
+        private final Runnable onPublished;
+        private final Runnable onDropped;
+        /**
+         * set by publish thread, null until acked, or dropped after retries
+         */
+        private PublishResult result;
+        private int retry;
+        private long retryTime;
+
+        PendingMessage(String exchangeName, String routingKey, String messageStr,
+                Runnable onPublished, Runnable onDropped) {
+            this.exchangeName = exchangeName;
+            this.routingKey = routingKey;
+            this.messageStr = messageStr;
+            this.onPublished = onPublished;
+            this.onDropped = onDropped;
+        }
+    }
+
+    /**
+     * confirms of one batch by delivery tag, late confirms after close are ignored
+     */
+    static final class ConfirmTracker implements ConfirmListener {
+        private final NavigableMap<Long, PendingMessage> unconfirmed = new TreeMap<>();
+        private boolean closed;
+
+        synchronized void add(long deliveryTag, PendingMessage pending) {
+            unconfirmed.put(deliveryTag, pending);
+        }
+
+        @Override
+        public void handleAck(long deliveryTag, boolean multiple) {
+            confirm(deliveryTag, multiple, PublishResult.ACKED);
+        }
+
+        @Override
+        public void handleNack(long deliveryTag, boolean multiple) {
+            confirm(deliveryTag, multiple, PublishResult.NACKED);
+        }
+
+        private synchronized void confirm(long deliveryTag, boolean multiple,
+                PublishResult result) {
+            if (closed) {
+                return;
+            }
+            Map<Long, PendingMessage> confirmed = multiple
+                    ? unconfirmed.headMap(deliveryTag, true)
+                    : unconfirmed.subMap(deliveryTag, true, deliveryTag, true);
+            confirmed.values().forEach(pending -> pending.result = result);
+            confirmed.clear();
+            notifyAll();
+        }
+
+        /**
+         * wait until every message published is confirmed or timeout
+         */
+        synchronized void await(long timeout) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + timeout;
+            long remaining = timeout;
+            while (!unconfirmed.isEmpty() && remaining > 0) {
+                wait(remaining);
+                remaining = deadline - System.currentTimeMillis();
+            }
+        }
+
+        /**
+         * messages of batch not confirmed yet take the given result
+         */
+        synchronized void close(List<PendingMessage> batch, PublishResult result) {
+            closed = true;
+            for (PendingMessage pending : batch) {
+                if (pending.result == null) {
+                    pending.result = result;
+                }
+            }
+        }
     }
 
 //    public void sendToTradeFinished(String exchangeName, MqObject mqObject) {
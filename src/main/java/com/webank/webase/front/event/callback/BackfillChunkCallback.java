@@ -0,0 +1,78 @@
+/**
+ * Copyright 2014-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webank.webase.front.event.callback;
+
+import com.webank.webase.front.event.EventDecoderCache;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.fisco.bcos.channel.event.filter.EventLogFilterPushStatus;
+import org.fisco.bcos.channel.event.filter.EventLogPushWithDecodeCallback;
+import org.fisco.bcos.web3j.protocol.core.methods.response.Log;
+import org.fisco.bcos.web3j.tx.txdecode.LogResult;
+
+/**
+ * collect logs of one bounded block range of backfill,
+ * completed when node pushes PUSH_COMPLETED, or failed by any other error status.
+ * filter registered on node is kept by getFilter, removed by backfill once chunk is done
+ */
+public class BackfillChunkCallback extends EventLogPushWithDecodeCallback {
+
+    private final EventDecoderCache decoderCache;
+    private final String abi;
+    private final int groupId;
+    private final List<LogResult> logs = new ArrayList<>();
+    private final CompletableFuture<List<LogResult>> future = new CompletableFuture<>();
+
+    public BackfillChunkCallback(EventDecoderCache decoderCache, String abi, int groupId) {
+        this.decoderCache = decoderCache;
+        this.abi = abi;
+        this.groupId = groupId;
+        decoderCache.getDecoder(abi);
+    }
+
+    @Override
+    public void onPushEventLog(int status, List<LogResult> logs) {
+        if (future.isDone()) {
+            return;
+        }
+        if (status == EventLogFilterPushStatus.SUCCESS.getStatus()) {
+            if (logs != null) {
+                synchronized (this.logs) {
+                    this.logs.addAll(logs);
+                }
+            }
+        } else if (status == EventLogFilterPushStatus.PUSH_COMPLETED.getStatus()) {
+            synchronized (this.logs) {
+                future.complete(new ArrayList<>(this.logs));
+            }
+        } else {
+            future.completeExceptionally(new IllegalStateException(
+                "event log push failed, status: " + status + ", "
+                    + EventLogFilterPushStatus.getDescMessage(status)));
+        }
+    }
+
+    @Override
+    public LogResult transferLogToLogResult(Log log) {
+        return decoderCache.decodeLog(groupId, abi, log);
+    }
+
+    public CompletableFuture<List<LogResult>> getFuture() {
+        return future;
+    }
+}
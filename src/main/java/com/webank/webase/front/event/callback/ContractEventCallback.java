@@ -17,17 +17,18 @@
 package com.webank.webase.front.event.callback;
 
 import com.webank.webase.front.base.enums.EventTypes;
+import com.webank.webase.front.event.EventCheckpointService;
+import com.webank.webase.front.event.EventDecoderCache;
 import com.webank.webase.front.event.MQPublisher;
 import com.webank.webase.front.event.entity.message.EventLogPushMessage;
 import lombok.Setter;
 import org.fisco.bcos.channel.event.filter.EventLogPushWithDecodeCallback;
 import org.fisco.bcos.web3j.protocol.core.methods.response.Log;
-import org.fisco.bcos.web3j.tx.txdecode.BaseException;
 import org.fisco.bcos.web3j.tx.txdecode.LogResult;
-import org.fisco.bcos.web3j.tx.txdecode.TransactionDecoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -46,19 +47,29 @@ public class ContractEventCallback extends EventLogPushWithDecodeCallback {
     private String routingKey;
     private int groupId;
     private String appId;
+    private EventDecoderCache decoderCache;
+    private String abi;
+    private EventCheckpointService checkpointService;
+    private String infoId;
     @Setter
-    private boolean running = false;
+    private volatile boolean running = false;
 
     public ContractEventCallback(MQPublisher mqPublisher,
                                  String exchangeName, String routingKey,
-                                 TransactionDecoder decoder, int groupId, String appId) {
+                                 EventDecoderCache decoderCache, String abi,
+                                 int groupId, String appId,
+                                 EventCheckpointService checkpointService, String infoId) {
         this.MQPublisher = mqPublisher;
         this.exchangeName = exchangeName;
         this.routingKey = routingKey;
-        // onPush will call father class's decoder, init EventLogPushWithDecodeCallback's decoder
-        this.setDecoder(decoder);
+        // decoder shared by callbacks of same abi, built on register so invalid abi fails here
+        this.decoderCache = decoderCache;
+        this.abi = abi;
+        decoderCache.getDecoder(abi);
         this.groupId = groupId;
         this.appId = appId;
+        this.checkpointService = checkpointService;
+        this.infoId = infoId;
     }
 
 
@@ -90,19 +101,86 @@ public class ContractEventCallback extends EventLogPushWithDecodeCallback {
         eventLogPushMessage.setStatus(status);
         eventLogPushMessage.setLogs(logs);
         eventLogPushMessage.setAppId(appId);
+        long lastBlock = getLastBlockNumber(logs);
+        if (lastBlock < 0) {
+            MQPublisher.sendToTradeFinishedByString(exchangeName, routingKey,
+                    eventLogPushMessage.toString());
+            return;
+        }
+        // checkpoint moves after mq acked and is pinned if dropped,
+        // callback stopped by unregister or reset is ignored
         MQPublisher.sendToTradeFinishedByString(exchangeName, routingKey,
-                eventLogPushMessage.toString());
+                eventLogPushMessage.toString(), () -> {
+                    if (running) {
+                        checkpointService.markDelivered(infoId, groupId, appId, lastBlock);
+                    }
+                }, () -> {
+                    if (running) {
+                        checkpointService.markDropped(infoId, groupId, appId,
+                                getFirstBlockNumber(logs));
+                    }
+                });
+    }
+
+    /**
+     * lowest block number of logs, called only if some log has block number
+     */
+    private static long getFirstBlockNumber(List<LogResult> logs) {
+        long firstBlock = Long.MAX_VALUE;
+        for (LogResult logResult : logs) {
+            if (logResult == null || logResult.getLog() == null
+                    || logResult.getLog().getBlockNumberRaw() == null) {
+                continue;
+            }
+            firstBlock = Math.min(firstBlock, logResult.getLog().getBlockNumber().longValue());
+        }
+        return firstBlock;
+    }
+
+    /**
+     * highest block number of logs, -1 if unknown
+     */
+    private static long getLastBlockNumber(List<LogResult> logs) {
+        long lastBlock = -1;
+        if (logs == null) {
+            return lastBlock;
+        }
+        for (LogResult logResult : logs) {
+            if (logResult == null || logResult.getLog() == null
+                    || logResult.getLog().getBlockNumberRaw() == null) {
+                continue;
+            }
+            lastBlock = Math.max(lastBlock, logResult.getLog().getBlockNumber().longValue());
+        }
+        return lastBlock;
     }
 
+    /**
+     * logs of filter shared with other subscribers, decode by abi of this one
+     * @param status
+     * @param logs not decoded
+     */
+    public void onSharedPushEventLog(int status, List<LogResult> logs) {
+        if (!running) {
+            return;
+        }
+        List<LogResult> decodedLogs = null;
+        if (logs != null) {
+            decodedLogs = new ArrayList<>(logs.size());
+            for (LogResult logResult : logs) {
+                LogResult decoded = transferLogToLogResult(logResult.getLog());
+                decodedLogs.add(decoded == null ? logResult : decoded);
+            }
+        }
+        onPushEventLog(status, decodedLogs);
+    }
+
+    /**
+     * same log pushed to callbacks of same abi is decoded once
+     */
     @Override
     public LogResult transferLogToLogResult(Log log) {
-        try {
-            LogResult logResult = getDecoder().decodeEventLogReturnObject(log);
-            return logResult;
-        } catch (BaseException e) {
-            logger.warn(" event log decode failed, log: {}", log);
-            return null;
-        }
+        return decoderCache.decodeLog(groupId, abi, log);
     }
 
 }
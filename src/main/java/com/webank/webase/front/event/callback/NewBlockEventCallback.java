@@ -16,10 +16,9 @@
 
 package com.webank.webase.front.event.callback;
 
-import com.webank.webase.front.base.enums.EventTypes;
-import com.webank.webase.front.event.MQPublisher;
-import com.webank.webase.front.event.entity.PublisherHelper;
-import com.webank.webase.front.event.entity.message.BlockPushMessage;
+import com.webank.webase.front.event.BlockNotifyDispatcher;
+import com.webank.webase.front.event.EventStreamService;
+import com.webank.webase.front.web3api.ChainHeadTracker;
 import org.fisco.bcos.channel.client.BlockNotifyCallBack;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,10 +27,9 @@ import org.springframework.stereotype.Component;
 
 import java.math.BigInteger;
 
-import static com.webank.webase.front.util.RabbitMQUtils.BLOCK_ROUTING_KEY_MAP;
-
 /**
  * 出块后将Push一个信息到RabbitMQ，并广播到订阅者的队列中
+ * messages are built and sent by BlockNotifyDispatcher off the sdk callback thread
  * @author marsli
  */
 @Component
@@ -40,46 +38,20 @@ public class NewBlockEventCallback implements BlockNotifyCallBack {
     private static Logger logger = LoggerFactory.getLogger(NewBlockEventCallback.class);
 
     @Autowired
-    private MQPublisher MQPublisher;
+    private BlockNotifyDispatcher blockNotifyDispatcher;
+    @Autowired
+    private EventStreamService eventStreamService;
+    @Autowired
+    private ChainHeadTracker chainHeadTracker;
 
     @Override
     public void onBlockNotify(int groupID, BigInteger blockNumber) {
         logger.info("NewBlockEventCallBack groupID:{}, blockNumber:{}",
                 groupID, blockNumber);
-        // register map
-		if (BLOCK_ROUTING_KEY_MAP.isEmpty()) {
-			logger.debug("block notify register list is empty. ");
-			return;
-		}
-		BlockPushMessage blockPushMessage = new BlockPushMessage();
-		blockPushMessage.setBlockNumber(blockNumber);
-		blockPushMessage.setGroupId(groupID);
-		blockPushMessage.setEventType(EventTypes.BLOCK_NOTIFY.getValue());
-		for (String appId: BLOCK_ROUTING_KEY_MAP.keySet()) {
-			blockPushMessage.setAppId(appId);
-			PublisherHelper blockPublishInfo = BLOCK_ROUTING_KEY_MAP.get(appId);
-			if (groupID == blockPublishInfo.getGroupId()) {
-				pushMessage2MQ(blockPublishInfo.getExchangeName(),
-						blockPublishInfo.getRoutingKey(), blockPushMessage);
-			}
-		}
-
-
-    }
-
-	/**
-	 * push message to mq
-	 * @param exchangeName
-	 * @param routingKey
-	 * @param blockPushMessage
-	 */
-    private void pushMessage2MQ(String exchangeName, String routingKey,
-								BlockPushMessage blockPushMessage) {
-        logger.debug("NewBlockEventCallBack pushMessage2MQ blockPushMessage:{}",
-                blockPushMessage.toString());
-        MQPublisher.sendToTradeFinishedByString(exchangeName, routingKey,
-                blockPushMessage.toString());
+        // cached eth_call output of lower block becomes stale
+        chainHeadTracker.onBlockNotify(groupID, blockNumber);
+        blockNotifyDispatcher.dispatch(groupID, blockNumber);
+        eventStreamService.publishBlock(groupID, blockNumber);
     }
 
-
 }
@@ -0,0 +1,68 @@
+/**
+ * Copyright 2014-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webank.webase.front.event.entity;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * progress of historical event backfill of one contract event register
+ */
+@Data
+public class BackfillProgress {
+
+    /**
+     * id of ContractEventInfo
+     */
+    private String infoId;
+    private String appId;
+    private Integer groupId;
+
+    /**
+     * RUNNING, COMPLETED, FAILED, CANCELLED
+     */
+    private String status;
+
+    /**
+     * backfill range, endBlock is chain head when started
+     */
+    private Long fromBlock;
+    private Long endBlock;
+    /**
+     * live filter after backfill continues to toBlock
+     */
+    private String toBlock;
+
+    private Integer totalChunks;
+    private Integer finishedChunks;
+    /**
+     * all blocks up to it are published
+     */
+    private Long publishedBlock;
+    private Long logCount;
+
+    private LocalDateTime startTime;
+    private Long elapsedMillis;
+    /**
+     * estimated by publish rate so far, null if unknown
+     */
+    private Long etaMillis;
+
+    private String errorMessage;
+
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright 2014-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.webank.webase.front.event.entity;
+
+import lombok.Data;
+
+/**
+ * statistics of block notify dispatcher, dropped blocks are not pushed to any subscription
+ */
+@Data
+public class BlockNotifyStat {
+    private int queueDepth;
+    private int subscriptionCount;
+    private long dispatchedCount;
+    private long droppedCount;
+}
@@ -0,0 +1,50 @@
+/**
+ * Copyright 2014-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webank.webase.front.event.entity;
+
+import lombok.Data;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import java.time.LocalDateTime;
+
+/**
+ * highest block whose event logs have been published to mq of one contract event register,
+ * used to resume from after restart
+ */
+@Entity
+@Data
+public class EventCheckpoint {
+
+    /**
+     * id of ContractEventInfo
+     */
+    @Id
+    private String infoId;
+
+    private Integer groupId;
+
+    private String appId;
+
+    /**
+     * block number of last log acked by mq
+     */
+    private Long blockNumber;
+
+    private LocalDateTime modifyTime;
+
+}
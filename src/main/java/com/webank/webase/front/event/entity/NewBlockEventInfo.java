@@ -68,6 +68,12 @@ public class NewBlockEventInfo {
 	 */
 	private String routingKey;
 
+	/**
+	 * none(default), compact: block header and transaction hash,
+	 * full: block with transactions and receipts
+	 */
+	private String enrichMode;
+
 	private LocalDateTime createTime;
 
 }
@@ -31,4 +31,12 @@ public class PublisherHelper {
 	private Integer groupId;
 	private String exchangeName;
 	private String routingKey;
+	/**
+	 * enrich mode of block notify: none, compact or full
+	 */
+	private String enrichMode;
+
+	public PublisherHelper(Integer groupId, String exchangeName, String routingKey) {
+		this(groupId, exchangeName, routingKey, null);
+	}
 }
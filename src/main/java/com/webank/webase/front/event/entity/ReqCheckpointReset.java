@@ -0,0 +1,43 @@
+/**
+ * Copyright 2014-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webank.webase.front.event.entity;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.validator.constraints.NotEmpty;
+
+import javax.validation.constraints.Min;
+
+/**
+ * reset checkpoint of contract event
+ */
+@Data
+@NoArgsConstructor
+public class ReqCheckpointReset {
+	/**
+	 * id of ContractEventInfo
+	 */
+	@NotEmpty(message = "infoId cannot be empty")
+	private String infoId;
+
+	/**
+	 * block to resume from, remove checkpoint if null
+	 */
+	@Min(value = 0, message = "blockNumber cannot be negative")
+	private Long blockNumber;
+
+}
@@ -87,4 +87,10 @@ public class ReqContractEventRegister {
      */
     private List<String> topicList;
 
+	/**
+	 * if true, history from fromBlock to chain head is fetched in parallel chunks
+	 * before live push
+	 */
+	private Boolean backfill;
+
 }
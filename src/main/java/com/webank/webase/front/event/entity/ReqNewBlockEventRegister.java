@@ -60,4 +60,9 @@ public class ReqNewBlockEventRegister {
 	@NotEmpty(message = "queueName cannot be empty, usually use appId as queueName")
 	private String queueName;
 
+	/**
+	 * enrich mode of message: none(default), compact or full
+	 */
+	private String enrichMode;
+
 }
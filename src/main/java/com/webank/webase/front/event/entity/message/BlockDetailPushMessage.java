@@ -0,0 +1,82 @@
+/**
+ * Copyright 2014-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webank.webase.front.event.entity.message;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.webank.webase.front.util.JsonUtils;
+import java.math.BigInteger;
+import java.util.List;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.fisco.bcos.web3j.protocol.core.methods.response.BcosBlock;
+import org.fisco.bcos.web3j.protocol.core.methods.response.TransactionReceipt;
+
+/**
+ * block notify carrying block content, fields of other enrich mode are omitted
+ */
+@Data
+@NoArgsConstructor
+@JsonInclude(Include.NON_NULL)
+public class BlockDetailPushMessage implements MQObject {
+
+    /**
+     * application which register block notify
+     */
+    private String appId;
+
+    /**
+     * event type: 1: blockNotify, 2: eventLogPush, 3: others
+     */
+    private Integer eventType;
+
+    /**
+     * group id
+     */
+    private Integer groupId;
+
+    /**
+     * block height
+     */
+    private BigInteger blockNumber;
+
+    /**
+     * enrich mode: compact or full
+     */
+    private String enrichMode;
+
+    /**
+     * compact: block header and hash of transactions
+     */
+    private String blockHash;
+    private BigInteger timestamp;
+    private String sealer;
+    private Integer transCount;
+    private List<String> transHashList;
+
+    /**
+     * full: block with transactions and their receipts
+     */
+    private BcosBlock.Block block;
+    private List<TransactionReceipt> receipts;
+
+    @Override
+    public String toString() {
+        return JsonUtils.toJSONString(this);
+    }
+
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright 2014-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webank.webase.front.event.entity.message;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.webank.webase.front.util.JsonUtils;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * message of one app sharing content with other apps, such as block detail of
+ * enriched block notify. fields of content are serialized once into raw json,
+ * and written after app id of each app as they are
+ */
+public class SharedContentPushMessage implements MQObject {
+
+    /**
+     * application which register the notify
+     */
+    private final String appId;
+
+    /**
+     * raw json of fields of shared content
+     */
+    private final transient Map<String, RawValue> content;
+
+    public SharedContentPushMessage(String appId, Map<String, RawValue> content) {
+        this.appId = appId;
+        this.content = content;
+    }
+
+    /**
+     * serialize fields of content once for all apps, app id of content is left out.
+     *
+     * @param message content without app id
+     * @return null if failed to serialize
+     */
+    public static Map<String, RawValue> serializeContent(Object message) {
+        JsonNode node = JsonUtils.toJsonNode(message);
+        if (node == null || !node.isObject()) {
+            return null;
+        }
+        Map<String, RawValue> content = new LinkedHashMap<>();
+        Iterator<Entry<String, JsonNode>> fields = node.fields();
+        while (fields.hasNext()) {
+            Entry<String, JsonNode> field = fields.next();
+            if (!"appId".equals(field.getKey())) {
+                content.put(field.getKey(), new RawValue(JsonUtils.toJSONString(field.getValue())));
+            }
+        }
+        return Collections.unmodifiableMap(content);
+    }
+
+    public String getAppId() {
+        return appId;
+    }
+
+    @JsonAnyGetter
+    public Map<String, RawValue> getContent() {
+        return content;
+    }
+
+    @Override
+    public String toString() {
+        return JsonUtils.toJSONString(this);
+    }
+}
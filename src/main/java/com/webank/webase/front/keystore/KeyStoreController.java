@@ -20,6 +20,7 @@ import com.webank.webase.front.base.controller.BaseController;
 import com.webank.webase.front.base.enums.KeyTypes;
 import com.webank.webase.front.base.exception.FrontException;
 import com.webank.webase.front.base.response.BaseResponse;
+import com.webank.webase.front.base.response.CacheStat;
 import com.webank.webase.front.keystore.entity.*;
 import com.webank.webase.front.util.CommonUtils;
 import com.webank.webase.front.util.PemUtils;
@@ -58,6 +59,8 @@ public class KeyStoreController extends BaseController {
 
     @Autowired
     private KeyStoreService keyStoreService;
+    @Autowired
+    private SignClient signClient;
 
     @ApiOperation(value = "getKeyStore", notes = "get key store info")
     @ApiImplicitParams({
@@ -95,6 +98,18 @@ public class KeyStoreController extends BaseController {
         }
     }
 
+    @ApiOperation(value = "getSignStat", notes = "get statistics of webase-sign requests")
+    @GetMapping("signStat")
+    public SignStat getSignStat() {
+        return signClient.getStat();
+    }
+
+    @ApiOperation(value = "getCredentialCacheStat", notes = "get hit and miss of local credential cache")
+    @GetMapping("credentialCacheStat")
+    public CacheStat getCredentialCacheStat() {
+        return keyStoreService.getCredentialCacheStat();
+    }
+
     @ApiOperation(value = "getKeyStoreList", notes = "get local KeyStore lists")
     @GetMapping("localKeyStores")
     public List<KeyStoreInfo> getLocalKeyStoreList() {
@@ -14,11 +14,15 @@
 package com.webank.webase.front.keystore;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.webank.webase.front.base.code.ConstantCode;
 import com.webank.webase.front.base.enums.KeyTypes;
 import com.webank.webase.front.base.exception.FrontException;
 import com.webank.webase.front.base.properties.Constants;
 import com.webank.webase.front.base.response.BaseResponse;
+import com.webank.webase.front.base.response.CacheStat;
 import com.webank.webase.front.keystore.entity.*;
 import com.webank.webase.front.util.AesUtils;
 import com.webank.webase.front.util.CommonUtils;
@@ -39,12 +43,14 @@ import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.annotation.PostConstruct;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Predicate;
@@ -56,6 +62,9 @@ import java.security.*;
 import java.security.cert.CertificateException;
 import java.security.spec.InvalidKeySpecException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
@@ -76,7 +85,29 @@ public class KeyStoreService {
     KeystoreRepository keystoreRepository;
     static final int PUBLIC_KEY_LENGTH_IN_HEX = 128;
     private static Map<String, String> PRIVATE_KEY_MAP = new HashMap<>();
+    /**
+     * credentials of local user by address, avoid db query, aes decrypt and key pair
+     * rebuilding on every transaction
+     */
+    private Cache<String, Credentials> credentialCache;
+    /**
+     * random identities used as "from" of eth_call, created at startup and rotated
+     */
+    private volatile QueryIdentity[] queryIdentities;
+    private final AtomicInteger queryIdentityIndex = new AtomicInteger();
 
+    @PostConstruct
+    public void init() {
+        log.info("init credentialCache maxSize:{} idleTime:{}s",
+            constants.getCredentialCacheMaxSize(), constants.getCredentialCacheIdleTime());
+        credentialCache = CacheBuilder.newBuilder()
+            .maximumSize(constants.getCredentialCacheMaxSize())
+            .expireAfterAccess(constants.getCredentialCacheIdleTime(), TimeUnit.SECONDS)
+            .recordStats()
+            .build();
+        log.info("init query identities size:{}", constants.getQueryIdentitySize());
+        queryIdentities = createQueryIdentities();
+    }
 
     /**
      * get local user KeyStores with privateKey
@@ -148,7 +179,9 @@ public class KeyStoreService {
         keyStoreInfo.setSignUserId(rspUserInfo.getSignUserId());
         keyStoreInfo.setAppId(rspUserInfo.getAppId());
         keyStoreInfo.setType(KeyTypes.EXTERNALUSER.getValue());
-        return keystoreRepository.save(keyStoreInfo);
+        KeyStoreInfo saved = keystoreRepository.save(keyStoreInfo);
+        credentialCache.invalidate(address);
+        return saved;
     }
 
     /**
@@ -156,6 +189,7 @@ public class KeyStoreService {
      */
     public void deleteKeyStore(String address) {
         keystoreRepository.delete(address);
+        credentialCache.invalidate(address);
     }
 
     /**
@@ -177,30 +211,59 @@ public class KeyStoreService {
     }
 
     /**
-     * get random credential to call transaction(not execute)
+     * create query identities, which are only used as "from" of eth_call
      * 2019/11/26 support guomi
      */
-    public Credentials getCredentialsForQuery() {
-        log.debug("start getCredentialsForQuery. ");
-        // create keyPair(support guomi)
-        ECKeyPair keyPair = GenCredential.createKeyPair();
-        if (keyPair == null) {
-            log.error("create random Credentials for query failed for null key pair");
-            throw new FrontException(ConstantCode.WEB3J_CREATE_KEY_PAIR_NULL);
+    private QueryIdentity[] createQueryIdentities() {
+        int size = Math.max(1, constants.getQueryIdentitySize());
+        QueryIdentity[] identities = new QueryIdentity[size];
+        for (int i = 0; i < size; i++) {
+            // create keyPair(support guomi)
+            ECKeyPair keyPair = GenCredential.createKeyPair();
+            if (keyPair == null) {
+                log.error("create random Credentials for query failed for null key pair");
+                throw new FrontException(ConstantCode.WEB3J_CREATE_KEY_PAIR_NULL);
+            }
+            KeyStoreInfo keyStoreInfo = keyPair2KeyStoreInfo(keyPair, "");
+            identities[i] = new QueryIdentity(
+                GenCredential.create(keyStoreInfo.getPrivateKey()), keyStoreInfo);
         }
-        KeyStoreInfo keyStoreInfo = keyPair2KeyStoreInfo(keyPair, "");
-        return GenCredential.create(keyStoreInfo.getPrivateKey());
+        return identities;
+    }
+
+    /**
+     * rotate query identities periodically
+     */
+    @Scheduled(initialDelayString = "${constant.queryIdentityRefreshTime:3600000}",
+        fixedDelayString = "${constant.queryIdentityRefreshTime:3600000}")
+    public void refreshQueryIdentities() {
+        log.debug("start refreshQueryIdentities.");
+        queryIdentities = createQueryIdentities();
+    }
+
+    private QueryIdentity nextQueryIdentity() {
+        QueryIdentity[] identities = queryIdentities;
+        int index = (queryIdentityIndex.getAndIncrement() & Integer.MAX_VALUE) % identities.length;
+        return identities[index];
+    }
+
+    /**
+     * get random credential to call transaction(not execute)
+     * taken from pre-created query identities
+     */
+    public Credentials getCredentialsForQuery() {
+        return nextQueryIdentity().credentials;
     }
 
     public KeyStoreInfo getKeyStoreInfoForQuery() {
-        log.debug("start getKeyStoreInfoForQuery. ");
-        // create keyPair(support guomi)
-        ECKeyPair keyPair = GenCredential.createKeyPair();
-        if (keyPair == null) {
-            log.error("create random Credentials for query failed for null key pair");
-            throw new FrontException(ConstantCode.WEB3J_CREATE_KEY_PAIR_NULL);
-        }
-        return keyPair2KeyStoreInfo(keyPair, "");
+        KeyStoreInfo identity = nextQueryIdentity().keyStoreInfo;
+        // copy to keep pooled identity unchanged
+        KeyStoreInfo keyStoreInfo = new KeyStoreInfo();
+        keyStoreInfo.setAddress(identity.getAddress());
+        keyStoreInfo.setPublicKey(identity.getPublicKey());
+        keyStoreInfo.setPrivateKey(identity.getPrivateKey());
+        keyStoreInfo.setUserName(identity.getUserName());
+        return keyStoreInfo;
     }
 
     /**
@@ -265,8 +328,22 @@ public class KeyStoreService {
      * 2019/11/26 support guomi
      */
     public Credentials getCredentials(String user) throws FrontException {
-        String privateKey = getPrivateKey(user);
-        return GenCredential.create(privateKey);
+        try {
+            return credentialCache.get(user, () -> GenCredential.create(getPrivateKey(user)));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof FrontException) {
+                throw (FrontException) e.getCause();
+            }
+            log.error("fail getCredentials. user:{}", user, e.getCause());
+            throw new FrontException(ConstantCode.PRIVATE_KEY_DECODE_FAIL);
+        }
+    }
+
+    /**
+     * hit and miss of local credential cache
+     */
+    public CacheStat getCredentialCacheStat() {
+        return new CacheStat(credentialCache.size(), credentialCache.stats());
     }
     /**
      * get PrivateKey.
@@ -376,7 +453,9 @@ public class KeyStoreService {
         keyStoreInfo.setType(KeyTypes.LOCALUSER.getValue());
         String realPrivateKey = keyStoreInfo.getPrivateKey();
         keyStoreInfo.setPrivateKey(aesUtils.aesEncrypt(realPrivateKey));
-        return keystoreRepository.save(keyStoreInfo);
+        KeyStoreInfo saved = keystoreRepository.save(keyStoreInfo);
+        credentialCache.invalidate(keyStoreInfo.getAddress());
+        return saved;
     }
 
     /**
@@ -479,5 +558,14 @@ public class KeyStoreService {
             throw new FrontException(code, errorMessage);
         }
     }
-}
 
+    private static class QueryIdentity {
+        private final Credentials credentials;
+        private final KeyStoreInfo keyStoreInfo;
+
+        QueryIdentity(Credentials credentials, KeyStoreInfo keyStoreInfo) {
+            this.credentials = credentials;
+            this.keyStoreInfo = keyStoreInfo;
+        }
+    }
+}
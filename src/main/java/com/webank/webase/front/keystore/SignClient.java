@@ -0,0 +1,89 @@
+/*
+ * Copyright 2014-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.webank.webase.front.keystore;
+
+import com.webank.webase.front.keystore.entity.EncodeInfo;
+import com.webank.webase.front.keystore.entity.SignStat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+/**
+ * asynchronous client of webase-sign.
+ * each sign request is sent over the keep-alive connections of restTemplate by signThreadPool
+ * without waiting, whose size bounds the in-flight requests to webase-sign.
+ * webase-sign has no batch api; if pool and queue are full, caller thread signs directly
+ */
+@Component
+public class SignClient {
+
+    @Autowired
+    private KeyStoreService keyStoreService;
+    @Autowired
+    @Qualifier(value = "signThreadPool")
+    private ThreadPoolTaskExecutor signThreadPool;
+
+    private final AtomicLong taskCount = new AtomicLong();
+    private final AtomicLong failCount = new AtomicLong();
+    private final AtomicLong totalCostTime = new AtomicLong();
+    private final AtomicLong maxCostTime = new AtomicLong();
+
+    /**
+     * submit sign request to signThreadPool, completed when webase-sign returns
+     * @param encodeInfo signUserId and encoded raw transaction
+     * @return future of signDataStr
+     */
+    public CompletableFuture<String> sign(EncodeInfo encodeInfo) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        signThreadPool.execute(() -> doSign(encodeInfo, future));
+        return future;
+    }
+
+    public SignStat getStat() {
+        SignStat stat = new SignStat();
+        long tasks = taskCount.get();
+        stat.setTaskCount(tasks);
+        stat.setFailCount(failCount.get());
+        stat.setActiveCount(signThreadPool.getActiveCount());
+        stat.setQueueSize(signThreadPool.getThreadPoolExecutor().getQueue().size());
+        stat.setMaxCostTime(maxCostTime.get());
+        stat.setAvgCostTime(tasks == 0 ? 0 : totalCostTime.get() / tasks);
+        return stat;
+    }
+
+    private void doSign(EncodeInfo encodeInfo, CompletableFuture<String> future) {
+        long startTime = System.currentTimeMillis();
+        String signDataStr = null;
+        Exception error = null;
+        try {
+            signDataStr = keyStoreService.getSignData(encodeInfo);
+        } catch (Exception e) {
+            error = e;
+        }
+        // record before completing, so stat is current when caller gets result
+        long costTime = System.currentTimeMillis() - startTime;
+        taskCount.incrementAndGet();
+        totalCostTime.addAndGet(costTime);
+        maxCostTime.accumulateAndGet(costTime, Math::max);
+        if (error != null) {
+            failCount.incrementAndGet();
+            future.completeExceptionally(error);
+        } else {
+            future.complete(signDataStr);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright 2014-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.webank.webase.front.keystore.entity;
+
+import lombok.Data;
+
+/**
+ * statistics of sign client, cost time in milliseconds
+ */
+@Data
+public class SignStat {
+    private long taskCount;
+    private long failCount;
+    private int activeCount;
+    private int queueSize;
+    private long avgCostTime;
+    private long maxCostTime;
+}
@@ -22,6 +22,8 @@ import com.webank.webase.front.performance.result.Data;
 import com.webank.webase.front.performance.result.LineDataList;
 import com.webank.webase.front.performance.result.PerformanceData;
 import com.webank.webase.front.util.CommonUtils;
+import com.webank.webase.front.web3api.ChainHeadTracker;
+import com.webank.webase.front.web3api.entity.ChainHead;
 import java.io.File;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -29,17 +31,12 @@ import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 import lombok.extern.slf4j.Slf4j;
 import org.fisco.bcos.web3j.protocol.Web3j;
-import org.fisco.bcos.web3j.protocol.core.methods.response.BlockNumber;
-import org.fisco.bcos.web3j.protocol.core.methods.response.PbftView;
-import org.fisco.bcos.web3j.protocol.core.methods.response.PendingTxSize;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -63,6 +60,8 @@ public class MonitorService {
     Constants constants;
     @Autowired
     NodeConfig nodeConfig;
+    @Autowired
+    ChainHeadTracker chainHeadTracker;
 
     public List<PerformanceData> findContrastDataByTime(int groupId, LocalDateTime startTime,
             LocalDateTime endTime, LocalDateTime contrastStartTime, LocalDateTime contrastEndTime,
@@ -190,31 +189,33 @@ public class MonitorService {
 
     /**
      * scheduled task to sync Monitor Info per 5s
-     * 
-     * @throws ExecutionException
-     * @throws InterruptedException
      */
     @Scheduled(cron = "0/5 * * * * ?")
-    public void syncMonitorInfo() throws ExecutionException, InterruptedException {
+    public void syncMonitorInfo() {
         log.debug("begin sync chain data");
         if (!constants.isMonitorEnabled()) {
             return;
         }
         Long currentTime = System.currentTimeMillis();
         // to do add more group
-        for (Map.Entry<Integer, Web3j> entry : web3jMap.entrySet()) {
+        for (Integer groupId : web3jMap.keySet()) {
+            // read snapshot of chain head instead of requesting node again
+            ChainHead chainHead;
+            try {
+                chainHead = chainHeadTracker.getHead(groupId);
+            } catch (FrontException e) {
+                log.warn("sync monitor of group:{} failed, chain head unavailable", groupId);
+                continue;
+            }
+            if (chainHead == null) {
+                continue;
+            }
             Monitor monitor = new Monitor();
-            CompletableFuture<BlockNumber> blockHeightFuture =
-                    entry.getValue().getBlockNumber().sendAsync();
-            CompletableFuture<PbftView> pbftViewFuture = entry.getValue().getPbftView().sendAsync();
-            CompletableFuture<PendingTxSize> pendingTxSizeFuture =
-                    entry.getValue().getPendingTxSize().sendAsync();
-
-            monitor.setBlockHeight(blockHeightFuture.get().getBlockNumber());
-            monitor.setPbftView(pbftViewFuture.get().getPbftView());
-            monitor.setPendingTransactionCount(pendingTxSizeFuture.get().getPendingTxSize());
+            monitor.setBlockHeight(chainHead.getBlockNumber());
+            monitor.setPbftView(chainHead.getPbftView());
+            monitor.setPendingTransactionCount(chainHead.getPendingTxSize());
             monitor.setTimestamp(currentTime);
-            monitor.setGroupId(entry.getKey());
+            monitor.setGroupId(groupId);
             monitorRepository.save(monitor);
             log.debug("insert success =  " + monitor.getId());
         }
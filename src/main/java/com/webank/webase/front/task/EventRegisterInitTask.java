@@ -26,7 +26,6 @@ import com.webank.webase.front.util.RabbitMQUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.fisco.bcos.channel.client.Service;
 import org.fisco.bcos.channel.event.filter.EventLogUserParams;
-import org.fisco.bcos.web3j.tx.txdecode.TransactionDecoder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
@@ -57,6 +56,16 @@ public class EventRegisterInitTask {
 	MQPublisher mqPublisher;
 	@Autowired
 	Map<Integer, Service> serviceMap;
+	@Autowired
+	EventDecoderCache eventDecoderCache;
+	@Autowired
+	BlockNotifyDispatcher blockNotifyDispatcher;
+	@Autowired
+	EventCheckpointService eventCheckpointService;
+	@Autowired
+	EventBackfillService eventBackfillService;
+	@Autowired
+	EventFilterMultiplexer eventFilterMultiplexer;
 
 
 	/**
@@ -82,10 +91,11 @@ public class EventRegisterInitTask {
 						groupId, newBlockEventInfoList.size(), contractEventInfoList.size());
 				// foreach register
 				newBlockEventInfoList.stream()
-						.filter(info -> !BLOCK_ROUTING_KEY_MAP.containsKey(info.getAppId()))
+						.filter(info -> !blockNotifyDispatcher.containsSubscription(info.getId()))
 						.forEach(this::registerNewBlockEvent);
 				contractEventInfoList.stream()
 						.filter(info -> !CONTRACT_EVENT_CALLBACK_MAP.containsKey(info.getId()))
+						.filter(info -> !eventBackfillService.isHandledByBackfill(info.getId()))
 						.forEach(this::registerContractEvent);
 			}
 			log.debug("Register task finish.");
@@ -106,8 +116,8 @@ public class EventRegisterInitTask {
 				queueName, blockRoutingKey);
 		// record groupId, exchange, routingKey for all block notify
 		PublisherHelper blockPublishInfo = new PublisherHelper(groupId,
-				exchangeName, blockRoutingKey);
-		BLOCK_ROUTING_KEY_MAP.put(appId, blockPublishInfo);
+				exchangeName, blockRoutingKey, registerInfo.getEnrichMode());
+		blockNotifyDispatcher.addSubscription(registerInfo.getId(), appId, blockPublishInfo);
 		log.debug("end registerNewBlockEvent successful appId:{}", appId);
 	}
 
@@ -121,10 +131,11 @@ public class EventRegisterInitTask {
 		String eventRoutingKey = rInfo.getRoutingKey();
 		String contractAddress = rInfo.getContractAddress();
 		String abi = rInfo.getContractAbi();
-		String fromBlock = rInfo.getFromBlock();
+		// resume from last block published instead of original fromBlock
+		String fromBlock = eventCheckpointService.getResumeFromBlock(rInfo);
+		// logs after pinned checkpoint are replayed, let it move again
+		eventCheckpointService.unpin(rInfo.getId());
 		String toBlock = rInfo.getToBlock();
-		// 传入abi作decoder:
-		TransactionDecoder decoder = new TransactionDecoder(abi);
 		// init EventLogUserParams for register
 		EventLogUserParams params = RabbitMQUtils.initSingleEventLogUserParams(
 				fromBlock, toBlock, contractAddress, topicList);
@@ -132,9 +143,9 @@ public class EventRegisterInitTask {
 		mqService.bindQueue2Exchange(exchangeName, queueName, eventRoutingKey);
 		ContractEventCallback callBack =
 				new ContractEventCallback(mqPublisher, exchangeName,
-						eventRoutingKey, decoder, groupId, appId);
-		org.fisco.bcos.channel.client.Service service = serviceMap.get(groupId);
-		service.registerEventLogFilter(params, callBack);
+						eventRoutingKey, eventDecoderCache, abi, groupId, appId,
+						eventCheckpointService, rInfo.getId());
+		eventFilterMultiplexer.subscribe(rInfo.getId(), groupId, params, callBack);
 		callBack.setRunning(true);
 		CONTRACT_EVENT_CALLBACK_MAP.put(rInfo.getId(), callBack);
 		log.debug("end registerContractEvent successful infoId:{}", rInfo.getId());
@@ -17,6 +17,8 @@
 package com.webank.webase.front.task;
 
 import com.google.common.collect.Lists;
+import com.webank.webase.front.event.BlockNotifyDispatcher;
+import com.webank.webase.front.event.EventFilterMultiplexer;
 import com.webank.webase.front.event.ContractEventInfoRepository;
 import com.webank.webase.front.event.NewBlockEventInfoRepository;
 import com.webank.webase.front.event.callback.ContractEventCallback;
@@ -29,7 +31,6 @@ import org.springframework.stereotype.Component;
 
 import java.util.List;
 
-import static com.webank.webase.front.util.RabbitMQUtils.BLOCK_ROUTING_KEY_MAP;
 import static com.webank.webase.front.util.RabbitMQUtils.CONTRACT_EVENT_CALLBACK_MAP;
 
 /**
@@ -44,6 +45,10 @@ public class SyncEventMapTask {
 	NewBlockEventInfoRepository newBlockEventInfoRepository;
 	@Autowired
 	ContractEventInfoRepository contractEventInfoRepository;
+	@Autowired
+	BlockNotifyDispatcher blockNotifyDispatcher;
+	@Autowired
+	EventFilterMultiplexer eventFilterMultiplexer;
 
 	@Scheduled(fixedDelayString = "${constant.syncEventMapTaskFixedDelay}")
 	public void taskStart() {
@@ -62,14 +67,14 @@ public class SyncEventMapTask {
 		log.debug("start cleanNewBlockEventMap. ");
 		int removeCount = 0;
 		List<NewBlockEventInfo> blockInfoList = Lists.newArrayList(newBlockEventInfoRepository.findAll());
-		for(String appId : BLOCK_ROUTING_KEY_MAP.keySet()){
+		for(String infoId : blockNotifyDispatcher.getSubscriptionIds()){
 			long equalCount = 0;
 			equalCount = blockInfoList.stream()
-					.filter(info -> appId.equals(info.getAppId()))
+					.filter(info -> infoId.equals(info.getId()))
 					.count();
 			// remove from map that not in db's list
 			if(equalCount == 0) {
-				BLOCK_ROUTING_KEY_MAP.remove(appId);
+				blockNotifyDispatcher.removeSubscription(infoId);
 				removeCount++;
 			}
 		}
@@ -90,6 +95,7 @@ public class SyncEventMapTask {
 				ContractEventCallback callback = CONTRACT_EVENT_CALLBACK_MAP.get(infoId);
 				callback.setRunning(false);
 				CONTRACT_EVENT_CALLBACK_MAP.remove(infoId);
+				eventFilterMultiplexer.unsubscribe(infoId);
 				removeCount++;
 			}
 		}
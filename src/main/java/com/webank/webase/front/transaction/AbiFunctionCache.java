@@ -0,0 +1,129 @@
+/*
+ * Copyright 2014-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.webank.webase.front.transaction;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.webank.webase.front.base.properties.Constants;
+import com.webank.webase.front.transaction.entity.AbiFunctionDescriptor;
+import com.webank.webase.front.util.AbiUtil;
+import com.webank.webase.front.util.JsonUtils;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+import javax.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.fisco.bcos.web3j.protocol.core.methods.response.AbiDefinition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * LRU cache of compiled function descriptor, keyed by abi content and function name.
+ * abi content hash is computed from the parsed abi list of request, no json serialization
+ * on cache hit
+ */
+@Slf4j
+@Component
+public class AbiFunctionCache {
+
+    @Autowired
+    private Constants constants;
+
+    private Cache<FunctionKey, AbiFunctionDescriptor> functionCache;
+
+    @PostConstruct
+    public void init() {
+        log.info("init AbiFunctionCache maxSize:{}", constants.getAbiCacheMaxSize());
+        functionCache = CacheBuilder.newBuilder()
+            .maximumSize(constants.getAbiCacheMaxSize())
+            .recordStats()
+            .build();
+    }
+
+    /**
+     * get compiled function, compile and cache it if missed
+     * @param contractAbi abi list
+     * @param funcName function name
+     * @return null if function not exists in abi
+     */
+    public AbiFunctionDescriptor getFunction(List<Object> contractAbi, String funcName) {
+        return getFunction(new FunctionKey(contractAbi, funcName),
+            () -> AbiUtil.getAbiDefinition(funcName, JsonUtils.toJSONString(contractAbi)));
+    }
+
+    /**
+     * get compiled function of abi string, compile and cache it if missed
+     * @param contractAbi abi json string
+     * @param funcName function name
+     * @return null if function not exists in abi
+     */
+    public AbiFunctionDescriptor getFunction(String contractAbi, String funcName) {
+        return getFunction(new FunctionKey(contractAbi, funcName),
+            () -> TransService.getFunctionAbiDefinition(funcName, contractAbi));
+    }
+
+    private AbiFunctionDescriptor getFunction(FunctionKey key,
+            Supplier<AbiDefinition> abiLoader) {
+        AbiFunctionDescriptor descriptor = functionCache.getIfPresent(key);
+        if (descriptor != null) {
+            return descriptor;
+        }
+        AbiDefinition abiDefinition = abiLoader.get();
+        if (Objects.isNull(abiDefinition)) {
+            return null;
+        }
+        descriptor = AbiUtil.compileFunction(abiDefinition);
+        functionCache.put(key, descriptor);
+        log.debug("compile function:{} methodId:{}", key.funcName, descriptor.getMethodId());
+        return descriptor;
+    }
+
+    public CacheStats stats() {
+        return functionCache.stats();
+    }
+
+    /**
+     * key of abi content (parsed list or json string) and function name, hash is computed once
+     */
+    private static final class FunctionKey {
+        private final Object contractAbi;
+        private final String funcName;
+        private final int hash;
+
+        FunctionKey(Object contractAbi, String funcName) {
+            this.contractAbi = contractAbi;
+            this.funcName = funcName;
+            this.hash = 31 * contractAbi.hashCode() + Objects.hashCode(funcName);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof FunctionKey)) {
+                return false;
+            }
+            FunctionKey other = (FunctionKey) obj;
+            return hash == other.hash && Objects.equals(funcName, other.funcName)
+                && contractAbi.equals(other.contractAbi);
+        }
+    }
+}
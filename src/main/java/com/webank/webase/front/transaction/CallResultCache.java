@@ -0,0 +1,165 @@
+/*
+ * Copyright 2014-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.webank.webase.front.transaction;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.webank.webase.front.base.properties.Constants;
+import com.webank.webase.front.base.response.CacheStat;
+import com.webank.webase.front.web3api.ChainHeadTracker;
+import com.webank.webase.front.web3api.entity.ChainHead;
+import java.math.BigInteger;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * cache of eth_call output, versioned by block height of group read from ChainHeadTracker.
+ * entry is valid only at the block height it was called, so it becomes stale once
+ * block notify of a higher block arrives. only contracts in callCacheContractList are cached,
+ * weight of entries (chars of calldata and output) is bounded by callCacheMaxWeight
+ */
+@Slf4j
+@Component
+public class CallResultCache {
+
+    @Autowired
+    private Constants constants;
+    @Autowired
+    private ChainHeadTracker chainHeadTracker;
+
+    private Cache<CallKey, CallResult> callCache;
+    private Set<String> contractSet;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        contractSet = constants.getCallCacheContractList().stream()
+            .map(String::toLowerCase).collect(Collectors.toSet());
+        log.info("init CallResultCache maxWeight:{} contracts:{}",
+            constants.getCallCacheMaxWeight(), contractSet);
+        callCache = CacheBuilder.newBuilder()
+            .maximumWeight(constants.getCallCacheMaxWeight())
+            .weigher((CallKey key, CallResult value) -> key.weight() + value.output.length())
+            .build();
+    }
+
+    /**
+     * whether contract opts in call cache
+     */
+    public boolean isEnabled(String contractAddress) {
+        return !contractSet.isEmpty() && contractAddress != null
+            && contractSet.contains(contractAddress.toLowerCase());
+    }
+
+    /**
+     * latest block height of group tracked by chain head, raised by block notify
+     * @return null if chain head of group is not refreshed yet or stale
+     */
+    public BigInteger getBlockNumber(int groupId) {
+        ChainHead head = chainHeadTracker.getSnapshot(groupId);
+        return head == null || chainHeadTracker.isStale(head) ? null : head.getBlockNumber();
+    }
+
+    /**
+     * get output of eth_call at latest block height
+     * @param from null if output is irrelevant to caller
+     * @return null if missed or stale
+     */
+    public String get(int groupId, String from, String contractAddress, String data) {
+        CallKey key = new CallKey(groupId, from, contractAddress, data);
+        CallResult result = callCache.getIfPresent(key);
+        if (result == null || !result.blockNumber.equals(getBlockNumber(groupId))) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return result.output;
+    }
+
+    /**
+     * cache output of eth_call
+     * @param blockNumber block height before call, ignored if lower than latest
+     */
+    public void put(int groupId, String from, String contractAddress, String data,
+            BigInteger blockNumber, String output) {
+        if (output == null || !blockNumber.equals(getBlockNumber(groupId))) {
+            return;
+        }
+        callCache.put(new CallKey(groupId, from, contractAddress, data),
+            new CallResult(blockNumber, output));
+    }
+
+    public CacheStat getStat() {
+        CacheStats stats = callCache.stats();
+        return new CacheStat(callCache.size(), new CacheStats(hitCount.get(), missCount.get(),
+            0, 0, 0, stats.evictionCount()));
+    }
+
+    private static final class CallKey {
+        private final int groupId;
+        private final String from;
+        private final String contractAddress;
+        private final String data;
+        private final int hash;
+
+        CallKey(int groupId, String from, String contractAddress, String data) {
+            this.groupId = groupId;
+            this.from = from == null ? null : from.toLowerCase();
+            this.contractAddress = contractAddress.toLowerCase();
+            this.data = data;
+            this.hash = Objects.hash(groupId, this.from, this.contractAddress, data);
+        }
+
+        int weight() {
+            return contractAddress.length() + data.length();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof CallKey)) {
+                return false;
+            }
+            CallKey other = (CallKey) obj;
+            return hash == other.hash && groupId == other.groupId
+                && Objects.equals(from, other.from)
+                && contractAddress.equals(other.contractAddress) && data.equals(other.data);
+        }
+    }
+
+    private static final class CallResult {
+        private final BigInteger blockNumber;
+        private final String output;
+
+        CallResult(BigInteger blockNumber, String output) {
+            this.blockNumber = blockNumber;
+            this.output = output;
+        }
+    }
+}
@@ -17,15 +17,26 @@ package com.webank.webase.front.transaction;
 
 import com.webank.webase.front.base.controller.BaseController;
 import com.webank.webase.front.base.exception.FrontException;
+import com.webank.webase.front.base.response.CacheStat;
+import com.webank.webase.front.transaction.entity.ReqMultiCall;
 import com.webank.webase.front.transaction.entity.ReqQueryTransHandle;
+import com.webank.webase.front.transaction.entity.ReqReceiptList;
+import com.webank.webase.front.transaction.entity.ReqSignedTransBatch;
 import com.webank.webase.front.transaction.entity.ReqSignedTransHandle;
 import com.webank.webase.front.transaction.entity.ReqTransHandle;
 import com.webank.webase.front.transaction.entity.ReqTransHandleWithSign;
+import com.webank.webase.front.transaction.entity.ReqTransHandleWithSignBatch;
+import com.webank.webase.front.transaction.entity.RspReceiptStatus;
+import com.webank.webase.front.transaction.entity.RspTransBatch;
+import com.webank.webase.front.transaction.entity.RspTransInFlight;
 import com.webank.webase.front.util.Address;
 import com.webank.webase.front.util.JsonUtils;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiImplicitParam;
+import io.swagger.annotations.ApiImplicitParams;
 import io.swagger.annotations.ApiOperation;
+import java.util.ArrayList;
+import java.util.List;
 import javax.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
@@ -33,6 +44,7 @@ import org.fisco.bcos.web3j.protocol.core.methods.response.TransactionReceipt;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import java.time.Duration;
 import java.time.Instant;
@@ -51,6 +63,10 @@ public class TransController extends BaseController {
 
     @Autowired
     TransService transServiceImpl;
+    @Autowired
+    CallResultCache callResultCache;
+    @Autowired
+    TransLimiter transLimiter;
 
     /**
      * transHandle through webase-sign
@@ -80,6 +96,26 @@ public class TransController extends BaseController {
         return obj;
     }
 
+    /**
+     * transHandle in batch through webase-sign
+     * encode all, sign and send concurrently, then collect receipts with one deadline
+     * @return result and cost time of each item
+     */
+    @ApiOperation(value = "transaction handing in batch", notes = "transaction handing in batch")
+    @ApiImplicitParam(name = "reqBatch", value = "transaction info list", required = true, dataType = "ReqTransHandleWithSignBatch")
+    @PostMapping("/handleWithSign/batch")
+    public RspTransBatch transHandleBatch(@Valid @RequestBody ReqTransHandleWithSignBatch reqBatch, BindingResult result) {
+        Instant startTime = Instant.now();
+        checkParamResult(result);
+        log.info("transHandleBatch start startTime:{} size:{}", startTime.toEpochMilli(),
+                reqBatch.getReqList().size());
+
+        RspTransBatch rspTransBatch = transServiceImpl.transHandleWithSignBatch(reqBatch.getReqList());
+        log.info("transHandleBatch end  useTime:{}",
+                Duration.between(startTime, Instant.now()).toMillis());
+        return rspTransBatch;
+    }
+
     @ApiOperation(value = "transaction handle locally", notes = "transaction locally")
     @ApiImplicitParam(name = "reqTransHandle", value = "transaction info", required = true, dataType = "ReqTransHandle")
     @PostMapping("/handle")
@@ -123,6 +159,66 @@ public class TransController extends BaseController {
         return receipt;
     }
 
+    @ApiOperation(value = "call constant functions in batch concurrently")
+    @ApiImplicitParam(name = "reqMultiCall", value = "call list", required = true, dataType = "ReqMultiCall")
+    @PostMapping("/multiCall")
+    public RspTransBatch multiCall(@Valid @RequestBody ReqMultiCall reqMultiCall, BindingResult result) {
+        checkParamResult(result);
+        log.info("multiCall start. size:{}", reqMultiCall.getCallList().size());
+        return transServiceImpl.multiCall(reqMultiCall);
+    }
+
+    @ApiOperation(value = "send signed transactions in batch")
+    @ApiImplicitParam(name = "reqSignedTransBatch", value = "signed transaction list", required = true, dataType = "ReqSignedTransBatch")
+    @PostMapping("/signed-transaction/batch")
+    public RspTransBatch sendSignedTransactionBatch(@Valid @RequestBody ReqSignedTransBatch reqSignedTransBatch, BindingResult result) {
+        checkParamResult(result);
+        log.info("sendSignedTransactionBatch start. size:{}", reqSignedTransBatch.getSignedStrList().size());
+        boolean sync = !Boolean.FALSE.equals(reqSignedTransBatch.getSync());
+        return transServiceImpl.sendSignedTransactionBatch(reqSignedTransBatch.getSignedStrList(),
+                sync, reqSignedTransBatch.getGroupId());
+    }
+
+    /**
+     * get receipt of tx sent with sync false, long-poll at most waitTime(ms) for pending tx
+     * request thread is released while waiting
+     */
+    @ApiOperation(value = "get receipt of async transaction")
+    @ApiImplicitParams({
+        @ApiImplicitParam(name = "txHash", value = "transaction hash", required = true, dataType = "String", paramType = "path"),
+        @ApiImplicitParam(name = "waitTime", value = "max wait time(ms) if pending", dataType = "long", paramType = "query")
+    })
+    @GetMapping("/receipt/{txHash}")
+    public DeferredResult<RspReceiptStatus> getAsyncReceipt(@PathVariable("txHash") String txHash,
+            @RequestParam(value = "waitTime", defaultValue = "0") long waitTime) {
+        log.debug("getAsyncReceipt txHash:{} waitTime:{}", txHash, waitTime);
+        return transServiceImpl.getReceiptStatusDeferred(txHash, waitTime);
+    }
+
+    @ApiOperation(value = "get receipts of async transactions in batch")
+    @ApiImplicitParam(name = "reqReceiptList", value = "transaction hash list", required = true, dataType = "ReqReceiptList")
+    @PostMapping("/receipt/list")
+    public List<RspReceiptStatus> getAsyncReceiptList(@Valid @RequestBody ReqReceiptList reqReceiptList, BindingResult result) {
+        checkParamResult(result);
+        List<RspReceiptStatus> statusList = new ArrayList<>(reqReceiptList.getTxHashList().size());
+        for (String txHash : reqReceiptList.getTxHashList()) {
+            statusList.add(transServiceImpl.getReceiptStatus(txHash));
+        }
+        return statusList;
+    }
+
+    @ApiOperation(value = "get hit rate of eth_call output cache")
+    @GetMapping("/callCacheStat")
+    public CacheStat getCallCacheStat() {
+        return callResultCache.getStat();
+    }
+
+    @ApiOperation(value = "get in-flight transactions of each group")
+    @GetMapping("/inFlight")
+    public List<RspTransInFlight> getInFlight() {
+        return transLimiter.getInFlightList();
+    }
+
     @ApiOperation(value = "send query transaction ")
     @ApiImplicitParam(name = "reqQueryTransHandle", value = "transaction info", required = true, dataType = "ReqQueryTransHandle")
     @PostMapping("/query-transaction")
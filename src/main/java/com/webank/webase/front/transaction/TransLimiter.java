@@ -0,0 +1,155 @@
+/*
+ * Copyright 2014-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.webank.webase.front.transaction;
+
+import com.webank.webase.front.base.exception.TransOverloadException;
+import com.webank.webase.front.base.properties.Constants;
+import com.webank.webase.front.transaction.entity.RspTransInFlight;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * admission control of non-constant transactions.
+ * in-flight transactions (from sign to receipt) of each group are bounded by transLimitPerGroup,
+ * a request waits at most transLimitWaitTime(ms) for a permit, then fails fast with
+ * TransOverloadException (http 429)
+ */
+@Slf4j
+@Component
+public class TransLimiter {
+
+    @Autowired
+    private Constants constants;
+
+    private final Map<Integer, GroupLimit> limitMap = new ConcurrentHashMap<>();
+    /**
+     * release permits of async tx whose receipt never comes
+     */
+    private ScheduledThreadPoolExecutor releaseScheduler;
+
+    @PostConstruct
+    public void init() {
+        log.info("init TransLimiter limitPerGroup:{} waitTime:{}ms",
+            constants.getTransLimitPerGroup(), constants.getTransLimitWaitTime());
+        releaseScheduler = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "transLimitRelease");
+            thread.setDaemon(true);
+            return thread;
+        });
+        releaseScheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        releaseScheduler.shutdownNow();
+    }
+
+    /**
+     * acquire permit of group, release it when transaction is done
+     * @throws TransOverloadException if no permit in transLimitWaitTime
+     */
+    public Permit acquire(int groupId) {
+        if (constants.getTransLimitPerGroup() <= 0) {
+            return Permit.NONE;
+        }
+        GroupLimit groupLimit = limitMap.computeIfAbsent(groupId,
+            k -> new GroupLimit(constants.getTransLimitPerGroup()));
+        boolean acquired;
+        try {
+            acquired = groupLimit.semaphore.tryAcquire(constants.getTransLimitWaitTime(),
+                TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            groupLimit.rejectedCount.incrementAndGet();
+            log.warn("transaction rejected. groupId:{} in flight:{}", groupId,
+                groupLimit.inFlight());
+            throw new TransOverloadException(groupId, constants.getTransLimitRetryAfter());
+        }
+        return new Permit(groupLimit.semaphore);
+    }
+
+    /**
+     * release permit when future completes, or after timeout(ms) at most
+     */
+    public void releaseOn(Permit permit, CompletableFuture<?> future, long timeout) {
+        if (permit == Permit.NONE) {
+            return;
+        }
+        ScheduledFuture<?> timeoutTask =
+            releaseScheduler.schedule(permit::release, timeout, TimeUnit.MILLISECONDS);
+        future.whenComplete((r, e) -> {
+            timeoutTask.cancel(false);
+            permit.release();
+        });
+    }
+
+    public List<RspTransInFlight> getInFlightList() {
+        List<RspTransInFlight> list = new ArrayList<>(limitMap.size());
+        limitMap.forEach((groupId, groupLimit) -> list.add(new RspTransInFlight(groupId,
+            groupLimit.inFlight(), groupLimit.limit, groupLimit.rejectedCount.get())));
+        return list;
+    }
+
+    /**
+     * permit of one transaction, release is idempotent
+     */
+    public static class Permit {
+        static final Permit NONE = new Permit(null);
+
+        private final Semaphore semaphore;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Permit(Semaphore semaphore) {
+            this.semaphore = semaphore;
+        }
+
+        public void release() {
+            if (semaphore != null && released.compareAndSet(false, true)) {
+                semaphore.release();
+            }
+        }
+    }
+
+    private static class GroupLimit {
+        private final int limit;
+        private final Semaphore semaphore;
+        private final AtomicLong rejectedCount = new AtomicLong();
+
+        GroupLimit(int limit) {
+            this.limit = limit;
+            this.semaphore = new Semaphore(limit);
+        }
+
+        int inFlight() {
+            return limit - semaphore.availablePermits();
+        }
+    }
+}
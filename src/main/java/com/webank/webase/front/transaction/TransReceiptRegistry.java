@@ -0,0 +1,71 @@
+/*
+ * Copyright 2014-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.webank.webase.front.transaction;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.webank.webase.front.base.properties.Constants;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.fisco.bcos.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * receipt registry of transactions sent asynchronously.
+ * bounded by receiptCacheMaxSize and evicted after receiptCacheTtl seconds,
+ * future of receipt is completed in TransactionSucCallback
+ */
+@Slf4j
+@Component
+public class TransReceiptRegistry {
+
+    @Autowired
+    private Constants constants;
+
+    private Cache<String, CompletableFuture<TransactionReceipt>> receiptCache;
+
+    @PostConstruct
+    public void init() {
+        log.info("init TransReceiptRegistry maxSize:{} ttl:{}s",
+            constants.getReceiptCacheMaxSize(), constants.getReceiptCacheTtl());
+        receiptCache = CacheBuilder.newBuilder()
+            .maximumSize(constants.getReceiptCacheMaxSize())
+            .expireAfterWrite(constants.getReceiptCacheTtl(), TimeUnit.SECONDS)
+            .build();
+    }
+
+    /**
+     * register tx hash before sending
+     * @return future to be completed with receipt
+     */
+    public CompletableFuture<TransactionReceipt> register(String txHash) {
+        CompletableFuture<TransactionReceipt> future = new CompletableFuture<>();
+        receiptCache.put(txHash, future);
+        return future;
+    }
+
+    /**
+     * @return null if not registered or evicted
+     */
+    public CompletableFuture<TransactionReceipt> get(String txHash) {
+        return receiptCache.getIfPresent(txHash);
+    }
+
+    public long size() {
+        return receiptCache.size();
+    }
+}
@@ -18,21 +18,30 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.webank.webase.front.base.code.ConstantCode;
 import com.webank.webase.front.base.enums.PrecompiledTypes;
+import com.webank.webase.front.base.enums.ReceiptStatus;
 import com.webank.webase.front.base.exception.FrontException;
 import com.webank.webase.front.base.properties.Constants;
 import com.webank.webase.front.contract.CommonContract;
 import com.webank.webase.front.contract.ContractRepository;
 import com.webank.webase.front.contract.entity.Contract;
 import com.webank.webase.front.keystore.KeyStoreService;
+import com.webank.webase.front.keystore.SignClient;
 import com.webank.webase.front.keystore.entity.EncodeInfo;
 import com.webank.webase.front.keystore.entity.KeyStoreInfo;
 import com.webank.webase.front.precompiledapi.PrecompiledCommonInfo;
 import com.webank.webase.front.precompiledapi.PrecompiledService;
+import com.webank.webase.front.transaction.entity.AbiFunctionDescriptor;
 import com.webank.webase.front.transaction.entity.ContractFunction;
 import com.webank.webase.front.transaction.entity.ContractOfTrans;
+import com.webank.webase.front.transaction.entity.ReqCallItem;
+import com.webank.webase.front.transaction.entity.ReqMultiCall;
 import com.webank.webase.front.transaction.entity.ReqTransHandle;
 import com.webank.webase.front.transaction.entity.ReqTransHandleWithSign;
+import com.webank.webase.front.transaction.entity.RspReceiptStatus;
+import com.webank.webase.front.transaction.entity.RspTransBatch;
+import com.webank.webase.front.transaction.entity.RspTransBatchItem;
 import com.webank.webase.front.util.AbiUtil;
+import com.webank.webase.front.util.Address;
 import com.webank.webase.front.util.CommonUtils;
 import com.webank.webase.front.util.ContractAbiUtil;
 import com.webank.webase.front.util.FrontUtils;
@@ -43,14 +52,20 @@ import java.math.BigInteger;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Random;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import org.fisco.bcos.channel.client.TransactionSucCallback;
 import org.fisco.bcos.web3j.abi.FunctionEncoder;
 import org.fisco.bcos.web3j.abi.FunctionReturnDecoder;
@@ -76,8 +91,11 @@ import org.fisco.bcos.web3j.tx.gas.StaticGasProvider;
 import org.fisco.bcos.web3j.tx.txdecode.ConstantProperties;
 import org.fisco.bcos.web3j.utils.Numeric;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
+import org.springframework.web.context.request.async.DeferredResult;
 import static com.webank.webase.front.base.code.ConstantCode.IN_FUNCTION_ERROR;
 import static com.webank.webase.front.base.code.ConstantCode.TRANSACTION_FAILED;
 
@@ -98,6 +116,19 @@ public class TransService {
     private ContractRepository contractRepository;
     @Autowired
     private PrecompiledService precompiledService;
+    @Autowired
+    @Qualifier(value = "transThreadPool")
+    private ThreadPoolTaskExecutor transThreadPool;
+    @Autowired
+    private TransReceiptRegistry receiptRegistry;
+    @Autowired
+    private AbiFunctionCache abiFunctionCache;
+    @Autowired
+    private SignClient signClient;
+    @Autowired
+    private CallResultCache callResultCache;
+    @Autowired
+    private TransLimiter transLimiter;
 
     /**
      * transHandleWithSign.
@@ -119,7 +150,9 @@ public class TransService {
         Function function = new Function(req.getFuncName(),
                 contractFunction.getFinalInputs(), contractFunction.getFinalOutputs());
 
-        return handleTransByFunction(groupId, web3j, signUserId, contractAddress, function, contractFunction);
+        boolean sync = !Boolean.FALSE.equals(req.getSync());
+        return handleTransByFunction(groupId, web3j, signUserId, contractAddress, function,
+                contractFunction, sync);
     }
 
     /**
@@ -144,52 +177,48 @@ public class TransService {
                 contractFunction.getFinalOutputs());
         // trans handle
         return handleTransByFunction(groupId, web3j, signUserId, contractAddress, function,
-                contractFunction);
+                contractFunction, true);
     }
 
     /**
      * handleTransByFunction by whether is constant
+     * @param sync if false, return receipt with tx hash only after sent
      */
     private Object handleTransByFunction(int groupId, Web3j web3j, String signUserId,
-            String contractAddress, Function function, ContractFunction contractFunction) {
+            String contractAddress, Function function, ContractFunction contractFunction,
+            boolean sync) {
 
-        String encodedFunction = FunctionEncoder.encode(function);
+        String encodedFunction = encodeFunction(function, contractFunction);
         Object response;
         Instant startTime = Instant.now();
         // if constant, signUserId can be ""
         if (contractFunction.getConstant()) {
-            KeyStoreInfo keyStoreInfo = keyStoreService.getKeyStoreInfoForQuery();
-            String callOutput;
-            try {
-                callOutput = web3j
-                    .call(Transaction.createEthCallTransaction(keyStoreInfo.getAddress(),
-                        contractAddress, encodedFunction), DefaultBlockParameterName.LATEST)
-                    .send().getValue().getOutput();
-            } catch (IOException e) {
-                log.error("send constant tx error:[]", e);
-                throw new FrontException(ConstantCode.CALL_CONTRACT_IO_EXCEPTION, e.getMessage());
-            } catch (ContractCallException e) {
-                log.error("send constant tx fail for contract status error:[]", e);
-                throw new FrontException(ConstantCode.CALL_CONTRACT_ERROR, e.getMessage());
-            }
-
-            List<Type> typeList =
-                    FunctionReturnDecoder.decode(callOutput, function.getOutputParameters());
-            if (typeList.size() > 0) {
-                response = AbiUtil.callResultParse(contractFunction.getOutputList(), typeList);
-            } else {
-                response = typeList;
-            }
+            response = callConstantFunction(groupId, web3j, contractAddress, encodedFunction,
+                    function, contractFunction);
         } else {
+            // in-flight limit of group
+            TransLimiter.Permit permit = transLimiter.acquire(groupId);
             // data sign
-            String signMsg =
-                    signMessage(groupId, web3j, signUserId, contractAddress, encodedFunction);
+            String signMsg;
+            try {
+                signMsg = signMessage(groupId, web3j, signUserId, contractAddress,
+                        encodedFunction);
+            } catch (RuntimeException e) {
+                permit.release();
+                throw e;
+            }
             Instant nodeStartTime = Instant.now();
+            if (!sync) {
+                response = sendMessageAsync(web3j, signMsg, permit);
+                log.info("***transaction sent async, total cost time***: {}",
+                        Duration.between(startTime, Instant.now()).toMillis());
+                return response;
+            }
             // send transaction
             final CompletableFuture<TransactionReceipt> transFuture = new CompletableFuture<>();
             TransactionReceipt responseReceipt;
-            sendMessage(web3j, signMsg, transFuture);
             try{
+                sendMessage(web3j, signMsg, transFuture);
                 responseReceipt = transFuture.get(constants.getTransMaxWait(), TimeUnit.SECONDS);
                 // cover null message
                 String receiptMsg = FrontUtils.handleReceiptMsg(responseReceipt);
@@ -201,6 +230,8 @@ public class TransService {
             } catch (TimeoutException e) {
                 log.error("get tx receipt error for timeout:[]", e);
                 throw new FrontException(ConstantCode.GET_TX_RECEIPT_TIMEOUT_ERROR);
+            } finally {
+                permit.release();
             }
             log.info("***node cost time***: {}",
                     Duration.between(nodeStartTime, Instant.now()).toMillis());
@@ -212,6 +243,410 @@ public class TransService {
         return response;
     }
 
+    /**
+     * eth_call of constant function and parse output
+     */
+    private Object callConstantFunction(int groupId, Web3j web3j, String contractAddress,
+            String encodedFunction, Function function, ContractFunction contractFunction) {
+        KeyStoreInfo keyStoreInfo = keyStoreService.getKeyStoreInfoForQuery();
+        String callOutput;
+        try {
+            // from is random query identity, not part of cache key
+            callOutput = ethCall(groupId, web3j, keyStoreInfo.getAddress(), null,
+                    contractAddress, encodedFunction);
+        } catch (IOException e) {
+            log.error("send constant tx error:[]", e);
+            throw new FrontException(ConstantCode.CALL_CONTRACT_IO_EXCEPTION, e.getMessage());
+        } catch (ContractCallException e) {
+            log.error("send constant tx fail for contract status error:[]", e);
+            throw new FrontException(ConstantCode.CALL_CONTRACT_ERROR, e.getMessage());
+        }
+        return decodeCallOutput(callOutput, function, contractFunction.getOutputList());
+    }
+
+    /**
+     * decode output of eth_call by output types of function
+     */
+    private Object decodeCallOutput(String callOutput, Function function,
+            List<String> outputTypes) {
+        List<Type> typeList =
+                FunctionReturnDecoder.decode(callOutput, function.getOutputParameters());
+        if (typeList.size() > 0) {
+            return AbiUtil.callResultParse(outputTypes, typeList);
+        } else {
+            return typeList;
+        }
+    }
+
+    /**
+     * eth_call at latest block, output of opt-in contracts is cached until next block
+     * @param cacheFrom caller address in cache key, null if output is irrelevant to caller
+     */
+    private String ethCall(int groupId, Web3j web3j, String from, String cacheFrom,
+            String contractAddress, String data) throws IOException {
+        if (!callResultCache.isEnabled(contractAddress)) {
+            return web3j.call(Transaction.createEthCallTransaction(from, contractAddress, data),
+                DefaultBlockParameterName.LATEST).send().getValue().getOutput();
+        }
+        String output = callResultCache.get(groupId, cacheFrom, contractAddress, data);
+        if (output != null) {
+            return output;
+        }
+        return ethCallAndCache(groupId, web3j, from, cacheFrom, contractAddress, data);
+    }
+
+    /**
+     * eth_call through sdk async path, output of opt-in contracts is cached until next block
+     * @param cacheFrom caller address in cache key, null if output is irrelevant to caller
+     */
+    private CompletableFuture<String> ethCallAsync(int groupId, Web3j web3j, String from,
+            String cacheFrom, String contractAddress, String data) {
+        if (!callResultCache.isEnabled(contractAddress)) {
+            return web3j.call(Transaction.createEthCallTransaction(from, contractAddress, data),
+                    DefaultBlockParameterName.LATEST).sendAsync()
+                    .thenApply(call -> call.getValue().getOutput());
+        }
+        String output = callResultCache.get(groupId, cacheFrom, contractAddress, data);
+        if (output != null) {
+            return CompletableFuture.completedFuture(output);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return ethCallAndCache(groupId, web3j, from, cacheFrom, contractAddress, data);
+            } catch (IOException e) {
+                throw new FrontException(ConstantCode.CALL_CONTRACT_IO_EXCEPTION, e.getMessage());
+            }
+        }, transThreadPool);
+    }
+
+    /**
+     * eth_call at latest block and cache output at block height before call
+     */
+    private String ethCallAndCache(int groupId, Web3j web3j, String from, String cacheFrom,
+            String contractAddress, String data) throws IOException {
+        BigInteger blockNumber = callResultCache.getBlockNumber(groupId);
+        if (blockNumber == null) {
+            // refreshes chain head of group
+            blockNumber = web3ApiService.getBlockNumber(groupId);
+        }
+        String output = web3j.call(
+            Transaction.createEthCallTransaction(from, contractAddress, data),
+            DefaultBlockParameterName.LATEST).send().getValue().getOutput();
+        callResultCache.put(groupId, cacheFrom, contractAddress, data, blockNumber, output);
+        return output;
+    }
+
+    /**
+     * transHandleWithSign in batch.
+     * pipeline: encode all in request thread, then sign through sign client and send,
+     * at last collect receipts asynchronously with one shared deadline of transMaxWait
+     *
+     * @param reqList items could be of different group, contract or function
+     */
+    public RspTransBatch transHandleWithSignBatch(List<ReqTransHandleWithSign> reqList) {
+        if (CollectionUtils.isEmpty(reqList)
+                || reqList.size() > constants.getTransBatchMaxSize()) {
+            log.error("transHandleWithSignBatch size:{} exceeds max:{}",
+                    reqList == null ? 0 : reqList.size(), constants.getTransBatchMaxSize());
+            throw new FrontException(ConstantCode.TRANS_BATCH_SIZE_INVALID);
+        }
+        Instant startTime = Instant.now();
+        int size = reqList.size();
+        List<RspTransBatchItem> resultList = new ArrayList<>(size);
+        List<CompletableFuture<Object>> futureList = new ArrayList<>(size);
+        // encode all and submit to pipeline
+        for (int i = 0; i < size; i++) {
+            RspTransBatchItem item = new RspTransBatchItem(i);
+            resultList.add(item);
+            futureList.add(submitBatchItem(reqList.get(i), item));
+        }
+        RspTransBatch rspTransBatch = collectBatchResults(resultList, futureList, startTime);
+        log.info("transHandleWithSignBatch end. total:{} success:{} cost time:{}", size,
+                rspTransBatch.getSuccessCount(), rspTransBatch.getTotalCostTime());
+        return rspTransBatch;
+    }
+
+    /**
+     * collect results of batch with one shared deadline of transMaxWait
+     * instead of N serial timeouts
+     * @param futureList future is null if item failed before submitted
+     */
+    private RspTransBatch collectBatchResults(List<RspTransBatchItem> resultList,
+            List<CompletableFuture<Object>> futureList, Instant startTime) {
+        int size = resultList.size();
+        long deadline = System.currentTimeMillis()
+                + TimeUnit.SECONDS.toMillis(constants.getTransMaxWait());
+        int successCount = 0;
+        for (int i = 0; i < size; i++) {
+            CompletableFuture<Object> future = futureList.get(i);
+            // null if failed in encoding
+            if (future == null) {
+                continue;
+            }
+            RspTransBatchItem item = resultList.get(i);
+            try {
+                long remainTime = Math.max(0, deadline - System.currentTimeMillis());
+                item.setResult(future.get(remainTime, TimeUnit.MILLISECONDS));
+                item.setSuccess(true);
+                successCount++;
+            } catch (TimeoutException e) {
+                log.warn("batch item:{} get tx receipt timeout", i);
+                setBatchItemError(item,
+                        new FrontException(ConstantCode.GET_TX_RECEIPT_TIMEOUT_ERROR));
+            } catch (ExecutionException e) {
+                log.error("batch item:{} exec error:[]", i, e.getCause());
+                if (e.getCause() instanceof FrontException) {
+                    setBatchItemError(item, (FrontException) e.getCause());
+                } else {
+                    setBatchItemError(item, new FrontException(
+                            ConstantCode.GET_TX_RECEIPT_EXEC_ERROR, e.getCause().getMessage()));
+                }
+            } catch (InterruptedException e) {
+                log.error("batch item:{} interrupted", i);
+                Thread.currentThread().interrupt();
+                setBatchItemError(item,
+                        new FrontException(ConstantCode.GET_TX_RECEIPT_EXEC_ERROR));
+            }
+        }
+        RspTransBatch rspTransBatch = new RspTransBatch();
+        rspTransBatch.setTotalCount(size);
+        rspTransBatch.setSuccessCount(successCount);
+        rspTransBatch.setTotalCostTime(Duration.between(startTime, Instant.now()).toMillis());
+        rspTransBatch.setResultList(resultList);
+        return rspTransBatch;
+    }
+
+    /**
+     * constant calls in batch, sent concurrently through sdk async path.
+     * abi referred by abiRef is parsed only once in batch
+     */
+    public RspTransBatch multiCall(ReqMultiCall req) {
+        List<ReqCallItem> callList = req.getCallList();
+        if (CollectionUtils.isEmpty(callList)
+                || callList.size() > constants.getTransBatchMaxSize()) {
+            log.error("multiCall size:{} exceeds max:{}", callList == null ? 0 : callList.size(),
+                    constants.getTransBatchMaxSize());
+            throw new FrontException(ConstantCode.TRANS_BATCH_SIZE_INVALID);
+        }
+        Web3j web3j = web3ApiService.getWeb3j(req.getGroupId());
+        Instant startTime = Instant.now();
+        int size = callList.size();
+        // compiled function of abiRef and function name in this batch
+        Map<String, AbiFunctionDescriptor> functionMap = new HashMap<>();
+        List<RspTransBatchItem> resultList = new ArrayList<>(size);
+        List<CompletableFuture<Object>> futureList = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            RspTransBatchItem item = new RspTransBatchItem(i);
+            resultList.add(item);
+            futureList.add(submitCallItem(req, callList.get(i), web3j, functionMap, item));
+        }
+        RspTransBatch rspTransBatch = collectBatchResults(resultList, futureList, startTime);
+        log.info("multiCall end. total:{} success:{} cost time:{}", size,
+                rspTransBatch.getSuccessCount(), rspTransBatch.getTotalCostTime());
+        return rspTransBatch;
+    }
+
+    /**
+     * encode one call of multiCall and send it asynchronously
+     * @return future of call result, null if encode failed
+     */
+    private CompletableFuture<Object> submitCallItem(ReqMultiCall req, ReqCallItem call,
+            Web3j web3j, Map<String, AbiFunctionDescriptor> functionMap, RspTransBatchItem item) {
+        Instant encodeStartTime = Instant.now();
+        Function function;
+        String encodedFunction;
+        List<String> outputTypes;
+        try {
+            AbiFunctionDescriptor descriptor = getCallFunction(req, call, functionMap);
+            // "funcParam": null in request is taken as no param
+            List<Object> params = call.getFuncParam() == null ? Collections.emptyList()
+                    : call.getFuncParam();
+            if (descriptor.getInputTypes().size() != params.size()) {
+                throw new FrontException(ConstantCode.IN_FUNCPARAM_ERROR);
+            }
+            function = new Function(call.getFuncName(),
+                    AbiUtil.inputFormatByCodec(descriptor.getInputCodecs(), params),
+                    descriptor.getOutputs());
+            encodedFunction = FunctionEncoder.encodeParameters(function.getInputParameters(),
+                    new StringBuilder(descriptor.getMethodId()));
+            outputTypes = descriptor.getOutputTypes();
+        } catch (FrontException e) {
+            log.warn("multiCall item:{} encode fail:{}", item.getIndex(), e.getMessage());
+            setBatchItemError(item, e);
+            return null;
+        }
+        item.setEncodeCostTime(Duration.between(encodeStartTime, Instant.now()).toMillis());
+
+        // caller is in cache key only if specified
+        String from = call.getUserAddress();
+        if (StringUtils.isBlank(from)) {
+            from = keyStoreService.getCredentialsForQuery().getAddress();
+        }
+        String cacheFrom = call.getUserAddress();
+        Instant nodeStartTime = Instant.now();
+        return ethCallAsync(req.getGroupId(), web3j, from, cacheFrom, call.getContractAddress(),
+                encodedFunction).handle((callOutput, e) -> {
+                    item.setNodeCostTime(
+                            Duration.between(nodeStartTime, Instant.now()).toMillis());
+                    if (e != null) {
+                        Throwable cause = e instanceof CompletionException && e.getCause() != null
+                                ? e.getCause() : e;
+                        if (cause instanceof FrontException) {
+                            throw (FrontException) cause;
+                        }
+                        throw new FrontException(ConstantCode.CALL_CONTRACT_ERROR,
+                                cause.getMessage());
+                    }
+                    return decodeCallOutput(callOutput, function, outputTypes);
+                });
+    }
+
+    /**
+     * get compiled function of call, abi of abiRef is compiled once in batch
+     */
+    private AbiFunctionDescriptor getCallFunction(ReqMultiCall req, ReqCallItem call,
+            Map<String, AbiFunctionDescriptor> functionMap) {
+        AbiFunctionDescriptor descriptor;
+        if (!CollectionUtils.isEmpty(call.getContractAbi())) {
+            descriptor = abiFunctionCache.getFunction(call.getContractAbi(), call.getFuncName());
+        } else {
+            String functionKey = call.getAbiRef() + Constants.SYMPOL + call.getFuncName();
+            descriptor = functionMap.get(functionKey);
+            if (descriptor == null) {
+                List<Object> contractAbi = req.getAbiMap().get(call.getAbiRef());
+                if (CollectionUtils.isEmpty(contractAbi)) {
+                    throw new FrontException(ConstantCode.ABI_GET_ERROR,
+                            "abiRef:" + call.getAbiRef());
+                }
+                descriptor = abiFunctionCache.getFunction(contractAbi, call.getFuncName());
+                if (descriptor != null) {
+                    functionMap.put(functionKey, descriptor);
+                }
+            }
+        }
+        if (Objects.isNull(descriptor)) {
+            throw new FrontException(IN_FUNCTION_ERROR);
+        }
+        // eth_call of non-constant function would be taken as a sent transaction by caller
+        if (!descriptor.isConstant()) {
+            throw new FrontException(IN_FUNCTION_ERROR,
+                    "function is not constant:" + call.getFuncName());
+        }
+        return descriptor;
+    }
+
+    /**
+     * encode one item of batch, then submit sign and send to transThreadPool
+     * @return future of call result or receipt, null if encode failed
+     */
+    private CompletableFuture<Object> submitBatchItem(ReqTransHandleWithSign req,
+            RspTransBatchItem item) {
+        Instant encodeStartTime = Instant.now();
+        ContractFunction contractFunction;
+        Web3j web3j;
+        Function function;
+        String encodedFunction;
+        try {
+            checkContractAddress(req.getContractAddress(), req.getVersion());
+            ContractOfTrans contractOfTrans = new ContractOfTrans(req);
+            contractFunction = buildContractFunction(contractOfTrans);
+            web3j = web3ApiService.getWeb3j(contractOfTrans.getGroupId());
+            function = new Function(req.getFuncName(), contractFunction.getFinalInputs(),
+                    contractFunction.getFinalOutputs());
+            encodedFunction = encodeFunction(function, contractFunction);
+        } catch (FrontException e) {
+            log.warn("transHandleWithSignBatch item:{} encode fail:{}", item.getIndex(),
+                    e.getMessage());
+            setBatchItemError(item, e);
+            return null;
+        }
+        item.setEncodeCostTime(Duration.between(encodeStartTime, Instant.now()).toMillis());
+
+        String contractAddress = req.getContractAddress();
+        if (contractFunction.getConstant()) {
+            return CompletableFuture.supplyAsync(() -> {
+                Instant nodeStartTime = Instant.now();
+                Object response = callConstantFunction(req.getGroupId(), web3j, contractAddress,
+                        encodedFunction, function, contractFunction);
+                item.setNodeCostTime(Duration.between(nodeStartTime, Instant.now()).toMillis());
+                return response;
+            }, transThreadPool);
+        }
+        // in-flight limit of group
+        TransLimiter.Permit permit;
+        try {
+            permit = transLimiter.acquire(req.getGroupId());
+        } catch (FrontException e) {
+            log.warn("transHandleWithSignBatch item:{} rejected:{}", item.getIndex(),
+                    e.getMessage());
+            setBatchItemError(item, e);
+            return null;
+        }
+        Instant signStartTime = Instant.now();
+        CompletableFuture<String> signFuture;
+        try {
+            signFuture = signMessageAsync(req.getGroupId(), web3j, req.getSignUserId(),
+                    contractAddress, encodedFunction);
+        } catch (FrontException e) {
+            log.warn("transHandleWithSignBatch item:{} sign fail:{}", item.getIndex(),
+                    e.getMessage());
+            permit.release();
+            setBatchItemError(item, e);
+            return null;
+        }
+        boolean sync = !Boolean.FALSE.equals(req.getSync());
+        // send in transThreadPool instead of thread of sign
+        CompletableFuture<Object> resultFuture = signFuture.thenComposeAsync(signMsg -> {
+            item.setSignCostTime(Duration.between(signStartTime, Instant.now()).toMillis());
+            if (!sync) {
+                return CompletableFuture.completedFuture(sendMessageAsync(web3j, signMsg, permit));
+            }
+            Instant nodeStartTime = Instant.now();
+            final CompletableFuture<TransactionReceipt> transFuture = new CompletableFuture<>();
+            sendMessage(web3j, signMsg, transFuture);
+            return transFuture.thenApply(receipt -> {
+                // cover null message
+                receipt.setMessage(FrontUtils.handleReceiptMsg(receipt));
+                item.setNodeCostTime(Duration.between(nodeStartTime, Instant.now()).toMillis());
+                return receipt;
+            });
+        }, transThreadPool);
+        if (sync) {
+            transLimiter.releaseOn(permit, resultFuture,
+                    TimeUnit.SECONDS.toMillis(constants.getTransMaxWait()));
+        } else {
+            // permit of async tx is handed to receipt registry once sent
+            resultFuture.whenComplete((r, e) -> {
+                if (e != null) {
+                    permit.release();
+                }
+            });
+        }
+        return resultFuture;
+    }
+
+    private void setBatchItemError(RspTransBatchItem item, FrontException e) {
+        item.setSuccess(false);
+        if (e.getRetCode() != null) {
+            item.setCode(e.getRetCode().getCode());
+        }
+        item.setErrorMessage(e.getDetail() == null ? e.getMessage()
+                : e.getMessage() + ": " + e.getDetail());
+    }
+
+    /**
+     * same check of contract address as /trans/handleWithSign
+     */
+    private void checkContractAddress(String address, String version) {
+        if (StringUtils.isBlank(version) && StringUtils.isBlank(address)) {
+            throw new FrontException(ConstantCode.VERSION_AND_ADDRESS_CANNOT_ALL_BE_NULL);
+        }
+        if (address == null || address.length() != Address.ValidLen
+                || org.fisco.bcos.web3j.abi.datatypes.Address.DEFAULT.toString().equals(address)) {
+            throw new FrontException(ConstantCode.PARAM_ADDRESS_IS_INVALID);
+        }
+    }
+
     /**
      * checkAndSaveAbiFromDb.
      *
@@ -236,7 +671,7 @@ public class TransService {
             throw new FrontException(ConstantCode.CONTRACT_ABI_PARSE_JSON_ERROR);
         }
         ContractAbiUtil.setFunctionFromAbi(req.getContractName(), req.getContractPath(),
-                abiDefinitionList, new ArrayList<>());
+                abiDefinitionList);
         return true;
     }
 
@@ -300,57 +735,65 @@ public class TransService {
      */
     public String signMessage(int groupId, Web3j web3j, String signUserId, String contractAddress,
             String data) {
+        try {
+            return signMessageAsync(groupId, web3j, signUserId, contractAddress, data).join();
+        } catch (CompletionException e) {
+            // throw FrontException or http exception of sign
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * create raw transaction and encode data, then sign through sign client
+     *
+     * @param groupId id
+     * @param contractAddress info
+     * @param data info
+     * @return future of signed message
+     */
+    public CompletableFuture<String> signMessageAsync(int groupId, Web3j web3j,
+            String signUserId, String contractAddress, String data) {
         Random r = new Random();
         BigInteger randomid = new BigInteger(250, r);
 
         BigInteger blockLimit = web3j.getBlockNumberCache();
         String versionContent = Constants.version;
-        // get user's signUserId
-        // String signUserId = keyStoreService.getSignUserIdByAddress(address);
-        String signMsg;
+        EncodeInfo encodeInfo = new EncodeInfo();
+        encodeInfo.setSignUserId(signUserId);
         if (versionContent.contains("2.0.0-rc1") || versionContent.contains("release-2.0.1")) {
             RawTransaction rawTransaction = RawTransaction.createTransaction(randomid,
                     Constants.GAS_PRICE, Constants.GAS_LIMIT, blockLimit, contractAddress,
                     BigInteger.ZERO, data);
             byte[] encodedTransaction = TransactionEncoder.encode(rawTransaction);
-            String encodedDataStr = Numeric.toHexString(encodedTransaction);
-
-            EncodeInfo encodeInfo = new EncodeInfo();
-            encodeInfo.setSignUserId(signUserId);
-            encodeInfo.setEncodedDataStr(encodedDataStr);
-            String signDataStr = keyStoreService.getSignData(encodeInfo);
+            encodeInfo.setEncodedDataStr(Numeric.toHexString(encodedTransaction));
 
-            SignatureData signData = CommonUtils.stringToSignatureData(signDataStr);
-            byte[] signedMessage = TransactionEncoder.encode(rawTransaction, signData);
-            signMsg = Numeric.toHexString(signedMessage);
+            return signClient.sign(encodeInfo).thenApply(signDataStr -> {
+                SignatureData signData = CommonUtils.stringToSignatureData(signDataStr);
+                byte[] signedMessage = TransactionEncoder.encode(rawTransaction, signData);
+                return Numeric.toHexString(signedMessage);
+            });
         } else {
-            // String chainId = versionContent.get("Chain Id");
             String chainId = Constants.chainId;
             ExtendedRawTransaction extendedRawTransaction =
                     ExtendedRawTransaction.createTransaction(randomid, Constants.GAS_PRICE,
                             Constants.GAS_LIMIT, blockLimit, contractAddress, BigInteger.ZERO, data,
                             new BigInteger(chainId), BigInteger.valueOf(groupId), "");
             byte[] encodedTransaction = ExtendedTransactionEncoder.encode(extendedRawTransaction);
-            String encodedDataStr = Numeric.toHexString(encodedTransaction);
-
-            EncodeInfo encodeInfo = new EncodeInfo();
-            encodeInfo.setSignUserId(signUserId);
-            encodeInfo.setEncodedDataStr(encodedDataStr);
+            encodeInfo.setEncodedDataStr(Numeric.toHexString(encodedTransaction));
 
             Instant startTime = Instant.now();
-
-            String signDataStr = keyStoreService.getSignData(encodeInfo);
-
-            log.info("get signdatastr cost time: {}",
-                    Duration.between(startTime, Instant.now()).toMillis());
-
-            SignatureData signData = CommonUtils.stringToSignatureData(signDataStr);
-            byte[] signedMessage =
-                    ExtendedTransactionEncoder.encode(extendedRawTransaction, signData);
-            signMsg = Numeric.toHexString(signedMessage);
+            return signClient.sign(encodeInfo).thenApply(signDataStr -> {
+                log.info("get signdatastr cost time: {}",
+                        Duration.between(startTime, Instant.now()).toMillis());
+                SignatureData signData = CommonUtils.stringToSignatureData(signDataStr);
+                byte[] signedMessage =
+                        ExtendedTransactionEncoder.encode(extendedRawTransaction, signData);
+                return Numeric.toHexString(signedMessage);
+            });
         }
-        return signMsg;
-
     }
 
 
@@ -382,6 +825,97 @@ public class TransService {
     }
 
 
+    /**
+     * send message to node without waiting receipt.
+     * receipt will be put into receipt registry in callback
+     *
+     * @param signMsg signMsg
+     * @param permit in-flight permit, released when receipt arrives or after transMaxWait
+     * @return receipt with tx hash only
+     */
+    public TransactionReceipt sendMessageAsync(Web3j web3j, String signMsg,
+            TransLimiter.Permit permit) {
+        String txHash = Hash.sha3(signMsg);
+        CompletableFuture<TransactionReceipt> registryFuture = receiptRegistry.register(txHash);
+        transLimiter.releaseOn(permit, registryFuture,
+                TimeUnit.SECONDS.toMillis(constants.getTransMaxWait()));
+        final CompletableFuture<TransactionReceipt> transFuture = new CompletableFuture<>();
+        transFuture.whenComplete((receipt, e) -> {
+            if (e != null) {
+                registryFuture.completeExceptionally(e);
+                return;
+            }
+            // cover null message
+            receipt.setMessage(FrontUtils.handleReceiptMsg(receipt));
+            registryFuture.complete(receipt);
+        });
+        try {
+            sendMessage(web3j, signMsg, transFuture);
+        } catch (RuntimeException e) {
+            // registered tx hash turns FAILED instead of staying PENDING
+            registryFuture.completeExceptionally(e);
+            permit.release();
+            throw e;
+        }
+        TransactionReceipt transactionReceipt = new TransactionReceipt();
+        transactionReceipt.setTransactionHash(txHash);
+        return transactionReceipt;
+    }
+
+    /**
+     * get receipt of async tx from receipt registry without waiting
+     */
+    public RspReceiptStatus getReceiptStatus(String txHash) {
+        CompletableFuture<TransactionReceipt> future = receiptRegistry.get(txHash);
+        if (future == null) {
+            return new RspReceiptStatus(txHash, ReceiptStatus.UNKNOWN, null);
+        }
+        if (!future.isDone()) {
+            return new RspReceiptStatus(txHash, ReceiptStatus.PENDING, null);
+        }
+        if (future.isCompletedExceptionally()) {
+            return failedReceiptStatus(txHash, future);
+        }
+        return new RspReceiptStatus(txHash, ReceiptStatus.DONE, future.join());
+    }
+
+    /**
+     * status of async tx whose sending failed
+     */
+    private RspReceiptStatus failedReceiptStatus(String txHash,
+            CompletableFuture<TransactionReceipt> future) {
+        String errorMessage;
+        try {
+            future.join();
+            errorMessage = null;
+        } catch (CompletionException | CancellationException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            errorMessage = cause.getMessage();
+        }
+        return new RspReceiptStatus(txHash, ReceiptStatus.FAILED, null, errorMessage);
+    }
+
+    /**
+     * get receipt of async tx, wait at most waitTime(ms) without blocking request thread
+     * @return deferred result completed in receipt callback or with PENDING when time out
+     */
+    public DeferredResult<RspReceiptStatus> getReceiptStatusDeferred(String txHash,
+            long waitTime) {
+        long maxWait = TimeUnit.SECONDS.toMillis(constants.getTransMaxWait());
+        long timeout = Math.min(Math.max(waitTime, 0), maxWait);
+        DeferredResult<RspReceiptStatus> deferredResult = new DeferredResult<>(timeout,
+                new RspReceiptStatus(txHash, ReceiptStatus.PENDING, null));
+        CompletableFuture<TransactionReceipt> future = receiptRegistry.get(txHash);
+        if (future == null || future.isDone() || timeout == 0) {
+            deferredResult.setResult(getReceiptStatus(txHash));
+            return deferredResult;
+        }
+        future.whenComplete((receipt, e) -> deferredResult.setResult(e == null
+                ? new RspReceiptStatus(txHash, ReceiptStatus.DONE, receipt)
+                : failedReceiptStatus(txHash, future)));
+        return deferredResult;
+    }
+
     /**
      * build ContractFunction if abi is empty, check in db or file: conf/*.abi else build directly
      */
@@ -431,34 +965,42 @@ public class TransService {
     private ContractFunction buildContractFunctionWithAbi(List<Object> contractAbi, String funcName,
             List<Object> params) {
         log.debug("start buildContractFunctionWithAbi");
-        // check function name
-        AbiDefinition abiDefinition =
-                AbiUtil.getAbiDefinition(funcName, JsonUtils.toJSONString(contractAbi));
-        if (Objects.isNull(abiDefinition)) {
+        // check function name, get compiled function from cache
+        AbiFunctionDescriptor descriptor = abiFunctionCache.getFunction(contractAbi, funcName);
+        if (Objects.isNull(descriptor)) {
             log.warn("transaction fail. func:{} is not existed", funcName);
             throw new FrontException(IN_FUNCTION_ERROR);
         }
 
-        // input format
-        List<String> funcInputTypes = AbiUtil.getFuncInputType(abiDefinition);
         // check param match inputs
-        if (funcInputTypes.size() != params.size()) {
+        if (descriptor.getInputTypes().size() != params.size()) {
             log.error("load contract function error for function params not fit");
             throw new FrontException(ConstantCode.IN_FUNCPARAM_ERROR);
         }
-        List<Type> finalInputs = AbiUtil.inputFormat(funcInputTypes, params);
-        // output format
-        List<String> funOutputTypes = AbiUtil.getFuncOutputType(abiDefinition);
-        List<TypeReference<?>> finalOutputs = AbiUtil.outputFormat(funOutputTypes);
+        // input format
+        List<Type> finalInputs = AbiUtil.inputFormatByCodec(descriptor.getInputCodecs(), params);
 
         // build ContractFunction
         ContractFunction cf =
-                ContractFunction.builder().funcName(funcName).constant(abiDefinition.isConstant())
-                        .inputList(funcInputTypes).outputList(funOutputTypes)
-                        .finalInputs(finalInputs).finalOutputs(finalOutputs).build();
+                ContractFunction.builder().funcName(funcName).constant(descriptor.isConstant())
+                        .inputList(descriptor.getInputTypes())
+                        .outputList(descriptor.getOutputTypes()).finalInputs(finalInputs)
+                        .finalOutputs(descriptor.getOutputs())
+                        .methodId(descriptor.getMethodId()).build();
         return cf;
     }
 
+    /**
+     * encode function, use method id of compiled abi if exists
+     */
+    private String encodeFunction(Function function, ContractFunction contractFunction) {
+        if (contractFunction.getMethodId() == null) {
+            return FunctionEncoder.encode(function);
+        }
+        return FunctionEncoder.encodeParameters(function.getInputParameters(),
+                new StringBuilder(contractFunction.getMethodId()));
+    }
+
     /**
      * does abi exist in cns or db.
      */
@@ -509,19 +1051,26 @@ public class TransService {
         Web3j web3j = web3ApiService.getWeb3j(cof.getGroupId());
         // get privateKey
         Credentials credentials = getCredentials(contractFunction.getConstant(), req.getUser());
-        // contract load
-        ContractGasProvider contractGasProvider =
-                new StaticGasProvider(Constants.GAS_PRICE, Constants.GAS_LIMIT);
-        CommonContract commonContract = CommonContract.load(address, web3j, credentials, contractGasProvider);
 
         // request
         Object result;
         Function function = new Function(cof.getFuncName(), contractFunction.getFinalInputs(),
                 contractFunction.getFinalOutputs());
         if (contractFunction.getConstant()) {
-            result = execCall(contractFunction.getOutputList(), function, commonContract);
+            result = callLocal(cof.getGroupId(), web3j, credentials.getAddress(), address,
+                    function, contractFunction);
         } else {
-            result = execTransaction(function, commonContract);
+            // contract load
+            ContractGasProvider contractGasProvider =
+                    new StaticGasProvider(Constants.GAS_PRICE, Constants.GAS_LIMIT);
+            CommonContract commonContract =
+                    CommonContract.load(address, web3j, credentials, contractGasProvider);
+            TransLimiter.Permit permit = transLimiter.acquire(cof.getGroupId());
+            try {
+                result = execTransaction(function, commonContract);
+            } finally {
+                permit.release();
+            }
         }
 
         log.info("transHandle end. name:{} func:{} result:{}", cof.getContractName(),
@@ -530,14 +1079,111 @@ public class TransService {
     }
 
 
+    /**
+     * eth_call of constant function for transHandleLocal, same result as execCall
+     * @param from query identity, not part of cache key
+     * @return null if function has no output
+     */
+    private Object callLocal(int groupId, Web3j web3j, String from, String contractAddress,
+            Function function, ContractFunction contractFunction) {
+        String callOutput;
+        try {
+            callOutput = ethCall(groupId, web3j, from, null, contractAddress,
+                    encodeFunction(function, contractFunction));
+        } catch (IOException | ContractCallException e) {
+            log.error("callLocal failed.", e);
+            throw new FrontException(ConstantCode.TRANSACTION_QUERY_FAILED.getCode(),
+                    e.getMessage());
+        }
+        List<Type> typeList =
+                FunctionReturnDecoder.decode(callOutput, function.getOutputParameters());
+        if (typeList.size() > 0) {
+            return AbiUtil.callResultParse(contractFunction.getOutputList(), typeList);
+        }
+        return null;
+    }
+
+    /**
+     * send signed transactions in batch to node concurrently
+     * @param sync if false, return receipts with tx hash only after sent,
+     *         else wait all receipts with one shared deadline of transMaxWait
+     */
+    public RspTransBatch sendSignedTransactionBatch(List<String> signedStrList, boolean sync,
+            int groupId) {
+        if (CollectionUtils.isEmpty(signedStrList)
+                || signedStrList.size() > constants.getTransBatchMaxSize()) {
+            log.error("sendSignedTransactionBatch size:{} exceeds max:{}",
+                    signedStrList == null ? 0 : signedStrList.size(),
+                    constants.getTransBatchMaxSize());
+            throw new FrontException(ConstantCode.TRANS_BATCH_SIZE_INVALID);
+        }
+        Web3j web3j = web3ApiService.getWeb3j(groupId);
+        Instant startTime = Instant.now();
+        int size = signedStrList.size();
+        List<RspTransBatchItem> resultList = new ArrayList<>(size);
+        List<CompletableFuture<Object>> futureList = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            RspTransBatchItem item = new RspTransBatchItem(i);
+            resultList.add(item);
+            futureList.add(submitSignedBatchItem(web3j, groupId, signedStrList.get(i), sync, item));
+        }
+        RspTransBatch rspTransBatch = collectBatchResults(resultList, futureList, startTime);
+        log.info("sendSignedTransactionBatch end. total:{} success:{} cost time:{}", size,
+                rspTransBatch.getSuccessCount(), rspTransBatch.getTotalCostTime());
+        return rspTransBatch;
+    }
+
+    /**
+     * submit one signed transaction of batch to transThreadPool
+     * @return future of receipt, null if rejected
+     */
+    private CompletableFuture<Object> submitSignedBatchItem(Web3j web3j, int groupId,
+            String signedStr, boolean sync, RspTransBatchItem item) {
+        if (StringUtils.isBlank(signedStr)) {
+            setBatchItemError(item, new FrontException(ConstantCode.ENCODE_STR_CANNOT_BE_NULL));
+            return null;
+        }
+        TransLimiter.Permit permit;
+        try {
+            permit = transLimiter.acquire(groupId);
+        } catch (FrontException e) {
+            log.warn("sendSignedTransactionBatch item:{} rejected:{}", item.getIndex(),
+                    e.getMessage());
+            setBatchItemError(item, e);
+            return null;
+        }
+        if (!sync) {
+            return CompletableFuture.supplyAsync(() -> sendMessageAsync(web3j, signedStr, permit),
+                    transThreadPool);
+        }
+        final CompletableFuture<TransactionReceipt> transFuture = new CompletableFuture<>();
+        transLimiter.releaseOn(permit, transFuture,
+                TimeUnit.SECONDS.toMillis(constants.getTransMaxWait()));
+        Instant nodeStartTime = Instant.now();
+        CompletableFuture.runAsync(() -> {
+            try {
+                sendMessage(web3j, signedStr, transFuture);
+            } catch (FrontException e) {
+                transFuture.completeExceptionally(e);
+            }
+        }, transThreadPool);
+        return transFuture.thenApply(receipt -> {
+            // cover null message
+            receipt.setMessage(FrontUtils.handleReceiptMsg(receipt));
+            item.setNodeCostTime(Duration.between(nodeStartTime, Instant.now()).toMillis());
+            return receipt;
+        });
+    }
+
     public TransactionReceipt sendSignedTransaction(String signedStr, Boolean sync, int groupId)  {
 
         Web3j web3j = web3ApiService.getWeb3j(groupId);
+        TransLimiter.Permit permit = transLimiter.acquire(groupId);
         if (sync) {
             final CompletableFuture<TransactionReceipt> transFuture = new CompletableFuture<>();
             TransactionReceipt receipt;
-            sendMessage(web3j, signedStr, transFuture);
             try{
+                sendMessage(web3j, signedStr, transFuture);
                 receipt = transFuture.get(constants.getTransMaxWait(), TimeUnit.SECONDS);
             } catch (InterruptedException | ExecutionException  e) {
                 log.error("send call tx error for interrupted or exec:[]", e);
@@ -545,13 +1191,12 @@ public class TransService {
             } catch (TimeoutException e) {
                 log.error("send call tx error for timeout:[]", e);
                 throw new FrontException(ConstantCode.GET_TX_RECEIPT_TIMEOUT_ERROR);
+            } finally {
+                permit.release();
             }
              return receipt;
         } else {
-            TransactionReceipt transactionReceipt = new TransactionReceipt();
-            web3j.sendRawTransaction(signedStr).sendAsync();
-            transactionReceipt.setTransactionHash(Hash.sha3(signedStr));
-            return transactionReceipt;
+            return sendMessageAsync(web3j, signedStr, permit);
         }
     }
 
@@ -562,8 +1207,7 @@ public class TransService {
         Web3j web3j = web3ApiService.getWeb3j(groupId);
         String callOutput ;
         try {
-           callOutput = web3j.call(Transaction.createEthCallTransaction(userAddress, contractAddress, encodeStr), DefaultBlockParameterName.LATEST)
-                    .send().getValue().getOutput();
+           callOutput = ethCall(groupId, web3j, userAddress, userAddress, contractAddress, encodeStr);
         } catch (IOException e) {
             log.error("sendQueryTransaction fail for contract status error:[]", e);
             throw new FrontException(ConstantCode.CALL_CONTRACT_IO_EXCEPTION, e.getMessage());
@@ -572,14 +1216,17 @@ public class TransService {
             throw new FrontException(ConstantCode.CALL_CONTRACT_ERROR, e.getMessage());
         }
 
-        AbiDefinition abiDefinition = getFunctionAbiDefinition(funcName, contractAbi);
-        if (Objects.isNull(abiDefinition)) {
+        if (funcName == null) {
             throw new FrontException(IN_FUNCTION_ERROR);
         }
-        List<String> funOutputTypes = AbiUtil.getFuncOutputType(abiDefinition);
-        List<TypeReference<?>> finalOutputs = AbiUtil.outputFormat(funOutputTypes);
+        AbiFunctionDescriptor descriptor = abiFunctionCache.getFunction(contractAbi, funcName);
+        if (Objects.isNull(descriptor)) {
+            throw new FrontException(IN_FUNCTION_ERROR);
+        }
+        List<String> funOutputTypes = descriptor.getOutputTypes();
 
-        List<Type> typeList = FunctionReturnDecoder.decode(callOutput, Utils.convert(finalOutputs));
+        List<Type> typeList = FunctionReturnDecoder.decode(callOutput,
+                Utils.convert(descriptor.getOutputs()));
         Object response;
         if (typeList.size() > 0) {
             response = AbiUtil.callResultParse(funOutputTypes, typeList);
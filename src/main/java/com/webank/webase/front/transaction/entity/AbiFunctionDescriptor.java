@@ -0,0 +1,57 @@
+/*
+ * Copyright 2014-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.webank.webase.front.transaction.entity;
+
+import com.webank.webase.front.util.ContractTypeUtil.TypeCodec;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import org.fisco.bcos.web3j.abi.TypeReference;
+
+/**
+ * precompiled function of abi, reused by every call of the same abi and function name.
+ * types are parsed from string only once when compiled
+ */
+@Data
+@Builder
+public class AbiFunctionDescriptor {
+    private String funcName;
+    private boolean constant;
+    /**
+     * function selector of 4 bytes, hex with 0x prefix
+     */
+    private String methodId;
+    private List<String> inputTypes;
+    private List<InputCodec> inputCodecs;
+    private List<String> outputTypes;
+    /**
+     * TypeReference is immutable, shared by all calls
+     */
+    private List<TypeReference<?>> outputs;
+
+    /**
+     * how to build web3j Type of one input param
+     */
+    @Data
+    @AllArgsConstructor
+    public static class InputCodec {
+        /**
+         * element type if array, such as uint256 of uint256[]
+         */
+        private String baseType;
+        private TypeCodec codec;
+        private boolean array;
+    }
+}
@@ -21,4 +21,8 @@ public class ContractFunction {
     List<String> outputList;
     List<Type> finalInputs;
     List<TypeReference<?>> finalOutputs;
+    /**
+     * function selector from compiled abi, null if not compiled
+     */
+    String methodId;
 }
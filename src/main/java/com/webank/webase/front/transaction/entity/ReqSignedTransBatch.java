@@ -0,0 +1,31 @@
+/*
+ * Copyright 2014-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.webank.webase.front.transaction.entity;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Data;
+import org.hibernate.validator.constraints.NotEmpty;
+
+/**
+ * signed transactions in batch of one group.
+ * if sync is false, return tx hash of each after sent
+ */
+@Data
+public class ReqSignedTransBatch {
+    @NotEmpty(message = "signedStrList cannot be empty")
+    private List<String> signedStrList = new ArrayList<>();
+    private Boolean sync = true;
+    private int groupId = 1;
+}
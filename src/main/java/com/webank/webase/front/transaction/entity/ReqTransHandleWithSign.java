@@ -44,4 +44,8 @@ public class ReqTransHandleWithSign {
     private String funcName;
     private List<Object> contractAbi = new ArrayList<>();
     private List<Object> funcParam = new ArrayList<>();
+    /**
+     * if false, return tx hash after sent, get receipt by /trans/receipt/{txHash}
+     */
+    private Boolean sync = true;
 }
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2014-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.webank.webase.front.transaction.entity;
+
+import com.webank.webase.front.base.enums.ReceiptStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.fisco.bcos.web3j.protocol.core.methods.response.TransactionReceipt;
+
+/**
+ * receipt of tx sent asynchronously, receipt is null unless status is DONE,
+ * errorMessage is set if status is FAILED
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RspReceiptStatus {
+    private String txHash;
+    private ReceiptStatus status;
+    private TransactionReceipt receipt;
+    private String errorMessage;
+
+    public RspReceiptStatus(String txHash, ReceiptStatus status, TransactionReceipt receipt) {
+        this(txHash, status, receipt, null);
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2014-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.webank.webase.front.transaction.entity;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * result of one item in transaction batch.
+ * cost time in milliseconds of each stage: encode, sign, node(send and wait receipt)
+ */
+@Data
+@NoArgsConstructor
+public class RspTransBatchItem {
+    private int index;
+    private boolean success;
+    private Integer code;
+    private String errorMessage;
+    /**
+     * call result of constant function, or receipt of transaction
+     */
+    private Object result;
+    private long encodeCostTime;
+    private long signCostTime;
+    private long nodeCostTime;
+
+    public RspTransBatchItem(int index) {
+        this.index = index;
+    }
+}
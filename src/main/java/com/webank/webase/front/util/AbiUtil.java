@@ -14,23 +14,25 @@
 
 package com.webank.webase.front.util;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import com.webank.webase.front.base.code.ConstantCode;
+import com.webank.webase.front.transaction.entity.AbiFunctionDescriptor;
+import com.webank.webase.front.transaction.entity.AbiFunctionDescriptor.InputCodec;
+import com.webank.webase.front.util.ContractTypeUtil.TypeCodec;
 import lombok.extern.slf4j.Slf4j;
-import org.fisco.bcos.web3j.abi.EventValues;
+import org.fisco.bcos.web3j.abi.FunctionEncoder;
 import org.fisco.bcos.web3j.abi.TypeReference;
 import org.fisco.bcos.web3j.abi.datatypes.DynamicArray;
-import org.fisco.bcos.web3j.abi.datatypes.Event;
 import org.fisco.bcos.web3j.abi.datatypes.Type;
 import org.fisco.bcos.web3j.protocol.core.methods.response.AbiDefinition;
 import org.fisco.bcos.web3j.protocol.core.methods.response.AbiDefinition.NamedType;
-import org.fisco.bcos.web3j.protocol.core.methods.response.Log;
 import org.fisco.bcos.web3j.protocol.core.methods.response.TransactionReceipt;
-import org.fisco.bcos.web3j.tx.Contract;
 import org.fisco.bcos.web3j.tx.txdecode.ConstantProperties;
 import com.webank.webase.front.base.exception.FrontException;
 
@@ -137,39 +139,99 @@ public class AbiUtil {
      */
     public static List<Type> inputFormat(List<String> funcInputTypes, List<Object> params)
             throws FrontException {
-        List<Type> finalInputs = new ArrayList<>();
+        List<Type> finalInputs = new ArrayList<>(funcInputTypes.size());
         for (int i = 0; i < funcInputTypes.size(); i++) {
-            Class<? extends Type> inputType = null;
-            Object input = null;
-            if (funcInputTypes.get(i).contains("[")
-                    && funcInputTypes.get(i).contains("]")) {
-                List<Object> arrList;
-                try {
-                    arrList = (List<Object>) params.get(i);
-                } catch (ClassCastException e) {
-                    log.error("params of index {} parse List error: {}", i, params.get(i));
-                    throw new FrontException(ConstantCode.PARAM_ERROR);
-                }
-                List<Type> arrParams = new ArrayList<>();
-                for (int j = 0; j < arrList.size(); j++) {
-                    inputType = AbiTypes.getType(
-                            funcInputTypes.get(i).substring(0, funcInputTypes.get(i).indexOf("[")));
-                    input = ContractTypeUtil.parseByType(
-                            funcInputTypes.get(i).substring(0, funcInputTypes.get(i).indexOf("[")),
-                            arrList.get(j).toString());
-                    arrParams.add(ContractTypeUtil.generateClassFromInput(input.toString(), inputType));
-                }
-                finalInputs.add(new DynamicArray<>(arrParams));
+            String type = funcInputTypes.get(i);
+            if (type.contains("[") && type.contains("]")) {
+                // codec of element is resolved once for the whole array
+                TypeCodec codec = ContractTypeUtil.getCodec(type.substring(0, type.indexOf("[")));
+                finalInputs.add(encodeArray(codec, params.get(i), i));
+            } else {
+                finalInputs.add(ContractTypeUtil.getCodec(type).encode(params.get(i).toString()));
+            }
+        }
+        return finalInputs;
+    }
+
+    /**
+     * input parameter format by compiled codecs, skip parsing type from string.
+     *
+     * @param inputCodecs list
+     * @param params list
+     * @return
+     */
+    public static List<Type> inputFormatByCodec(List<InputCodec> inputCodecs,
+            List<Object> params) throws FrontException {
+        List<Type> finalInputs = new ArrayList<>(inputCodecs.size());
+        for (int i = 0; i < inputCodecs.size(); i++) {
+            InputCodec codec = inputCodecs.get(i);
+            if (codec.isArray()) {
+                finalInputs.add(encodeArray(codec.getCodec(), params.get(i), i));
             } else {
-                inputType = AbiTypes.getType(funcInputTypes.get(i));
-                input = ContractTypeUtil.parseByType(funcInputTypes.get(i),
-                        params.get(i).toString());
-                finalInputs.add(ContractTypeUtil.generateClassFromInput(input.toString(), inputType));
+                finalInputs.add(codec.getCodec().encode(params.get(i).toString()));
             }
         }
         return finalInputs;
     }
 
+    /**
+     * encode array param element by element with codec of element type.
+     *
+     * @param codec codec of element
+     * @param param list of element
+     * @param index index of param
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    private static DynamicArray<Type> encodeArray(TypeCodec codec, Object param, int index)
+            throws FrontException {
+        List<Object> arrList;
+        try {
+            arrList = (List<Object>) param;
+        } catch (ClassCastException e) {
+            log.error("params of index {} parse List error: {}", index, param);
+            throw new FrontException(ConstantCode.PARAM_ERROR);
+        }
+        List<Type> arrParams = new ArrayList<>(arrList.size());
+        for (Object element : arrList) {
+            arrParams.add(codec.encode(element.toString()));
+        }
+        return new DynamicArray<>(arrParams);
+    }
+
+    /**
+     * compile function abi to descriptor.
+     * method id is built from the same type string as DynamicArray built in inputFormat
+     *
+     * @param abiDefinition function abi
+     * @return
+     */
+    public static AbiFunctionDescriptor compileFunction(AbiDefinition abiDefinition)
+            throws FrontException {
+        List<String> inputTypes = getFuncInputType(abiDefinition);
+        List<InputCodec> inputCodecs = new ArrayList<>(inputTypes.size());
+        StringBuilder signature = new StringBuilder(abiDefinition.getName()).append("(");
+        for (int i = 0; i < inputTypes.size(); i++) {
+            String type = inputTypes.get(i);
+            boolean array = type.contains("[") && type.contains("]");
+            String baseType = array ? type.substring(0, type.indexOf("[")) : type;
+            inputCodecs.add(new InputCodec(baseType, ContractTypeUtil.getCodec(baseType), array));
+            if (i > 0) {
+                signature.append(",");
+            }
+            signature.append(array ? baseType + "[]" : baseType);
+        }
+        signature.append(")");
+        List<String> outputTypes = getFuncOutputType(abiDefinition);
+        return AbiFunctionDescriptor.builder().funcName(abiDefinition.getName())
+                .constant(abiDefinition.isConstant())
+                .methodId(FunctionEncoder.buildMethodId(signature.toString()))
+                .inputTypes(Collections.unmodifiableList(inputTypes))
+                .inputCodecs(Collections.unmodifiableList(inputCodecs))
+                .outputTypes(Collections.unmodifiableList(outputTypes))
+                .outputs(Collections.unmodifiableList(outputFormat(outputTypes))).build();
+    }
+
     /**
      * output parameter format.
      * 
@@ -197,69 +259,66 @@ public class AbiUtil {
 
     /**
      * ethCall Result Parse.
+     * values are built in the shape of json result directly:
+     * numbers are narrowed to Integer or Long if possible, arrays are ArrayList
      * 
      * @param funOutputTypes list
      * @param typeList list
      * @return
      */
+    @SuppressWarnings("unchecked")
     public static Object callResultParse(List<String> funOutputTypes, List<Type> typeList)
         throws FrontException {
         if (funOutputTypes.size() == typeList.size()) {
-            List<Object> result = new ArrayList<>();
+            List<Object> result = new ArrayList<>(funOutputTypes.size());
             for (int i = 0; i < funOutputTypes.size(); i++) {
-                Class<? extends Type> outputType = null;
-                Object value = null;
-                if (funOutputTypes.get(i).contains("[")
-                        && funOutputTypes.get(i).contains("]")) {
-                    List<Object> values = new ArrayList<>();
+                String type = funOutputTypes.get(i);
+                if (type.contains("[") && type.contains("]")) {
+                    TypeCodec codec =
+                            ContractTypeUtil.getCodec(type.substring(0, type.indexOf("[")));
                     List<Type> results = (List<Type>) typeList.get(i).getValue();
-                    for (int j = 0; j < results.size(); j++) {
-                        outputType = AbiTypes.getType(funOutputTypes.get(i).substring(0,
-                                funOutputTypes.get(i).indexOf("[")));
-                        value = ContractTypeUtil.decodeResult(results.get(j), outputType);
-                        values.add(value);
+                    List<Object> values = new ArrayList<>(results.size());
+                    for (Type element : results) {
+                        values.add(toJsonValue(codec.decode(element)));
                     }
                     result.add(values);
                 } else {
-                    outputType = AbiTypes.getType(funOutputTypes.get(i));
-                    value = ContractTypeUtil.decodeResult(typeList.get(i), outputType);
-                    result.add(value);
+                    TypeCodec codec = ContractTypeUtil.getCodec(type);
+                    result.add(toJsonValue(codec.decode(typeList.get(i))));
                 }
             }
-            return JsonUtils.toJavaObject(JsonUtils.toJSONString(result), Object.class);
+            return result;
         }
         throw new FrontException("output parameter not match");
     }
+
+    /**
+     * same value as parsed back from json: integer is int, long or BigInteger by its size
+     */
+    static Object toJsonValue(Object value) {
+        if (value instanceof BigInteger) {
+            BigInteger number = (BigInteger) value;
+            if (number.bitLength() < Integer.SIZE) {
+                return number.intValue();
+            } else if (number.bitLength() < Long.SIZE) {
+                return number.longValue();
+            }
+        }
+        return value;
+    }
     
     /**
      * receiptParse.
+     * all logs matched by topic0 are decoded. decoder of abi used repeatedly is
+     * shared through EventDecoderCache
      * 
      * @param receipt info
      * @param abiList info
-     * @return
+     * @return event name to decoded values of each matched log
      */
     public static Object receiptParse(TransactionReceipt receipt, List<AbiDefinition> abiList)
         throws FrontException {
-        Map<String, Object> resultMap = new HashMap<>();
-        List<Log> logList = receipt.getLogs();
-        for (AbiDefinition abiDefinition : abiList) {
-            String eventName = abiDefinition.getName();
-            List<String> funcInputTypes = getFuncInputType(abiDefinition);
-            List<TypeReference<?>> finalOutputs = outputFormat(funcInputTypes);
-            Event event = new Event(eventName,finalOutputs);
-            Object result = null;
-            for (Log logInfo : logList) {
-                EventValues eventValues = Contract.staticExtractEventParameters(event, logInfo);
-                if (eventValues != null) {
-                    result = callResultParse(funcInputTypes, eventValues.getNonIndexedValues());
-                    break;
-                }
-            }
-            if (result != null) {
-                resultMap.put(eventName, result);
-            }
-        }
-        return resultMap;
+        return new EventLogDecoder(abiList).decode(receipt.getLogs());
     }
 
     /**
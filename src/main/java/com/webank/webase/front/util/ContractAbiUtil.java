@@ -16,6 +16,8 @@
 package com.webank.webase.front.util;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.ParameterizedTypeName;
 import com.squareup.javapoet.TypeName;
@@ -36,6 +38,7 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -49,7 +52,21 @@ public class ContractAbiUtil {
         throw new IllegalStateException("Utility class");
     }
 
-    public static HashMap<String, List<VersionEvent>> contractEventMap = new HashMap<>();
+    private static final int ABI_REGISTRY_MAX_SIZE = 10000;
+
+    /**
+     * registry of contract abi keyed by contractName_version, same as name of abi file.
+     * loaded from abi file on demand, least recently used are evicted
+     */
+    private static final Cache<String, VersionEvent> VERSION_EVENT_CACHE =
+            CacheBuilder.newBuilder().maximumSize(ABI_REGISTRY_MAX_SIZE).build();
+    private static final long ABI_FILE_MISS_TTL = 10;
+    /**
+     * abi key without abi file, avoid checking file of address keyed contract in every tx
+     */
+    private static final Cache<String, Boolean> ABI_FILE_MISS_CACHE =
+            CacheBuilder.newBuilder().maximumSize(ABI_REGISTRY_MAX_SIZE)
+                    .expireAfterWrite(ABI_FILE_MISS_TTL, TimeUnit.SECONDS).build();
     private static final String REGEX = "(\\w+)(?:\\[(.*?)\\])(?:\\[(.*?)\\])?";
     private static final Pattern PATTERN = Pattern.compile(REGEX);
 
@@ -82,35 +99,6 @@ public class ContractAbiUtil {
         }
     }
 
-    static {
-        try {
-            initAllContractAbi();
-        } catch (Exception ex) {
-            log.error("initAllContractAbi fail");
-        }
-    }
-
-    /**
-     * init from config abi dir.
-     */
-    public static void initAllContractAbi() throws Exception {
-        File f = new File(Constants.ABI_DIR);
-
-        File[] files = f.listFiles();
-        if (files == null) {
-            return;
-        }
-        for (File file : files) {
-            String[] arr = file.getName().split(Constants.SEP);
-            String version = "";
-            if (arr.length >= 2) {
-                version = arr[1];
-            }
-            List<AbiDefinition> abiList = loadContractDefinition(file);
-            setContractWithAbi(arr[0], version, abiList, false);
-        }
-    }
-
     /**
      * loadContractDefinition.
      *
@@ -132,56 +120,45 @@ public class ContractAbiUtil {
     public static void setContractWithAbi(String contractName, String version,
                                           List<AbiDefinition> abiDefinitionList, boolean ifSaveFile) throws FrontException {
 
-        List<VersionEvent> versionEventList = getAbiVersionList(contractName, version);
-        setFunctionFromAbi(contractName, version, abiDefinitionList, versionEventList);
+        if (!isValidAbiKey(contractName, version)) {
+            log.error("contract:{} version:{} is invalid name of abi file.", contractName, version);
+            throw new FrontException(ConstantCode.PARAM_ERROR, "invalid contract name or version");
+        }
+        VersionEvent versionEvent = buildVersionEvent(contractName, version, abiDefinitionList);
+        // check existed in abi file or registry, and put only if absent
+        if (getVersionEvent(contractName, version) != null
+                || VERSION_EVENT_CACHE.asMap().putIfAbsent(getAbiKey(contractName, version),
+                        versionEvent) != null) {
+            log.error("contract:{} version:{} is existed.", contractName, version);
+            throw new FrontException(ConstantCode.CONTRACT_DEPLOYED_ERROR);
+        }
 
         if (ifSaveFile) {
             saveAbiFile(contractName, version, abiDefinitionList);
         }
+        ABI_FILE_MISS_CACHE.invalidate(getAbiKey(contractName, version));
     }
 
+    /**
+     * set contract abi in registry, replace if existed.
+     *
+     * @param contractName      contractName
+     * @param version           version
+     * @param abiDefinitionList abi info
+     */
     public static void setFunctionFromAbi(String contractName, String version,
-                                          List<AbiDefinition> abiDefinitionList, List<VersionEvent> versionEventList) {
-        HashMap<String, List<Class<? extends Type>>> events = new HashMap<>();
-        HashMap<String, Boolean> functions = new HashMap<>();
-        HashMap<String, List<String>> funcInputs = new HashMap<>();
-        HashMap<String, List<String>> funcOutputs = new HashMap<>();
-
-        // todo fill with solidity type  only need the type
-        for (AbiDefinition abiDefinition : abiDefinitionList) {
-
-            if (Constants.TYPE_CONSTRUCTOR.equals(abiDefinition.getType())) {
-                List<NamedType> inputs = abiDefinition.getInputs();
-                List<String> inputList = new ArrayList<>();
-
-                for (NamedType input : inputs) {
-                    inputList.add(input.getType());
-                }
-                functions.put(contractName, false);
-                funcInputs.put(contractName, inputList);
-            } else if (Constants.TYPE_FUNCTION.equals(abiDefinition.getType())) {
-                List<NamedType> inputs = abiDefinition.getInputs();
-                List<String> inputList = new ArrayList<>();
-                List<NamedType> outputs = abiDefinition.getOutputs();
-                List<String> outputList = new ArrayList<>();
-
-                for (NamedType input : inputs) {
-                    inputList.add(input.getType());
-                }
-                for (NamedType output : outputs) {
-                    outputList.add(output.getType());
-                }
-
-                functions.put(abiDefinition.getName(), abiDefinition.isConstant());
-                funcInputs.put(abiDefinition.getName(), inputList);
-                funcOutputs.put(abiDefinition.getName(), outputList);
-            }
-        }
-
-        versionEventList.add(new VersionEvent(version, events, functions, funcInputs, funcOutputs));
-        contractEventMap.put(contractName, versionEventList);
+                                          List<AbiDefinition> abiDefinitionList) {
+        String abiKey = getAbiKey(contractName, version);
+        VERSION_EVENT_CACHE.put(abiKey, buildVersionEvent(contractName, version, abiDefinitionList));
+        ABI_FILE_MISS_CACHE.invalidate(abiKey);
     }
 
+    private static VersionEvent buildVersionEvent(String contractName, String version,
+                                                  List<AbiDefinition> abiDefinitionList) {
+        VersionEvent versionEvent = getVersionEventFromAbi(contractName, abiDefinitionList);
+        versionEvent.setVersion(version);
+        return versionEvent;
+    }
 
     public static VersionEvent getVersionEventFromAbi(String contractName, List<AbiDefinition> abiDefinitionList) {
         HashMap<String, List<Class<? extends Type>>> events = new HashMap<>();
@@ -224,23 +201,6 @@ public class ContractAbiUtil {
 
     }
 
-    private static List<VersionEvent> getAbiVersionList(String contractName, String version) throws FrontException {
-        List<VersionEvent> versionEventList = null;
-        if (contractEventMap.containsKey(contractName)) {
-            versionEventList = contractEventMap.get(contractName);
-        } else {
-            versionEventList = new ArrayList<>();
-        }
-
-        for (VersionEvent versionEvent : versionEventList) {
-            if (version.equals(versionEvent.getVersion())) {
-                log.error("contract:{} version:{} is existed.", contractName, version);
-                throw new FrontException(ConstantCode.CONTRACT_DEPLOYED_ERROR);
-            }
-        }
-        return versionEventList;
-    }
-
     /**
      * save abi file to disk which dir declare in config.
      *
@@ -282,18 +242,7 @@ public class ContractAbiUtil {
      * @param contractVersion version
      */
     public static Boolean ifContractAbiExisted(String contractName, String contractVersion) {
-        boolean ifExisted = false;
-        Map<String, List<String>> contracts = getAllContract();
-        for (String contract : contracts.keySet()) {
-            if (contract.equals(contractName)) {
-                List<String> versions = contracts.get(contract);
-                if (versions.contains(contractVersion)) {
-                    ifExisted = true;
-                    break;
-                }
-            }
-        }
-        return ifExisted;
+        return getVersionEvent(contractName, contractVersion) != null;
     }
 
     /**
@@ -346,23 +295,6 @@ public class ContractAbiUtil {
         return target.getFuncOutputs().get(funcName);
     }
 
-    /**
-     * get all contract from contractEventMap.
-     */
-    private static Map<String, List<String>> getAllContract() {
-        Map<String, List<String>> contracts = new HashMap<>();
-        for (Map.Entry<String, List<VersionEvent>> entry : contractEventMap.entrySet()) {
-            List<VersionEvent> versionEventList = entry.getValue();
-            List<String> versions = new ArrayList<>();
-            for (VersionEvent versionEvent : versionEventList) {
-                versions.add(versionEvent.getVersion());
-            }
-            contracts.put(entry.getKey(), versions);
-        }
-        return contracts;
-    }
-
-
     static TypeName buildTypeName(String typeDeclaration) {
         String type = trimStorageDeclaration(typeDeclaration);
         Matcher matcher = PATTERN.matcher(type);
@@ -418,21 +350,55 @@ public class ContractAbiUtil {
 
 
     /**
-     * get VersionEvent.
+     * get VersionEvent from registry, load from abi file if missed.
+     *
+     * @param contractName contractName
+     * @param version      version
+     * @return null if not existed
      */
-    private static VersionEvent getVersionEvent(String contractName, String version) {
-        if (!contractEventMap.containsKey(contractName)) {
+    public static VersionEvent getVersionEvent(String contractName, String version) {
+        if (!isValidAbiKey(contractName, version)) {
+            log.warn("contract:{} version:{} is invalid name of abi file.", contractName, version);
             return null;
         }
-        List<VersionEvent> versionEventList = contractEventMap.get(contractName);
-        VersionEvent target = null;
-        for (VersionEvent versionEvent : versionEventList) {
-            if (versionEvent.getVersion().equals(version)) {
-                target = versionEvent;
-                break;
-            }
+        String abiKey = getAbiKey(contractName, version);
+        VersionEvent versionEvent = VERSION_EVENT_CACHE.getIfPresent(abiKey);
+        if (versionEvent != null) {
+            return versionEvent;
+        }
+        if (ABI_FILE_MISS_CACHE.getIfPresent(abiKey) != null) {
+            return null;
+        }
+        File abiFile = new File(Constants.ABI_DIR + Constants.DIAGONAL + abiKey);
+        if (!abiFile.isFile()) {
+            ABI_FILE_MISS_CACHE.put(abiKey, Boolean.TRUE);
+            return null;
         }
-        return target;
+        try {
+            versionEvent = buildVersionEvent(contractName, version,
+                    loadContractDefinition(abiFile));
+        } catch (IOException e) {
+            log.error("load abi file:{} failed.", abiFile.getName(), e);
+            return null;
+        }
+        VersionEvent existed = VERSION_EVENT_CACHE.asMap().putIfAbsent(abiKey, versionEvent);
+        return existed != null ? existed : versionEvent;
+    }
+
+    /**
+     * contract name and version are used as name of abi file, path separator is not allowed
+     */
+    private static boolean isValidAbiKey(String contractName, String version) {
+        return isValidFileNamePart(contractName) && isValidFileNamePart(version);
+    }
+
+    private static boolean isValidFileNamePart(String part) {
+        return part != null && part.indexOf('/') < 0 && part.indexOf('\\') < 0
+                && part.indexOf(File.separatorChar) < 0 && part.indexOf('\0') < 0;
+    }
+
+    private static String getAbiKey(String contractName, String version) {
+        return contractName + Constants.SEP + version;
     }
 
 }
@@ -13,22 +13,26 @@
  */
 package com.webank.webase.front.util;
 
+import static org.fisco.bcos.web3j.abi.datatypes.Type.MAX_BIT_LENGTH;
 import static org.fisco.bcos.web3j.abi.datatypes.Type.MAX_BYTE_LENGTH;
 import com.webank.webase.front.base.code.ConstantCode;
 import com.webank.webase.front.base.exception.FrontException;
 import java.io.UnsupportedEncodingException;
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.math.BigInteger;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.codec.binary.Hex;
 import org.fisco.bcos.web3j.abi.TypeReference;
 import org.fisco.bcos.web3j.abi.datatypes.Address;
 import org.fisco.bcos.web3j.abi.datatypes.Bool;
-import org.fisco.bcos.web3j.abi.datatypes.Bytes;
 import org.fisco.bcos.web3j.abi.datatypes.BytesType;
 import org.fisco.bcos.web3j.abi.datatypes.DynamicArray;
 import org.fisco.bcos.web3j.abi.datatypes.DynamicBytes;
-import org.fisco.bcos.web3j.abi.datatypes.NumericType;
 import org.fisco.bcos.web3j.abi.datatypes.Type;
 import org.fisco.bcos.web3j.abi.datatypes.Utf8String;
 import org.fisco.bcos.web3j.abi.datatypes.generated.Bytes1;
@@ -136,95 +140,149 @@ import org.fisco.bcos.web3j.utils.Numeric;
 public class ContractTypeUtil {
 
     /**
-     * generateClassFromInput.
-     * 
-     * @param input input
-     * @param type type
-     * @return
+     * codec table of solidity type, built once without reflection on encoding or decoding
      */
-    @SuppressWarnings("unchecked")
-    public static <T extends Type> T generateClassFromInput(String input, Class<T> type)
-            throws FrontException {
-        try {
-            if (Address.class.isAssignableFrom(type)) {
-                return (T) new Address(input);
-            } else if (NumericType.class.isAssignableFrom(type)) {
-                return (T) encodeNumeric(input, (Class<NumericType>) type);
-            } else if (Bool.class.isAssignableFrom(type)) {
-                return (T) new Bool(Boolean.valueOf(input));
-            } else if (Utf8String.class.isAssignableFrom(type)) {
-                return (T) new Utf8String(input);
-            } else if (Bytes.class.isAssignableFrom(type)) {
-                return (T) encodeBytes(input, (Class<Bytes>) type);
-            } else if (DynamicBytes.class.isAssignableFrom(type)) {
-                return (T) new DynamicBytes(Numeric.hexStringToByteArray(input));
-            } else {
-                throw new FrontException(ConstantCode.CONTRACT_TYPE_ENCODED_ERROR.getCode(),
-                        String.format("type:%s unsupported encoding", type.getName()));
+    private static final Map<String, TypeCodec> CODEC_MAP = buildCodecMap();
+
+    /**
+     * codec of one solidity type.
+     * encoder builds web3j type from string input directly, decoder returns value of response
+     */
+    public static final class TypeCodec {
+        private final String type;
+        private final Class<? extends Type> typeClass;
+        private final java.util.function.Function<String, Type> encoder;
+        private final java.util.function.Function<Type, Object> decoder;
+
+        TypeCodec(String type, Class<? extends Type> typeClass,
+                java.util.function.Function<String, Type> encoder,
+                java.util.function.Function<Type, Object> decoder) {
+            this.type = type;
+            this.typeClass = typeClass;
+            this.encoder = encoder;
+            this.decoder = decoder;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public Class<? extends Type> getTypeClass() {
+            return typeClass;
+        }
+
+        /**
+         * encode string input to web3j type.
+         *
+         * @param input input
+         * @return
+         */
+        public Type encode(String input) throws FrontException {
+            try {
+                return encoder.apply(input);
+            } catch (FrontException e) {
+                throw e;
+            } catch (Exception e) {
+                log.error("encode failed input:{} type:{}", input, type);
+                throw new FrontException(ConstantCode.IN_FUNCPARAM_ERROR);
+            }
+        }
+
+        /**
+         * decode web3j type to value of response.
+         *
+         * @param result result
+         * @return
+         */
+        public Object decode(Type result) throws FrontException {
+            try {
+                return decoder.apply(result);
+            } catch (Exception e) {
+                log.error("decode failed result:{} type:{}", result, type);
+                throw new FrontException(ConstantCode.IN_FUNCPARAM_ERROR);
             }
-        } catch (FrontException e) {
-            throw e;
-        } catch (Exception e) {
-            log.error("generateClassFromInput failed input:{} type:{}", input, type.getName());
-            throw new FrontException(ConstantCode.IN_FUNCPARAM_ERROR);
         }
     }
 
     /**
-     * decodeResult.
-     * 
-     * @param result result
-     * @param type type
+     * get codec of solidity type.
+     *
+     * @param type base type without array dimension, such as uint256
      * @return
      */
-    public static <T> Object decodeResult(Type result, Class<T> type) throws FrontException {
-        try {
-            if (Address.class.isAssignableFrom(type)) {
-                return result.toString();
-            } else if (NumericType.class.isAssignableFrom(type)) {
-                return result.getValue();
-            } else if (Bool.class.isAssignableFrom(type)) {
-                return result.getValue();
-            } else if (Utf8String.class.isAssignableFrom(type)) {
-                return result.getValue().toString();
-            } else if (Bytes.class.isAssignableFrom(type)) {
-                return decodeBytes((Bytes) result);
-            } else if (DynamicBytes.class.isAssignableFrom(type)) {
-                return "0x" + Hex.encodeHexString((byte[]) result.getValue());
-            } else {
-                throw new FrontException(ConstantCode.CONTRACT_TYPE_DECODED_ERROR.getCode(),
-                        String.format("type:%s unsupported decoding", type.getName()));
-            }
-        } catch (FrontException e) {
-            throw e;
-        } catch (Exception e) {
-            log.error("decodeResult failed result:{} type:{}", result, type.getName());
+    public static TypeCodec getCodec(String type) throws FrontException {
+        TypeCodec codec = CODEC_MAP.get(type);
+        if (codec == null) {
+            log.error("getCodec failed type:{} unsupported", type);
             throw new FrontException(ConstantCode.IN_FUNCPARAM_ERROR);
         }
+        return codec;
     }
 
-    static <T extends NumericType> T encodeNumeric(String input, Class<T> type)
-            throws FrontException {
-        try {
-            BigInteger numericValue = new BigInteger(input);
-            return type.getConstructor(BigInteger.class).newInstance(numericValue);
-        } catch (NoSuchMethodException | SecurityException | InstantiationException
-                | IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-            log.error("encodeNumeric failed.");
-            throw new FrontException(ConstantCode.CONTRACT_TYPE_PARAM_ERROR.getCode(),
-                    String.format("unable to create instance of type:%s", type.getName()));
+    private static Map<String, TypeCodec> buildCodecMap() {
+        Map<String, TypeCodec> codecMap = new HashMap<>();
+        codecMap.put("address", new TypeCodec("address", Address.class, Address::new,
+                Object::toString));
+        codecMap.put("bool", new TypeCodec("bool", Bool.class,
+                input -> new Bool(Boolean.valueOf(input)), Type::getValue));
+        codecMap.put("string", new TypeCodec("string", Utf8String.class, Utf8String::new,
+                result -> result.getValue().toString()));
+        codecMap.put("bytes", new TypeCodec("bytes", DynamicBytes.class,
+                input -> new DynamicBytes(Numeric.hexStringToByteArray(input)),
+                result -> "0x" + Hex.encodeHexString((byte[]) result.getValue())));
+        for (int bitSize = 8; bitSize <= MAX_BIT_LENGTH; bitSize += 8) {
+            putNumericCodec(codecMap, "uint" + bitSize);
+            putNumericCodec(codecMap, "int" + bitSize);
+        }
+        for (int byteSize = 1; byteSize <= MAX_BYTE_LENGTH; byteSize++) {
+            putBytesCodec(codecMap, "bytes" + byteSize);
         }
+        return Collections.unmodifiableMap(codecMap);
     }
 
-    static <T extends Bytes> T encodeBytes(String input, Class<T> type) throws FrontException {
-        try {
+    private static void putNumericCodec(Map<String, TypeCodec> codecMap, String type) {
+        Class<? extends Type> typeClass = AbiTypes.getType(type);
+        MethodHandle constructor = findConstructor(typeClass, BigInteger.class);
+        codecMap.put(type, new TypeCodec(type, typeClass, input -> {
+            // invalid number is param error
+            BigInteger numericValue = new BigInteger(input);
+            try {
+                return (Type) constructor.invokeExact(numericValue);
+            } catch (Throwable e) {
+                log.error("encodeNumeric failed.");
+                throw new FrontException(ConstantCode.CONTRACT_TYPE_PARAM_ERROR.getCode(),
+                        String.format("unable to create instance of type:%s",
+                                typeClass.getName()));
+            }
+        }, Type::getValue));
+    }
+
+    private static void putBytesCodec(Map<String, TypeCodec> codecMap, String type) {
+        Class<? extends Type> typeClass = AbiTypes.getType(type);
+        MethodHandle constructor = findConstructor(typeClass, byte[].class);
+        codecMap.put(type, new TypeCodec(type, typeClass, input -> {
             byte[] bytes = Numeric.hexStringToByteArray(input);
-            return type.getConstructor(byte[].class).newInstance(bytes);
-        } catch (NoSuchMethodException | SecurityException | InstantiationException
-                | IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-            log.error("encodeBytes failed.", e);
-            throw new FrontException(ConstantCode.CONTRACT_TYPE_PARAM_ERROR.getCode(),
-                    String.format("unable to create instance of type:%s", type.getName()));
+            try {
+                return (Type) constructor.invokeExact(bytes);
+            } catch (Throwable e) {
+                log.error("encodeBytes failed.", e);
+                throw new FrontException(ConstantCode.CONTRACT_TYPE_PARAM_ERROR.getCode(),
+                        String.format("unable to create instance of type:%s",
+                                typeClass.getName()));
+            }
+        }, result -> decodeBytes((BytesType) result)));
+    }
+
+    /**
+     * constructor handle of type(param), typed as Type(param) to be invoked exactly
+     */
+    private static MethodHandle findConstructor(Class<?> typeClass, Class<?> paramClass) {
+        try {
+            return MethodHandles.publicLookup()
+                    .findConstructor(typeClass, MethodType.methodType(void.class, paramClass))
+                    .asType(MethodType.methodType(Type.class, paramClass));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException("no constructor of type:" + typeClass.getName(), e);
         }
     }
 
@@ -483,130 +541,4 @@ public class ContractTypeUtil {
         }
 
     }
-
-
-    /**
-     * parseByType.
-     * 
-     * @param type type
-     * @param value value
-     * @return
-     */
-    public static Object parseByType(String type, String value) throws FrontException {
-        try {
-            switch (type) {
-                case "address":
-                    return value;
-                case "bool":
-                    return Boolean.valueOf(value);
-                case "string":
-                    return value;
-                case "uint8":
-                case "int8":
-                case "uint16":
-                case "int16":
-                case "uint24":
-                case "int24":
-                case "uint32":
-                case "int32":
-                case "uint40":
-                case "int40":
-                case "uint48":
-                case "int48":
-                case "uint56":
-                case "int56":
-                case "uint64":
-                case "int64":
-                case "uint72":
-                case "int72":
-                case "uint80":
-                case "int80":
-                case "uint88":
-                case "int88":
-                case "uint96":
-                case "int96":
-                case "uint104":
-                case "int104":
-                case "uint112":
-                case "int112":
-                case "uint120":
-                case "int120":
-                case "uint128":
-                case "int128":
-                case "uint136":
-                case "int136":
-                case "uint144":
-                case "int144":
-                case "uint152":
-                case "int152":
-                case "uint160":
-                case "int160":
-                case "uint168":
-                case "int168":
-                case "uint176":
-                case "int176":
-                case "uint184":
-                case "int184":
-                case "uint192":
-                case "int192":
-                case "uint200":
-                case "int200":
-                case "uint208":
-                case "int208":
-                case "uint216":
-                case "int216":
-                case "uint224":
-                case "int224":
-                case "uint232":
-                case "int232":
-                case "uint240":
-                case "int240":
-                case "uint248":
-                case "int248":
-                case "uint256":
-                case "int256":
-                    return new BigInteger(value);
-                case "bytes1":
-                case "bytes2":
-                case "bytes3":
-                case "bytes4":
-                case "bytes5":
-                case "bytes6":
-                case "bytes7":
-                case "bytes8":
-                case "bytes9":
-                case "bytes10":
-                case "bytes11":
-                case "bytes12":
-                case "bytes13":
-                case "bytes14":
-                case "bytes15":
-                case "bytes16":
-                case "bytes17":
-                case "bytes18":
-                case "bytes19":
-                case "bytes20":
-                case "bytes21":
-                case "bytes22":
-                case "bytes23":
-                case "bytes24":
-                case "bytes25":
-                case "bytes26":
-                case "bytes27":
-                case "bytes28":
-                case "bytes29":
-                case "bytes30":
-                case "bytes31":
-                case "bytes32":
-                case "bytes":
-                    return value;
-                default:
-                    throw new FrontException(ConstantCode.CONTRACT_TYPE_ENCODED_ERROR.getCode(),
-                            String.format("type:%s unsupported encoding", type));
-            }
-        } catch (Exception e) {
-            log.error("parseByType failed type:{} value:{}", type, value);
-            throw new FrontException(ConstantCode.IN_FUNCPARAM_ERROR);
-        }
-    }
 }
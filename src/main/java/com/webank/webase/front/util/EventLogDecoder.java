@@ -0,0 +1,193 @@
+/*
+ * Copyright 2014-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.webank.webase.front.util;
+
+import com.webank.webase.front.util.ContractTypeUtil.TypeCodec;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.fisco.bcos.web3j.abi.EventEncoder;
+import org.fisco.bcos.web3j.abi.FunctionReturnDecoder;
+import org.fisco.bcos.web3j.abi.TypeReference;
+import org.fisco.bcos.web3j.abi.Utils;
+import org.fisco.bcos.web3j.abi.datatypes.Type;
+import org.fisco.bcos.web3j.protocol.core.methods.response.AbiDefinition;
+import org.fisco.bcos.web3j.protocol.core.methods.response.AbiDefinition.NamedType;
+import org.fisco.bcos.web3j.protocol.core.methods.response.Log;
+import org.fisco.bcos.web3j.tx.txdecode.EventResultEntity;
+import org.fisco.bcos.web3j.tx.txdecode.LogResult;
+
+/**
+ * decoder of event logs of one abi, used by receipt parse and contract event push.
+ * topic0 and type references of every event are computed once, logs are dispatched by topic0
+ */
+public class EventLogDecoder {
+
+    /**
+     * event of topic0 (signature hash)
+     */
+    private final Map<String, EventEntry> topicMap;
+
+    public EventLogDecoder(List<AbiDefinition> abiList) {
+        Map<String, EventEntry> eventMap = new HashMap<>();
+        for (AbiDefinition abiDefinition : abiList) {
+            if (!"event".equals(abiDefinition.getType())) {
+                continue;
+            }
+            EventEntry entry = new EventEntry(abiDefinition);
+            eventMap.put(entry.topic, entry);
+        }
+        this.topicMap = Collections.unmodifiableMap(eventMap);
+    }
+
+    /**
+     * decode all logs matching events of abi.
+     *
+     * @param logList logs of receipt
+     * @return event name to decoded values of each matched log, in order of logs
+     */
+    public Map<String, List<Object>> decode(List<Log> logList) {
+        Map<String, List<Object>> resultMap = new LinkedHashMap<>();
+        for (Log logInfo : logList) {
+            EventEntry entry = getEntry(logInfo);
+            if (entry == null) {
+                continue;
+            }
+            List<Object> values = entry.decode(logInfo);
+            if (values != null) {
+                resultMap.computeIfAbsent(entry.name, k -> new ArrayList<>()).add(values);
+            }
+        }
+        return resultMap;
+    }
+
+    /**
+     * decode one log with name, type and indexed of each param, as pushed to subscribers.
+     *
+     * @param logInfo log pushed
+     * @return null if log matches no event of abi
+     */
+    public LogResult decodeLogResult(Log logInfo) {
+        EventEntry entry = getEntry(logInfo);
+        if (entry == null) {
+            return null;
+        }
+        List<Object> values = entry.decode(logInfo);
+        if (values == null) {
+            return null;
+        }
+        List<EventResultEntity> logParams = new ArrayList<>(values.size());
+        for (int i = 0; i < values.size(); i++) {
+            NamedType input = entry.inputs.get(i);
+            logParams.add(new EventResultEntity(input.getName(), input.getType(),
+                    input.isIndexed(), values.get(i)));
+        }
+        LogResult logResult = new LogResult();
+        logResult.setLogParams(logParams);
+        logResult.setLog(logInfo);
+        return logResult;
+    }
+
+    private EventEntry getEntry(Log logInfo) {
+        List<String> topics = logInfo.getTopics();
+        if (topics == null || topics.isEmpty()) {
+            return null;
+        }
+        return topicMap.get(topics.get(0));
+    }
+
+    public int getEventCount() {
+        return topicMap.size();
+    }
+
+    /**
+     * precompiled event: signature hash, and how to decode indexed and non indexed params
+     */
+    private static final class EventEntry {
+        private final String name;
+        private final String topic;
+        private final List<NamedType> inputs;
+        private final List<String> nonIndexedTypes = new ArrayList<>();
+        private final List<TypeReference<Type>> nonIndexedRefs;
+        private final int indexedCount;
+
+        EventEntry(AbiDefinition abiDefinition) {
+            this.name = abiDefinition.getName();
+            this.inputs = abiDefinition.getInputs();
+            StringBuilder signature = new StringBuilder(name).append('(');
+            int indexed = 0;
+            for (int i = 0; i < inputs.size(); i++) {
+                NamedType input = inputs.get(i);
+                if (i > 0) {
+                    signature.append(',');
+                }
+                signature.append(input.getType());
+                if (input.isIndexed()) {
+                    indexed++;
+                } else {
+                    nonIndexedTypes.add(input.getType());
+                }
+            }
+            signature.append(')');
+            this.topic = EventEncoder.buildEventSignature(signature.toString());
+            this.indexedCount = indexed;
+            this.nonIndexedRefs = Utils.convert(AbiUtil.outputFormat(nonIndexedTypes));
+        }
+
+        /**
+         * decode values of log in order of event inputs, null if topics not match
+         */
+        @SuppressWarnings("unchecked")
+        List<Object> decode(Log logInfo) {
+            List<String> topics = logInfo.getTopics();
+            if (topics.size() != indexedCount + 1) {
+                return null;
+            }
+            List<Object> nonIndexedValues = Collections.emptyList();
+            if (!nonIndexedTypes.isEmpty()) {
+                List<Type> typeList = FunctionReturnDecoder.decode(logInfo.getData(),
+                        nonIndexedRefs);
+                nonIndexedValues = (List<Object>) AbiUtil.callResultParse(nonIndexedTypes,
+                        typeList);
+            }
+            List<Object> values = new ArrayList<>(inputs.size());
+            int topicIndex = 1;
+            int dataIndex = 0;
+            for (NamedType input : inputs) {
+                if (input.isIndexed()) {
+                    values.add(decodeIndexed(input.getType(), topics.get(topicIndex++)));
+                } else {
+                    values.add(nonIndexedValues.get(dataIndex++));
+                }
+            }
+            return values;
+        }
+
+        /**
+         * indexed param of dynamic type is stored as its hash, which is returned as it is
+         */
+        private static Object decodeIndexed(String type, String topic) {
+            if (type.contains("[") || "string".equals(type) || "bytes".equals(type)) {
+                return topic;
+            }
+            TypeCodec codec = ContractTypeUtil.getCodec(type);
+            Type value = FunctionReturnDecoder.decodeIndexedValue(topic,
+                    TypeReference.create(codec.getTypeClass()));
+            return AbiUtil.toJsonValue(codec.decode(value));
+        }
+    }
+}
@@ -192,6 +192,18 @@ public class JsonUtils {
         }
     }
 
+    /**
+     * @return null if failed
+     */
+    public static JsonNode toJsonNode(Object obj) {
+        try {
+            return OBJECT_MAPPER.get().valueToTree(obj);
+        } catch (IllegalArgumentException e) {
+            log.error("Parse Object to JsonNode error : {}", e.getMessage());
+            return null;
+        }
+    }
+
     public static <T> String objToString(T obj) {
         if (obj == null) {
             return null;
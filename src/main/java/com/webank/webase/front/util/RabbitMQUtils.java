@@ -17,7 +17,6 @@
 package com.webank.webase.front.util;
 
 import com.webank.webase.front.event.callback.ContractEventCallback;
-import com.webank.webase.front.event.entity.PublisherHelper;
 import org.fisco.bcos.channel.event.filter.EventLogUserParams;
 import org.fisco.bcos.channel.event.filter.TopicTools;
 import org.springframework.amqp.core.*;
@@ -36,11 +35,6 @@ public class RabbitMQUtils {
 
     public static final String ROUTING_KEY_EVENT = "event";
     public static final String ROUTING_KEY_BLOCK = "block";
-    /**
-     * map of (appId, "group_id,exchange_name,routing_key"), one app only needs one block notify
-     */
-    public static Map<String, PublisherHelper> BLOCK_ROUTING_KEY_MAP = new ConcurrentHashMap<>();
-
     /**
      * map of ("ContractEventInfo id", ContractEventCallback instance)
      */
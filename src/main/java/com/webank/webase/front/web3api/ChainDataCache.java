@@ -0,0 +1,257 @@
+/**
+ * Copyright 2014-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.webank.webase.front.web3api;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.webank.webase.front.base.properties.Constants;
+import com.webank.webase.front.base.response.CacheStat;
+import com.webank.webase.front.util.JsonUtils;
+import com.webank.webase.front.web3api.entity.ChainDataCacheStat;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import javax.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.fisco.bcos.web3j.protocol.core.methods.response.BcosBlock;
+import org.fisco.bcos.web3j.protocol.core.methods.response.BcosBlock.TransactionResult;
+import org.fisco.bcos.web3j.protocol.core.methods.response.Transaction;
+import org.fisco.bcos.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * committed block, transaction and receipt never change, keep recent ones read from node.
+ * bounded by estimated bytes (length of json) of all entries,
+ * block is indexed by number and hash, and transaction count of block is kept with it.
+ * value not found (null) is not cached, such as receipt of pending transaction
+ */
+@Slf4j
+@Component
+public class ChainDataCache {
+
+    private static final String BLOCK_PREFIX = "b_";
+    private static final String TRANS_PREFIX = "t_";
+    private static final String RECEIPT_PREFIX = "r_";
+    private static final int BLOCK_HASH_INDEX_SIZE = 100000;
+    private static final int DEFAULT_WEIGHT = 1024;
+
+    @Autowired
+    private Constants constants;
+
+    private Cache<String, Entry> dataCache;
+    /**
+     * groupId_blockHash to block number
+     */
+    private Cache<String, BigInteger> blockHashIndex;
+    private final AtomicLong weightBytes = new AtomicLong();
+    private final AtomicLong blockHit = new AtomicLong();
+    private final AtomicLong blockMiss = new AtomicLong();
+    private final AtomicLong transHit = new AtomicLong();
+    private final AtomicLong transMiss = new AtomicLong();
+    private final AtomicLong receiptHit = new AtomicLong();
+    private final AtomicLong receiptMiss = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        log.info("init ChainDataCache maxBytes:{}", constants.getChainDataCacheMaxBytes());
+        RemovalListener<String, Entry> removalListener =
+            notification -> weightBytes.addAndGet(-notification.getValue().weight);
+        dataCache = CacheBuilder.newBuilder()
+            .maximumWeight(constants.getChainDataCacheMaxBytes())
+            .weigher((String key, Entry entry) -> entry.weight)
+            .removalListener(removalListener)
+            .recordStats()
+            .build();
+        blockHashIndex = CacheBuilder.newBuilder()
+            .maximumSize(BLOCK_HASH_INDEX_SIZE)
+            .build();
+    }
+
+    /**
+     * get block by number, load and cache it if missed.
+     *
+     * @param loader block from node, null if not found
+     */
+    public BcosBlock.Block getBlockByNumber(int groupId, BigInteger blockNumber,
+            Supplier<BcosBlock.Block> loader) {
+        Entry entry = getBlockEntry(groupId, blockNumber, loader);
+        return entry == null ? null : (BcosBlock.Block) entry.value;
+    }
+
+    /**
+     * get block by hash, load and cache it if missed.
+     *
+     * @param loader block from node, null if not found
+     */
+    public BcosBlock.Block getBlockByHash(int groupId, String blockHash,
+            Supplier<BcosBlock.Block> loader) {
+        BigInteger blockNumber = blockHashIndex.getIfPresent(hashKey(groupId, blockHash));
+        if (blockNumber != null) {
+            Entry entry = dataCache.getIfPresent(BLOCK_PREFIX + groupId + "_" + blockNumber);
+            if (entry != null) {
+                blockHit.incrementAndGet();
+                return (BcosBlock.Block) entry.value;
+            }
+        }
+        blockMiss.incrementAndGet();
+        BcosBlock.Block block = loader.get();
+        if (block != null) {
+            putBlock(groupId, block);
+        }
+        return block;
+    }
+
+    /**
+     * count of transactions in block, kept with the block.
+     *
+     * @param loader block from node, null if not found
+     * @return null if block not found
+     */
+    public Integer getBlockTransCnt(int groupId, BigInteger blockNumber,
+            Supplier<BcosBlock.Block> loader) {
+        Entry entry = getBlockEntry(groupId, blockNumber, loader);
+        return entry == null ? null : entry.transCnt;
+    }
+
+    /**
+     * get transaction of cached block by index without loading.
+     *
+     * @return null if block not cached or index out of range
+     */
+    public Transaction getTransByBlockNumberAndIndex(int groupId, BigInteger blockNumber,
+            BigInteger transactionIndex) {
+        Entry entry = dataCache.getIfPresent(BLOCK_PREFIX + groupId + "_" + blockNumber);
+        if (entry == null) {
+            return null;
+        }
+        List<TransactionResult> transactions = ((BcosBlock.Block) entry.value).getTransactions();
+        if (transactions == null || transactionIndex.signum() < 0
+                || transactionIndex.compareTo(BigInteger.valueOf(transactions.size())) >= 0) {
+            return null;
+        }
+        Object transaction = transactions.get(transactionIndex.intValue());
+        return transaction instanceof Transaction ? (Transaction) transaction : null;
+    }
+
+    /**
+     * get transaction by hash, load and cache it if missed.
+     * transaction not in block yet is not cached.
+     *
+     * @param loader transaction from node, null if not found
+     */
+    public Transaction getTransaction(int groupId, String transHash,
+            Supplier<Transaction> loader) {
+        String key = TRANS_PREFIX + hashKey(groupId, transHash);
+        Entry entry = dataCache.getIfPresent(key);
+        if (entry != null) {
+            transHit.incrementAndGet();
+            return (Transaction) entry.value;
+        }
+        transMiss.incrementAndGet();
+        Transaction transaction = loader.get();
+        if (transaction != null && transaction.getBlockNumberRaw() != null) {
+            put(key, transaction, 0);
+        }
+        return transaction;
+    }
+
+    /**
+     * get receipt by transaction hash, load and cache it if missed.
+     *
+     * @param loader receipt from node, null if not found
+     */
+    public TransactionReceipt getTransactionReceipt(int groupId, String transHash,
+            Supplier<TransactionReceipt> loader) {
+        String key = RECEIPT_PREFIX + hashKey(groupId, transHash);
+        Entry entry = dataCache.getIfPresent(key);
+        if (entry != null) {
+            receiptHit.incrementAndGet();
+            return (TransactionReceipt) entry.value;
+        }
+        receiptMiss.incrementAndGet();
+        TransactionReceipt receipt = loader.get();
+        if (receipt != null && receipt.getBlockNumberRaw() != null) {
+            put(key, receipt, 0);
+        }
+        return receipt;
+    }
+
+    public ChainDataCacheStat getStat() {
+        ChainDataCacheStat stat = new ChainDataCacheStat();
+        stat.setMaxBytes(constants.getChainDataCacheMaxBytes());
+        stat.setWeightBytes(weightBytes.get());
+        stat.setCacheStat(new CacheStat(dataCache.size(), dataCache.stats()));
+        stat.setBlockHit(blockHit.get());
+        stat.setBlockMiss(blockMiss.get());
+        stat.setTransHit(transHit.get());
+        stat.setTransMiss(transMiss.get());
+        stat.setReceiptHit(receiptHit.get());
+        stat.setReceiptMiss(receiptMiss.get());
+        return stat;
+    }
+
+    private Entry getBlockEntry(int groupId, BigInteger blockNumber,
+            Supplier<BcosBlock.Block> loader) {
+        Entry entry = dataCache.getIfPresent(BLOCK_PREFIX + groupId + "_" + blockNumber);
+        if (entry != null) {
+            blockHit.incrementAndGet();
+            return entry;
+        }
+        blockMiss.incrementAndGet();
+        BcosBlock.Block block = loader.get();
+        return block == null ? null : putBlock(groupId, block);
+    }
+
+    private Entry putBlock(int groupId, BcosBlock.Block block) {
+        int transCnt = block.getTransactions() == null ? 0 : block.getTransactions().size();
+        if (block.getNumberRaw() == null) {
+            return new Entry(block, 0, transCnt);
+        }
+        Entry entry = put(BLOCK_PREFIX + groupId + "_" + block.getNumber(), block, transCnt);
+        if (block.getHash() != null) {
+            blockHashIndex.put(hashKey(groupId, block.getHash()), block.getNumber());
+        }
+        return entry;
+    }
+
+    private Entry put(String key, Object value, int transCnt) {
+        String json = JsonUtils.toJSONString(value);
+        Entry entry = new Entry(value, json == null ? DEFAULT_WEIGHT : json.length(), transCnt);
+        weightBytes.addAndGet(entry.weight);
+        dataCache.put(key, entry);
+        return entry;
+    }
+
+    private static String hashKey(int groupId, String hash) {
+        return groupId + "_" + hash.toLowerCase();
+    }
+
+    /**
+     * cached value with its estimated bytes
+     */
+    private static final class Entry {
+        private final Object value;
+        private final int weight;
+        private final int transCnt;
+
+        Entry(Object value, int weight, int transCnt) {
+            this.value = value;
+            this.weight = weight;
+            this.transCnt = transCnt;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/**
+ * Copyright 2014-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.webank.webase.front.web3api;
+
+import com.webank.webase.front.base.code.ConstantCode;
+import com.webank.webase.front.base.exception.FrontException;
+import com.webank.webase.front.base.properties.Constants;
+import com.webank.webase.front.web3api.entity.ChainHead;
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.extern.slf4j.Slf4j;
+import org.fisco.bcos.web3j.protocol.Web3j;
+import org.fisco.bcos.web3j.protocol.core.methods.response.BlockNumber;
+import org.fisco.bcos.web3j.protocol.core.methods.response.PbftView;
+import org.fisco.bcos.web3j.protocol.core.methods.response.PendingTxSize;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * block height, pbft view and pending size of each group, read by services instead of
+ * their own rpc. block height is pushed by block notify, and all of them are refreshed
+ * from node every chainHeadRefreshFixedDelay. snapshot not refreshed for
+ * chainHeadMaxStaleTime is not served
+ */
+@Slf4j
+@Component
+public class ChainHeadTracker {
+
+    @Autowired
+    private Map<Integer, Web3j> web3jMap;
+    @Autowired
+    private Constants constants;
+
+    private final Map<Integer, AtomicReference<ChainHead>> headMap = new ConcurrentHashMap<>();
+
+    /**
+     * raise block height of group on block notify
+     */
+    public void onBlockNotify(int groupId, BigInteger blockNumber) {
+        AtomicReference<ChainHead> ref = headMap.get(groupId);
+        if (ref == null) {
+            // view and pending size unknown until refreshed
+            return;
+        }
+        ref.getAndUpdate(head -> blockNumber.compareTo(head.getBlockNumber()) > 0
+            ? head.withBlockNumber(blockNumber) : head);
+    }
+
+    /**
+     * refresh all groups from node, requests of groups are sent concurrently
+     */
+    @Scheduled(fixedDelayString = "${constant.chainHeadRefreshFixedDelay}")
+    public void refresh() {
+        Map<Integer, CompletableFuture<ChainHead>> futureMap = new HashMap<>();
+        for (Map.Entry<Integer, Web3j> entry : web3jMap.entrySet()) {
+            futureMap.put(entry.getKey(), request(entry.getKey(), entry.getValue()));
+        }
+        futureMap.forEach((groupId, future) -> {
+            try {
+                await(future);
+            } catch (FrontException e) {
+                log.warn("refresh chain head of group:{} failed", groupId);
+            }
+        });
+    }
+
+    /**
+     * latest snapshot of group, refreshed from node if absent or stale.
+     *
+     * @return null if group not exists
+     */
+    public ChainHead getHead(int groupId) {
+        AtomicReference<ChainHead> ref = headMap.get(groupId);
+        ChainHead head = ref == null ? null : ref.get();
+        if (head != null && !isStale(head)) {
+            return head;
+        }
+        Web3j web3j = web3jMap.get(groupId);
+        if (web3j == null) {
+            return null;
+        }
+        return await(request(groupId, web3j));
+    }
+
+    /**
+     * latest snapshot of group without refreshing, may be stale
+     *
+     * @return null if never refreshed
+     */
+    public ChainHead getSnapshot(int groupId) {
+        AtomicReference<ChainHead> ref = headMap.get(groupId);
+        return ref == null ? null : ref.get();
+    }
+
+    public boolean isStale(ChainHead head) {
+        return System.currentTimeMillis() - head.getRefreshTime()
+            > constants.getChainHeadMaxStaleTime();
+    }
+
+    private CompletableFuture<ChainHead> request(int groupId, Web3j web3j) {
+        CompletableFuture<BlockNumber> blockNumberFuture = web3j.getBlockNumber().sendAsync();
+        CompletableFuture<PbftView> pbftViewFuture = web3j.getPbftView().sendAsync();
+        CompletableFuture<PendingTxSize> pendingTxSizeFuture = web3j.getPendingTxSize().sendAsync();
+        return CompletableFuture.allOf(blockNumberFuture, pbftViewFuture, pendingTxSizeFuture)
+            .thenApply(v -> update(groupId, new ChainHead(groupId,
+                blockNumberFuture.join().getBlockNumber(), pbftViewFuture.join().getPbftView(),
+                pendingTxSizeFuture.join().getPendingTxSize(), System.currentTimeMillis())));
+    }
+
+    /**
+     * replace snapshot, keep higher block height notified during the request
+     */
+    private ChainHead update(int groupId, ChainHead refreshed) {
+        return headMap.computeIfAbsent(groupId, k -> new AtomicReference<>(refreshed))
+            .updateAndGet(head -> head == refreshed
+                || refreshed.getBlockNumber().compareTo(head.getBlockNumber()) >= 0
+                ? refreshed : refreshed.withBlockNumber(head.getBlockNumber()));
+    }
+
+    private ChainHead await(CompletableFuture<ChainHead> future) {
+        try {
+            return future.get(constants.getChainHeadRefreshTimeout(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FrontException(ConstantCode.NODE_REQUEST_FAILED);
+        } catch (ExecutionException | TimeoutException e) {
+            log.error("request chain head failed.", e);
+            throw new FrontException(ConstantCode.NODE_REQUEST_FAILED);
+        }
+    }
+}
@@ -0,0 +1,304 @@
+/**
+ * Copyright 2014-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.webank.webase.front.web3api;
+
+import com.webank.webase.front.base.code.ConstantCode;
+import com.webank.webase.front.base.enums.DataStatus;
+import com.webank.webase.front.base.exception.FrontException;
+import com.webank.webase.front.base.properties.Constants;
+import com.webank.webase.front.util.JsonUtils;
+import com.webank.webase.front.web3api.entity.NodeStatusInfo;
+import com.webank.webase.front.web3api.entity.NodeStatusSnapshot;
+import com.webank.webase.front.web3api.entity.PeerOfConsensusStatus;
+import com.webank.webase.front.web3api.entity.PeerOfSyncStatus;
+import com.webank.webase.front.web3api.entity.SyncStatus;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.fisco.bcos.web3j.protocol.Web3j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+/**
+ * node status of each group, refreshed in background every nodeStatusRefreshFixedDelay.
+ * group peers, observer list, sync status and consensus status are requested in parallel,
+ * and status list is published as an immutable snapshot. requests of the same group
+ * share one refresh in flight
+ */
+@Slf4j
+@Component
+public class NodeStatusAggregator {
+
+    private static final long CHECK_NODE_WAIT_MIN_MILLIS = 5000L;
+
+    @Autowired
+    private Map<Integer, Web3j> web3jMap;
+    @Autowired
+    private Constants constants;
+    @Autowired
+    @Qualifier(value = "nodeStatusThreadPool")
+    private ThreadPoolTaskExecutor nodeStatusThreadPool;
+
+    private final Map<Integer, NodeStatusSnapshot> snapshotMap = new ConcurrentHashMap<>();
+    private final Map<Integer, CompletableFuture<NodeStatusSnapshot>> refreshingMap =
+        new ConcurrentHashMap<>();
+
+    @Scheduled(fixedDelayString = "${constant.nodeStatusRefreshFixedDelay}")
+    public void refresh() {
+        Map<Integer, CompletableFuture<NodeStatusSnapshot>> futureMap = new HashMap<>();
+        for (Map.Entry<Integer, Web3j> entry : web3jMap.entrySet()) {
+            futureMap.put(entry.getKey(), refreshAsync(entry.getKey(), entry.getValue()));
+        }
+        futureMap.forEach((groupId, future) -> {
+            try {
+                await(future);
+            } catch (FrontException e) {
+                log.warn("refresh node status of group:{} failed", groupId);
+            }
+        });
+    }
+
+    /**
+     * status of nodes in group with age of snapshot, refreshed if absent or stale.
+     *
+     * @return empty if group not exists or no peer
+     */
+    public List<NodeStatusInfo> getNodeStatusList(int groupId) {
+        NodeStatusSnapshot snapshot = getSnapshot(groupId);
+        if (snapshot == null) {
+            return Collections.emptyList();
+        }
+        long age = snapshot.getAge();
+        return snapshot.getNodeStatusList().stream()
+            .map(info -> new NodeStatusInfo(info.getNodeId(), info.getBlockNumber(),
+                info.getPbftView(), info.getStatus(), info.getLatestStatusUpdateTime(), age))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * latest snapshot of group, refreshed if absent or stale.
+     *
+     * @return null if group not exists
+     */
+    public NodeStatusSnapshot getSnapshot(int groupId) {
+        NodeStatusSnapshot snapshot = snapshotMap.get(groupId);
+        if (snapshot != null && snapshot.getAge() <= constants.getNodeStatusMaxStaleTime()) {
+            return snapshot;
+        }
+        Web3j web3j = web3jMap.get(groupId);
+        if (web3j == null) {
+            return null;
+        }
+        return await(refreshAsync(groupId, web3j));
+    }
+
+    private CompletableFuture<NodeStatusSnapshot> refreshAsync(int groupId, Web3j web3j) {
+        CompletableFuture<NodeStatusSnapshot> refreshing = new CompletableFuture<>();
+        CompletableFuture<NodeStatusSnapshot> existing =
+            refreshingMap.putIfAbsent(groupId, refreshing);
+        if (existing != null) {
+            return existing;
+        }
+        CompletableFuture<List<String>> peersFuture = supply(
+            () -> web3j.getGroupPeers().send().getGroupPeers());
+        CompletableFuture<List<String>> observersFuture = supply(
+            () -> web3j.getObserverList().send().getObserverList());
+        CompletableFuture<SyncStatus> syncStatusFuture = supply(
+            () -> JsonUtils.toJavaObject(web3j.getSyncStatus().sendForReturnString(),
+                SyncStatus.class));
+        CompletableFuture<List<PeerOfConsensusStatus>> consensusFuture = supply(
+            () -> parseConsensusStatus(web3j.getConsensusStatus().sendForReturnString()));
+        CompletableFuture.allOf(peersFuture, observersFuture, syncStatusFuture, consensusFuture)
+            .thenApply(v -> build(groupId, snapshotMap.get(groupId), peersFuture.join(),
+                observersFuture.join(), syncStatusFuture.join(), consensusFuture.join()))
+            .whenComplete((snapshot, e) -> {
+                refreshingMap.remove(groupId, refreshing);
+                if (e != null) {
+                    refreshing.completeExceptionally(e);
+                    return;
+                }
+                snapshotMap.put(groupId, snapshot);
+                refreshing.complete(snapshot);
+            });
+        return refreshing;
+    }
+
+    /**
+     * status of each peer compared with the previous snapshot
+     */
+    static NodeStatusSnapshot build(int groupId, NodeStatusSnapshot previous,
+            List<String> peerStrList, List<String> observerList, SyncStatus syncStatus,
+            List<PeerOfConsensusStatus> consensusList) {
+        long refreshTime = System.currentTimeMillis();
+        if (peerStrList == null || peerStrList.isEmpty() || consensusList == null) {
+            log.info("build node status. peerStrList of group:{} is empty", groupId);
+            return new NodeStatusSnapshot(groupId, Collections.emptyList(), refreshTime);
+        }
+        Map<String, NodeStatusInfo> previousMap = new HashMap<>();
+        if (previous != null) {
+            previous.getNodeStatusList().forEach(info -> previousMap.put(info.getNodeId(), info));
+        }
+        Set<String> observerSet = observerList == null ? Collections.emptySet()
+            : new HashSet<>(observerList);
+        Map<String, BigInteger> viewMap = new HashMap<>();
+        consensusList.forEach(c -> viewMap.putIfAbsent(c.getNodeId(), c.getView()));
+        Map<String, BigInteger> blockNumberMap = getBlockNumberOfNodes(syncStatus);
+        BigInteger localBlockNumber = syncStatus == null ? null : syncStatus.getBlockNumber();
+
+        List<NodeStatusInfo> statusList = new ArrayList<>(peerStrList.size());
+        for (String peer : peerStrList) {
+            // 0-consensus;1-observer
+            int nodeType = observerSet.contains(peer) ? 1 : 0;
+            BigInteger blockNumberOnChain = blockNumberMap.getOrDefault(peer, BigInteger.ZERO);
+            BigInteger latestView = viewMap.getOrDefault(peer, BigInteger.ZERO);
+            statusList.add(checkNodeStatus(previousMap.get(peer), peer, blockNumberOnChain,
+                latestView, nodeType, localBlockNumber));
+        }
+        return new NodeStatusSnapshot(groupId, Collections.unmodifiableList(statusList),
+            refreshTime);
+    }
+
+    /**
+     * check node status, consensus node is invalid if neither block nor view moves,
+     * observer is invalid if behind local node.
+     * new status is created instead of changing the previous one
+     */
+    private static NodeStatusInfo checkNodeStatus(NodeStatusInfo localNodeStatus, String nodeId,
+            BigInteger chainBlockNumber, BigInteger chainView, int nodeType,
+            BigInteger localBlockNumberOfGroup) {
+        LocalDateTime now = LocalDateTime.now();
+        if (localNodeStatus == null) {
+            return new NodeStatusInfo(nodeId, chainBlockNumber, chainView,
+                DataStatus.NORMAL.getValue(), now);
+        }
+        long subTime = Duration.between(localNodeStatus.getLatestStatusUpdateTime(), now)
+            .toMillis();
+        if (subTime < CHECK_NODE_WAIT_MIN_MILLIS) {
+            log.debug("checkNodeStatus jump over. nodeId:{} subTime:{}", nodeId, subTime);
+            return localNodeStatus;
+        }
+        BigInteger localBlockNumber = localNodeStatus.getBlockNumber();
+        BigInteger localPbftView = localNodeStatus.getPbftView();
+        boolean invalid;
+        if (nodeType == 0) {
+            invalid = localBlockNumber.equals(chainBlockNumber) && localPbftView.equals(chainView);
+        } else {
+            invalid = !chainBlockNumber.equals(localBlockNumberOfGroup);
+        }
+        if (invalid) {
+            log.warn("node[{}] is invalid. localNumber:{} chainNumber:{} localView:{} chainView:{}",
+                nodeId, localBlockNumber, chainBlockNumber, localPbftView, chainView);
+            return new NodeStatusInfo(nodeId, localBlockNumber, localPbftView,
+                DataStatus.INVALID.getValue(), now);
+        }
+        return new NodeStatusInfo(nodeId, chainBlockNumber, chainView,
+            DataStatus.NORMAL.getValue(), now);
+    }
+
+    /**
+     * latest number of local node and its peers on chain
+     */
+    private static Map<String, BigInteger> getBlockNumberOfNodes(SyncStatus syncStatus) {
+        Map<String, BigInteger> blockNumberMap = new HashMap<>();
+        if (Objects.isNull(syncStatus)) {
+            log.warn("fail getBlockNumberOfNodes. SyncStatus is null");
+            return blockNumberMap;
+        }
+        if (syncStatus.getPeers() != null) {
+            for (PeerOfSyncStatus peer : syncStatus.getPeers()) {
+                if (StringUtils.isNotBlank(peer.getNodeId()) && peer.getBlockNumber() != null) {
+                    blockNumberMap.putIfAbsent(peer.getNodeId(), peer.getBlockNumber());
+                }
+            }
+        }
+        if (StringUtils.isNotBlank(syncStatus.getNodeId()) && syncStatus.getBlockNumber() != null) {
+            blockNumberMap.put(syncStatus.getNodeId(), syncStatus.getBlockNumber());
+        }
+        return blockNumberMap;
+    }
+
+    /**
+     * get peer of consensusStatus
+     */
+    static List<PeerOfConsensusStatus> parseConsensusStatus(String consensusStatusJson) {
+        if (StringUtils.isBlank(consensusStatusJson)) {
+            return Collections.emptyList();
+        }
+        List jsonArr = JsonUtils.toJavaObject(consensusStatusJson, List.class);
+        if (jsonArr == null) {
+            log.error("parseConsensusStatus error");
+            throw new FrontException(ConstantCode.FAIL_PARSE_JSON);
+        }
+        List<PeerOfConsensusStatus> dataIsList = new ArrayList<>();
+        for (Object item : jsonArr) {
+            if (item instanceof List) {
+                List<PeerOfConsensusStatus> tempList = JsonUtils.toJavaObjectList(
+                    JsonUtils.toJSONString(item), PeerOfConsensusStatus.class);
+                if (tempList == null) {
+                    throw new FrontException(ConstantCode.FAIL_PARSE_JSON);
+                }
+                dataIsList.addAll(tempList);
+            }
+        }
+        return dataIsList;
+    }
+
+    private <T> CompletableFuture<T> supply(NodeRequest<T> request) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return request.send();
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, nodeStatusThreadPool);
+    }
+
+    private NodeStatusSnapshot await(CompletableFuture<NodeStatusSnapshot> future) {
+        try {
+            return future.get(constants.getNodeStatusRefreshTimeout(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FrontException(ConstantCode.NODE_REQUEST_FAILED);
+        } catch (ExecutionException | TimeoutException e) {
+            log.error("request node status failed.", e);
+            throw new FrontException(ConstantCode.NODE_REQUEST_FAILED);
+        }
+    }
+
+    @FunctionalInterface
+    private interface NodeRequest<T> {
+        T send() throws IOException;
+    }
+}
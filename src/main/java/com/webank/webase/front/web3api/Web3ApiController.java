@@ -17,6 +17,8 @@ import com.webank.webase.front.base.code.ConstantCode;
 import com.webank.webase.front.base.exception.FrontException;
 import com.webank.webase.front.base.response.BaseResponse;
 import com.webank.webase.front.util.Address;
+import com.webank.webase.front.web3api.entity.ChainDataCacheStat;
+import com.webank.webase.front.web3api.entity.ChainHead;
 import com.webank.webase.front.web3api.entity.GenerateGroupInfo;
 import com.webank.webase.front.web3api.entity.NodeStatusInfo;
 import com.webank.webase.front.web3api.entity.ReqGroupStatus;
@@ -55,6 +57,10 @@ public class Web3ApiController {
 
     @Autowired
     Web3ApiService web3ApiService;
+    @Autowired
+    ChainDataCache chainDataCache;
+    @Autowired
+    ChainHeadTracker chainHeadTracker;
 
     @ApiOperation(value = "getBlockNumber", notes = "Get the latest block height of the node")
     @GetMapping("/blockNumber")
@@ -320,4 +326,18 @@ public class Web3ApiController {
         return web3ApiService.getBlockHeaderByNumber(groupId, blockNumber, true);
     }
 
+    @ApiOperation(value = "getChainHead",
+        notes = "Get snapshot of block height, pbft view and pending size of group")
+    @GetMapping("/chainHead")
+    public ChainHead getChainHead(@PathVariable int groupId) {
+        return chainHeadTracker.getHead(groupId);
+    }
+
+    @ApiOperation(value = "getChainDataCacheStat",
+        notes = "Get hit and miss of block, transaction and receipt cache of all groups")
+    @GetMapping("/cacheStat")
+    public ChainDataCacheStat getChainDataCacheStat(@PathVariable int groupId) {
+        return chainDataCache.getStat();
+    }
+
 }
@@ -16,23 +16,18 @@ package com.webank.webase.front.web3api;
 import com.webank.webase.front.base.code.ConstantCode;
 import com.webank.webase.front.base.config.NodeConfig;
 import com.webank.webase.front.base.config.Web3Config;
-import com.webank.webase.front.base.enums.DataStatus;
 import com.webank.webase.front.base.exception.FrontException;
 import com.webank.webase.front.base.properties.Constants;
 import com.webank.webase.front.base.response.BaseResponse;
 import com.webank.webase.front.event.callback.NewBlockEventCallback;
 import com.webank.webase.front.util.CommonUtils;
 import com.webank.webase.front.util.JsonUtils;
+import com.webank.webase.front.web3api.entity.ChainHead;
 import com.webank.webase.front.web3api.entity.GenerateGroupInfo;
 import com.webank.webase.front.web3api.entity.GroupOperateStatus;
 import com.webank.webase.front.web3api.entity.NodeStatusInfo;
-import com.webank.webase.front.web3api.entity.PeerOfConsensusStatus;
-import com.webank.webase.front.web3api.entity.PeerOfSyncStatus;
-import com.webank.webase.front.web3api.entity.SyncStatus;
 import java.io.IOException;
 import java.math.BigInteger;
-import java.time.Duration;
-import java.time.LocalDateTime;
 import java.util.*;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
@@ -50,6 +45,7 @@ import org.fisco.bcos.web3j.protocol.core.methods.response.TotalTransactionCount
 import org.fisco.bcos.web3j.protocol.core.methods.response.Transaction;
 import org.fisco.bcos.web3j.protocol.core.methods.response.TransactionReceipt;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.DependsOn;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
@@ -68,6 +64,7 @@ public class Web3ApiService {
     @Autowired
     GroupChannelConnectionsConfig groupChannelConnectionsConfig;
     @Autowired
+    @Qualifier(value = "sdkThreadPool")
     ThreadPoolTaskExecutor threadPoolTaskExecutor;
     @Autowired
     Constants constants;
@@ -79,16 +76,23 @@ public class Web3ApiService {
     Map<Integer, org.fisco.bcos.channel.client.Service> serviceMap;
     @Autowired
     NewBlockEventCallback newBlockEventCallback;
+    @Autowired
+    ChainDataCache chainDataCache;
+    @Autowired
+    ChainHeadTracker chainHeadTracker;
+    @Autowired
+    NodeStatusAggregator nodeStatusAggregator;
 
-    private static Map<Integer, List<NodeStatusInfo>> nodeStatusMap = new HashMap<>();
-    private static final Long CHECK_NODE_WAIT_MIN_MILLIS = 5000L;
     private static final int HASH_OF_TRANSACTION_LENGTH = 66;
 
     /**
      * getBlockNumber.
      */
     public BigInteger getBlockNumber(int groupId) {
-
+        ChainHead chainHead = chainHeadTracker.getHead(groupId);
+        if (chainHead != null) {
+            return chainHead.getBlockNumber();
+        }
         BigInteger blockNumber;
         try {
             blockNumber = getWeb3j(groupId).getBlockNumber().send().getBlockNumber();
@@ -105,6 +109,11 @@ public class Web3ApiService {
      * @param blockNumber blockNumber
      */
     public BcosBlock.Block getBlockByNumber(int groupId, BigInteger blockNumber) {
+        return chainDataCache.getBlockByNumber(groupId, blockNumber,
+                () -> fetchBlockByNumber(groupId, blockNumber));
+    }
+
+    private BcosBlock.Block fetchBlockByNumber(int groupId, BigInteger blockNumber) {
         if (blockNumberCheck(groupId, blockNumber)) {
             throw new FrontException(ConstantCode.BLOCK_NUMBER_ERROR);
         }
@@ -128,6 +137,11 @@ public class Web3ApiService {
      * @param blockHash blockHash
      */
     public BcosBlock.Block getBlockByHash(int groupId, String blockHash) {
+        return chainDataCache.getBlockByHash(groupId, blockHash,
+                () -> fetchBlockByHash(groupId, blockHash));
+    }
+
+    private BcosBlock.Block fetchBlockByHash(int groupId, String blockHash) {
         BcosBlock.Block block;
         try {
 
@@ -147,17 +161,9 @@ public class Web3ApiService {
      * @param blockNumber blockNumber
      */
     public int getBlockTransCntByNumber(int groupId, BigInteger blockNumber) {
-        int transCnt;
-        try {
-            if (blockNumberCheck(groupId, blockNumber)) {
-                throw new FrontException("ConstantCode.NODE_REQUEST_FAILED");
-            }
-            BcosBlock.Block block = getWeb3j(groupId)
-                    .getBlockByNumber(DefaultBlockParameter.valueOf(blockNumber), true)
-                    .send()
-                    .getBlock();
-            transCnt = block.getTransactions().size();
-        } catch (IOException e) {
+        Integer transCnt = chainDataCache.getBlockTransCnt(groupId, blockNumber,
+                () -> fetchBlockByNumber(groupId, blockNumber));
+        if (transCnt == null) {
             log.error("getBlockTransCntByNumber fail. blockNumber:{} ", blockNumber);
             throw new FrontException(ConstantCode.NODE_REQUEST_FAILED);
         }
@@ -185,7 +191,11 @@ public class Web3ApiService {
      * @param transHash transHash
      */
     public TransactionReceipt getTransactionReceipt(int groupId, String transHash) {
+        return chainDataCache.getTransactionReceipt(groupId, transHash,
+                () -> fetchTransactionReceipt(groupId, transHash));
+    }
 
+    private TransactionReceipt fetchTransactionReceipt(int groupId, String transHash) {
         TransactionReceipt transactionReceipt = null;
         try {
             Optional<TransactionReceipt> opt = getWeb3j(groupId)
@@ -206,7 +216,11 @@ public class Web3ApiService {
      * @param transHash transHash
      */
     public Transaction getTransactionByHash(int groupId, String transHash) {
+        return chainDataCache.getTransaction(groupId, transHash,
+                () -> fetchTransactionByHash(groupId, transHash));
+    }
 
+    private Transaction fetchTransactionByHash(int groupId, String transHash) {
         Transaction transaction = null;
         try {
             Optional<Transaction> opt =
@@ -304,7 +318,11 @@ public class Web3ApiService {
      */
     public Transaction getTransByBlockNumberAndIndex(int groupId, BigInteger blockNumber,
                                                      BigInteger transactionIndex) {
-        Transaction transaction = null;
+        Transaction transaction = chainDataCache.getTransByBlockNumberAndIndex(groupId,
+                blockNumber, transactionIndex);
+        if (transaction != null) {
+            return transaction;
+        }
         try {
             if (blockNumberCheck(groupId, blockNumber)) {
                 throw new FrontException("ConstantCode.NODE_REQUEST_FAILED");
@@ -325,6 +343,11 @@ public class Web3ApiService {
     }
 
     private boolean blockNumberCheck(int groupId, BigInteger blockNumber) {
+        // no rpc unless the block is higher than known head
+        ChainHead chainHead = chainHeadTracker.getSnapshot(groupId);
+        if (chainHead != null && blockNumber.compareTo(chainHead.getBlockNumber()) <= 0) {
+            return false;
+        }
         BigInteger currentNumber = null;
         try {
             currentNumber = getWeb3j(groupId).getBlockNumber().send().getBlockNumber();
@@ -338,158 +361,15 @@ public class Web3ApiService {
 
 
     /**
-     * nodeHeartBeat.
+     * nodeHeartBeat, served from snapshot refreshed in background.
      */
     public List<NodeStatusInfo> getNodeStatusList(int groupId) {
-        log.info("start getNodeStatusList. groupId:{}", groupId);
-        try {
-            List<NodeStatusInfo> statusList = new ArrayList<>();
-            List<String> peerStrList = getGroupPeers(groupId);
-            List<String> observerList = getObserverList(groupId);
-            SyncStatus syncStatus = JsonUtils.toJavaObject(getSyncStatus(groupId), SyncStatus.class);
-            List<PeerOfConsensusStatus> consensusList = getPeerOfConsensusStatus(groupId);
-            if (Objects.isNull(peerStrList) || peerStrList.isEmpty() || consensusList == null) {
-                log.info("end getNodeStatusList. peerStrList is empty");
-                return Collections.emptyList();
-            }
-            for (String peer : peerStrList) {
-                int nodeType = 0; // 0-consensus;1-observer
-                if (observerList != null) {
-                    nodeType = observerList.stream().filter(observer -> peer.equals(observer))
-                            .map(c -> 1).findFirst().orElse(0);
-                }
-                BigInteger blockNumberOnChain = getBlockNumberOfNodeOnChain(syncStatus, peer);
-                BigInteger latestView =
-                        consensusList.stream().filter(cl -> peer.equals(cl.getNodeId()))
-                                .map(c -> c.getView()).findFirst().orElse(BigInteger.ZERO);// pbftView
-                // check node status
-                statusList.add(
-                        checkNodeStatus(groupId, peer, blockNumberOnChain, latestView, nodeType));
-            }
-
-            nodeStatusMap.put(groupId, statusList);
-            log.info("end getNodeStatusList. groupId:{} statusList:{}", groupId,
-                    JsonUtils.toJSONString(statusList));
-            return statusList;
-        } catch (Exception e) {
-            log.error("nodeHeartBeat Exception.", e);
-            throw new FrontException(ConstantCode.NODE_REQUEST_FAILED);
-        }
+        log.debug("start getNodeStatusList. groupId:{}", groupId);
+        // init web3j of group if missed
+        getWeb3j(groupId);
+        return nodeStatusAggregator.getNodeStatusList(groupId);
     }
 
-    /**
-     * check node status.
-     */
-    private NodeStatusInfo checkNodeStatus(int groupId, String nodeId, BigInteger chainBlockNumber,
-                                           BigInteger chainView, int nodeType) {
-        log.info("start checkNodeStatus. groupId:{} nodeId:{} blockNumber:{} chainView:{}", groupId,
-                nodeId, chainBlockNumber, chainView);
-
-        if (Objects.isNull(nodeStatusMap.get(groupId))) {
-            log.info("end checkNodeStatus. no cache group:{}", groupId);
-            return new NodeStatusInfo(nodeId, chainBlockNumber, chainView,
-                    DataStatus.NORMAL.getValue(), LocalDateTime.now());
-        } else {
-            List<NodeStatusInfo> statusList = nodeStatusMap.get(groupId);
-            NodeStatusInfo localNodeStatus = statusList.stream()
-                    .filter(s -> nodeId.equals(s.getNodeId())).findFirst().orElse(null);
-            if (Objects.isNull(localNodeStatus)) {
-                log.info("end checkNodeStatus. no cache node:{}", nodeId);
-                return new NodeStatusInfo(nodeId, chainBlockNumber, chainView,
-                        DataStatus.NORMAL.getValue(), LocalDateTime.now());
-            }
-
-            LocalDateTime latestUpdate = localNodeStatus.getLatestStatusUpdateTime();
-            Long subTime = Duration.between(latestUpdate, LocalDateTime.now()).toMillis();
-            if (subTime < CHECK_NODE_WAIT_MIN_MILLIS) {
-                log.info("checkNodeStatus jump over. nodeId:{} subTime:{}", nodeId, subTime);
-                return localNodeStatus;
-            }
-
-            BigInteger localBlockNumber = localNodeStatus.getBlockNumber();
-            BigInteger localPbftView = localNodeStatus.getPbftView();
-            // 0-consensus;1-observer
-            if (nodeType == 0) {
-                if (localBlockNumber.equals(chainBlockNumber) && localPbftView.equals(chainView)) {
-                    log.warn(
-                            "node[{}] is invalid. localNumber:{} chainNumber:{} localView:{} chainView:{}",
-                            nodeId, localBlockNumber, chainBlockNumber, localPbftView, chainView);
-                    localNodeStatus.setStatus(DataStatus.INVALID.getValue());
-                } else {
-                    localNodeStatus.setBlockNumber(chainBlockNumber);
-                    localNodeStatus.setPbftView(chainView);
-                    localNodeStatus.setStatus(DataStatus.NORMAL.getValue());
-                }
-            } else {
-                if (!chainBlockNumber.equals(getBlockNumber(groupId))) {
-                    log.warn(
-                            "node[{}] is invalid. localNumber:{} chainNumber:{} localView:{} chainView:{}",
-                            nodeId, localBlockNumber, chainBlockNumber, localPbftView, chainView);
-                    localNodeStatus.setStatus(DataStatus.INVALID.getValue());
-                } else {
-                    localNodeStatus.setBlockNumber(chainBlockNumber);
-                    localNodeStatus.setPbftView(chainView);
-                    localNodeStatus.setStatus(DataStatus.NORMAL.getValue());
-                }
-            }
-            localNodeStatus.setLatestStatusUpdateTime(LocalDateTime.now());
-            return localNodeStatus;
-        }
-    }
-
-
-    /**
-     * get latest number of peer on chain.
-     */
-    private BigInteger getBlockNumberOfNodeOnChain(SyncStatus syncStatus, String nodeId) {
-        if (Objects.isNull(syncStatus)) {
-            log.warn("fail getBlockNumberOfNodeOnChain. SyncStatus is null");
-            return BigInteger.ZERO;
-        }
-        if (StringUtils.isBlank(nodeId)) {
-            log.warn("fail getBlockNumberOfNodeOnChain. nodeId is null");
-            return BigInteger.ZERO;
-        }
-        if (nodeId.equals(syncStatus.getNodeId())) {
-            return syncStatus.getBlockNumber();
-        }
-        List<PeerOfSyncStatus> peerList = syncStatus.getPeers();
-        // blockNumber
-        BigInteger latestNumber = peerList.stream().filter(peer -> nodeId.equals(peer.getNodeId()))
-                .map(s -> s.getBlockNumber()).findFirst().orElse(BigInteger.ZERO);
-        return latestNumber;
-    }
-
-
-    /**
-     * get peer of consensusStatus
-     */
-    private List<PeerOfConsensusStatus> getPeerOfConsensusStatus(int groupId) {
-        String consensusStatusJson = getConsensusStatus(groupId);
-        if (StringUtils.isBlank(consensusStatusJson)) {
-            return Collections.emptyList();
-        }
-        List jsonArr = JsonUtils.toJavaObject(consensusStatusJson, List.class);
-        if (jsonArr == null) {
-            log.error("getPeerOfConsensusStatus error");
-            throw new FrontException(ConstantCode.FAIL_PARSE_JSON);
-        }
-        List<PeerOfConsensusStatus> dataIsList = new ArrayList<>();
-        for (int i = 0; i < jsonArr.size(); i++ ) {
-            if (jsonArr.get(i) instanceof List) {
-                List<PeerOfConsensusStatus> tempList = JsonUtils.toJavaObjectList(
-                    JsonUtils.toJSONString(jsonArr.get(i)), PeerOfConsensusStatus.class);
-                if (tempList != null) {
-                    dataIsList.addAll(tempList);
-                } else {
-                    throw new FrontException(ConstantCode.FAIL_PARSE_JSON);
-                }
-            }
-        }
-        return dataIsList;
-    }
-
-
     public List<String> getGroupPeers(int groupId) {
         GroupPeers groupPeers = null;
         try {
@@ -0,0 +1,39 @@
+/**
+ * Copyright 2014-2020  the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.webank.webase.front.web3api.entity;
+
+import com.webank.webase.front.base.response.CacheStat;
+import lombok.Data;
+
+/**
+ * stat of block, transaction and receipt cache
+ */
+@Data
+public class ChainDataCacheStat {
+    /**
+     * estimated bytes of cached data and the limit
+     */
+    private long weightBytes;
+    private long maxBytes;
+    /**
+     * all entries of block, transaction and receipt
+     */
+    private CacheStat cacheStat;
+    private long blockHit;
+    private long blockMiss;
+    private long transHit;
+    private long transMiss;
+    private long receiptHit;
+    private long receiptMiss;
+}
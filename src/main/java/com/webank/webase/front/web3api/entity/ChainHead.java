@@ -0,0 +1,43 @@
+/**
+ * Copyright 2014-2020  the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.webank.webase.front.web3api.entity;
+
+import java.math.BigInteger;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * immutable snapshot of chain head of group, replaced as a whole on update
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class ChainHead {
+    private final int groupId;
+    private final BigInteger blockNumber;
+    private final BigInteger pbftView;
+    private final BigInteger pendingTxSize;
+    /**
+     * time of last refresh from node (unit: ms), block notify does not change it
+     */
+    private final long refreshTime;
+
+    /**
+     * new snapshot with higher block number notified
+     */
+    public ChainHead withBlockNumber(BigInteger notifiedNumber) {
+        return new ChainHead(groupId, notifiedNumber, pbftView, pendingTxSize, refreshTime);
+    }
+}
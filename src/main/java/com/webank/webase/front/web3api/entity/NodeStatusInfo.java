@@ -29,4 +29,13 @@ public class NodeStatusInfo {
     private BigInteger pbftView;
     private Integer status;
     private LocalDateTime latestStatusUpdateTime;
+    /**
+     * time since the status snapshot refreshed (unit: ms)
+     */
+    private Long snapshotAge;
+
+    public NodeStatusInfo(String nodeId, BigInteger blockNumber, BigInteger pbftView,
+            Integer status, LocalDateTime latestStatusUpdateTime) {
+        this(nodeId, blockNumber, pbftView, status, latestStatusUpdateTime, null);
+    }
 }
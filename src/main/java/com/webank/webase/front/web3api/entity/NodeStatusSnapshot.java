@@ -0,0 +1,44 @@
+/**
+ * Copyright 2014-2020  the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.webank.webase.front.web3api.entity;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * immutable status of nodes in group, replaced as a whole by each refresh
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class NodeStatusSnapshot {
+    private final int groupId;
+    /**
+     * unmodifiable, items are not changed after published
+     */
+    private final List<NodeStatusInfo> nodeStatusList;
+    /**
+     * time of refresh from node (unit: ms)
+     */
+    private final long refreshTime;
+
+    /**
+     * time since refreshed (unit: ms)
+     */
+    public long getAge() {
+        return System.currentTimeMillis() - refreshTime;
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * Copyright 2014-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webank.webase.front.event;
+
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.webank.webase.front.base.properties.Constants;
+import com.webank.webase.front.event.entity.message.BlockDetailPushMessage;
+import com.webank.webase.front.web3api.Web3ApiService;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.fisco.bcos.web3j.protocol.core.methods.response.BcosBlock;
+import org.fisco.bcos.web3j.protocol.core.methods.response.BcosBlock.TransactionHash;
+import org.fisco.bcos.web3j.protocol.core.methods.response.BcosBlock.TransactionResult;
+import org.fisco.bcos.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * block content fetched once and shared by enrich modes with mocked node api
+ */
+public class BlockEnrichServiceTest {
+
+    private Web3ApiService web3ApiService;
+    private ThreadPoolTaskExecutor executor;
+    private BlockEnrichService blockEnrichService;
+
+    @Before
+    public void init() {
+        web3ApiService = mock(Web3ApiService.class);
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(4);
+        executor.initialize();
+        blockEnrichService = new BlockEnrichService();
+        ReflectionTestUtils.setField(blockEnrichService, "web3ApiService", web3ApiService);
+        ReflectionTestUtils.setField(blockEnrichService, "constants", new Constants());
+        ReflectionTestUtils.setField(blockEnrichService, "blockEnrichThreadPool", executor);
+        blockEnrichService.init();
+
+        BcosBlock.Block block = new BcosBlock.Block();
+        block.setNumber("0xa");
+        block.setHash("0xblock");
+        block.setTimestamp("0x64");
+        List<TransactionResult> transactions = new ArrayList<>();
+        for (String hash : Arrays.asList("0x1", "0x2", "0x3")) {
+            transactions.add(new TransactionHash(hash));
+            TransactionReceipt receipt = new TransactionReceipt();
+            receipt.setTransactionHash(hash);
+            when(web3ApiService.getTransactionReceipt(1, hash)).thenReturn(receipt);
+        }
+        block.setTransactions(transactions);
+        when(web3ApiService.getBlockByNumber(1, BigInteger.TEN)).thenReturn(block);
+    }
+
+    @After
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void testNormalizeMode() {
+        Assert.assertEquals(BlockEnrichService.ENRICH_NONE, BlockEnrichService.normalizeMode(null));
+        Assert.assertEquals(BlockEnrichService.ENRICH_FULL,
+            BlockEnrichService.normalizeMode(" Full "));
+        Assert.assertNull(BlockEnrichService.normalizeMode("receipt"));
+    }
+
+    @Test
+    public void testFetchOnce() {
+        BlockDetailPushMessage compact = blockEnrichService.getBlockDetail(1, BigInteger.TEN,
+            BlockEnrichService.ENRICH_COMPACT);
+        Assert.assertEquals("0xblock", compact.getBlockHash());
+        Assert.assertEquals(3, compact.getTransCount().intValue());
+        Assert.assertEquals(Arrays.asList("0x1", "0x2", "0x3"), compact.getTransHashList());
+        Assert.assertNull(compact.getBlock());
+        Assert.assertFalse(compact.toString().contains("receipts"));
+        verify(web3ApiService, times(0)).getTransactionReceipt(anyInt(), anyString());
+
+        for (int i = 0; i < 3; i++) {
+            BlockDetailPushMessage full = blockEnrichService.getBlockDetail(1, BigInteger.TEN,
+                BlockEnrichService.ENRICH_FULL);
+            Assert.assertEquals(BigInteger.TEN, full.getBlock().getNumber());
+            Assert.assertEquals(3, full.getReceipts().size());
+            // receipts in order of transactions
+            Assert.assertEquals("0x2", full.getReceipts().get(1).getTransactionHash());
+        }
+        verify(web3ApiService, times(1)).getBlockByNumber(1, BigInteger.TEN);
+        verify(web3ApiService, times(1)).getTransactionReceipt(eq(1), eq("0x1"));
+        verify(web3ApiService, times(3)).getTransactionReceipt(anyInt(), anyString());
+        Assert.assertEquals(1, blockEnrichService.getCacheStat().getSize());
+    }
+
+    @Test
+    public void testFetchAsync() throws Exception {
+        BlockDetailPushMessage full = blockEnrichService.getBlockDetailAsync(1, BigInteger.TEN,
+            BlockEnrichService.ENRICH_FULL).get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(3, full.getReceipts().size());
+        Assert.assertEquals("0x3", full.getReceipts().get(2).getTransactionHash());
+        // shared with sync reader of the block
+        Assert.assertSame(full.getReceipts(), blockEnrichService.getBlockDetail(1,
+            BigInteger.TEN, BlockEnrichService.ENRICH_FULL).getReceipts());
+        verify(web3ApiService, times(3)).getTransactionReceipt(anyInt(), anyString());
+    }
+
+    @Test
+    public void testBlockLargerThanQueue() throws Exception {
+        ThreadPoolTaskExecutor smallExecutor = new ThreadPoolTaskExecutor();
+        smallExecutor.setCorePoolSize(2);
+        smallExecutor.setMaxPoolSize(2);
+        smallExecutor.setQueueCapacity(10);
+        smallExecutor.initialize();
+        ReflectionTestUtils.setField(blockEnrichService, "blockEnrichThreadPool", smallExecutor);
+        BcosBlock.Block block = new BcosBlock.Block();
+        block.setNumber("0xb");
+        block.setHash("0xlarge");
+        List<TransactionResult> transactions = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            String hash = "0x" + Integer.toHexString(i);
+            transactions.add(new TransactionHash(hash));
+            TransactionReceipt receipt = new TransactionReceipt();
+            receipt.setTransactionHash(hash);
+            when(web3ApiService.getTransactionReceipt(1, hash)).thenReturn(receipt);
+        }
+        block.setTransactions(transactions);
+        BigInteger blockNumber = BigInteger.valueOf(11);
+        when(web3ApiService.getBlockByNumber(1, blockNumber)).thenReturn(block);
+        try {
+            BlockDetailPushMessage full = blockEnrichService.getBlockDetailAsync(1, blockNumber,
+                BlockEnrichService.ENRICH_FULL).get(10, TimeUnit.SECONDS);
+            Assert.assertEquals(1000, full.getReceipts().size());
+            Assert.assertEquals("0x3e7", full.getReceipts().get(999).getTransactionHash());
+            verify(web3ApiService, times(1000)).getTransactionReceipt(anyInt(), anyString());
+        } finally {
+            smallExecutor.shutdown();
+        }
+    }
+}
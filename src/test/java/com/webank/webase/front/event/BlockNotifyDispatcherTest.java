@@ -0,0 +1,247 @@
+/**
+ * Copyright 2014-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webank.webase.front.event;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.webank.webase.front.base.properties.Constants;
+import com.webank.webase.front.event.entity.BlockNotifyStat;
+import com.webank.webase.front.event.entity.PublisherHelper;
+import com.webank.webase.front.event.entity.message.BlockDetailPushMessage;
+import com.webank.webase.front.util.JsonUtils;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * dispatch block notify to subscriptions of group with mocked publisher
+ */
+public class BlockNotifyDispatcherTest {
+
+    private MQPublisher mqPublisher;
+    private ThreadPoolTaskExecutor executor;
+    private BlockEnrichService blockEnrichService;
+    private BlockNotifyDispatcher dispatcher;
+
+    private Constants constants;
+
+    @Before
+    public void init() {
+        constants = new Constants();
+        mqPublisher = mock(MQPublisher.class);
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.initialize();
+        blockEnrichService = mock(BlockEnrichService.class);
+        dispatcher = new BlockNotifyDispatcher();
+        ReflectionTestUtils.setField(dispatcher, "constants", constants);
+        ReflectionTestUtils.setField(dispatcher, "mqPublisher", mqPublisher);
+        ReflectionTestUtils.setField(dispatcher, "blockEnrichService", blockEnrichService);
+        ReflectionTestUtils.setField(dispatcher, "blockNotifyThreadPool", executor);
+    }
+
+    @After
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    private void awaitDispatched() throws InterruptedException {
+        for (int i = 0; i < 100 && dispatcher.getStat().getQueueDepth() > 0; i++) {
+            Thread.sleep(50);
+        }
+        Assert.assertEquals(0, dispatcher.getStat().getQueueDepth());
+    }
+
+    @Test
+    public void testDispatchByGroup() throws Exception {
+        dispatcher.addSubscription("info1", "app1", new PublisherHelper(1, "ex", "key1"));
+        dispatcher.addSubscription("info2", "app1", new PublisherHelper(1, "ex", "key2"));
+        dispatcher.addSubscription("info3", "app2", new PublisherHelper(2, "ex", "key3"));
+
+        dispatcher.dispatch(1, BigInteger.TEN);
+        awaitDispatched();
+
+        ArgumentCaptor<String> key1Message = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<String> key2Message = ArgumentCaptor.forClass(String.class);
+        verify(mqPublisher).sendToTradeFinishedByString(eq("ex"), eq("key1"),
+            key1Message.capture());
+        verify(mqPublisher).sendToTradeFinishedByString(eq("ex"), eq("key2"),
+            key2Message.capture());
+        verify(mqPublisher, never()).sendToTradeFinishedByString(eq("ex"), eq("key3"),
+            anyString());
+        // same message of app shared by its subscriptions
+        Assert.assertSame(key1Message.getValue(), key2Message.getValue());
+        Assert.assertTrue(key1Message.getValue().contains("\"appId\":\"app1\""));
+        Assert.assertTrue(key1Message.getValue().contains("\"blockNumber\":10"));
+    }
+
+    @Test
+    public void testDispatchEnriched() throws Exception {
+        BlockDetailPushMessage detail = new BlockDetailPushMessage();
+        detail.setGroupId(1);
+        detail.setBlockNumber(BigInteger.TEN);
+        detail.setEnrichMode(BlockEnrichService.ENRICH_FULL);
+        when(blockEnrichService.getBlockDetailAsync(1, BigInteger.TEN,
+            BlockEnrichService.ENRICH_FULL)).thenReturn(CompletableFuture.completedFuture(detail));
+        dispatcher.addSubscription("info1", "app1", new PublisherHelper(1, "ex", "key1",
+            BlockEnrichService.ENRICH_FULL));
+        dispatcher.addSubscription("info2", "app2", new PublisherHelper(1, "ex", "key2",
+            BlockEnrichService.ENRICH_FULL));
+        dispatcher.addSubscription("info3", "app2", new PublisherHelper(1, "ex", "key3"));
+
+        dispatcher.dispatch(1, BigInteger.TEN);
+        awaitDispatched();
+
+        // fetched once for all apps
+        verify(blockEnrichService, times(1)).getBlockDetailAsync(anyInt(),
+            any(BigInteger.class), anyString());
+        ArgumentCaptor<String> key1Message = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<String> key2Message = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<String> key3Message = ArgumentCaptor.forClass(String.class);
+        verify(mqPublisher).sendToTradeFinishedByString(eq("ex"), eq("key1"),
+            key1Message.capture());
+        verify(mqPublisher).sendToTradeFinishedByString(eq("ex"), eq("key2"),
+            key2Message.capture());
+        verify(mqPublisher).sendToTradeFinishedByString(eq("ex"), eq("key3"),
+            key3Message.capture());
+        Assert.assertTrue(key1Message.getValue().startsWith("{\"appId\":\"app1\","));
+        Assert.assertTrue(key2Message.getValue().startsWith("{\"appId\":\"app2\","));
+        Assert.assertTrue(key2Message.getValue().contains("\"enrichMode\":\"full\""));
+        BlockDetailPushMessage pushed = JsonUtils.toJavaObject(key2Message.getValue(),
+            BlockDetailPushMessage.class);
+        Assert.assertEquals("app2", pushed.getAppId());
+        Assert.assertEquals(detail.getBlockNumber(), pushed.getBlockNumber());
+        Assert.assertEquals(detail.getGroupId(), pushed.getGroupId());
+        // plain notify of subscription without enrich mode
+        Assert.assertFalse(key3Message.getValue().contains("enrichMode"));
+    }
+
+    @Test
+    public void testDispatchEnrichedFailed() throws Exception {
+        CompletableFuture<BlockDetailPushMessage> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IllegalStateException("node down"));
+        when(blockEnrichService.getBlockDetailAsync(anyInt(), any(BigInteger.class),
+            anyString())).thenReturn(failed);
+        dispatcher.addSubscription("info1", "app1", new PublisherHelper(1, "ex", "key1",
+            BlockEnrichService.ENRICH_COMPACT));
+
+        dispatcher.dispatch(1, BigInteger.TEN);
+        awaitDispatched();
+
+        ArgumentCaptor<String> key1Message = ArgumentCaptor.forClass(String.class);
+        verify(mqPublisher).sendToTradeFinishedByString(eq("ex"), eq("key1"),
+            key1Message.capture());
+        Assert.assertTrue(key1Message.getValue().contains("\"blockNumber\":10"));
+    }
+
+    @Test
+    public void testRemoveSubscription() throws Exception {
+        dispatcher.removeSubscription("notExist");
+        dispatcher.addSubscription("info1", "app1", new PublisherHelper(1, "ex", "key1"));
+        dispatcher.addSubscription("info2", "app1", new PublisherHelper(1, "ex", "key2"));
+        dispatcher.removeSubscription("info1");
+        Assert.assertFalse(dispatcher.containsSubscription("info1"));
+        Assert.assertTrue(dispatcher.containsSubscription("info2"));
+        Assert.assertEquals(1, dispatcher.getSubscriptionIds().size());
+
+        dispatcher.dispatch(1, BigInteger.ONE);
+        awaitDispatched();
+
+        verify(mqPublisher, never()).sendToTradeFinishedByString(eq("ex"), eq("key1"),
+            anyString());
+        verify(mqPublisher, times(1)).sendToTradeFinishedByString(eq("ex"), eq("key2"),
+            anyString());
+
+        dispatcher.removeSubscription("info2");
+        Assert.assertTrue(dispatcher.getSubscriptionIds().isEmpty());
+    }
+
+    @Test
+    public void testDropWhenQueueFull() throws Exception {
+        constants.setBlockNotifyQueueCapacity(2);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        List<String> publishThreads = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            publishThreads.add(Thread.currentThread().getName());
+            started.countDown();
+            blocked.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(mqPublisher).sendToTradeFinishedByString(anyString(), anyString(), anyString());
+        dispatcher.addSubscription("info1", "app1", new PublisherHelper(1, "ex", "key1"));
+
+        dispatcher.dispatch(1, BigInteger.ONE);
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        dispatcher.dispatch(1, BigInteger.valueOf(2));
+        // queue is full, dropped instead of run on caller thread
+        dispatcher.dispatch(1, BigInteger.valueOf(3));
+        BlockNotifyStat stat = dispatcher.getStat();
+        Assert.assertEquals(1, stat.getDroppedCount());
+        Assert.assertEquals(2, stat.getDispatchedCount());
+        Assert.assertEquals(2, stat.getQueueDepth());
+
+        blocked.countDown();
+        awaitDispatched();
+        Assert.assertEquals(2, publishThreads.size());
+        Assert.assertFalse(publishThreads.contains(Thread.currentThread().getName()));
+    }
+
+    @Test
+    public void testSlowGroupNotBlockOthers() throws Exception {
+        // block content of group 1 never comes
+        when(blockEnrichService.getBlockDetailAsync(anyInt(), any(BigInteger.class),
+            anyString())).thenReturn(new CompletableFuture<>());
+        dispatcher.addSubscription("info1", "app1", new PublisherHelper(1, "ex", "key1",
+            BlockEnrichService.ENRICH_FULL));
+        dispatcher.addSubscription("info2", "app2", new PublisherHelper(2, "ex", "key2"));
+
+        dispatcher.dispatch(1, BigInteger.ONE);
+        dispatcher.dispatch(1, BigInteger.valueOf(2));
+        dispatcher.dispatch(2, BigInteger.ONE);
+        for (int i = 0; i < 100 && dispatcher.getStat().getQueueDepth() > 2; i++) {
+            Thread.sleep(50);
+        }
+
+        verify(mqPublisher, times(1)).sendToTradeFinishedByString(eq("ex"), eq("key2"),
+            anyString());
+        // blocks of group 1 wait in order
+        verify(mqPublisher, never()).sendToTradeFinishedByString(eq("ex"), eq("key1"),
+            anyString());
+        Assert.assertEquals(2, dispatcher.getStat().getQueueDepth());
+    }
+}
@@ -0,0 +1,330 @@
+/**
+ * Copyright 2014-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webank.webase.front.event;
+
+import static com.webank.webase.front.util.RabbitMQUtils.CONTRACT_EVENT_CALLBACK_MAP;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.webank.webase.front.base.properties.Constants;
+import com.webank.webase.front.event.callback.BackfillChunkCallback;
+import com.webank.webase.front.event.callback.ContractEventCallback;
+import com.webank.webase.front.event.entity.BackfillProgress;
+import com.webank.webase.front.event.entity.ContractEventInfo;
+import com.webank.webase.front.web3api.Web3ApiService;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.fisco.bcos.channel.client.Service;
+import org.fisco.bcos.channel.event.filter.EventLogFilter;
+import org.fisco.bcos.channel.event.filter.EventLogFilterManager;
+import org.fisco.bcos.channel.event.filter.EventLogFilterPushStatus;
+import org.fisco.bcos.channel.event.filter.EventLogPushCallback;
+import org.fisco.bcos.channel.event.filter.EventLogUserParams;
+import org.fisco.bcos.web3j.protocol.core.methods.response.Log;
+import org.fisco.bcos.web3j.tx.txdecode.LogResult;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * backfill in chunks with mocked node filter
+ */
+public class EventBackfillServiceTest {
+
+    private Service service;
+    private EventLogFilterManager filterManager;
+    private MQPublisher mqPublisher;
+    private ThreadPoolTaskExecutor executor;
+    private EventBackfillService backfillService;
+    private List<EventLogUserParams> liveParams = Collections.synchronizedList(new ArrayList<>());
+    private AtomicInteger registerCount = new AtomicInteger();
+
+    @Before
+    public void init() {
+        Constants constants = new Constants();
+        constants.setEventBackfillChunkSize(10);
+        constants.setEventBackfillConcurrency(2);
+        constants.setEventBackfillChunkTimeout(5000);
+        constants.setEventBackfillChunkRetry(1);
+        service = mock(Service.class);
+        filterManager = mock(EventLogFilterManager.class);
+        when(service.getEventLogFilterManager()).thenReturn(filterManager);
+        Map<Integer, Service> serviceMap = new HashMap<>();
+        serviceMap.put(1, service);
+        Web3ApiService web3ApiService = mock(Web3ApiService.class);
+        when(web3ApiService.getBlockNumber(1)).thenReturn(BigInteger.valueOf(25));
+        mqPublisher = mock(MQPublisher.class);
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(0);
+        executor.initialize();
+
+        backfillService = new EventBackfillService();
+        ReflectionTestUtils.setField(backfillService, "constants", constants);
+        ReflectionTestUtils.setField(backfillService, "serviceMap", serviceMap);
+        ReflectionTestUtils.setField(backfillService, "web3ApiService", web3ApiService);
+        ReflectionTestUtils.setField(backfillService, "mqPublisher", mqPublisher);
+        ReflectionTestUtils.setField(backfillService, "eventDecoderCache",
+            mock(EventDecoderCache.class));
+        ReflectionTestUtils.setField(backfillService, "eventCheckpointService",
+            mock(EventCheckpointService.class));
+        ReflectionTestUtils.setField(backfillService, "eventBackfillThreadPool", executor);
+        EventFilterMultiplexer multiplexer = new EventFilterMultiplexer();
+        ReflectionTestUtils.setField(multiplexer, "serviceMap", serviceMap);
+        ReflectionTestUtils.setField(backfillService, "eventFilterMultiplexer", multiplexer);
+    }
+
+    @After
+    public void destroy() {
+        executor.shutdown();
+        CONTRACT_EVENT_CALLBACK_MAP.remove("info1");
+    }
+
+    private static ContractEventInfo eventInfo(String fromBlock, String toBlock) {
+        ContractEventInfo info = new ContractEventInfo();
+        info.setId("info1");
+        info.setAppId("app1");
+        info.setGroupId(1);
+        info.setExchangeName("ex");
+        info.setRoutingKey("key");
+        info.setContractAddress("0x0000000000000000000000000000000000000001");
+        info.setTopicList("[\"Set(uint256)\"]");
+        info.setContractAbi("[]");
+        info.setFromBlock(fromBlock);
+        info.setToBlock(toBlock);
+        return info;
+    }
+
+    private static LogResult logOf(long blockNumber) {
+        Log log = new Log();
+        log.setBlockNumber("0x" + Long.toHexString(blockNumber));
+        log.setTransactionIndex("0x0");
+        log.setLogIndex("0x0");
+        LogResult logResult = new LogResult();
+        logResult.setLog(log);
+        return logResult;
+    }
+
+    /**
+     * filter of n-th register is "register{n}", "filter{n}"
+     * @return params of chunk, null if live filter
+     */
+    private EventLogUserParams register(EventLogUserParams params,
+        EventLogPushCallback callback) {
+        int index = registerCount.getAndIncrement();
+        EventLogFilter filter = new EventLogFilter();
+        filter.setRegisterID("register" + index);
+        filter.setFilterID("filter" + index);
+        filter.setParams(params);
+        callback.setFilter(filter);
+        if (!(callback instanceof BackfillChunkCallback)) {
+            liveParams.add(params);
+            return null;
+        }
+        return params;
+    }
+
+    /**
+     * node pushes one log at first block of chunk, later chunk completes first,
+     * and first attempt of chunk from block 11 fails
+     */
+    private void mockNode() {
+        AtomicBoolean failed = new AtomicBoolean();
+        doAnswer(invocation -> {
+            EventLogUserParams params = register(
+                (EventLogUserParams) invocation.getArguments()[0],
+                (EventLogPushCallback) invocation.getArguments()[1]);
+            if (params == null) {
+                return null;
+            }
+            EventLogPushCallback callback = (EventLogPushCallback) invocation.getArguments()[1];
+            long from = Long.parseLong(params.getFromBlock());
+            new Thread(() -> {
+                try {
+                    Thread.sleep(100 - from);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (from == 11 && failed.compareAndSet(false, true)) {
+                    callback.onPushEventLog(EventLogFilterPushStatus.OTHER_ERROR.getStatus(),
+                        null);
+                    return;
+                }
+                callback.onPushEventLog(EventLogFilterPushStatus.SUCCESS.getStatus(),
+                    Collections.singletonList(logOf(from)));
+                callback.onPushEventLog(EventLogFilterPushStatus.PUSH_COMPLETED.getStatus(),
+                    null);
+            }).start();
+            return null;
+        }).when(service).registerEventLogFilter(any(EventLogUserParams.class),
+            any(EventLogPushCallback.class));
+    }
+
+    private BackfillProgress waitFinished() throws InterruptedException {
+        BackfillProgress progress = backfillService.getProgress("info1");
+        for (int i = 0; i < 100 && EventBackfillService.STATUS_RUNNING.equals(
+            progress.getStatus()); i++) {
+            Thread.sleep(50);
+            progress = backfillService.getProgress("info1");
+        }
+        return progress;
+    }
+
+    @Test
+    public void testBackfillInOrderAndHandOff() throws Exception {
+        mockNode();
+        Assert.assertTrue(backfillService.startBackfill(eventInfo("1", "latest")));
+        Assert.assertTrue(backfillService.isHandledByBackfill("info1"));
+
+        BackfillProgress progress = waitFinished();
+        Assert.assertEquals(progress.getErrorMessage(), EventBackfillService.STATUS_COMPLETED,
+            progress.getStatus());
+        Assert.assertEquals(3, progress.getTotalChunks().intValue());
+        Assert.assertEquals(3, progress.getFinishedChunks().intValue());
+        Assert.assertEquals(25, progress.getPublishedBlock().longValue());
+        Assert.assertEquals(3, progress.getLogCount().longValue());
+        Assert.assertEquals(0, progress.getEtaMillis().longValue());
+
+        // published in order of block though later chunk completes first
+        ArgumentCaptor<String> messages = ArgumentCaptor.forClass(String.class);
+        verify(mqPublisher, times(3)).sendToTradeFinishedByString(eq("ex"), eq("key"),
+            messages.capture(), any(Runnable.class), any(Runnable.class));
+        Assert.assertTrue(messages.getAllValues().get(0).contains("\"blockNumber\":1,"));
+        Assert.assertTrue(messages.getAllValues().get(1).contains("\"blockNumber\":11,"));
+        Assert.assertTrue(messages.getAllValues().get(2).contains("\"blockNumber\":21,"));
+
+        // live filter from block after chain head
+        Assert.assertEquals(1, liveParams.size());
+        Assert.assertEquals("26", liveParams.get(0).getFromBlock());
+        Assert.assertEquals("latest", liveParams.get(0).getToBlock());
+        Assert.assertTrue(CONTRACT_EVENT_CALLBACK_MAP.get("info1") instanceof ContractEventCallback);
+
+        // failed attempt of chunk from block 11 removed before retry, then every finished chunk
+        InOrder inOrder = inOrder(filterManager, service);
+        inOrder.verify(filterManager).removeFilterAndCallback("register1", "filter1");
+        inOrder.verify(service).registerEventLogFilter(any(EventLogUserParams.class),
+            any(EventLogPushCallback.class));
+        verify(filterManager, times(4)).removeFilterAndCallback(anyString(), anyString());
+        verify(filterManager, never()).removeFilterAndCallback("register4", "filter4");
+    }
+
+    @Test
+    public void testCancelRemovesChunksInFlight() throws Exception {
+        // node never completes chunk
+        doAnswer(invocation -> {
+            register((EventLogUserParams) invocation.getArguments()[0],
+                (EventLogPushCallback) invocation.getArguments()[1]);
+            return null;
+        }).when(service).registerEventLogFilter(any(EventLogUserParams.class),
+            any(EventLogPushCallback.class));
+        Assert.assertTrue(backfillService.startBackfill(eventInfo("1", "latest")));
+        for (int i = 0; i < 100 && registerCount.get() < 2; i++) {
+            Thread.sleep(50);
+        }
+        backfillService.cancelBackfill("info1");
+        // woken up without waiting chunk timeout
+        for (int i = 0; i < 20 && executor.getActiveCount() > 0; i++) {
+            Thread.sleep(50);
+        }
+        Assert.assertEquals(0, executor.getActiveCount());
+        Assert.assertEquals(2, registerCount.get());
+        verify(filterManager).removeFilterAndCallback("register0", "filter0");
+        verify(filterManager).removeFilterAndCallback("register1", "filter1");
+        Assert.assertTrue(liveParams.isEmpty());
+        verify(mqPublisher, never()).sendToTradeFinishedByString(anyString(), anyString(),
+            anyString(), any(Runnable.class), any(Runnable.class));
+    }
+
+    @Test
+    public void testNoBackfill() {
+        Assert.assertFalse(backfillService.startBackfill(eventInfo("latest", "latest")));
+        Assert.assertFalse(backfillService.startBackfill(eventInfo("30", "latest")));
+        Assert.assertFalse(backfillService.isHandledByBackfill("info1"));
+    }
+
+    @Test
+    public void testFinishedRangeWithoutLiveFilter() throws Exception {
+        mockNode();
+        Assert.assertTrue(backfillService.startBackfill(eventInfo("21", "22")));
+        BackfillProgress progress = waitFinished();
+        Assert.assertEquals(progress.getErrorMessage(), EventBackfillService.STATUS_COMPLETED,
+            progress.getStatus());
+        Assert.assertEquals(22, progress.getEndBlock().longValue());
+        Assert.assertTrue(liveParams.isEmpty());
+        // register task still skips it
+        Assert.assertTrue(backfillService.isHandledByBackfill("info1"));
+        backfillService.cancelBackfill("info1");
+        Assert.assertFalse(backfillService.isHandledByBackfill("info1"));
+        verify(mqPublisher, times(1)).sendToTradeFinishedByString(anyString(), anyString(),
+            anyString(), any(Runnable.class), any(Runnable.class));
+    }
+
+    @Test
+    public void testCancelledStopsCheckpointAndHandOff() throws Exception {
+        mockNode();
+        List<Runnable> ackCallbacks = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            ackCallbacks.add((Runnable) invocation.getArguments()[3]);
+            // unregister or reset while backfill is publishing
+            backfillService.cancelBackfill("info1");
+            return null;
+        }).when(mqPublisher).sendToTradeFinishedByString(anyString(), anyString(), anyString(),
+            any(Runnable.class), any(Runnable.class));
+        Assert.assertTrue(backfillService.startBackfill(eventInfo("1", "latest")));
+        for (int i = 0; i < 100 && ackCallbacks.isEmpty(); i++) {
+            Thread.sleep(50);
+        }
+        for (int i = 0; i < 100 && executor.getActiveCount() > 0; i++) {
+            Thread.sleep(50);
+        }
+        Assert.assertEquals(0, executor.getActiveCount());
+        Assert.assertFalse(backfillService.isHandledByBackfill("info1"));
+
+        // buffered messages acked after cancel do not recreate checkpoint
+        Assert.assertEquals(1, ackCallbacks.size());
+        ackCallbacks.forEach(Runnable::run);
+        EventCheckpointService checkpointService = (EventCheckpointService)
+            ReflectionTestUtils.getField(backfillService, "eventCheckpointService");
+        verify(checkpointService, never()).markDelivered(anyString(), anyInt(), anyString(),
+            anyLong());
+        // no live filter for cancelled register
+        Assert.assertTrue(liveParams.isEmpty());
+        Assert.assertNull(CONTRACT_EVENT_CALLBACK_MAP.get("info1"));
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright 2014-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webank.webase.front.event;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.webank.webase.front.event.entity.ContractEventInfo;
+import com.webank.webase.front.event.entity.EventCheckpoint;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * checkpoint of contract event with mocked repository
+ */
+public class EventCheckpointServiceTest {
+
+    private EventCheckpointRepository repository;
+    private EventCheckpointService checkpointService;
+
+    @Before
+    public void init() {
+        repository = mock(EventCheckpointRepository.class);
+        checkpointService = new EventCheckpointService();
+        ReflectionTestUtils.setField(checkpointService, "eventCheckpointRepository", repository);
+    }
+
+    private static ContractEventInfo eventInfo(String fromBlock, String toBlock) {
+        ContractEventInfo info = new ContractEventInfo();
+        info.setId("info1");
+        info.setGroupId(1);
+        info.setAppId("app1");
+        info.setFromBlock(fromBlock);
+        info.setToBlock(toBlock);
+        return info;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFlushHighestInBatch() {
+        checkpointService.markDelivered("info1", 1, "app1", 10);
+        checkpointService.markDelivered("info1", 1, "app1", 8);
+        checkpointService.markDelivered("info2", 1, "app1", 3);
+        Assert.assertEquals(Long.valueOf(10), checkpointService.getCheckpointBlock("info1"));
+        Assert.assertEquals(2, checkpointService.getCheckpointList(1).size());
+
+        checkpointService.flush();
+        ArgumentCaptor<List> batch = ArgumentCaptor.forClass(List.class);
+        verify(repository, times(1)).save(batch.capture());
+        Assert.assertEquals(2, batch.getValue().size());
+
+        // nothing pending, no more write
+        checkpointService.flush();
+        verify(repository, times(1)).save(anyListOf(EventCheckpoint.class));
+    }
+
+    @Test
+    public void testDroppedPinsCheckpoint() {
+        checkpointService.markDelivered("info1", 1, "app1", 10);
+        // block 12 dropped, later block acked
+        checkpointService.markDropped("info1", 1, "app1", 12);
+        checkpointService.markDelivered("info1", 1, "app1", 15);
+        Assert.assertTrue(checkpointService.isPinned("info1"));
+        Assert.assertEquals(Long.valueOf(11), checkpointService.getCheckpointBlock("info1"));
+        Assert.assertEquals("11", checkpointService.getResumeFromBlock(
+            eventInfo("1", "latest")));
+
+        // earlier checkpoint is kept
+        checkpointService.markDropped("info1", 1, "app1", 20);
+        Assert.assertEquals(Long.valueOf(11), checkpointService.getCheckpointBlock("info1"));
+
+        // moves again after re-register
+        checkpointService.unpin("info1");
+        checkpointService.markDelivered("info1", 1, "app1", 16);
+        Assert.assertEquals(Long.valueOf(16), checkpointService.getCheckpointBlock("info1"));
+    }
+
+    @Test
+    public void testResumeFromBlock() {
+        Assert.assertEquals("latest", checkpointService.getResumeFromBlock(
+            eventInfo("latest", "latest")));
+
+        checkpointService.markDelivered("info1", 1, "app1", 100);
+        Assert.assertEquals("100", checkpointService.getResumeFromBlock(
+            eventInfo("1", "latest")));
+        Assert.assertEquals("100", checkpointService.getResumeFromBlock(
+            eventInfo("latest", "latest")));
+        // original range is ahead of or behind checkpoint
+        Assert.assertEquals("200", checkpointService.getResumeFromBlock(
+            eventInfo("200", "latest")));
+        Assert.assertEquals("50", checkpointService.getResumeFromBlock(
+            eventInfo("1", "50")));
+    }
+
+    @Test
+    public void testLoadAndReset() {
+        EventCheckpoint saved = new EventCheckpoint();
+        saved.setInfoId("info1");
+        saved.setGroupId(1);
+        saved.setBlockNumber(30L);
+        when(repository.findOne("info1")).thenReturn(saved);
+        when(repository.findByGroupId(1)).thenReturn(Collections.singletonList(saved));
+        Assert.assertEquals("30", checkpointService.getResumeFromBlock(eventInfo("1", "latest")));
+
+        checkpointService.markDelivered("info1", 1, "app1", 40);
+        checkpointService.resetCheckpoint(eventInfo("1", "latest"), 5L);
+        ArgumentCaptor<EventCheckpoint> reset = ArgumentCaptor.forClass(EventCheckpoint.class);
+        verify(repository).save(reset.capture());
+        Assert.assertEquals(Long.valueOf(5), reset.getValue().getBlockNumber());
+        // pending checkpoint before reset is discarded
+        checkpointService.flush();
+        verify(repository, never()).save(anyListOf(EventCheckpoint.class));
+
+        when(repository.exists("info1")).thenReturn(true);
+        checkpointService.resetCheckpoint(eventInfo("1", "latest"), null);
+        verify(repository).delete("info1");
+        verify(repository, never()).save(any(Iterable.class));
+    }
+}
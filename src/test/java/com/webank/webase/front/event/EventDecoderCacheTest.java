@@ -0,0 +1,120 @@
+/**
+ * Copyright 2014-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webank.webase.front.event;
+
+import com.webank.webase.front.base.properties.Constants;
+import com.webank.webase.front.base.response.CacheStat;
+import com.webank.webase.front.util.AbiUtil;
+import com.webank.webase.front.util.AbiUtilTest;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.fisco.bcos.web3j.abi.EventEncoder;
+import org.fisco.bcos.web3j.abi.FunctionEncoder;
+import org.fisco.bcos.web3j.abi.TypeEncoder;
+import org.fisco.bcos.web3j.abi.datatypes.Address;
+import org.fisco.bcos.web3j.abi.datatypes.Utf8String;
+import org.fisco.bcos.web3j.abi.datatypes.generated.Uint256;
+import org.fisco.bcos.web3j.protocol.core.methods.response.Log;
+import org.fisco.bcos.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.fisco.bcos.web3j.tx.txdecode.EventResultEntity;
+import org.fisco.bcos.web3j.tx.txdecode.LogResult;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class EventDecoderCacheTest {
+
+    private static final String ABI = "[{\"anonymous\":false,\"inputs\":"
+        + "[{\"indexed\":false,\"name\":\"memo\",\"type\":\"string\"}],"
+        + "\"name\":\"Note\",\"type\":\"event\"}]";
+
+    private EventDecoderCache cache;
+
+    @Before
+    public void init() {
+        Constants constants = new Constants();
+        cache = new EventDecoderCache();
+        ReflectionTestUtils.setField(cache, "constants", constants);
+        cache.init();
+    }
+
+    private static Log noteLog(String logIndex) {
+        Log log = new Log();
+        log.setTopics(Collections.singletonList(EventEncoder.buildEventSignature("Note(string)")));
+        log.setData("0x" + FunctionEncoder.encodeConstructor(
+            Arrays.asList(new Utf8String("hello"))));
+        log.setBlockNumber("0x10");
+        log.setTransactionIndex("0x0");
+        log.setLogIndex(logIndex);
+        return log;
+    }
+
+    @Test
+    public void testDecoderSharedByAbi() {
+        Assert.assertSame(cache.getDecoder(ABI), cache.getDecoder(new String(ABI)));
+        Assert.assertEquals(1, cache.getDecoderCount());
+    }
+
+    @Test
+    public void testLogDecodedOnce() {
+        // same log pushed to two subscribers
+        LogResult first = cache.decodeLog(1, ABI, noteLog("0x0"));
+        LogResult second = cache.decodeLog(1, ABI, noteLog("0x0"));
+        Assert.assertNotNull(first);
+        Assert.assertSame(first, second);
+        Assert.assertEquals("hello", first.getLogParams().get(0).getData());
+
+        // other log index or group is decoded again
+        Assert.assertNotSame(first, cache.decodeLog(1, ABI, noteLog("0x1")));
+        Assert.assertNotSame(first, cache.decodeLog(2, ABI, noteLog("0x0")));
+        CacheStat stat = cache.getLogCacheStat();
+        Assert.assertEquals(1, stat.getHitCount());
+        Assert.assertEquals(3, stat.getMissCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSameValuesAsReceiptParse() {
+        Address from = new Address("0x0000000000000000000000000000000000000001");
+        Address to = new Address("0x0000000000000000000000000000000000000002");
+        Log log = new Log();
+        log.setTopics(Arrays.asList(
+            EventEncoder.buildEventSignature("Transfer(address,address,uint256)"),
+            "0x" + TypeEncoder.encode(from), "0x" + TypeEncoder.encode(to)));
+        log.setData("0x" + FunctionEncoder.encodeConstructor(
+            Arrays.asList(new Uint256(BigInteger.valueOf(100)))));
+        LogResult logResult = cache.decodeLog(1, AbiUtilTest.EVENT_ABI, log);
+        Assert.assertEquals(3, logResult.getLogParams().size());
+        Assert.assertTrue(logResult.getLogParams().get(0).isIndexed());
+        Assert.assertEquals("to", logResult.getLogParams().get(1).getName());
+        Assert.assertSame(log, logResult.getLog());
+
+        // one decoder for receipt parse and event push
+        TransactionReceipt receipt = new TransactionReceipt();
+        receipt.setLogs(Collections.singletonList(log));
+        Map<String, List<Object>> parsed = (Map<String, List<Object>>) AbiUtil.receiptParse(
+            receipt, AbiUtil.checkAbi(AbiUtilTest.EVENT_ABI));
+        Assert.assertEquals(parsed.get("Transfer").get(0), logResult.getLogParams().stream()
+            .map(EventResultEntity::getData).collect(Collectors.toList()));
+        Assert.assertEquals(1, cache.getDecoderCacheStat().getSize());
+    }
+}
@@ -0,0 +1,206 @@
+/**
+ * Copyright 2014-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webank.webase.front.event;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.webank.webase.front.base.code.ConstantCode;
+import com.webank.webase.front.base.exception.FrontException;
+import com.webank.webase.front.event.callback.ContractEventCallback;
+import com.webank.webase.front.util.RabbitMQUtils;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.fisco.bcos.channel.client.Service;
+import org.fisco.bcos.channel.event.filter.EventLogFilter;
+import org.fisco.bcos.channel.event.filter.EventLogFilterManager;
+import org.fisco.bcos.channel.event.filter.EventLogFilterPushStatus;
+import org.fisco.bcos.channel.event.filter.EventLogPushCallback;
+import org.fisco.bcos.channel.event.filter.EventLogUserParams;
+import org.fisco.bcos.web3j.protocol.core.methods.response.Log;
+import org.fisco.bcos.web3j.tx.txdecode.LogResult;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * shared node filter with mocked service
+ */
+public class EventFilterMultiplexerTest {
+
+    private static final String ADDRESS = "0x0000000000000000000000000000000000000001";
+
+    private Service service;
+    private EventLogFilterManager filterManager;
+    private MQPublisher mqPublisher;
+    private EventDecoderCache decoderCache;
+    private EventStreamService streamService;
+    private EventFilterMultiplexer multiplexer;
+    private List<EventLogPushCallback> registered = new ArrayList<>();
+
+    @Before
+    public void init() {
+        service = mock(Service.class);
+        filterManager = mock(EventLogFilterManager.class);
+        when(service.getEventLogFilterManager()).thenReturn(filterManager);
+        doAnswer(invocation -> {
+            EventLogFilter filter = new EventLogFilter();
+            filter.setRegisterID("register" + registered.size());
+            filter.setFilterID("filter" + registered.size());
+            filter.setParams((EventLogUserParams) invocation.getArguments()[0]);
+            EventLogPushCallback callback = (EventLogPushCallback) invocation.getArguments()[1];
+            callback.setFilter(filter);
+            registered.add(callback);
+            return null;
+        }).when(service).registerEventLogFilter(any(EventLogUserParams.class),
+            any(EventLogPushCallback.class));
+        Map<Integer, Service> serviceMap = new HashMap<>();
+        serviceMap.put(1, service);
+        mqPublisher = mock(MQPublisher.class);
+        decoderCache = mock(EventDecoderCache.class);
+        multiplexer = new EventFilterMultiplexer();
+        ReflectionTestUtils.setField(multiplexer, "serviceMap", serviceMap);
+        streamService = mock(EventStreamService.class);
+        ReflectionTestUtils.setField(multiplexer, "eventStreamService", streamService);
+    }
+
+    private ContractEventCallback subscriber(String appId, String abi) {
+        ContractEventCallback callback = new ContractEventCallback(mqPublisher, "ex",
+            appId + "_key", decoderCache, abi, 1, appId, mock(EventCheckpointService.class), appId);
+        callback.setRunning(true);
+        return callback;
+    }
+
+    private static EventLogUserParams params(String fromBlock, String address,
+        String... topics) {
+        return RabbitMQUtils.initSingleEventLogUserParams(fromBlock, "latest", address,
+            Arrays.asList(topics));
+    }
+
+    @Test
+    public void testShareAndRefCount() {
+        multiplexer.subscribe("info1", 1, params("latest", ADDRESS, "Set(uint256)", "Get()"),
+            subscriber("app1", "abi1"));
+        // same filter in different case and topic order
+        multiplexer.subscribe("info2", 1,
+            params("latest", ADDRESS.toUpperCase().replace("0X", "0x"), "Get()", "Set(uint256)"),
+            subscriber("app2", "abi2"));
+        Assert.assertEquals(1, registered.size());
+        Assert.assertEquals(1, multiplexer.getStat().getFilterCount().intValue());
+        Assert.assertEquals(2, multiplexer.getStat().getSubscriberCount().intValue());
+
+        // pushed once by node, decoded by abi of each subscriber
+        Log log = new Log();
+        log.setBlockNumber("0x1");
+        log.setTransactionIndex("0x0");
+        log.setLogIndex("0x0");
+        LogResult raw = registered.get(0).transferLogToLogResult(log);
+        registered.get(0).onPushEventLog(EventLogFilterPushStatus.SUCCESS.getStatus(),
+            Collections.singletonList(raw));
+        verify(decoderCache).decodeLog(1, "abi1", log);
+        verify(decoderCache).decodeLog(1, "abi2", log);
+        verify(mqPublisher).sendToTradeFinishedByString(eq("ex"), eq("app1_key"), anyString(),
+            any(Runnable.class), any(Runnable.class));
+        verify(mqPublisher).sendToTradeFinishedByString(eq("ex"), eq("app2_key"), anyString(),
+            any(Runnable.class), any(Runnable.class));
+
+        multiplexer.unsubscribe("info1");
+        verify(filterManager, never()).removeFilterAndCallback(anyString(), anyString());
+        multiplexer.unsubscribe("info2");
+        verify(filterManager).removeFilterAndCallback("register0", "filter0");
+        Assert.assertEquals(0, multiplexer.getStat().getFilterCount().intValue());
+
+        // filter registered again after all left
+        multiplexer.subscribe("info3", 1, params("latest", ADDRESS, "Get()"),
+            subscriber("app3", "abi1"));
+        Assert.assertEquals(2, registered.size());
+    }
+
+    @Test
+    public void testDistinctFilter() {
+        multiplexer.subscribe("info1", 1, params("latest", ADDRESS, "Set(uint256)"),
+            subscriber("app1", "abi1"));
+        multiplexer.subscribe("info2", 1, params("latest", ADDRESS, "Get()"),
+            subscriber("app2", "abi1"));
+        multiplexer.subscribe("info3", 1, params("10", ADDRESS, "Get()"),
+            subscriber("app3", "abi1"));
+        Assert.assertEquals(3, registered.size());
+    }
+
+    @Test
+    public void testHistoryFilterNotJoinableAfterPush() {
+        multiplexer.subscribe("info1", 1, params("10", ADDRESS, "Get()"),
+            subscriber("app1", "abi1"));
+        multiplexer.subscribe("info2", 1, params("10", ADDRESS, "Get()"),
+            subscriber("app2", "abi1"));
+        Assert.assertEquals(1, registered.size());
+
+        registered.get(0).onPushEventLog(EventLogFilterPushStatus.SUCCESS.getStatus(),
+            new ArrayList<>());
+        // logs from block 10 already pushed, new subscriber needs its own filter
+        multiplexer.subscribe("info3", 1, params("10", ADDRESS, "Get()"),
+            subscriber("app3", "abi1"));
+        Assert.assertEquals(2, registered.size());
+        verify(mqPublisher, times(2)).sendToTradeFinishedByString(anyString(), anyString(),
+            anyString());
+    }
+
+    @Test
+    public void testStreamOnlyLatestFilterOfStreamClient() {
+        // history filter of register is not streamed
+        multiplexer.subscribe("info1", 1, params("10", ADDRESS, "Get()"),
+            subscriber("app1", "abi1"));
+        List<LogResult> logs = new ArrayList<>();
+        registered.get(0).onPushEventLog(EventLogFilterPushStatus.SUCCESS.getStatus(), logs);
+        verify(streamService, never()).publishLogs(anyInt(), anyInt(), any(List.class));
+
+        // stream client joins latest filter of register
+        multiplexer.subscribe("info2", 1, params("latest", ADDRESS, "Get()"),
+            subscriber("app2", "abi1"));
+        multiplexer.subscribeStream("stream_1", 1, params("latest", ADDRESS, "Get()"));
+        Assert.assertEquals(2, registered.size());
+        registered.get(1).onPushEventLog(EventLogFilterPushStatus.SUCCESS.getStatus(), logs);
+        verify(streamService).publishLogs(1, EventLogFilterPushStatus.SUCCESS.getStatus(), logs);
+
+        // filter kept until register and stream client both leave
+        multiplexer.unsubscribe("info2");
+        verify(filterManager, never()).removeFilterAndCallback("register1", "filter1");
+        multiplexer.unsubscribe("stream_1");
+        verify(filterManager).removeFilterAndCallback("register1", "filter1");
+
+        try {
+            multiplexer.subscribeStream("stream_2", 2, params("latest", ADDRESS, "Get()"));
+            Assert.fail("group not exist");
+        } catch (FrontException e) {
+            Assert.assertEquals(ConstantCode.GROUPID_NOT_EXIST.getCode(),
+                e.getRetCode().getCode());
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/**
+ * Copyright 2014-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webank.webase.front.event;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import com.webank.webase.front.base.code.ConstantCode;
+import com.webank.webase.front.base.exception.FrontException;
+import com.webank.webase.front.base.properties.Constants;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.fisco.bcos.channel.event.filter.EventLogFilterPushStatus;
+import org.fisco.bcos.channel.event.filter.EventLogUserParams;
+import org.fisco.bcos.channel.event.filter.TopicTools;
+import org.fisco.bcos.web3j.protocol.core.methods.response.Log;
+import org.fisco.bcos.web3j.tx.txdecode.LogResult;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * sse stream with recording emitters
+ */
+public class EventStreamServiceTest {
+
+    private static final String ADDRESS = "0x0000000000000000000000000000000000000001";
+
+    private Constants constants;
+    private ThreadPoolTaskExecutor executor;
+    private EventFilterMultiplexer multiplexer;
+    private EventStreamService streamService;
+
+    /**
+     * record events sent, optionally blocked as slow client
+     */
+    private static class RecordingEmitter extends SseEmitter {
+        private final List<String> sent = new CopyOnWriteArrayList<>();
+        private CountDownLatch blocked = new CountDownLatch(0);
+        private volatile boolean completed;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            try {
+                blocked.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            StringBuilder event = new StringBuilder();
+            for (DataWithMediaType data : builder.build()) {
+                event.append(data.getData());
+            }
+            sent.add(event.toString());
+        }
+
+        @Override
+        public synchronized void complete() {
+            completed = true;
+        }
+    }
+
+    @Before
+    public void init() {
+        constants = new Constants();
+        constants.setEventStreamClientBufferSize(2);
+        constants.setEventStreamMaxClients(3);
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.initialize();
+        multiplexer = mock(EventFilterMultiplexer.class);
+        streamService = new EventStreamService();
+        ReflectionTestUtils.setField(streamService, "eventFilterMultiplexer", multiplexer);
+        ReflectionTestUtils.setField(streamService, "constants", constants);
+        ReflectionTestUtils.setField(streamService, "eventStreamThreadPool", executor);
+        streamService.init();
+    }
+
+    @After
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    private static List<String> waitSent(RecordingEmitter emitter, int count)
+        throws InterruptedException {
+        for (int i = 0; i < 100 && emitter.sent.size() < count; i++) {
+            Thread.sleep(20);
+        }
+        return emitter.sent;
+    }
+
+    private static LogResult logOf(String address, String topic, int logIndex) {
+        Log log = new Log();
+        log.setAddress(address);
+        log.setTopics(Collections.singletonList(topic));
+        log.setBlockNumber("0x1");
+        log.setTransactionIndex("0x0");
+        log.setLogIndex("0x" + Integer.toHexString(logIndex));
+        LogResult logResult = new LogResult();
+        logResult.setLog(log);
+        return logResult;
+    }
+
+    @Test
+    public void testBlockByGroupAndType() throws Exception {
+        RecordingEmitter group1 = new RecordingEmitter();
+        RecordingEmitter group2 = new RecordingEmitter();
+        RecordingEmitter eventOnly = new RecordingEmitter();
+        streamService.register(group1, 1, null, null, null);
+        streamService.register(group2, 2, null, null, "block");
+        streamService.register(eventOnly, 1, null, null, "event");
+
+        streamService.publishBlock(1, BigInteger.TEN);
+        streamService.publishBlock(2, BigInteger.ONE);
+        List<String> sent = waitSent(group1, 1);
+        Assert.assertEquals(1, sent.size());
+        Assert.assertTrue(sent.get(0).contains("event:block"));
+        Assert.assertTrue(sent.get(0).contains("\"blockNumber\":10"));
+        Assert.assertEquals(1, waitSent(group2, 1).size());
+        Assert.assertTrue(group2.sent.get(0).contains("\"blockNumber\":1"));
+        Thread.sleep(100);
+        Assert.assertTrue(eventOnly.sent.isEmpty());
+
+        try {
+            streamService.register(new RecordingEmitter(), 1, null, null, null);
+            Assert.fail("clients exceed max");
+        } catch (FrontException e) {
+            Assert.assertEquals(ConstantCode.EVENT_STREAM_OVERLOAD.getCode(),
+                e.getRetCode().getCode());
+        }
+    }
+
+    @Test
+    public void testEventFilterAndDedup() throws Exception {
+        RecordingEmitter byTopic = new RecordingEmitter();
+        RecordingEmitter byContract = new RecordingEmitter();
+        streamService.register(byTopic, 1, null, Arrays.asList("Set(uint256)"), "event");
+        streamService.register(byContract, 1, ADDRESS.toUpperCase().replace("0X", "0x"), null,
+            "event");
+
+        String setTopic = TopicTools.stringToTopic("Set(uint256)");
+        String getTopic = TopicTools.stringToTopic("Get()");
+        List<LogResult> logs = Arrays.asList(logOf(ADDRESS, setTopic, 0),
+            logOf("0x0000000000000000000000000000000000000002", setTopic, 1),
+            logOf(ADDRESS, getTopic, 2));
+        streamService.publishLogs(1, EventLogFilterPushStatus.SUCCESS.getStatus(), logs);
+        // same logs pushed by another overlapping filter
+        streamService.publishLogs(1, EventLogFilterPushStatus.SUCCESS.getStatus(), logs);
+        streamService.publishLogs(2, EventLogFilterPushStatus.SUCCESS.getStatus(), logs);
+
+        Assert.assertEquals(2, waitSent(byTopic, 2).size());
+        Assert.assertEquals(2, waitSent(byContract, 2).size());
+        Thread.sleep(100);
+        Assert.assertEquals(2, byTopic.sent.size());
+        Assert.assertEquals(2, byContract.sent.size());
+        Assert.assertTrue(byContract.sent.get(1).contains("event:event"));
+        Assert.assertTrue(byContract.sent.get(1).contains(getTopic));
+    }
+
+    @Test
+    public void testLatestFilterOfEventClient() throws Exception {
+        RecordingEmitter blockOnly = new RecordingEmitter();
+        RecordingEmitter event = new RecordingEmitter();
+        streamService.register(blockOnly, 1, null, null, "block");
+        verify(multiplexer, never()).subscribeStream(anyString(), anyInt(),
+            any(EventLogUserParams.class));
+
+        EventStreamService.StreamClient client = streamService.register(event, 1,
+            ADDRESS.toUpperCase().replace("0X", "0x"), Arrays.asList("Set(uint256)"), "event");
+        ArgumentCaptor<EventLogUserParams> params =
+            ArgumentCaptor.forClass(EventLogUserParams.class);
+        verify(multiplexer).subscribeStream(eq("stream_" + client.getId()), eq(1),
+            params.capture());
+        Assert.assertEquals("latest", params.getValue().getFromBlock());
+        Assert.assertEquals("latest", params.getValue().getToBlock());
+        Assert.assertEquals(Collections.singletonList(ADDRESS), params.getValue().getAddresses());
+        Assert.assertEquals(Collections.singletonList(
+            Collections.singletonList(TopicTools.stringToTopic("Set(uint256)").toLowerCase())),
+            params.getValue().getTopics());
+
+        // node filter released when client leaves
+        ReflectionTestUtils.invokeMethod(streamService, "remove", client);
+        verify(multiplexer).unsubscribe("stream_" + client.getId());
+        Assert.assertEquals(1, streamService.getStat().getClientCount().intValue());
+    }
+
+    @Test
+    public void testEvictSlowClient() throws Exception {
+        RecordingEmitter slow = new RecordingEmitter();
+        slow.blocked = new CountDownLatch(1);
+        RecordingEmitter fast = new RecordingEmitter();
+        streamService.register(slow, 1, null, null, "block");
+        streamService.register(fast, 1, null, null, "block");
+
+        // publisher never blocks on slow client
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 10; i++) {
+            streamService.publishBlock(1, BigInteger.valueOf(i));
+            // fast client keeps up
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(System.currentTimeMillis() - start < 1000);
+        Assert.assertEquals(10, waitSent(fast, 10).size());
+        Assert.assertTrue(slow.completed);
+        Assert.assertEquals(1, streamService.getStat().getClientCount().intValue());
+        Assert.assertEquals(1, streamService.getStat().getEvictedCount().longValue());
+        slow.blocked.countDown();
+    }
+}
@@ -0,0 +1,342 @@
+/**
+ * Copyright 2014-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webank.webase.front.event;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.rabbitmq.client.AMQP.BasicProperties;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmListener;
+import com.webank.webase.front.base.properties.Constants;
+import com.webank.webase.front.event.MQPublisher.ConfirmTracker;
+import com.webank.webase.front.event.MQPublisher.PendingMessage;
+import com.webank.webase.front.event.MQPublisher.PublishResult;
+import com.webank.webase.front.event.entity.MQPublishStat;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.amqp.rabbit.core.ChannelCallback;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.support.PublisherCallbackChannel;
+import org.springframework.amqp.support.converter.SimpleMessageConverter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * async publisher with mocked rabbit channel
+ */
+public class MQPublisherBatchTest {
+
+    private static final String ACK = "ack";
+    private static final String NACK = "nack";
+    private static final String NONE = "none";
+    private static final String FAIL = "fail";
+
+    private Constants constants;
+    private RabbitTemplate rabbitTemplate;
+    private Channel channel;
+    private MQPublisher publisher;
+    private CountDownLatch brokerBlocked;
+    /**
+     * confirm of each message published by broker in order, acked if empty
+     */
+    private Queue<String> confirms = new ConcurrentLinkedQueue<>();
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void init() throws Exception {
+        constants = new Constants();
+        constants.setMqPublishBatchSize(10);
+        constants.setMqPublishQueueCapacity(5);
+        constants.setMqPublishConfirmTimeout(100);
+        constants.setMqPublishMaxRetry(2);
+        constants.setMqPublishRetryInterval(10);
+        // channel of factory with publisher confirms
+        channel = mock(PublisherCallbackChannel.class);
+        mockBroker(channel);
+        rabbitTemplate = mock(RabbitTemplate.class);
+        when(rabbitTemplate.getMessageConverter()).thenReturn(new SimpleMessageConverter());
+        brokerBlocked = new CountDownLatch(0);
+        when(rabbitTemplate.execute(any(ChannelCallback.class))).thenAnswer(invocation -> {
+            // slow broker
+            brokerBlocked.await(5, TimeUnit.SECONDS);
+            return ((ChannelCallback<?>) invocation.getArguments()[0]).doInRabbit(channel);
+        });
+        publisher = new MQPublisher();
+        ReflectionTestUtils.setField(publisher, "rabbitTemplate", rabbitTemplate);
+        ReflectionTestUtils.setField(publisher, "constants", constants);
+    }
+
+    @After
+    public void destroy() throws Exception {
+        brokerBlocked = new CountDownLatch(0);
+        publisher.destroy();
+    }
+
+    /**
+     * channel confirms each message on publish by delivery tag as listed in confirms
+     */
+    private void mockBroker(Channel mockChannel) throws IOException {
+        AtomicLong seqNo = new AtomicLong(1);
+        AtomicReference<ConfirmListener> listener = new AtomicReference<>();
+        doAnswer(invocation -> {
+            listener.set((ConfirmListener) invocation.getArguments()[0]);
+            return null;
+        }).when(mockChannel).addConfirmListener(any(ConfirmListener.class));
+        when(mockChannel.getNextPublishSeqNo()).thenAnswer(invocation -> seqNo.get());
+        doAnswer(invocation -> {
+            long deliveryTag = seqNo.getAndIncrement();
+            String confirm = confirms.poll();
+            if (FAIL.equals(confirm)) {
+                throw new IOException("channel closed");
+            } else if (NACK.equals(confirm)) {
+                listener.get().handleNack(deliveryTag, false);
+            } else if (!NONE.equals(confirm)) {
+                listener.get().handleAck(deliveryTag, false);
+            }
+            return null;
+        }).when(mockChannel).basicPublish(anyString(), anyString(), anyBoolean(),
+            any(BasicProperties.class), any(byte[].class));
+    }
+
+    private MQPublishStat waitPublished(long count) throws InterruptedException {
+        MQPublishStat stat = publisher.getStat();
+        for (int i = 0; i < 100 && stat.getPublishedCount() + stat.getNackCount() < count; i++) {
+            Thread.sleep(50);
+            stat = publisher.getStat();
+        }
+        return stat;
+    }
+
+    private static byte[] body(String messageStr) {
+        return messageStr.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testPublishWithConfirm() throws Exception {
+        publisher.init();
+        for (int i = 0; i < 5; i++) {
+            publisher.sendToTradeFinishedByString("exchange", "key" + i, "msg" + i);
+        }
+        MQPublishStat stat = waitPublished(5);
+        Assert.assertEquals(5, stat.getPublishedCount());
+        Assert.assertEquals(0, stat.getQueueDepth());
+        verify(channel).basicPublish(eq("exchange"), eq("key0"), eq(false),
+            any(BasicProperties.class), eq(body("msg0")));
+        verify(channel, times(5)).basicPublish(anyString(), anyString(), anyBoolean(),
+            any(BasicProperties.class), any(byte[].class));
+    }
+
+    @Test
+    public void testPublishedCallback() throws Exception {
+        publisher.init();
+        CountDownLatch published = new CountDownLatch(2);
+        publisher.sendToTradeFinishedByString("exchange", "key", "msg0", published::countDown);
+        publisher.sendToTradeFinishedByString("exchange", "key", "msg1", published::countDown);
+        Assert.assertTrue(published.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testNack() throws Exception {
+        confirms.addAll(Arrays.asList(NACK, NACK, NACK));
+        publisher.init();
+        AtomicBoolean callbackRun = new AtomicBoolean();
+        publisher.sendToTradeFinishedByString("exchange", "key", "msg",
+            () -> callbackRun.set(true));
+        MQPublishStat stat = waitPublished(1);
+        Assert.assertEquals(1, stat.getNackCount());
+        Assert.assertEquals(0, stat.getPublishedCount());
+        // dropped after bounded retries
+        Assert.assertEquals(2, stat.getRetryCount());
+        verify(channel, times(3)).basicPublish(anyString(), anyString(), anyBoolean(),
+            any(BasicProperties.class), any(byte[].class));
+        // nacked message does not run callback
+        Assert.assertFalse(callbackRun.get());
+    }
+
+    @Test
+    public void testDroppedCallback() throws Exception {
+        confirms.addAll(Arrays.asList(NACK, NACK, NACK));
+        publisher.init();
+        CountDownLatch dropped = new CountDownLatch(1);
+        CountDownLatch published = new CountDownLatch(1);
+        publisher.sendToTradeFinishedByString("exchange", "key", "msg0", null,
+            dropped::countDown);
+        Assert.assertTrue(dropped.await(5, TimeUnit.SECONDS));
+        AtomicBoolean droppedRun = new AtomicBoolean();
+        publisher.sendToTradeFinishedByString("exchange", "key", "msg1", published::countDown,
+            () -> droppedRun.set(true));
+        Assert.assertTrue(published.await(5, TimeUnit.SECONDS));
+        Assert.assertFalse(droppedRun.get());
+    }
+
+    @Test
+    public void testRetryAfterNack() throws Exception {
+        confirms.add(NACK);
+        publisher.init();
+        CountDownLatch published = new CountDownLatch(1);
+        publisher.sendToTradeFinishedByString("exchange", "key", "msg", published::countDown);
+        Assert.assertTrue(published.await(5, TimeUnit.SECONDS));
+        MQPublishStat stat = publisher.getStat();
+        Assert.assertEquals(1, stat.getPublishedCount());
+        Assert.assertEquals(1, stat.getRetryCount());
+        Assert.assertEquals(0, stat.getNackCount());
+    }
+
+    @Test
+    public void testRetryAfterFailure() throws Exception {
+        confirms.add(FAIL);
+        publisher.init();
+        CountDownLatch published = new CountDownLatch(1);
+        publisher.sendToTradeFinishedByString("exchange", "key", "msg", published::countDown);
+        Assert.assertTrue(published.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(0, publisher.getStat().getFailedCount());
+    }
+
+    @Test
+    public void testRetryOnlyUnconfirmed() throws Exception {
+        brokerBlocked = new CountDownLatch(1);
+        publisher.init();
+        List<String> publishedOrder = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch published = new CountDownLatch(4);
+        // msg0 alone in first batch, others in one batch while broker is blocked
+        for (int i = 0; i < 4; i++) {
+            String messageStr = "msg" + i;
+            publisher.sendToTradeFinishedByString("exchange", "key", messageStr, () -> {
+                publishedOrder.add(messageStr);
+                published.countDown();
+            });
+            if (i == 0) {
+                verify(rabbitTemplate, timeout(1000)).execute(any(ChannelCallback.class));
+            }
+        }
+        confirms.addAll(Arrays.asList(ACK, ACK, NACK, ACK));
+        brokerBlocked.countDown();
+        Assert.assertTrue(published.await(5, TimeUnit.SECONDS));
+        // acked messages of nacked batch are not published again
+        verify(channel, times(2)).basicPublish(anyString(), anyString(), anyBoolean(),
+            any(BasicProperties.class), eq(body("msg2")));
+        verify(channel, times(5)).basicPublish(anyString(), anyString(), anyBoolean(),
+            any(BasicProperties.class), any(byte[].class));
+        // callbacks in order of message
+        Assert.assertEquals(Arrays.asList("msg0", "msg1", "msg2", "msg3"), publishedOrder);
+        Assert.assertEquals(1, publisher.getStat().getRetryCount());
+    }
+
+    @Test
+    public void testRetryNotBlockLaterMessages() throws Exception {
+        constants.setMqPublishRetryInterval(2000);
+        confirms.add(NACK);
+        publisher.init();
+        CountDownLatch published = new CountDownLatch(2);
+        publisher.sendToTradeFinishedByString("exchange", "key", "msg0", published::countDown);
+        verify(channel, timeout(1000)).basicPublish(anyString(), anyString(), anyBoolean(),
+            any(BasicProperties.class), eq(body("msg0")));
+        publisher.sendToTradeFinishedByString("exchange", "key", "msg1", published::countDown);
+        // published before retry of msg0 is due, but not taken as published before msg0
+        verify(channel, timeout(1000)).basicPublish(anyString(), anyString(), anyBoolean(),
+            any(BasicProperties.class), eq(body("msg1")));
+        Assert.assertEquals(2, published.getCount());
+        Assert.assertTrue(published.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(2, publisher.getStat().getPublishedCount());
+    }
+
+    @Test
+    public void testConfirmWithoutPublisherConfirms() throws Exception {
+        // plain channel of factory without publisher confirms
+        Channel plainChannel = mock(Channel.class);
+        mockBroker(plainChannel);
+        confirms.add(NONE);
+        doAnswer(invocation ->
+            ((ChannelCallback<?>) invocation.getArguments()[0]).doInRabbit(plainChannel))
+            .when(rabbitTemplate).execute(any(ChannelCallback.class));
+        constants.setMqPublishMaxRetry(0);
+        publisher.init();
+        publisher.sendToTradeFinishedByString("exchange", "key", "msg");
+        MQPublishStat stat = waitPublished(1);
+        // not taken as acked after bare basicPublish
+        Assert.assertEquals(0, stat.getPublishedCount());
+        Assert.assertEquals(1, stat.getNackCount());
+        verify(plainChannel).confirmSelect();
+        verify(channel, times(0)).confirmSelect();
+    }
+
+    @Test
+    public void testConfirmMultiple() throws Exception {
+        PendingMessage[] messages = new PendingMessage[3];
+        ConfirmTracker tracker = new ConfirmTracker();
+        for (int i = 0; i < 3; i++) {
+            messages[i] = new PendingMessage("exchange", "key", "msg" + i, null, null);
+            tracker.add(i + 1, messages[i]);
+        }
+        tracker.handleAck(2, true);
+        tracker.close(Arrays.asList(messages), PublishResult.NACKED);
+        // late confirm ignored
+        tracker.handleAck(3, false);
+        Assert.assertEquals(PublishResult.ACKED,
+            ReflectionTestUtils.getField(messages[0], "result"));
+        Assert.assertEquals(PublishResult.ACKED,
+            ReflectionTestUtils.getField(messages[1], "result"));
+        Assert.assertEquals(PublishResult.NACKED,
+            ReflectionTestUtils.getField(messages[2], "result"));
+    }
+
+    @Test
+    public void testDropNewestWhenFull() throws Exception {
+        constants.setMqOverflowPolicy("dropNewest");
+        brokerBlocked = new CountDownLatch(1);
+        publisher.init();
+        // callback thread never blocks on slow broker
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 20; i++) {
+            publisher.sendToTradeFinishedByString("exchange", "key", "msg" + i);
+        }
+        Assert.assertTrue(System.currentTimeMillis() - start < 1000);
+        MQPublishStat stat = publisher.getStat();
+        Assert.assertEquals("DROP_NEWEST", stat.getOverflowPolicy());
+        Assert.assertTrue(stat.getDroppedCount() > 0);
+        AtomicBoolean droppedRun = new AtomicBoolean();
+        publisher.sendToTradeFinishedByString("exchange", "key", "msg", null,
+            () -> droppedRun.set(true));
+        Assert.assertTrue(droppedRun.get());
+        brokerBlocked.countDown();
+        stat = waitPublished(21 - publisher.getStat().getDroppedCount());
+        Assert.assertEquals(21, stat.getPublishedCount() + stat.getDroppedCount());
+    }
+}
@@ -41,7 +41,6 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static com.webank.webase.front.util.AbiUtil.outputFormat;
-import static com.webank.webase.front.util.ContractAbiUtil.contractEventMap;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -168,9 +167,9 @@ public class BasicTest extends TestBase {
         String version = "1.0";
         List<AbiDefinition> abiList = ContractAbiUtil.loadContractDefinition(new File("src/test/resources/solidity/HelloWorldGM.abi"));
         ContractAbiUtil.setContractWithAbi(contractName, version, abiList, false);
-        List<ContractAbiUtil.VersionEvent> versionEvents = contractEventMap.get("hello");
+        ContractAbiUtil.VersionEvent versionEvent = ContractAbiUtil.getVersionEvent(contractName, version);
         String funcName = "set";
-        List<String> funcInputTypes = versionEvents.get(0).getFuncInputs().get(funcName);
+        List<String> funcInputTypes = versionEvent.getFuncInputs().get(funcName);
         ArrayList a = new ArrayList();
 //        a.add("123");
 //        a.add("12345");
@@ -192,7 +191,7 @@ public class BasicTest extends TestBase {
         System.out.println(res);
         //invoke get function
         String funcName1 = "get";
-        List<String> funcInputTypes1 = versionEvents.get(0).getFuncInputs().get(funcName1);
+        List<String> funcInputTypes1 = versionEvent.getFuncInputs().get(funcName1);
         ArrayList a1 = new ArrayList();
         List<Object> params1 = a1;
         List<Type> finalInputs1 = AbiUtil.inputFormat(funcInputTypes1, params1);
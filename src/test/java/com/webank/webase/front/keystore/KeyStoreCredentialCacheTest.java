@@ -0,0 +1,104 @@
+/**
+ * Copyright 2014-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webank.webase.front.keystore;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.webank.webase.front.base.exception.FrontException;
+import com.webank.webase.front.base.properties.Constants;
+import com.webank.webase.front.base.response.CacheStat;
+import com.webank.webase.front.keystore.entity.KeyStoreInfo;
+import com.webank.webase.front.util.AesUtils;
+import java.util.HashSet;
+import java.util.Set;
+import org.fisco.bcos.web3j.crypto.Credentials;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class KeyStoreCredentialCacheTest {
+
+    private static final String PRIVATE_KEY =
+        "71f1479d9051e8d6b141a3b3ef9c01a7756da823a0af280c6bf62d18ee0cc978";
+    private static final String ADDRESS = "0x01";
+
+    private KeyStoreService keyStoreService;
+    private KeystoreRepository keystoreRepository;
+
+    @Before
+    public void init() {
+        Constants constants = new Constants();
+        constants.setCredentialCacheMaxSize(10);
+        constants.setCredentialCacheIdleTime(60);
+        constants.setQueryIdentitySize(2);
+        keystoreRepository = mock(KeystoreRepository.class);
+        AesUtils aesUtils = mock(AesUtils.class);
+        KeyStoreInfo keyStoreInfo = new KeyStoreInfo();
+        keyStoreInfo.setAddress(ADDRESS);
+        keyStoreInfo.setPrivateKey("encrypted");
+        when(keystoreRepository.findByAddress(ADDRESS)).thenReturn(keyStoreInfo);
+        when(aesUtils.aesDecrypt("encrypted")).thenReturn(PRIVATE_KEY);
+
+        keyStoreService = new KeyStoreService();
+        ReflectionTestUtils.setField(keyStoreService, "constants", constants);
+        ReflectionTestUtils.setField(keyStoreService, "keystoreRepository", keystoreRepository);
+        ReflectionTestUtils.setField(keyStoreService, "aesUtils", aesUtils);
+        keyStoreService.init();
+    }
+
+    @Test
+    public void testCacheHit() {
+        Credentials first = keyStoreService.getCredentials(ADDRESS);
+        Credentials second = keyStoreService.getCredentials(ADDRESS);
+        Assert.assertSame(first, second);
+        verify(keystoreRepository, times(1)).findByAddress(ADDRESS);
+        CacheStat stat = keyStoreService.getCredentialCacheStat();
+        Assert.assertEquals(1, stat.getHitCount());
+        Assert.assertEquals(1, stat.getMissCount());
+        Assert.assertEquals(1, stat.getSize());
+    }
+
+    @Test
+    public void testInvalidateOnDelete() {
+        keyStoreService.getCredentials(ADDRESS);
+        keyStoreService.deleteKeyStore(ADDRESS);
+        Assert.assertEquals(0, keyStoreService.getCredentialCacheStat().getSize());
+        keyStoreService.getCredentials(ADDRESS);
+        verify(keystoreRepository, times(2)).findByAddress(ADDRESS);
+    }
+
+    @Test
+    public void testQueryIdentityRotated() {
+        Set<String> addresses = new HashSet<>();
+        for (int i = 0; i < 10; i++) {
+            addresses.add(keyStoreService.getCredentialsForQuery().getAddress());
+            addresses.add(keyStoreService.getKeyStoreInfoForQuery().getAddress());
+        }
+        Assert.assertEquals(2, addresses.size());
+        keyStoreService.refreshQueryIdentities();
+        Assert.assertFalse(addresses.contains(keyStoreService.getCredentialsForQuery().getAddress()));
+    }
+
+    @Test(expected = FrontException.class)
+    public void testUserNotExist() {
+        keyStoreService.getCredentials("0x02");
+    }
+}
@@ -0,0 +1,155 @@
+/**
+ * Copyright 2014-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webank.webase.front.keystore;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.webank.webase.front.base.exception.FrontException;
+import com.webank.webase.front.base.properties.Constants;
+import com.webank.webase.front.keystore.entity.EncodeInfo;
+import com.webank.webase.front.keystore.entity.SignStat;
+import com.webank.webase.front.util.JsonUtils;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * sign client against a local http stub of webase-sign
+ */
+public class SignClientTest {
+
+    private HttpServer signServer;
+    private ExecutorService signServerPool;
+    private SignClient signClient;
+    private ThreadPoolTaskExecutor signThreadPool;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    @Before
+    public void init() throws IOException {
+        // stub of webase-sign: returns encoded data reversed after 10ms, fails user "bad"
+        signServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        signServer.createContext("/WeBASE-Sign/sign", this::handleSign);
+        signServerPool = Executors.newFixedThreadPool(16);
+        signServer.setExecutor(signServerPool);
+        signServer.start();
+
+        Constants constants = new Constants();
+        constants.setKeyServer("127.0.0.1:" + signServer.getAddress().getPort());
+        KeyStoreService keyStoreService = new KeyStoreService();
+        ReflectionTestUtils.setField(keyStoreService, "constants", constants);
+        ReflectionTestUtils.setField(keyStoreService, "restTemplate", new RestTemplate());
+
+        signThreadPool = new ThreadPoolTaskExecutor();
+        signThreadPool.setCorePoolSize(4);
+        signThreadPool.setMaxPoolSize(4);
+        signThreadPool.initialize();
+        signClient = new SignClient();
+        ReflectionTestUtils.setField(signClient, "keyStoreService", keyStoreService);
+        ReflectionTestUtils.setField(signClient, "signThreadPool", signThreadPool);
+    }
+
+    @After
+    public void destroy() {
+        signThreadPool.shutdown();
+        signServer.stop(0);
+        signServerPool.shutdownNow();
+    }
+
+    @Test
+    public void testSign() throws Exception {
+        int total = 50;
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < total; i++) {
+            futures.add(signClient.sign(buildEncodeInfo("user", "ab" + i)));
+        }
+        for (int i = 0; i < total; i++) {
+            Assert.assertEquals(new StringBuilder("ab" + i).reverse().toString(),
+                futures.get(i).get(5, TimeUnit.SECONDS));
+        }
+        SignStat stat = signClient.getStat();
+        Assert.assertEquals(total, stat.getTaskCount());
+        Assert.assertEquals(0, stat.getFailCount());
+        // in-flight requests to webase-sign are bounded by signThreadPool
+        Assert.assertTrue(maxInFlight.get() <= 4);
+    }
+
+    @Test
+    public void testSignError() {
+        CompletableFuture<String> future = signClient.sign(buildEncodeInfo("bad", "ab"));
+        try {
+            future.join();
+            Assert.fail();
+        } catch (Exception e) {
+            Assert.assertTrue(e.getCause() instanceof FrontException);
+        }
+        Assert.assertEquals(1, signClient.getStat().getFailCount());
+    }
+
+    private EncodeInfo buildEncodeInfo(String signUserId, String encodedDataStr) {
+        EncodeInfo encodeInfo = new EncodeInfo();
+        encodeInfo.setSignUserId(signUserId);
+        encodeInfo.setEncodedDataStr(encodedDataStr);
+        return encodeInfo;
+    }
+
+    private void handleSign(HttpExchange exchange) throws IOException {
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            String body = new Scanner(exchange.getRequestBody(), "UTF-8").useDelimiter("\\A")
+                .next();
+            JsonNode req = JsonUtils.stringToJsonNode(body);
+            Thread.sleep(10);
+            String rsp;
+            if ("bad".equals(req.get("signUserId").asText())) {
+                rsp = "{\"code\":303001,\"message\":\"user does not exist\"}";
+            } else {
+                String signDataStr = new StringBuilder(req.get("encodedDataStr").asText())
+                    .reverse().toString();
+                rsp = "{\"code\":0,\"message\":\"success\",\"data\":{\"signDataStr\":\""
+                    + signDataStr + "\"}}";
+            }
+            byte[] bytes = rsp.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright 2014-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webank.webase.front.transaction;
+
+import com.webank.webase.front.base.properties.Constants;
+import com.webank.webase.front.base.response.CacheStat;
+import com.webank.webase.front.web3api.ChainHeadTracker;
+import com.webank.webase.front.web3api.entity.ChainHead;
+import java.math.BigInteger;
+import java.util.Collections;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class CallResultCacheTest {
+
+    private static final String CONTRACT = "0x8fdc6a2e3ea3c5c1c6bda96d4a6e89a6b0a40c1f";
+    private static final String DATA = "0x6d4ce63c";
+
+    private CallResultCache cache;
+    private ChainHeadTracker chainHeadTracker;
+
+    @Before
+    public void init() {
+        Constants constants = new Constants();
+        constants.setCallCacheContractList(Collections.singletonList(CONTRACT.toUpperCase()));
+        constants.setCallCacheMaxWeight(1024);
+        cache = new CallResultCache();
+        ReflectionTestUtils.setField(cache, "constants", constants);
+        chainHeadTracker = Mockito.mock(ChainHeadTracker.class);
+        ReflectionTestUtils.setField(cache, "chainHeadTracker", chainHeadTracker);
+        cache.init();
+    }
+
+    @Test
+    public void testOptIn() {
+        Assert.assertTrue(cache.isEnabled(CONTRACT));
+        Assert.assertFalse(cache.isEnabled("0x01"));
+    }
+
+    @Test
+    public void testValidAtBlockHeight() {
+        setBlockNumber(1, BigInteger.TEN);
+        cache.put(1, null, CONTRACT, DATA, BigInteger.TEN, "0x01");
+        Assert.assertEquals("0x01", cache.get(1, null, CONTRACT, DATA));
+        // other group or caller
+        Assert.assertNull(cache.get(2, null, CONTRACT, DATA));
+        Assert.assertNull(cache.get(1, "0x02", CONTRACT, DATA));
+        // new block
+        setBlockNumber(1, BigInteger.valueOf(11));
+        Assert.assertNull(cache.get(1, null, CONTRACT, DATA));
+        // result of stale height is not cached
+        cache.put(1, null, CONTRACT, DATA, BigInteger.TEN, "0x01");
+        Assert.assertNull(cache.get(1, null, CONTRACT, DATA));
+        // stale chain head
+        Mockito.when(chainHeadTracker.isStale(Mockito.any())).thenReturn(true);
+        Assert.assertNull(cache.getBlockNumber(1));
+
+        CacheStat stat = cache.getStat();
+        Assert.assertEquals(1, stat.getHitCount());
+        Assert.assertEquals(4, stat.getMissCount());
+    }
+
+    @Test
+    public void testBounded() {
+        setBlockNumber(1, BigInteger.ONE);
+        for (int i = 0; i < 100; i++) {
+            cache.put(1, null, CONTRACT, DATA + i, BigInteger.ONE, "0x01");
+        }
+        Assert.assertTrue(cache.getStat().getSize() < 100);
+    }
+
+    private void setBlockNumber(int groupId, BigInteger blockNumber) {
+        Mockito.when(chainHeadTracker.getSnapshot(groupId)).thenReturn(
+            new ChainHead(groupId, blockNumber, BigInteger.ZERO, BigInteger.ZERO,
+                System.currentTimeMillis()));
+    }
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright 2014-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webank.webase.front.transaction;
+
+import com.webank.webase.front.base.exception.TransOverloadException;
+import com.webank.webase.front.base.properties.Constants;
+import com.webank.webase.front.transaction.entity.RspTransInFlight;
+import java.util.concurrent.CompletableFuture;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class TransLimiterTest {
+
+    private TransLimiter transLimiter;
+
+    @Before
+    public void init() {
+        Constants constants = new Constants();
+        constants.setTransLimitPerGroup(2);
+        constants.setTransLimitWaitTime(0);
+        constants.setTransLimitRetryAfter(3);
+        transLimiter = new TransLimiter();
+        ReflectionTestUtils.setField(transLimiter, "constants", constants);
+        transLimiter.init();
+    }
+
+    @After
+    public void destroy() {
+        transLimiter.destroy();
+    }
+
+    @Test
+    public void testRejectWhenFull() {
+        TransLimiter.Permit first = transLimiter.acquire(1);
+        transLimiter.acquire(1);
+        try {
+            transLimiter.acquire(1);
+            Assert.fail();
+        } catch (TransOverloadException e) {
+            Assert.assertEquals(3, e.getRetryAfter());
+        }
+        // other group is not affected
+        transLimiter.acquire(2);
+        // release is idempotent
+        first.release();
+        first.release();
+        transLimiter.acquire(1);
+
+        RspTransInFlight inFlight = transLimiter.getInFlightList().stream()
+            .filter(s -> s.getGroupId() == 1).findFirst().get();
+        Assert.assertEquals(2, inFlight.getInFlight());
+        Assert.assertEquals(1, inFlight.getRejectedCount());
+    }
+
+    @Test
+    public void testReleaseOn() throws Exception {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        transLimiter.releaseOn(transLimiter.acquire(1), future, 60000);
+        transLimiter.releaseOn(transLimiter.acquire(1), new CompletableFuture<>(), 50);
+        future.complete(null);
+        Thread.sleep(200);
+        Assert.assertEquals(0, transLimiter.getInFlightList().get(0).getInFlight());
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright 2014-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webank.webase.front.transaction;
+
+import com.webank.webase.front.base.properties.Constants;
+import java.util.concurrent.CompletableFuture;
+import org.fisco.bcos.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class TransReceiptRegistryTest {
+
+    private TransReceiptRegistry registry;
+
+    @Before
+    public void init() {
+        Constants constants = new Constants();
+        constants.setReceiptCacheMaxSize(2);
+        constants.setReceiptCacheTtl(60);
+        registry = new TransReceiptRegistry();
+        ReflectionTestUtils.setField(registry, "constants", constants);
+        registry.init();
+    }
+
+    @Test
+    public void testRegisterAndComplete() {
+        CompletableFuture<TransactionReceipt> future = registry.register("0x01");
+        Assert.assertFalse(registry.get("0x01").isDone());
+        TransactionReceipt receipt = new TransactionReceipt();
+        receipt.setTransactionHash("0x01");
+        future.complete(receipt);
+        Assert.assertEquals("0x01", registry.get("0x01").getNow(null).getTransactionHash());
+        Assert.assertNull(registry.get("0x02"));
+    }
+
+    @Test
+    public void testBounded() {
+        registry.register("0x01");
+        registry.register("0x02");
+        registry.register("0x03");
+        Assert.assertTrue(registry.size() <= 2);
+        Assert.assertNotNull(registry.get("0x03"));
+    }
+}
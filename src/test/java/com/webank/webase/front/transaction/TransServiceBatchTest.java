@@ -0,0 +1,315 @@
+/**
+ * Copyright 2014-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webank.webase.front.transaction;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.webank.webase.front.base.code.ConstantCode;
+import com.webank.webase.front.base.enums.ReceiptStatus;
+import com.webank.webase.front.base.properties.Constants;
+import com.webank.webase.front.keystore.KeyStoreService;
+import com.webank.webase.front.keystore.SignClient;
+import com.webank.webase.front.keystore.entity.EncodeInfo;
+import com.webank.webase.front.keystore.entity.KeyStoreInfo;
+import com.webank.webase.front.transaction.entity.ReqCallItem;
+import com.webank.webase.front.transaction.entity.ReqMultiCall;
+import com.webank.webase.front.transaction.entity.ReqTransHandleWithSign;
+import com.webank.webase.front.transaction.entity.RspReceiptStatus;
+import com.webank.webase.front.transaction.entity.RspTransBatch;
+import com.webank.webase.front.util.JsonUtils;
+import com.webank.webase.front.web3api.Web3ApiService;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.fisco.bcos.web3j.crypto.Credentials;
+import org.fisco.bcos.web3j.crypto.Hash;
+import org.fisco.bcos.web3j.crypto.Keys;
+import org.fisco.bcos.web3j.protocol.Web3j;
+import org.fisco.bcos.web3j.protocol.core.DefaultBlockParameter;
+import org.fisco.bcos.web3j.protocol.core.Request;
+import org.fisco.bcos.web3j.protocol.core.methods.request.Transaction;
+import org.fisco.bcos.web3j.protocol.core.methods.response.Call;
+import org.fisco.bcos.web3j.protocol.core.methods.response.SendTransaction;
+import org.fisco.bcos.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class TransServiceBatchTest {
+
+    private static final String ADDRESS = "0x0000000000000000000000000000000000000001";
+    private static final String ABI = "[{\"constant\":true,\"inputs\":[],\"name\":\"get\","
+        + "\"outputs\":[{\"name\":\"\",\"type\":\"uint256\"}],\"payable\":false,"
+        + "\"stateMutability\":\"view\",\"type\":\"function\"},"
+        + "{\"constant\":false,\"inputs\":[{\"name\":\"n\",\"type\":\"uint256\"}],"
+        + "\"name\":\"set\",\"outputs\":[],\"payable\":false,"
+        + "\"stateMutability\":\"nonpayable\",\"type\":\"function\"}]";
+    private static final String OUTPUT_42 =
+        "0x000000000000000000000000000000000000000000000000000000000000002a";
+
+    private TransService transService;
+    private Constants constants;
+    private Web3j web3j;
+    private SignClient signClient;
+    private AbiFunctionCache abiFunctionCache;
+    private ThreadPoolTaskExecutor transThreadPool;
+    private TransLimiter transLimiter;
+
+    @Before
+    public void init() throws Exception {
+        Constants.version = "2.6.0";
+        Constants.chainId = "1";
+        constants = new Constants();
+        constants.setTransMaxWait(1);
+        constants.setTransLimitPerGroup(0);
+
+        web3j = mock(Web3j.class);
+        when(web3j.getBlockNumberCache()).thenReturn(BigInteger.TEN);
+        Call call = new Call();
+        Call.CallOutput callOutput = new Call.CallOutput();
+        callOutput.setOutput(OUTPUT_42);
+        call.setResult(callOutput);
+        Request callRequest = mock(Request.class);
+        when(callRequest.send()).thenReturn(call);
+        when(callRequest.sendAsync()).thenReturn(CompletableFuture.completedFuture(call));
+        doReturn(callRequest).when(web3j)
+            .call(any(Transaction.class), any(DefaultBlockParameter.class));
+        Web3ApiService web3ApiService = mock(Web3ApiService.class);
+        when(web3ApiService.getWeb3j(1)).thenReturn(web3j);
+
+        KeyStoreService keyStoreService = mock(KeyStoreService.class);
+        KeyStoreInfo keyStoreInfo = new KeyStoreInfo();
+        keyStoreInfo.setAddress(ADDRESS);
+        when(keyStoreService.getKeyStoreInfoForQuery()).thenReturn(keyStoreInfo);
+        when(keyStoreService.getCredentialsForQuery())
+            .thenReturn(Credentials.create(Keys.createEcKeyPair()));
+        signClient = mock(SignClient.class);
+
+        transThreadPool = new ThreadPoolTaskExecutor();
+        transThreadPool.setCorePoolSize(4);
+        transThreadPool.initialize();
+        abiFunctionCache = new AbiFunctionCache();
+        ReflectionTestUtils.setField(abiFunctionCache, "constants", constants);
+        abiFunctionCache.init();
+        abiFunctionCache = spy(abiFunctionCache);
+        transLimiter = new TransLimiter();
+        ReflectionTestUtils.setField(transLimiter, "constants", constants);
+        transLimiter.init();
+
+        transService = new TransService();
+        ReflectionTestUtils.setField(transService, "web3ApiService", web3ApiService);
+        ReflectionTestUtils.setField(transService, "keyStoreService", keyStoreService);
+        ReflectionTestUtils.setField(transService, "constants", constants);
+        ReflectionTestUtils.setField(transService, "transThreadPool", transThreadPool);
+        ReflectionTestUtils.setField(transService, "abiFunctionCache", abiFunctionCache);
+        ReflectionTestUtils.setField(transService, "signClient", signClient);
+        ReflectionTestUtils.setField(transService, "callResultCache",
+            mock(CallResultCache.class));
+        ReflectionTestUtils.setField(transService, "transLimiter", transLimiter);
+        constants.setReceiptCacheMaxSize(100);
+        constants.setReceiptCacheTtl(60);
+        TransReceiptRegistry receiptRegistry = new TransReceiptRegistry();
+        ReflectionTestUtils.setField(receiptRegistry, "constants", constants);
+        receiptRegistry.init();
+        ReflectionTestUtils.setField(transService, "receiptRegistry", receiptRegistry);
+    }
+
+    @After
+    public void destroy() {
+        transLimiter.destroy();
+        transThreadPool.shutdown();
+    }
+
+    @Test
+    public void testTransBatchWithSharedDeadline() {
+        // sign of non-constant items never completes
+        when(signClient.sign(any(EncodeInfo.class))).thenReturn(new CompletableFuture<>());
+        ReqTransHandleWithSign encodeFail = buildReq("get", Collections.emptyList());
+        encodeFail.setContractAddress(null);
+        List<ReqTransHandleWithSign> reqList = Arrays.asList(encodeFail,
+            buildReq("get", Collections.emptyList()),
+            buildReq("set", Collections.singletonList(1)),
+            buildReq("set", Collections.singletonList(2)));
+
+        RspTransBatch rsp = transService.transHandleWithSignBatch(reqList);
+
+        Assert.assertEquals(4, rsp.getTotalCount());
+        Assert.assertEquals(1, rsp.getSuccessCount());
+        // encode failure does not stop the others
+        Assert.assertFalse(rsp.getResultList().get(0).isSuccess());
+        Assert.assertEquals(
+            Integer.valueOf(ConstantCode.VERSION_AND_ADDRESS_CANNOT_ALL_BE_NULL.getCode()),
+            rsp.getResultList().get(0).getCode());
+        // constant item is called without sign
+        Assert.assertTrue(rsp.getResultList().get(1).isSuccess());
+        Assert.assertEquals("[42]", JsonUtils.toJSONString(rsp.getResultList().get(1).getResult()));
+        // two pending items share one deadline of transMaxWait
+        for (int i = 2; i < 4; i++) {
+            Assert.assertFalse(rsp.getResultList().get(i).isSuccess());
+            Assert.assertEquals(
+                Integer.valueOf(ConstantCode.GET_TX_RECEIPT_TIMEOUT_ERROR.getCode()),
+                rsp.getResultList().get(i).getCode());
+        }
+        Assert.assertTrue(rsp.getTotalCostTime() < 2000);
+        verify(web3j, never()).sendRawTransaction(any(String.class));
+    }
+
+    @Test
+    public void testSignedTransBatch() {
+        doReturn(sendRequest("0x01", false)).when(web3j).sendRawTransaction("0xaa");
+        doReturn(sendRequest(null, true)).when(web3j).sendRawTransaction("0xbb");
+        // receipt never comes
+        doReturn(sendRequest(null, false)).when(web3j).sendRawTransaction("0xcc");
+
+        RspTransBatch rsp = transService.sendSignedTransactionBatch(
+            Arrays.asList("0xaa", "", "0xbb", "0xcc"), true, 1);
+
+        Assert.assertEquals(4, rsp.getTotalCount());
+        Assert.assertEquals(1, rsp.getSuccessCount());
+        Assert.assertTrue(rsp.getResultList().get(0).isSuccess());
+        Assert.assertEquals("0x01",
+            ((TransactionReceipt) rsp.getResultList().get(0).getResult()).getTransactionHash());
+        Assert.assertEquals(Integer.valueOf(ConstantCode.ENCODE_STR_CANNOT_BE_NULL.getCode()),
+            rsp.getResultList().get(1).getCode());
+        Assert.assertEquals(Integer.valueOf(ConstantCode.TRANSACTION_FAILED.getCode()),
+            rsp.getResultList().get(2).getCode());
+        Assert.assertEquals(Integer.valueOf(ConstantCode.GET_TX_RECEIPT_TIMEOUT_ERROR.getCode()),
+            rsp.getResultList().get(3).getCode());
+        Assert.assertTrue(rsp.getTotalCostTime() < 2000);
+    }
+
+    @Test
+    public void testAsyncSendFailed() {
+        doReturn(sendRequest("0x01", false)).when(web3j).sendRawTransaction("0xaa");
+        doReturn(sendRequest(null, true)).when(web3j).sendRawTransaction("0xbb");
+
+        RspTransBatch rsp = transService.sendSignedTransactionBatch(
+            Arrays.asList("0xaa", "0xbb"), false, 1);
+
+        Assert.assertTrue(rsp.getResultList().get(0).isSuccess());
+        Assert.assertEquals(Integer.valueOf(ConstantCode.TRANSACTION_FAILED.getCode()),
+            rsp.getResultList().get(1).getCode());
+        RspReceiptStatus done = transService.getReceiptStatus(Hash.sha3("0xaa"));
+        Assert.assertEquals(ReceiptStatus.DONE, done.getStatus());
+        Assert.assertEquals("0x01", done.getReceipt().getTransactionHash());
+        // failed send is not left PENDING
+        RspReceiptStatus failed = transService.getReceiptStatus(Hash.sha3("0xbb"));
+        Assert.assertEquals(ReceiptStatus.FAILED, failed.getStatus());
+        Assert.assertNotNull(failed.getErrorMessage());
+    }
+
+    @Test
+    public void testMultiCall() {
+        ReqMultiCall req = new ReqMultiCall();
+        req.setGroupId(1);
+        req.setAbiMap(Collections.singletonMap("store",
+            JsonUtils.toJavaObjectList(ABI, Object.class)));
+        req.setCallList(Arrays.asList(buildCall("store", "get"), buildCall("store", "get"),
+            buildCall("store", "set"), buildCall("none", "get"), buildCall("store", "get")));
+        req.getCallList().get(4).setFuncParam(Collections.singletonList(1));
+
+        RspTransBatch rsp = transService.multiCall(req);
+
+        Assert.assertEquals(5, rsp.getTotalCount());
+        Assert.assertEquals(2, rsp.getSuccessCount());
+        Assert.assertEquals("[42]", JsonUtils.toJSONString(rsp.getResultList().get(0).getResult()));
+        Assert.assertEquals("[42]", JsonUtils.toJSONString(rsp.getResultList().get(1).getResult()));
+        // non-constant function is rejected instead of being called
+        Assert.assertFalse(rsp.getResultList().get(2).isSuccess());
+        Assert.assertEquals(Integer.valueOf(ConstantCode.IN_FUNCTION_ERROR.getCode()),
+            rsp.getResultList().get(2).getCode());
+        Assert.assertEquals(Integer.valueOf(ConstantCode.ABI_GET_ERROR.getCode()),
+            rsp.getResultList().get(3).getCode());
+        Assert.assertEquals(Integer.valueOf(ConstantCode.IN_FUNCPARAM_ERROR.getCode()),
+            rsp.getResultList().get(4).getCode());
+        // abi of abiRef is looked up once for each function in batch
+        verify(abiFunctionCache, times(1)).getFunction(any(List.class), eq("get"));
+        verify(abiFunctionCache, times(1)).getFunction(any(List.class), eq("set"));
+    }
+
+    @Test
+    public void testMultiCallNullParam() {
+        ReqMultiCall req = new ReqMultiCall();
+        req.setGroupId(1);
+        req.setAbiMap(Collections.singletonMap("store",
+            JsonUtils.toJavaObjectList(ABI, Object.class)));
+        req.setCallList(Arrays.asList(buildCall("store", "get"), buildCall("store", "get")));
+        req.getCallList().get(0).setFuncParam(null);
+
+        RspTransBatch rsp = transService.multiCall(req);
+
+        // null param is taken as empty, not failing the whole batch
+        Assert.assertEquals(2, rsp.getSuccessCount());
+        Assert.assertEquals("[42]", JsonUtils.toJSONString(rsp.getResultList().get(0).getResult()));
+    }
+
+    private ReqCallItem buildCall(String abiRef, String funcName) {
+        ReqCallItem call = new ReqCallItem();
+        call.setContractAddress(ADDRESS);
+        call.setAbiRef(abiRef);
+        call.setFuncName(funcName);
+        return call;
+    }
+
+    /**
+     * request of sendRawTransaction which calls back with receipt on send
+     * @param txHash hash of receipt, no callback if null
+     * @param fail if true, send throws IOException
+     */
+    private Request<?, SendTransaction> sendRequest(String txHash, boolean fail) {
+        return new Request<Object, SendTransaction>() {
+            @Override
+            public SendTransaction send() throws IOException {
+                if (fail) {
+                    throw new IOException("channel closed");
+                }
+                if (txHash != null) {
+                    TransactionReceipt receipt = new TransactionReceipt();
+                    receipt.setTransactionHash(txHash);
+                    receipt.setStatus("0x0");
+                    getTransactionSucCallback().onResponse(receipt);
+                }
+                return null;
+            }
+        };
+    }
+
+    private ReqTransHandleWithSign buildReq(String funcName, List<Object> funcParam) {
+        ReqTransHandleWithSign req = new ReqTransHandleWithSign();
+        req.setGroupId(1);
+        req.setSignUserId("user");
+        req.setContractAddress(ADDRESS);
+        req.setContractAbi(JsonUtils.toJavaObjectList(ABI, Object.class));
+        req.setFuncName(funcName);
+        req.setFuncParam(funcParam);
+        return req;
+    }
+}
@@ -0,0 +1,196 @@
+/**
+ * Copyright 2014-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webank.webase.front.util;
+
+import com.webank.webase.front.transaction.entity.AbiFunctionDescriptor;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.fisco.bcos.web3j.abi.EventEncoder;
+import org.fisco.bcos.web3j.abi.EventValues;
+import org.fisco.bcos.web3j.abi.FunctionEncoder;
+import org.fisco.bcos.web3j.abi.TypeEncoder;
+import org.fisco.bcos.web3j.abi.datatypes.Address;
+import org.fisco.bcos.web3j.abi.datatypes.Bool;
+import org.fisco.bcos.web3j.abi.datatypes.DynamicArray;
+import org.fisco.bcos.web3j.abi.datatypes.DynamicBytes;
+import org.fisco.bcos.web3j.abi.datatypes.Event;
+import org.fisco.bcos.web3j.abi.datatypes.Function;
+import org.fisco.bcos.web3j.abi.datatypes.Type;
+import org.fisco.bcos.web3j.abi.datatypes.Utf8String;
+import org.fisco.bcos.web3j.abi.datatypes.generated.Bytes32;
+import org.fisco.bcos.web3j.abi.datatypes.generated.Int256;
+import org.fisco.bcos.web3j.abi.datatypes.generated.Int64;
+import org.fisco.bcos.web3j.abi.datatypes.generated.Uint256;
+import org.fisco.bcos.web3j.abi.datatypes.generated.Uint8;
+import org.fisco.bcos.web3j.protocol.core.methods.response.AbiDefinition;
+import org.fisco.bcos.web3j.protocol.core.methods.response.Log;
+import org.fisco.bcos.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.fisco.bcos.web3j.tx.Contract;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AbiUtilTest {
+
+    public static final String ABI = "[{\"constant\":false,\"inputs\":[{\"name\":\"ids\",\"type\":\"uint256[]\"},"
+        + "{\"name\":\"owner\",\"type\":\"address\"},{\"name\":\"key\",\"type\":\"bytes32\"},"
+        + "{\"name\":\"flag\",\"type\":\"bool\"},{\"name\":\"name\",\"type\":\"string\"}],"
+        + "\"name\":\"set\",\"outputs\":[{\"name\":\"\",\"type\":\"uint8\"},{\"name\":\"\",\"type\":\"string[]\"}],"
+        + "\"payable\":false,\"type\":\"function\"},"
+        + "{\"constant\":true,\"inputs\":[],\"name\":\"get\",\"outputs\":[{\"name\":\"\",\"type\":\"string\"}],"
+        + "\"payable\":false,\"type\":\"function\"}]";
+
+    @Test
+    public void testCompiledEncodeSameAsFunctionEncoder() {
+        AbiDefinition abiDefinition = AbiUtil.getAbiDefinition("set", ABI);
+        AbiFunctionDescriptor descriptor = AbiUtil.compileFunction(abiDefinition);
+        Assert.assertFalse(descriptor.isConstant());
+        Assert.assertEquals(2, descriptor.getOutputs().size());
+
+        List<Object> params = Arrays.asList(Arrays.asList(1, 2, 3),
+            "0x0000000000000000000000000000000000000001",
+            "0x0100000000000000000000000000000000000000000000000000000000000002", true, "hello");
+        List<Type> byCodec = AbiUtil.inputFormatByCodec(descriptor.getInputCodecs(), params);
+        List<Type> byString = AbiUtil.inputFormat(descriptor.getInputTypes(), params);
+        Assert.assertEquals(byString, byCodec);
+
+        String expected = FunctionEncoder.encode(new Function("set", byString, descriptor.getOutputs()));
+        String actual = FunctionEncoder.encodeParameters(byCodec,
+            new StringBuilder(descriptor.getMethodId()));
+        Assert.assertEquals(expected, actual);
+    }
+
+    /**
+     * result parsed by json round trip before
+     */
+    @SuppressWarnings("unchecked")
+    private static Object legacyCallResultParse(List<String> funOutputTypes, List<Type> typeList) {
+        List<Object> result = new ArrayList<>();
+        for (int i = 0; i < funOutputTypes.size(); i++) {
+            String type = funOutputTypes.get(i);
+            if (type.contains("[")) {
+                List<Object> values = new ArrayList<>();
+                for (Type element : (List<Type>) typeList.get(i).getValue()) {
+                    values.add(LegacyContractTypeUtil.decodeResult(element,
+                        AbiTypes.getType(type.substring(0, type.indexOf("[")))));
+                }
+                result.add(values);
+            } else {
+                result.add(LegacyContractTypeUtil.decodeResult(typeList.get(i), AbiTypes.getType(type)));
+            }
+        }
+        return JsonUtils.toJavaObject(JsonUtils.toJSONString(result), Object.class);
+    }
+
+    @Test
+    public void testCallResultParseSameAsJsonRoundTrip() {
+        byte[] bytes32 = new byte[32];
+        bytes32[0] = 1;
+        bytes32[31] = (byte) 0xff;
+        List<String> outputTypes = Arrays.asList("uint8", "uint256", "uint256", "int256", "int64",
+            "int64", "address", "bool", "string", "bytes32", "bytes", "uint256[]", "string[]",
+            "address[]");
+        List<Type> typeList = Arrays.asList(new Uint8(255),
+            new Uint256(BigInteger.valueOf(Integer.MAX_VALUE).add(BigInteger.ONE)),
+            new Uint256(BigInteger.ONE.shiftLeft(255)),
+            new Int256(BigInteger.valueOf(Long.MIN_VALUE)),
+            new Int64(BigInteger.valueOf(Long.MAX_VALUE)),
+            new Int64(BigInteger.valueOf(Integer.MIN_VALUE)),
+            new Address("0x0000000000000000000000000000000000000001"), new Bool(true),
+            new Utf8String("h\u00e9llo \"quoted\"\n"), new Bytes32(bytes32),
+            new DynamicBytes(new byte[]{0, 1, (byte) 0xfe}),
+            new DynamicArray<>(new Uint256(BigInteger.ZERO), new Uint256(BigInteger.TEN.pow(40))),
+            new DynamicArray<>(new Utf8String("a"), new Utf8String("")),
+            DynamicArray.empty("address"));
+
+        Object expected = legacyCallResultParse(outputTypes, typeList);
+        Object actual = AbiUtil.callResultParse(outputTypes, typeList);
+        Assert.assertEquals(expected, actual);
+        Assert.assertEquals(JsonUtils.toJSONString(expected), JsonUtils.toJSONString(actual));
+        List<Object> values = (List<Object>) actual;
+        for (int i = 0; i < values.size(); i++) {
+            Object expectedValue = ((List<Object>) expected).get(i);
+            Assert.assertEquals(outputTypes.get(i), expectedValue.getClass(),
+                values.get(i).getClass());
+        }
+    }
+
+    public static final String EVENT_ABI = "[{\"anonymous\":false,\"inputs\":["
+        + "{\"indexed\":true,\"name\":\"from\",\"type\":\"address\"},"
+        + "{\"indexed\":true,\"name\":\"to\",\"type\":\"address\"},"
+        + "{\"indexed\":false,\"name\":\"value\",\"type\":\"uint256\"}],"
+        + "\"name\":\"Transfer\",\"type\":\"event\"},"
+        + "{\"anonymous\":false,\"inputs\":[{\"indexed\":false,\"name\":\"memo\",\"type\":\"string\"},"
+        + "{\"indexed\":false,\"name\":\"ids\",\"type\":\"uint256[]\"}],"
+        + "\"name\":\"Note\",\"type\":\"event\"},"
+        + "{\"constant\":true,\"inputs\":[],\"name\":\"get\",\"outputs\":[{\"name\":\"\",\"type\":\"string\"}],"
+        + "\"payable\":false,\"type\":\"function\"}]";
+
+    private static Log eventLog(List<String> topics, List<Type> data) {
+        Log log = new Log();
+        log.setTopics(topics);
+        log.setData("0x" + FunctionEncoder.encodeConstructor(data));
+        return log;
+    }
+
+    private static String topicOf(Type indexed) {
+        return "0x" + TypeEncoder.encode(indexed);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testReceiptParseAllMatchedLogs() {
+        List<AbiDefinition> abiList = AbiUtil.checkAbi(EVENT_ABI);
+        Address from = new Address("0x0000000000000000000000000000000000000001");
+        Address to = new Address("0x0000000000000000000000000000000000000002");
+        String transferTopic = EventEncoder.buildEventSignature("Transfer(address,address,uint256)");
+        Event note = new Event("Note", AbiUtil.outputFormat(Arrays.asList("string", "uint256[]")));
+        String noteTopic = EventEncoder.encode(note);
+
+        List<Type> noteData = Arrays.asList(new Utf8String("memo"),
+            new DynamicArray<>(new Uint256(BigInteger.ONE), new Uint256(BigInteger.TEN)));
+        Log noteLog = eventLog(Arrays.asList(noteTopic), noteData);
+        TransactionReceipt receipt = new TransactionReceipt();
+        receipt.setLogs(Arrays.asList(
+            eventLog(Arrays.asList(transferTopic, topicOf(from), topicOf(to)),
+                Arrays.asList(new Uint256(BigInteger.valueOf(100)))),
+            noteLog,
+            eventLog(Arrays.asList("0x" + String.format("%064d", 0)), noteData),
+            eventLog(Arrays.asList(transferTopic, topicOf(to), topicOf(from)),
+                Arrays.asList(new Uint256(BigInteger.ONE.shiftLeft(100))))));
+
+        Map<String, List<Object>> result =
+            (Map<String, List<Object>>) AbiUtil.receiptParse(receipt, abiList);
+        Assert.assertEquals(2, result.size());
+        List<Object> transfers = result.get("Transfer");
+        Assert.assertEquals(2, transfers.size());
+        Assert.assertEquals(Arrays.asList(from.toString(), to.toString(), 100),
+            transfers.get(0));
+        Assert.assertEquals(Arrays.asList(to.toString(), from.toString(),
+            BigInteger.ONE.shiftLeft(100)), transfers.get(1));
+
+        // same values as decoded by web3j event extractor for non indexed event
+        EventValues eventValues = Contract.staticExtractEventParameters(note, noteLog);
+        Object expected = AbiUtil.callResultParse(Arrays.asList("string", "uint256[]"),
+            eventValues.getNonIndexedValues());
+        Assert.assertEquals(Arrays.asList(expected), result.get("Note"));
+
+        Assert.assertEquals(2, new EventLogDecoder(abiList).getEventCount());
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright 2014-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webank.webase.front.util;
+
+import com.webank.webase.front.base.code.ConstantCode;
+import com.webank.webase.front.base.exception.FrontException;
+import com.webank.webase.front.base.properties.Constants;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.fisco.bcos.web3j.protocol.core.methods.response.AbiDefinition;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * registry of contract abi without node
+ */
+public class ContractAbiRegistryTest {
+
+    private static List<AbiDefinition> helloAbi() throws Exception {
+        return ContractAbiUtil.loadContractDefinition(
+            new File("src/test/resources/solidity/HelloWorld.abi"));
+    }
+
+    @Test
+    public void testRegisterAndDuplicate() throws Exception {
+        String contractName = "registry" + UUID.randomUUID().toString().replace("-", "");
+        Assert.assertFalse(ContractAbiUtil.ifContractAbiExisted(contractName, "1.0"));
+
+        ContractAbiUtil.setContractWithAbi(contractName, "1.0", helloAbi(), false);
+        Assert.assertTrue(ContractAbiUtil.ifContractAbiExisted(contractName, "1.0"));
+        Assert.assertFalse(ContractAbiUtil.ifContractAbiExisted(contractName, "2.0"));
+        Assert.assertEquals(Arrays.asList("uint256[]"),
+            ContractAbiUtil.getFuncInputType(contractName, "set", "1.0"));
+        Assert.assertTrue(ContractAbiUtil.getConstant(contractName, "get", "1.0"));
+
+        try {
+            ContractAbiUtil.setContractWithAbi(contractName, "1.0", helloAbi(), false);
+            Assert.fail("duplicate version should be rejected");
+        } catch (FrontException e) {
+            Assert.assertEquals(ConstantCode.CONTRACT_DEPLOYED_ERROR.getCode(),
+                e.getRetCode().getCode());
+        }
+    }
+
+    @Test
+    public void testConcurrentRegister() throws Exception {
+        String contractName = "registry" + UUID.randomUUID().toString().replace("-", "");
+        List<AbiDefinition> abiList = helloAbi();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String version = String.valueOf(i);
+                futures.add(executor.submit(
+                    () -> ContractAbiUtil.setFunctionFromAbi(contractName, version, abiList)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        for (int i = 0; i < 200; i++) {
+            Assert.assertTrue(ContractAbiUtil.ifContractAbiExisted(contractName,
+                String.valueOf(i)));
+        }
+    }
+
+    @Test
+    public void testLoadAbiFileOnDemand() throws Exception {
+        String contractName = "registry" + UUID.randomUUID().toString().replace("-", "");
+        File abiFile = new File(Constants.ABI_DIR + Constants.DIAGONAL + contractName
+            + Constants.SEP + "1.0");
+        FrontUtils.createFileIfNotExist(abiFile, true);
+        try {
+            Files.copy(new File("src/test/resources/solidity/HelloWorld.abi").toPath(),
+                abiFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            ContractAbiUtil.VersionEvent versionEvent =
+                ContractAbiUtil.getVersionEvent(contractName, "1.0");
+            Assert.assertNotNull(versionEvent);
+            Assert.assertEquals("1.0", versionEvent.getVersion());
+            Assert.assertEquals(Arrays.asList("uint256[]"),
+                ContractAbiUtil.getFuncOutputType(contractName, "get", "1.0"));
+        } finally {
+            Files.deleteIfExists(abiFile.toPath());
+        }
+    }
+
+    @Test
+    public void testRejectPathSeparator() throws Exception {
+        Assert.assertNull(ContractAbiUtil.getVersionEvent("../conf/application", "yml"));
+        Assert.assertNull(ContractAbiUtil.getVersionEvent("hello", "1.0/../../x"));
+        Assert.assertNull(ContractAbiUtil.getVersionEvent("..\\hello", "1.0"));
+        try {
+            ContractAbiUtil.setContractWithAbi("../hello", "1.0", helloAbi(), false);
+            Assert.fail("path separator should be rejected");
+        } catch (FrontException e) {
+            Assert.assertEquals(ConstantCode.PARAM_ERROR.getCode(), e.getRetCode().getCode());
+        }
+    }
+
+    @Test
+    public void testMissOfAbiFileCached() throws Exception {
+        String contractName = "registry" + UUID.randomUUID().toString().replace("-", "");
+        Assert.assertNull(ContractAbiUtil.getVersionEvent(contractName, "1.0"));
+        File abiFile = new File(Constants.ABI_DIR + Constants.DIAGONAL + contractName
+            + Constants.SEP + "1.0");
+        FrontUtils.createFileIfNotExist(abiFile, true);
+        try {
+            Files.copy(new File("src/test/resources/solidity/HelloWorld.abi").toPath(),
+                abiFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            // file is not checked again until miss expired
+            Assert.assertNull(ContractAbiUtil.getVersionEvent(contractName, "1.0"));
+            // registering invalidates miss
+            ContractAbiUtil.setFunctionFromAbi(contractName, "1.0", helloAbi());
+            Assert.assertNotNull(ContractAbiUtil.getVersionEvent(contractName, "1.0"));
+        } finally {
+            Files.deleteIfExists(abiFile.toPath());
+        }
+    }
+}
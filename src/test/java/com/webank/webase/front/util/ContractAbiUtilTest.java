@@ -40,7 +40,6 @@ import java.util.HashMap;
 import java.util.List;
 
 import static com.webank.webase.front.util.AbiUtil.outputFormat;
-import static com.webank.webase.front.util.ContractAbiUtil.contractEventMap;
 import static org.junit.Assert.assertEquals;
 
 public class ContractAbiUtilTest extends TestBase {
@@ -99,9 +98,9 @@ public class ContractAbiUtilTest extends TestBase {
         String version = "1.0";
         List<AbiDefinition> abiList = ContractAbiUtil.loadContractDefinition(new File("src/test/resources/solidity/Ok.abi"));
         ContractAbiUtil.setContractWithAbi(contractName, version, abiList, false);
-        List<ContractAbiUtil.VersionEvent> versionEvents = contractEventMap.get("hello");
+        ContractAbiUtil.VersionEvent versionEvent = ContractAbiUtil.getVersionEvent(contractName, version);
         String funcName = "trans";
-        List<String> funcInputTypes = versionEvents.get(0).getFuncInputs().get(funcName);
+        List<String> funcInputTypes = versionEvent.getFuncInputs().get(funcName);
         ArrayList a = new ArrayList();
         a.add("123");
         List<Object> params = a;
@@ -120,7 +119,7 @@ public class ContractAbiUtilTest extends TestBase {
 
         //invoke get function
         String funcName1 = "get";
-        List<String> funcInputTypes1 = versionEvents.get(0).getFuncInputs().get(funcName1);
+        List<String> funcInputTypes1 = versionEvent.getFuncInputs().get(funcName1);
         ArrayList a1 = new ArrayList();
         List<Object> params1 = a1;
         List<Type> finalInputs1 = AbiUtil.inputFormat(funcInputTypes1, params1);
@@ -136,9 +135,9 @@ public class ContractAbiUtilTest extends TestBase {
         String version = "1.0";
         List<AbiDefinition> abiList = ContractAbiUtil.loadContractDefinition(new File("src/test/resources/solidity/HelloWorld.abi"));
         ContractAbiUtil.setContractWithAbi(contractName, version, abiList, false);
-        List<ContractAbiUtil.VersionEvent> versionEvents = contractEventMap.get("hello");
+        ContractAbiUtil.VersionEvent versionEvent = ContractAbiUtil.getVersionEvent(contractName, version);
         String funcName = "set";
-        List<String> funcInputTypes = versionEvents.get(0).getFuncInputs().get(funcName);
+        List<String> funcInputTypes = versionEvent.getFuncInputs().get(funcName);
         ArrayList a = new ArrayList();
 //        a.add("123");
 //        a.add("12345");
@@ -160,7 +159,7 @@ public class ContractAbiUtilTest extends TestBase {
        ilist.stream().forEach(System.out::println);
        //invoke get function
         String funcName1 = "get";
-        List<String> funcInputTypes1 = versionEvents.get(0).getFuncInputs().get(funcName1);
+        List<String> funcInputTypes1 = versionEvent.getFuncInputs().get(funcName1);
         ArrayList a1 = new ArrayList();
         List<Object> params1 = a1;
         List<Type> finalInputs1 = AbiUtil.inputFormat(funcInputTypes1, params1);
@@ -0,0 +1,107 @@
+/**
+ * Copyright 2014-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webank.webase.front.util;
+
+import com.webank.webase.front.base.code.ConstantCode;
+import com.webank.webase.front.base.exception.FrontException;
+import com.webank.webase.front.util.ContractTypeUtil.TypeCodec;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.fisco.bcos.web3j.abi.datatypes.Type;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ContractTypeUtilTest {
+
+    /**
+     * sample input of every supported type
+     */
+    private static Map<String, String> sampleInputs() {
+        Map<String, String> inputs = new LinkedHashMap<>();
+        inputs.put("address", "0x0000000000000000000000000000000000000001");
+        inputs.put("bool", "true");
+        inputs.put("string", "hello");
+        inputs.put("bytes", "0x0102ff");
+        for (int bitSize = 8; bitSize <= 256; bitSize += 8) {
+            inputs.put("uint" + bitSize, "127");
+            inputs.put("int" + bitSize, "-128");
+        }
+        for (int byteSize = 1; byteSize <= 32; byteSize++) {
+            StringBuilder hex = new StringBuilder("0x");
+            for (int i = 0; i < byteSize; i++) {
+                hex.append(String.format("%02x", i + 1));
+            }
+            inputs.put("bytes" + byteSize, hex.toString());
+        }
+        return inputs;
+    }
+
+    private static Type legacyEncode(String type, String input) {
+        Object value = LegacyContractTypeUtil.parseByType(type, input);
+        return LegacyContractTypeUtil.generateClassFromInput(value.toString(), AbiTypes.getType(type));
+    }
+
+    @Test
+    public void testCodecSameAsReflection() {
+        for (Map.Entry<String, String> entry : sampleInputs().entrySet()) {
+            String type = entry.getKey();
+            TypeCodec codec = ContractTypeUtil.getCodec(type);
+            Assert.assertEquals(type, AbiTypes.getType(type), codec.getTypeClass());
+
+            Type expected = legacyEncode(type, entry.getValue());
+            Type actual = codec.encode(entry.getValue());
+            Assert.assertEquals(type, expected, actual);
+            Assert.assertEquals(type,
+                LegacyContractTypeUtil.decodeResult(expected, AbiTypes.getType(type)),
+                codec.decode(actual));
+        }
+    }
+
+    @Test
+    public void testCodecErrorSameAsReflection() {
+        // invalid number, out of range number, wrong length of bytesN
+        String[][] invalidInputs = {{"uint8", "abc"}, {"uint8", "256"}, {"int16", "-1000000"},
+            {"bytes4", "0x0102"}, {"bytes32", "0x01"}};
+        for (String[] invalid : invalidInputs) {
+            Integer expected = null;
+            try {
+                legacyEncode(invalid[0], invalid[1]);
+            } catch (FrontException e) {
+                expected = e.getRetCode().getCode();
+            }
+            Integer actual = null;
+            try {
+                ContractTypeUtil.getCodec(invalid[0]).encode(invalid[1]);
+            } catch (FrontException e) {
+                actual = e.getRetCode().getCode();
+            }
+            Assert.assertNotNull(invalid[0] + ":" + invalid[1], expected);
+            Assert.assertEquals(invalid[0] + ":" + invalid[1], expected, actual);
+        }
+    }
+
+    @Test
+    public void testUnsupportedType() {
+        try {
+            ContractTypeUtil.getCodec("fixed128x18");
+            Assert.fail();
+        } catch (FrontException e) {
+            Assert.assertEquals(ConstantCode.IN_FUNCPARAM_ERROR.getCode(),
+                e.getRetCode().getCode());
+        }
+    }
+}
@@ -0,0 +1,258 @@
+/**
+ * Copyright 2014-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webank.webase.front.util;
+
+import com.webank.webase.front.base.code.ConstantCode;
+import com.webank.webase.front.base.exception.FrontException;
+import java.lang.reflect.InvocationTargetException;
+import java.math.BigInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.binary.Hex;
+import org.fisco.bcos.web3j.abi.datatypes.Address;
+import org.fisco.bcos.web3j.abi.datatypes.Bool;
+import org.fisco.bcos.web3j.abi.datatypes.Bytes;
+import org.fisco.bcos.web3j.abi.datatypes.DynamicBytes;
+import org.fisco.bcos.web3j.abi.datatypes.NumericType;
+import org.fisco.bcos.web3j.abi.datatypes.Type;
+import org.fisco.bcos.web3j.abi.datatypes.Utf8String;
+import org.fisco.bcos.web3j.utils.Numeric;
+
+/**
+ * reflective encoding and decoding replaced by type codec of ContractTypeUtil,
+ * kept as golden reference of codec in tests and ContractTypeUtilBenchmark
+ */
+@Slf4j
+public class LegacyContractTypeUtil {
+
+    /**
+     * parseByType.
+     * 
+     * @param type type
+     * @param value value
+     * @return
+     */
+    public static Object parseByType(String type, String value) throws FrontException {
+        try {
+            switch (type) {
+                case "address":
+                    return value;
+                case "bool":
+                    return Boolean.valueOf(value);
+                case "string":
+                    return value;
+                case "uint8":
+                case "int8":
+                case "uint16":
+                case "int16":
+                case "uint24":
+                case "int24":
+                case "uint32":
+                case "int32":
+                case "uint40":
+                case "int40":
+                case "uint48":
+                case "int48":
+                case "uint56":
+                case "int56":
+                case "uint64":
+                case "int64":
+                case "uint72":
+                case "int72":
+                case "uint80":
+                case "int80":
+                case "uint88":
+                case "int88":
+                case "uint96":
+                case "int96":
+                case "uint104":
+                case "int104":
+                case "uint112":
+                case "int112":
+                case "uint120":
+                case "int120":
+                case "uint128":
+                case "int128":
+                case "uint136":
+                case "int136":
+                case "uint144":
+                case "int144":
+                case "uint152":
+                case "int152":
+                case "uint160":
+                case "int160":
+                case "uint168":
+                case "int168":
+                case "uint176":
+                case "int176":
+                case "uint184":
+                case "int184":
+                case "uint192":
+                case "int192":
+                case "uint200":
+                case "int200":
+                case "uint208":
+                case "int208":
+                case "uint216":
+                case "int216":
+                case "uint224":
+                case "int224":
+                case "uint232":
+                case "int232":
+                case "uint240":
+                case "int240":
+                case "uint248":
+                case "int248":
+                case "uint256":
+                case "int256":
+                    return new BigInteger(value);
+                case "bytes1":
+                case "bytes2":
+                case "bytes3":
+                case "bytes4":
+                case "bytes5":
+                case "bytes6":
+                case "bytes7":
+                case "bytes8":
+                case "bytes9":
+                case "bytes10":
+                case "bytes11":
+                case "bytes12":
+                case "bytes13":
+                case "bytes14":
+                case "bytes15":
+                case "bytes16":
+                case "bytes17":
+                case "bytes18":
+                case "bytes19":
+                case "bytes20":
+                case "bytes21":
+                case "bytes22":
+                case "bytes23":
+                case "bytes24":
+                case "bytes25":
+                case "bytes26":
+                case "bytes27":
+                case "bytes28":
+                case "bytes29":
+                case "bytes30":
+                case "bytes31":
+                case "bytes32":
+                case "bytes":
+                    return value;
+                default:
+                    throw new FrontException(ConstantCode.CONTRACT_TYPE_ENCODED_ERROR.getCode(),
+                            String.format("type:%s unsupported encoding", type));
+            }
+        } catch (Exception e) {
+            log.error("parseByType failed type:{} value:{}", type, value);
+            throw new FrontException(ConstantCode.IN_FUNCPARAM_ERROR);
+        }
+    }
+
+    /**
+     * generateClassFromInput.
+     * 
+     * @param input input
+     * @param type type
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Type> T generateClassFromInput(String input, Class<T> type)
+            throws FrontException {
+        try {
+            if (Address.class.isAssignableFrom(type)) {
+                return (T) new Address(input);
+            } else if (NumericType.class.isAssignableFrom(type)) {
+                return (T) encodeNumeric(input, (Class<NumericType>) type);
+            } else if (Bool.class.isAssignableFrom(type)) {
+                return (T) new Bool(Boolean.valueOf(input));
+            } else if (Utf8String.class.isAssignableFrom(type)) {
+                return (T) new Utf8String(input);
+            } else if (Bytes.class.isAssignableFrom(type)) {
+                return (T) encodeBytes(input, (Class<Bytes>) type);
+            } else if (DynamicBytes.class.isAssignableFrom(type)) {
+                return (T) new DynamicBytes(Numeric.hexStringToByteArray(input));
+            } else {
+                throw new FrontException(ConstantCode.CONTRACT_TYPE_ENCODED_ERROR.getCode(),
+                        String.format("type:%s unsupported encoding", type.getName()));
+            }
+        } catch (FrontException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("generateClassFromInput failed input:{} type:{}", input, type.getName());
+            throw new FrontException(ConstantCode.IN_FUNCPARAM_ERROR);
+        }
+    }
+
+    /**
+     * decodeResult.
+     * 
+     * @param result result
+     * @param type type
+     * @return
+     */
+    public static <T> Object decodeResult(Type result, Class<T> type) throws FrontException {
+        try {
+            if (Address.class.isAssignableFrom(type)) {
+                return result.toString();
+            } else if (NumericType.class.isAssignableFrom(type)) {
+                return result.getValue();
+            } else if (Bool.class.isAssignableFrom(type)) {
+                return result.getValue();
+            } else if (Utf8String.class.isAssignableFrom(type)) {
+                return result.getValue().toString();
+            } else if (Bytes.class.isAssignableFrom(type)) {
+                return ContractTypeUtil.decodeBytes((Bytes) result);
+            } else if (DynamicBytes.class.isAssignableFrom(type)) {
+                return "0x" + Hex.encodeHexString((byte[]) result.getValue());
+            } else {
+                throw new FrontException(ConstantCode.CONTRACT_TYPE_DECODED_ERROR.getCode(),
+                        String.format("type:%s unsupported decoding", type.getName()));
+            }
+        } catch (FrontException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("decodeResult failed result:{} type:{}", result, type.getName());
+            throw new FrontException(ConstantCode.IN_FUNCPARAM_ERROR);
+        }
+    }
+
+    static <T extends NumericType> T encodeNumeric(String input, Class<T> type)
+            throws FrontException {
+        try {
+            BigInteger numericValue = new BigInteger(input);
+            return type.getConstructor(BigInteger.class).newInstance(numericValue);
+        } catch (NoSuchMethodException | SecurityException | InstantiationException
+                | IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+            log.error("encodeNumeric failed.");
+            throw new FrontException(ConstantCode.CONTRACT_TYPE_PARAM_ERROR.getCode(),
+                    String.format("unable to create instance of type:%s", type.getName()));
+        }
+    }
+
+    static <T extends Bytes> T encodeBytes(String input, Class<T> type) throws FrontException {
+        try {
+            byte[] bytes = Numeric.hexStringToByteArray(input);
+            return type.getConstructor(byte[].class).newInstance(bytes);
+        } catch (NoSuchMethodException | SecurityException | InstantiationException
+                | IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+            log.error("encodeBytes failed.", e);
+            throw new FrontException(ConstantCode.CONTRACT_TYPE_PARAM_ERROR.getCode(),
+                    String.format("unable to create instance of type:%s", type.getName()));
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/**
+ * Copyright 2014-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webank.webase.front.web3api;
+
+import com.webank.webase.front.base.properties.Constants;
+import com.webank.webase.front.web3api.entity.ChainDataCacheStat;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.fisco.bcos.web3j.protocol.core.methods.response.BcosBlock;
+import org.fisco.bcos.web3j.protocol.core.methods.response.BcosBlock.TransactionObject;
+import org.fisco.bcos.web3j.protocol.core.methods.response.BcosBlock.TransactionResult;
+import org.fisco.bcos.web3j.protocol.core.methods.response.Transaction;
+import org.fisco.bcos.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * block, transaction and receipt cache without node
+ */
+public class ChainDataCacheTest {
+
+    private Constants constants;
+    private ChainDataCache chainDataCache;
+
+    @Before
+    public void init() {
+        constants = new Constants();
+        chainDataCache = new ChainDataCache();
+        ReflectionTestUtils.setField(chainDataCache, "constants", constants);
+        chainDataCache.init();
+    }
+
+    private static BcosBlock.Block block(long number, int transCnt) {
+        BcosBlock.Block block = new BcosBlock.Block();
+        block.setNumber("0x" + Long.toHexString(number));
+        block.setHash("0xAB" + number);
+        List<TransactionResult> transactions = new ArrayList<>();
+        for (int i = 0; i < transCnt; i++) {
+            TransactionObject transaction = new TransactionObject();
+            transaction.setHash("0x" + number + "t" + i);
+            transaction.setBlockNumber(block.getNumberRaw());
+            transactions.add(transaction);
+        }
+        block.setTransactions(transactions);
+        return block;
+    }
+
+    @Test
+    public void testBlockByNumberAndHash() {
+        AtomicInteger loadCount = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            BcosBlock.Block block = chainDataCache.getBlockByNumber(1, BigInteger.TEN, () -> {
+                loadCount.incrementAndGet();
+                return block(10, 2);
+            });
+            Assert.assertEquals(BigInteger.TEN, block.getNumber());
+        }
+        // indexed by hash (case insensitive) and kept transaction count
+        BcosBlock.Block byHash = chainDataCache.getBlockByHash(1, "0xab10", () -> {
+            loadCount.incrementAndGet();
+            return null;
+        });
+        Assert.assertEquals(BigInteger.TEN, byHash.getNumber());
+        Assert.assertEquals(2, chainDataCache.getBlockTransCnt(1, BigInteger.TEN, () -> null)
+            .intValue());
+        Assert.assertEquals(1, loadCount.get());
+        // other group not shared
+        Assert.assertNull(chainDataCache.getBlockByNumber(2, BigInteger.TEN, () -> null));
+
+        Transaction transaction = chainDataCache.getTransByBlockNumberAndIndex(1,
+            BigInteger.TEN, BigInteger.ONE);
+        Assert.assertEquals("0x10t1", transaction.getHash());
+        Assert.assertNull(chainDataCache.getTransByBlockNumberAndIndex(1, BigInteger.TEN,
+            BigInteger.valueOf(2)));
+        Assert.assertNull(chainDataCache.getTransByBlockNumberAndIndex(1, BigInteger.ONE,
+            BigInteger.ZERO));
+
+        ChainDataCacheStat stat = chainDataCache.getStat();
+        Assert.assertEquals(4, stat.getBlockHit());
+        Assert.assertEquals(2, stat.getBlockMiss());
+        Assert.assertTrue(stat.getWeightBytes() > 0);
+    }
+
+    @Test
+    public void testPendingNotCached() {
+        AtomicInteger loadCount = new AtomicInteger();
+        Assert.assertNull(chainDataCache.getTransactionReceipt(1, "0x1", () -> {
+            loadCount.incrementAndGet();
+            return null;
+        }));
+        TransactionReceipt receipt = new TransactionReceipt();
+        receipt.setTransactionHash("0x1");
+        receipt.setBlockNumber("0x1");
+        for (int i = 0; i < 3; i++) {
+            Assert.assertSame(receipt, chainDataCache.getTransactionReceipt(1, "0x1", () -> {
+                loadCount.incrementAndGet();
+                return receipt;
+            }));
+        }
+        Assert.assertEquals(2, loadCount.get());
+
+        // transaction not in block yet
+        Transaction pending = new Transaction();
+        pending.setHash("0x2");
+        chainDataCache.getTransaction(1, "0x2", () -> pending);
+        Assert.assertNull(chainDataCache.getTransaction(1, "0x2", () -> null));
+        Assert.assertEquals(2, chainDataCache.getStat().getTransMiss());
+    }
+
+    @Test
+    public void testBoundedByBytes() {
+        constants.setChainDataCacheMaxBytes(4096);
+        chainDataCache.init();
+        for (long i = 0; i < 100; i++) {
+            long number = i;
+            chainDataCache.getBlockByNumber(1, BigInteger.valueOf(i), () -> block(number, 5));
+        }
+        ChainDataCacheStat stat = chainDataCache.getStat();
+        Assert.assertTrue(stat.getWeightBytes() <= 4096);
+        Assert.assertTrue(stat.getCacheStat().getEvictionCount() > 0);
+        Assert.assertTrue(stat.getCacheStat().getSize() < 100);
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright 2014-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webank.webase.front.web3api;
+
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.webank.webase.front.base.exception.FrontException;
+import com.webank.webase.front.base.properties.Constants;
+import com.webank.webase.front.web3api.entity.ChainHead;
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.fisco.bcos.web3j.protocol.Web3j;
+import org.fisco.bcos.web3j.protocol.core.Request;
+import org.fisco.bcos.web3j.protocol.core.methods.response.BlockNumber;
+import org.fisco.bcos.web3j.protocol.core.methods.response.PbftView;
+import org.fisco.bcos.web3j.protocol.core.methods.response.PendingTxSize;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * chain head snapshot of group with mocked web3j
+ */
+public class ChainHeadTrackerTest {
+
+    private Web3j web3j;
+    private Request blockNumberRequest;
+    private Constants constants;
+    private ChainHeadTracker chainHeadTracker;
+
+    @Before
+    public void init() {
+        web3j = mock(Web3j.class);
+        blockNumberRequest = mock(Request.class);
+        Request pbftViewRequest = mock(Request.class);
+        Request pendingRequest = mock(Request.class);
+        doReturn(blockNumberRequest).when(web3j).getBlockNumber();
+        doReturn(pbftViewRequest).when(web3j).getPbftView();
+        doReturn(pendingRequest).when(web3j).getPendingTxSize();
+        setBlockNumber(10);
+        PbftView pbftView = new PbftView();
+        pbftView.setResult("0x5");
+        when(pbftViewRequest.sendAsync()).thenReturn(CompletableFuture.completedFuture(pbftView));
+        PendingTxSize pendingTxSize = new PendingTxSize();
+        pendingTxSize.setResult("0x2");
+        when(pendingRequest.sendAsync())
+            .thenReturn(CompletableFuture.completedFuture(pendingTxSize));
+
+        Map<Integer, Web3j> web3jMap = new HashMap<>();
+        web3jMap.put(1, web3j);
+        constants = new Constants();
+        chainHeadTracker = new ChainHeadTracker();
+        ReflectionTestUtils.setField(chainHeadTracker, "web3jMap", web3jMap);
+        ReflectionTestUtils.setField(chainHeadTracker, "constants", constants);
+    }
+
+    private void setBlockNumber(long number) {
+        BlockNumber blockNumber = new BlockNumber();
+        blockNumber.setResult("0x" + Long.toHexString(number));
+        when(blockNumberRequest.sendAsync())
+            .thenReturn(CompletableFuture.completedFuture(blockNumber));
+    }
+
+    @Test
+    public void testRefreshAndNotify() {
+        Assert.assertNull(chainHeadTracker.getSnapshot(1));
+        // not tracked before refreshed
+        chainHeadTracker.onBlockNotify(1, BigInteger.ONE);
+        Assert.assertNull(chainHeadTracker.getSnapshot(1));
+
+        chainHeadTracker.refresh();
+        ChainHead head = chainHeadTracker.getHead(1);
+        Assert.assertEquals(BigInteger.TEN, head.getBlockNumber());
+        Assert.assertEquals(BigInteger.valueOf(5), head.getPbftView());
+        Assert.assertEquals(BigInteger.valueOf(2), head.getPendingTxSize());
+
+        chainHeadTracker.onBlockNotify(1, BigInteger.valueOf(12));
+        chainHeadTracker.onBlockNotify(1, BigInteger.valueOf(11));
+        Assert.assertEquals(BigInteger.valueOf(12), chainHeadTracker.getHead(1).getBlockNumber());
+        Assert.assertNotSame(head, chainHeadTracker.getSnapshot(1));
+
+        // node behind notified height does not lower it
+        chainHeadTracker.refresh();
+        Assert.assertEquals(BigInteger.valueOf(12), chainHeadTracker.getHead(1).getBlockNumber());
+        setBlockNumber(20);
+        chainHeadTracker.refresh();
+        Assert.assertEquals(BigInteger.valueOf(20), chainHeadTracker.getHead(1).getBlockNumber());
+        // served from snapshot without request
+        verify(blockNumberRequest, times(3)).sendAsync();
+        Assert.assertNull(chainHeadTracker.getHead(2));
+    }
+
+    @Test
+    public void testStaleRefreshedOnRead() {
+        constants.setChainHeadMaxStaleTime(-1);
+        chainHeadTracker.refresh();
+        chainHeadTracker.getHead(1);
+        chainHeadTracker.getHead(1);
+        verify(blockNumberRequest, times(3)).sendAsync();
+    }
+
+    @Test(expected = FrontException.class)
+    public void testRequestFailed() {
+        CompletableFuture<BlockNumber> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new RuntimeException("node down"));
+        when(blockNumberRequest.sendAsync()).thenReturn(failed);
+        // failure of scheduled refresh is only logged
+        chainHeadTracker.refresh();
+        chainHeadTracker.getHead(1);
+    }
+}
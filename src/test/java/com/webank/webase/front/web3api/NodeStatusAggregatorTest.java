@@ -0,0 +1,155 @@
+/**
+ * Copyright 2014-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webank.webase.front.web3api;
+
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.webank.webase.front.base.enums.DataStatus;
+import com.webank.webase.front.base.properties.Constants;
+import com.webank.webase.front.util.JsonUtils;
+import com.webank.webase.front.web3api.entity.NodeStatusInfo;
+import com.webank.webase.front.web3api.entity.NodeStatusSnapshot;
+import com.webank.webase.front.web3api.entity.PeerOfConsensusStatus;
+import com.webank.webase.front.web3api.entity.SyncStatus;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.fisco.bcos.web3j.protocol.Web3j;
+import org.fisco.bcos.web3j.protocol.core.Request;
+import org.fisco.bcos.web3j.protocol.core.methods.response.GroupPeers;
+import org.fisco.bcos.web3j.protocol.core.methods.response.ObserverList;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * node status snapshot of group with mocked web3j
+ */
+public class NodeStatusAggregatorTest {
+
+    private static final String SYNC_STATUS = "{\"blockNumber\":10,\"nodeId\":\"node1\","
+        + "\"peers\":[{\"nodeId\":\"node2\",\"blockNumber\":9},"
+        + "{\"nodeId\":\"node3\",\"blockNumber\":8}]}";
+    private static final String CONSENSUS_STATUS = "[{\"accountType\":1},"
+        + "[{\"nodeId\":\"node1\",\"view\":5},{\"nodeId\":\"node2\",\"view\":5}]]";
+
+    private Request groupPeersRequest;
+    private Constants constants;
+    private ThreadPoolTaskExecutor executor;
+    private NodeStatusAggregator aggregator;
+
+    @Before
+    public void init() throws Exception {
+        Web3j web3j = mock(Web3j.class);
+        groupPeersRequest = mock(Request.class);
+        Request observerRequest = mock(Request.class);
+        Request syncStatusRequest = mock(Request.class);
+        Request consensusRequest = mock(Request.class);
+        doReturn(groupPeersRequest).when(web3j).getGroupPeers();
+        doReturn(observerRequest).when(web3j).getObserverList();
+        doReturn(syncStatusRequest).when(web3j).getSyncStatus();
+        doReturn(consensusRequest).when(web3j).getConsensusStatus();
+        GroupPeers groupPeers = new GroupPeers();
+        groupPeers.setResult(Arrays.asList("node1", "node2", "node3"));
+        when(groupPeersRequest.send()).thenReturn(groupPeers);
+        ObserverList observerList = new ObserverList();
+        observerList.setResult(Collections.singletonList("node3"));
+        when(observerRequest.send()).thenReturn(observerList);
+        when(syncStatusRequest.sendForReturnString()).thenReturn(SYNC_STATUS);
+        when(consensusRequest.sendForReturnString()).thenReturn(CONSENSUS_STATUS);
+
+        Map<Integer, Web3j> web3jMap = new HashMap<>();
+        web3jMap.put(1, web3j);
+        constants = new Constants();
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(4);
+        executor.initialize();
+        aggregator = new NodeStatusAggregator();
+        ReflectionTestUtils.setField(aggregator, "web3jMap", web3jMap);
+        ReflectionTestUtils.setField(aggregator, "constants", constants);
+        ReflectionTestUtils.setField(aggregator, "nodeStatusThreadPool", executor);
+    }
+
+    @After
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void testRefreshAndServeSnapshot() throws Exception {
+        aggregator.refresh();
+        NodeStatusSnapshot snapshot = aggregator.getSnapshot(1);
+        Assert.assertEquals(3, snapshot.getNodeStatusList().size());
+        NodeStatusInfo node2 = snapshot.getNodeStatusList().get(1);
+        Assert.assertEquals("node2", node2.getNodeId());
+        Assert.assertEquals(BigInteger.valueOf(9), node2.getBlockNumber());
+        Assert.assertEquals(BigInteger.valueOf(5), node2.getPbftView());
+        Assert.assertEquals(BigInteger.ZERO,
+            snapshot.getNodeStatusList().get(2).getPbftView());
+
+        List<NodeStatusInfo> statusList = aggregator.getNodeStatusList(1);
+        Assert.assertEquals(3, statusList.size());
+        Assert.assertNotNull(statusList.get(0).getSnapshotAge());
+        // snapshot items not changed by readers
+        Assert.assertNull(snapshot.getNodeStatusList().get(0).getSnapshotAge());
+        verify(groupPeersRequest, times(1)).send();
+        Assert.assertTrue(aggregator.getNodeStatusList(2).isEmpty());
+
+        constants.setNodeStatusMaxStaleTime(-1);
+        aggregator.getNodeStatusList(1);
+        verify(groupPeersRequest, times(2)).send();
+    }
+
+    @Test
+    public void testCheckNodeStatus() {
+        SyncStatus syncStatus = JsonUtils.toJavaObject(SYNC_STATUS, SyncStatus.class);
+        List<PeerOfConsensusStatus> consensusList =
+            NodeStatusAggregator.parseConsensusStatus(CONSENSUS_STATUS);
+        Assert.assertEquals(2, consensusList.size());
+        LocalDateTime longAgo = LocalDateTime.now().minusMinutes(1);
+        NodeStatusSnapshot previous = new NodeStatusSnapshot(1, Arrays.asList(
+            new NodeStatusInfo("node1", BigInteger.ZERO, BigInteger.ZERO, 1, longAgo),
+            new NodeStatusInfo("node2", BigInteger.valueOf(9), BigInteger.valueOf(5), 1, longAgo),
+            new NodeStatusInfo("node3", BigInteger.ZERO, BigInteger.ZERO, 1,
+                LocalDateTime.now())), 0);
+
+        NodeStatusSnapshot snapshot = NodeStatusAggregator.build(1, previous,
+            Arrays.asList("node1", "node2", "node3"), Collections.singletonList("node3"),
+            syncStatus, consensusList);
+        List<NodeStatusInfo> statusList = snapshot.getNodeStatusList();
+        // moved
+        Assert.assertEquals(Integer.valueOf(DataStatus.NORMAL.getValue()), statusList.get(0).getStatus());
+        Assert.assertEquals(BigInteger.TEN, statusList.get(0).getBlockNumber());
+        // neither block nor view moved
+        Assert.assertEquals(Integer.valueOf(DataStatus.INVALID.getValue()), statusList.get(1).getStatus());
+        // checked recently, previous status kept
+        Assert.assertSame(previous.getNodeStatusList().get(2), statusList.get(2));
+        Assert.assertEquals(BigInteger.ZERO, previous.getNodeStatusList().get(0).getBlockNumber());
+    }
+}